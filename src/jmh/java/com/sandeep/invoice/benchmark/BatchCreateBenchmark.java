@@ -0,0 +1,70 @@
+package com.sandeep.invoice.benchmark;
+
+import com.sandeep.invoice.dto.BatchCreateInvoiceResponse;
+import com.sandeep.invoice.dto.CreateInvoiceRequest;
+import com.sandeep.invoice.service.InvoiceService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of creating 1,000 invoices in an embedded H2 database with one {@code createInvoices} batch and
+ * with looping {@code createInvoice}, the services behind {@code POST /invoices:batch} and
+ * {@code POST /invoices}. The created invoices are deleted after every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BatchCreateBenchmark {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    private ConfigurableApplicationContext context;
+    private InvoiceService invoiceService;
+    private List<CreateInvoiceRequest> invoices;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("batch-create-benchmark");
+        invoiceService = context.getBean(InvoiceService.class);
+        invoices = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            invoices.add(CreateInvoiceRequest.builder()
+                    .amount(BigDecimal.valueOf(100 + i % 900, 0))
+                    .dueDate(LocalDate.now().plusDays(30))
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteInvoices() {
+        context.getBean(JdbcTemplate.class).update("DELETE FROM invoice");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BatchCreateInvoiceResponse batch() {
+        return invoiceService.createInvoices(invoices);
+    }
+
+    @Benchmark
+    public void single(Blackhole blackhole) {
+        for (CreateInvoiceRequest invoice : invoices) {
+            blackhole.consume(invoiceService.createInvoice(invoice));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.sandeep.invoice.benchmark;
+
+import com.sandeep.invoice.InvoiceApplication;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.memory.MemoryInvoiceStore;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts the application without a web server on a private in-memory H2 database and seeds it with
+ * invoices for the JMH benchmarks. With the {@code memory} profile the invoices are seeded into the
+ * in-memory store instead.
+ */
+final class BenchmarkDatabase {
+
+    private BenchmarkDatabase() {
+    }
+
+    static ConfigurableApplicationContext start(String name, String... profiles) {
+        return start(name, Map.of(), profiles);
+    }
+
+    /**
+     * Like {@link #start(String, String...)}, with additional application properties.
+     */
+    static ConfigurableApplicationContext start(String name, Map<String, Object> properties, String... profiles) {
+        return new SpringApplicationBuilder(InvoiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(profiles)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + name,
+                        "spring.h2.console.enabled=false",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "logging.level.com.sandeep.invoice=OFF")
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * Inserts {@code rows} pending invoices with ids 1 to {@code rows} in a single statement and moves
+     * the id sequence past them. Every third invoice is partially paid and about half of them are
+     * overdue. Amounts are large enough to absorb millions of small payments.
+     */
+    static void seed(ConfigurableApplicationContext context, int rows) {
+        MemoryInvoiceStore memoryStore = context.getBeanProvider(MemoryInvoiceStore.class).getIfAvailable();
+        if (memoryStore != null) {
+            seed(memoryStore, rows);
+            return;
+        }
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO invoice (id, amount, paid_amount, due_date, status, version)"
+                + " SELECT X, 1000000 + MOD(X, 900), CASE WHEN MOD(X, 3) = 0 THEN 10 ELSE 0 END,"
+                + " DATEADD('DAY', MOD(X, 60) - 30, CURRENT_DATE), ?, 0"
+                + " FROM SYSTEM_RANGE(1, ?)", Status.PENDING.getCode(), rows);
+        jdbcTemplate.execute("ALTER SEQUENCE invoice_id_seq RESTART WITH " + (rows + 1));
+    }
+
+    private static void seed(MemoryInvoiceStore memoryStore, int rows) {
+        LocalDate today = LocalDate.now();
+        List<Invoice> chunk = new ArrayList<>();
+        for (long id = 1; id <= rows; id++) {
+            chunk.add(Invoice.builder()
+                    .id(id)
+                    .amount(Money.ofCents((1000000 + id % 900) * 100))
+                    .paidAmount(Money.ofCents(id % 3 == 0 ? 1000 : 0))
+                    .dueDate(today.plusDays(id % 60 - 30))
+                    .status(Status.PENDING)
+                    .build());
+            if (chunk.size() == 10000 || id == rows) {
+                memoryStore.insert(chunk);
+                chunk = new ArrayList<>();
+            }
+        }
+    }
+
+    /**
+     * Undoes an overdue run: removes the invoices it created and makes the seeded invoices pending again.
+     */
+    static void reset(ConfigurableApplicationContext context, int rows) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("DELETE FROM invoice WHERE id > ?", rows);
+        jdbcTemplate.update("UPDATE invoice SET status = ? WHERE status <> ?",
+                Status.PENDING.getCode(), Status.PENDING.getCode());
+    }
+}
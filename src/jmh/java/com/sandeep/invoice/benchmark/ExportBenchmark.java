@@ -0,0 +1,96 @@
+package com.sandeep.invoice.benchmark;
+
+import com.sandeep.invoice.dto.ExportFormat;
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.service.InvoiceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Time of a full export of 1M invoices in each format, plain and gzipped with the fastest level as the
+ * export endpoint does, from an embedded H2 database and from the in-memory store. The output is counted
+ * and discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ExportBenchmark {
+
+    private static final int ROWS = 1_000_000;
+
+    @Param({"CSV", "COLUMNAR"})
+    ExportFormat format;
+
+    @Param({"false", "true"})
+    boolean gzip;
+
+    @Param({"h2", "memory"})
+    String store;
+
+    private ConfigurableApplicationContext context;
+    private InvoiceService invoiceService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = "memory".equals(store)
+                ? BenchmarkDatabase.start("export-benchmark", "memory")
+                : BenchmarkDatabase.start("export-benchmark");
+        BenchmarkDatabase.seed(context, ROWS);
+        invoiceService = context.getBean(InvoiceService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        CountingChannel counter = new CountingChannel();
+        if (!gzip) {
+            invoiceService.exportInvoices(InvoiceQuery.builder().build(), format, counter);
+            return counter.bytes;
+        }
+        GZIPOutputStream gzipStream = new GZIPOutputStream(Channels.newOutputStream(counter), 1 << 16) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+        invoiceService.exportInvoices(InvoiceQuery.builder().build(), format, Channels.newChannel(gzipStream));
+        gzipStream.finish();
+        return counter.bytes;
+    }
+
+    private static final class CountingChannel implements WritableByteChannel {
+
+        private long bytes;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int written = src.remaining();
+            src.position(src.limit());
+            bytes += written;
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.sandeep.invoice.benchmark;
+
+import com.sandeep.invoice.dto.InvoiceImportResponse;
+import com.sandeep.invoice.dto.RunStatus;
+import com.sandeep.invoice.service.InvoiceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of importing a CSV file of 500k invoices, one in a hundred of them invalid, into an embedded H2
+ * database. The imported invoices are deleted after every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ImportBenchmark {
+
+    private static final int ROWS = 500_000;
+
+    private ConfigurableApplicationContext context;
+    private InvoiceService invoiceService;
+    private byte[] csv;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("import-benchmark");
+        invoiceService = context.getBean(InvoiceService.class);
+
+        String dueDate = LocalDate.now().plusDays(30).toString();
+        StringBuilder file = new StringBuilder("amount,due_date\n");
+        for (int i = 0; i < ROWS; i++) {
+            file.append(i % 100 == 0 ? "0.00" : 100 + i % 900).append(',').append(dueDate).append('\n');
+        }
+        csv = file.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteInvoices() {
+        context.getBean(JdbcTemplate.class).update("DELETE FROM invoice");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public InvoiceImportResponse importCsv() {
+        InvoiceImportResponse response = invoiceService.importInvoices(new ByteArrayInputStream(csv));
+        if (response.getStatus() != RunStatus.COMPLETED
+                || response.getImportedCount() + response.getRejectedCount() != ROWS) {
+            throw new IllegalStateException("Import did not complete: " + response);
+        }
+        return response;
+    }
+}
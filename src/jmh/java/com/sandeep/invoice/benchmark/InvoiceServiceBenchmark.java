@@ -0,0 +1,81 @@
+package com.sandeep.invoice.benchmark;
+
+import com.sandeep.invoice.dto.CreateInvoiceRequest;
+import com.sandeep.invoice.dto.CreateInvoiceResponse;
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.dto.InvoiceResponse;
+import com.sandeep.invoice.service.InvoiceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the request hot paths of {@link InvoiceService} against an embedded H2 database and
+ * against the in-memory store of the {@code memory} profile, each seeded with 10k and 1M invoices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class InvoiceServiceBenchmark {
+
+    private static final BigDecimal PAYMENT = new BigDecimal("0.01");
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"10000", "1000000"})
+    int rows;
+
+    @Param({"h2", "memory"})
+    String store;
+
+    private ConfigurableApplicationContext context;
+    private InvoiceService invoiceService;
+    private CreateInvoiceRequest createInvoiceRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = "memory".equals(store)
+                ? BenchmarkDatabase.start("invoice-service-benchmark", "memory")
+                : BenchmarkDatabase.start("invoice-service-benchmark");
+        BenchmarkDatabase.seed(context, rows);
+        invoiceService = context.getBean(InvoiceService.class);
+        createInvoiceRequest = CreateInvoiceRequest.builder()
+                .amount(new BigDecimal("100.00"))
+                .dueDate(LocalDate.now().plusDays(30))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CreateInvoiceResponse createInvoice() {
+        return invoiceService.createInvoice(createInvoiceRequest);
+    }
+
+    @Benchmark
+    public InvoiceResponse payInvoice() {
+        return invoiceService.payInvoice(randomId(), PAYMENT);
+    }
+
+    @Benchmark
+    public List<InvoiceResponse> getInvoices() {
+        return invoiceService.getInvoices(InvoiceQuery.builder()
+                .afterId(randomId())
+                .limit(PAGE_SIZE)
+                .build());
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, rows + 1);
+    }
+}
@@ -0,0 +1,78 @@
+package com.sandeep.invoice.benchmark;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.config.InvoiceProperties.Memory.Durability;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.memory.MemoryInvoiceStore;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of logged writes to the {@link MemoryInvoiceStore} from 16 threads for each
+ * {@code invoice.memory.durability} setting: without forcing the log, with a force per commit shared by
+ * the commits waiting at the same time, and with a 2 ms group commit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class MemoryStoreDurabilityBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"NONE", "COMMIT", "GROUP"})
+    Durability durability;
+
+    private Path dataDir;
+    private MemoryInvoiceStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("invoice-store-benchmark");
+        InvoiceProperties properties = new InvoiceProperties();
+        properties.getMemory().setDataDir(dataDir);
+        properties.getMemory().setDurability(durability);
+        store = new MemoryInvoiceStore(properties);
+
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            invoices.add(Invoice.builder()
+                    .amount(Money.of("100.00"))
+                    .paidAmount(Money.ZERO)
+                    .dueDate(LocalDate.now().plusDays(30))
+                    .status(Status.PENDING)
+                    .build());
+        }
+        store.insert(invoices);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.destroy();
+        FileSystemUtils.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    public void updateStatus() {
+        Invoice invoice = Invoice.builder()
+                .id(ThreadLocalRandom.current().nextLong(1, ROWS + 1))
+                .status(Status.PENDING)
+                .version(0L)
+                .build();
+        store.updateStatus(List.of(invoice));
+    }
+}
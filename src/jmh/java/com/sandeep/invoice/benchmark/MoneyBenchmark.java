@@ -0,0 +1,73 @@
+package com.sandeep.invoice.benchmark;
+
+import com.sandeep.invoice.model.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the amount arithmetic of a payment and of an overdue invoice on {@link BigDecimal} with
+ * {@link Money}. Run with {@code -prof gc} to see the allocation per operation
+ * ({@code gc.alloc.rate.norm}), for example
+ * {@code mvn -P benchmark verify -Djmh.args="MoneyBenchmark -prof gc"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private BigDecimal decimalAmount;
+    private BigDecimal decimalPaidAmount;
+    private BigDecimal decimalPayment;
+    private BigDecimal decimalLateFee;
+
+    private Money amount;
+    private Money paidAmount;
+    private Money payment;
+    private Money lateFee;
+
+    @Setup
+    public void setUp() {
+        decimalAmount = new BigDecimal("1250.00");
+        decimalPaidAmount = new BigDecimal("310.40");
+        decimalPayment = new BigDecimal("25.10");
+        decimalLateFee = new BigDecimal("10.00");
+
+        amount = Money.of(decimalAmount);
+        paidAmount = Money.of(decimalPaidAmount);
+        payment = Money.of(decimalPayment);
+        lateFee = Money.of(decimalLateFee);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalPayment() {
+        BigDecimal newPaidAmount = decimalPaidAmount.add(decimalPayment);
+        if (newPaidAmount.compareTo(decimalAmount) > 0) {
+            return decimalAmount.subtract(decimalPaidAmount);
+        }
+        return newPaidAmount.equals(decimalAmount) ? decimalAmount : newPaidAmount;
+    }
+
+    @Benchmark
+    public Money moneyPayment() {
+        Money newPaidAmount = paidAmount.plus(payment);
+        if (newPaidAmount.isGreaterThan(amount)) {
+            return amount.minus(paidAmount);
+        }
+        return newPaidAmount.equals(amount) ? amount : newPaidAmount;
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalOverdueAmount() {
+        return decimalAmount.subtract(decimalPaidAmount).add(decimalLateFee);
+    }
+
+    @Benchmark
+    public Money moneyOverdueAmount() {
+        return amount.minus(paidAmount).plus(lateFee);
+    }
+}
@@ -0,0 +1,55 @@
+package com.sandeep.invoice.benchmark;
+
+import com.sandeep.invoice.dto.ProcessOverdueRequest;
+import com.sandeep.invoice.dto.ProcessOverdueResponse;
+import com.sandeep.invoice.service.InvoiceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of a complete overdue run over 10k and 1M seeded invoices, about half of them overdue. The
+ * database is reset before every iteration so each run processes the same invoices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class OverdueBenchmark {
+
+    @Param({"10000", "1000000"})
+    int rows;
+
+    private ConfigurableApplicationContext context;
+    private InvoiceService invoiceService;
+    private final ProcessOverdueRequest request = ProcessOverdueRequest.builder()
+            .lateFee(new BigDecimal("10.00"))
+            .overdueDays(30)
+            .build();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("overdue-benchmark");
+        BenchmarkDatabase.seed(context, rows);
+        invoiceService = context.getBean(InvoiceService.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetInvoices() {
+        BenchmarkDatabase.reset(context, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ProcessOverdueResponse processOverdue() {
+        return invoiceService.processOverdue(request);
+    }
+}
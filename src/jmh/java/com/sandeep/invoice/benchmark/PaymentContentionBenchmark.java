@@ -0,0 +1,97 @@
+package com.sandeep.invoice.benchmark;
+
+import com.sandeep.invoice.dto.CreateInvoiceRequest;
+import com.sandeep.invoice.exception.InvoiceConcurrencyException;
+import com.sandeep.invoice.service.InvoiceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of payments of a single hot invoice from 1, 8 and 64 threads, racing for its row with
+ * optimistic locking and with {@code invoice.payment.combine} applying concurrent payments in batches.
+ * Payments that still conflict after {@code invoice.payment.max-attempts} attempts are reported
+ * separately as {@code rejected}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentContentionBenchmark {
+
+    private static final BigDecimal PAYMENT = new BigDecimal("0.01");
+
+    @Param({"false", "true"})
+    boolean combine;
+
+    private ConfigurableApplicationContext context;
+    private InvoiceService invoiceService;
+    private Long invoiceId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("payment-contention-benchmark", Map.of(
+                "spring.datasource.hikari.maximum-pool-size", 64,
+                "invoice.payment.combine", combine));
+        invoiceService = context.getBean(InvoiceService.class);
+        invoiceId = Long.valueOf(invoiceService.createInvoice(CreateInvoiceRequest.builder()
+                .amount(new BigDecimal("9999999.99"))
+                .dueDate(LocalDate.now().plusDays(30))
+                .build()).getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Payments of one thread by outcome, reported next to the throughput of the benchmark.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+
+        public long paid;
+        public long rejected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            paid = 0;
+            rejected = 0;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void oneClient(Outcomes outcomes) {
+        pay(outcomes);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void eightClients(Outcomes outcomes) {
+        pay(outcomes);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void sixtyFourClients(Outcomes outcomes) {
+        pay(outcomes);
+    }
+
+    private void pay(Outcomes outcomes) {
+        try {
+            invoiceService.payInvoice(invoiceId, PAYMENT);
+            outcomes.paid++;
+        } catch (InvoiceConcurrencyException e) {
+            outcomes.rejected++;
+        }
+    }
+}
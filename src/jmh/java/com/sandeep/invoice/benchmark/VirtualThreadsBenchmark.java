@@ -0,0 +1,92 @@
+package com.sandeep.invoice.benchmark;
+
+import com.sandeep.invoice.InvoiceApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency percentiles of creating and paying invoices over HTTP from 400 clients, with
+ * requests served on Tomcat's platform thread pool and on virtual threads (the {@code virtual-threads}
+ * profile). There are twice as many clients as the platform thread pool has threads. Payments go to
+ * random invoices of 10k seeded ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(400)
+@Fork(1)
+public class VirtualThreadsBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"platform", "virtual-threads"})
+    String mode;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUri;
+    private String createBody;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(InvoiceApplication.class)
+                .profiles("virtual-threads".equals(mode) ? new String[]{mode} : new String[0])
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:virtual-threads-benchmark",
+                        "spring.h2.console.enabled=false",
+                        "spring.main.banner-mode=off",
+                        "invoice.admission.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.sandeep.invoice=OFF")
+                .run();
+        BenchmarkDatabase.seed(context, ROWS);
+        baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        createBody = "{\"amount\": 1000.00, \"due_date\": \"" + LocalDate.now().plusDays(30) + "\"}";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        httpClient.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int createInvoice() throws IOException, InterruptedException {
+        return post("/invoices", createBody);
+    }
+
+    @Benchmark
+    public int payInvoice() throws IOException, InterruptedException {
+        long invoiceId = ThreadLocalRandom.current().nextLong(1, ROWS + 1);
+        return post("/invoices/" + invoiceId + "/payments", "{\"amount\": 1.00}");
+    }
+
+    private int post(String path, String json) throws IOException, InterruptedException {
+        HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUri + path))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(json))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("POST " + path + " failed with status " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
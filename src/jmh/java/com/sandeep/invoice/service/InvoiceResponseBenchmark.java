@@ -0,0 +1,90 @@
+package com.sandeep.invoice.service;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.sandeep.invoice.dto.InvoiceResponse;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a page of invoices into a response: the {@link InvoiceServiceImpl#buildInvoiceResponse}
+ * mapping and the Jackson serialization of the resulting list, with the hand-written serializer of
+ * {@link InvoiceResponse} and with Jackson's reflective bean serializer it replaces. Lives in the service
+ * package to reach the package-private mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoiceResponseBenchmark {
+
+    @Param({"100", "1000"})
+    int size;
+
+    // Configured like the mapper Spring Boot provides to the controllers.
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final ObjectMapper beanSerializingObjectMapper = objectMapper.copy()
+            .addMixIn(InvoiceResponse.class, BeanSerialized.class);
+    private List<Invoice> invoices;
+    private List<InvoiceResponse> responses;
+
+    @Setup
+    public void setUp() {
+        invoices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            invoices.add(Invoice.builder()
+                    .id(1234L + i)
+                    .amount(Money.of(BigDecimal.valueOf(10000 + i, 2)))
+                    .paidAmount(Money.of(BigDecimal.valueOf(i, 2)))
+                    .dueDate(LocalDate.of(2024, 11, 30).plusDays(i % 60))
+                    .status(i % 3 == 0 ? Status.PAID : Status.PENDING)
+                    .version(0L)
+                    .updatedAt(LocalDateTime.of(2024, 11, 1, 9, 30).plusNanos(i * 1_000L))
+                    .build());
+        }
+        responses = buildInvoiceResponses();
+    }
+
+    @Benchmark
+    public List<InvoiceResponse> buildInvoiceResponses() {
+        return invoices.stream()
+                .map(InvoiceServiceImpl::buildInvoiceResponse)
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] serializeInvoiceResponses() throws IOException {
+        return objectMapper.writeValueAsBytes(responses);
+    }
+
+    @Benchmark
+    public byte[] serializeInvoiceResponsesWithBeanSerializer() throws IOException {
+        return beanSerializingObjectMapper.writeValueAsBytes(responses);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerializeInvoiceResponses() throws IOException {
+        return objectMapper.writeValueAsBytes(buildInvoiceResponses());
+    }
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    private abstract static class BeanSerialized {
+    }
+}
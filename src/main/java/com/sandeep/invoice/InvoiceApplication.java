@@ -1,9 +1,12 @@
 package com.sandeep.invoice;
 
+import com.sandeep.invoice.config.InvoiceProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @SpringBootApplication
+@EnableConfigurationProperties(InvoiceProperties.class)
 public class InvoiceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,81 @@
+package com.sandeep.invoice.admission;
+
+import com.sandeep.invoice.exception.RateLimitExceededException;
+import com.sandeep.invoice.exception.ServiceOverloadedException;
+import com.sandeep.invoice.metrics.InvoiceMetrics;
+import com.sandeep.invoice.metrics.InvoiceMetrics.AdmissionRejection;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * Admits {@code POST} requests to a group of endpoints: the client, identified by its remote address, must
+ * be within its rate limit, and, if the group has a {@link LoadShedder}, the request must get one of its
+ * permits, which it holds until it completes. Rejected requests are reported through
+ * {@link RateLimitExceededException} and {@link ServiceOverloadedException}, before the handler runs.
+ * <p>
+ * Behind a proxy, set {@code server.forward-headers-strategy} so that the remote address is the one of
+ * the client rather than of the proxy.
+ * </p>
+ */
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    private final String name;
+    private final ClientRateLimiter rateLimiter;
+    private final LoadShedder loadShedder;
+    private final InvoiceMetrics metrics;
+    private final String permitAttribute;
+
+    /**
+     * @param name        the name of the group of endpoints, for error messages
+     * @param rateLimiter the rate limits of the clients
+     * @param loadShedder the permits of the group, or {@code null} to only limit the rate
+     * @param metrics     counts rejected requests
+     */
+    public AdmissionInterceptor(String name, ClientRateLimiter rateLimiter, LoadShedder loadShedder,
+                                InvoiceMetrics metrics) {
+        this.name = name;
+        this.rateLimiter = rateLimiter;
+        this.loadShedder = loadShedder;
+        this.metrics = metrics;
+        this.permitAttribute = AdmissionInterceptor.class.getName() + ".permit." + name;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.POST.matches(request.getMethod())) {
+            return true;
+        }
+
+        long waitNanos = rateLimiter.tryAcquire(request.getRemoteAddr());
+        if (waitNanos > 0) {
+            metrics.recordAdmissionRejection(AdmissionRejection.RATE_LIMITED);
+            Duration retryAfter = Duration.ofNanos(waitNanos);
+            throw new RateLimitExceededException(String.format("Too many %s requests, retry in %d ms",
+                    name, retryAfter.toMillis()), retryAfter);
+        }
+
+        if (loadShedder != null) {
+            try {
+                loadShedder.acquire();
+            } catch (ServiceOverloadedException e) {
+                metrics.recordAdmissionRejection(AdmissionRejection.OVERLOADED);
+                throw e;
+            }
+            request.setAttribute(permitAttribute, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(permitAttribute) != null) {
+            request.removeAttribute(permitAttribute);
+            loadShedder.release();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.sandeep.invoice.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sandeep.invoice.config.InvoiceProperties;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per client, for example per remote address.
+ * <p>
+ * A bucket is a single {@code long}, the time at which it will be full again, updated with a compare-and-set
+ * loop: a request moves that time forward by the permit interval, and is rejected if it would end up more
+ * than {@code burst} intervals ahead of now. Admitting a request therefore takes no lock and allocates
+ * nothing once the client is known.
+ * </p>
+ * <p>
+ * Buckets are kept in a Caffeine cache bounded by {@code invoice.admission.max-clients}. A bucket expires
+ * once it has been idle long enough to be full again, when forgetting it changes nothing. Above the bound,
+ * the least used buckets are evicted, which only ever lets a client send more, never less.
+ * </p>
+ */
+public class ClientRateLimiter {
+
+    private final Cache<String, AtomicLong> buckets;
+    private final long permitIntervalNanos;
+    private final long capacityNanos;
+    private final LongSupplier nanoTime;
+
+    public ClientRateLimiter(InvoiceProperties.RateLimit limit, long maxClients) {
+        this(limit, maxClients, System::nanoTime);
+    }
+
+    ClientRateLimiter(InvoiceProperties.RateLimit limit, long maxClients, LongSupplier nanoTime) {
+        this.permitIntervalNanos = limit.getPermitInterval().toNanos();
+        this.capacityNanos = Math.multiplyExact(permitIntervalNanos, limit.getBurst());
+        this.nanoTime = nanoTime;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofNanos(capacityNanos))
+                .build();
+    }
+
+    /**
+     * Takes a request from the bucket of the client.
+     *
+     * @param client the key of the client
+     * @return {@code 0} if the request is admitted, otherwise how long the client has to wait until it would
+     *         be, in nanoseconds
+     */
+    public long tryAcquire(String client) {
+        long now = nanoTime.getAsLong();
+        AtomicLong fullAt = buckets.get(client, key -> new AtomicLong(now));
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - now < 0 ? now : current) + permitIntervalNanos;
+            long excess = next - now - capacityNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.sandeep.invoice.admission;
+
+import com.sandeep.invoice.exception.ServiceOverloadedException;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounds the number of requests processed at the same time and sheds load once requests queue for too
+ * long.
+ * <p>
+ * Requests take a permit before they run and queue for one if none is free. Without a bound, they would
+ * queue for database connections instead, where nothing measures or limits the wait. The shedding follows
+ * CoDel: what counts is the shortest wait of an interval. A burst makes some requests wait, but as long as
+ * some request of every interval finds a permit quickly, the queue drains. Once even the shortest wait
+ * exceeds the target, the queue is standing, and waiting longer only adds latency for everyone. From then
+ * on, a request that does not find a free permit on arrival is rejected right away, until one does again
+ * and the interval ends.
+ * </p>
+ */
+public class LoadShedder {
+
+    private final Semaphore permits;
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final long maxQueueNanos;
+    private final Duration retryAfter;
+    private final LongSupplier nanoTime;
+
+    private final AtomicLong intervalStart;
+    private final AtomicLong shortestWait = new AtomicLong(Long.MAX_VALUE);
+    private volatile boolean overloaded;
+
+    public LoadShedder(int maxConcurrent, Duration target, Duration interval, Duration maxQueueTime) {
+        this(maxConcurrent, target, interval, maxQueueTime, System::nanoTime);
+    }
+
+    LoadShedder(int maxConcurrent, Duration target, Duration interval, Duration maxQueueTime,
+                LongSupplier nanoTime) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.targetNanos = target.toNanos();
+        this.intervalNanos = interval.toNanos();
+        this.maxQueueNanos = maxQueueTime.toNanos();
+        this.retryAfter = interval;
+        this.nanoTime = nanoTime;
+        this.intervalStart = new AtomicLong(nanoTime.getAsLong());
+    }
+
+    /**
+     * Takes a permit, waiting for one unless requests are being shed. Every successful call must be
+     * followed by {@link #release()}.
+     *
+     * @throws ServiceOverloadedException if requests are being shed and no permit is free, or no permit
+     *                                    became free within the maximum queueing time
+     */
+    public void acquire() {
+        if (permits.tryAcquire()) {
+            recordWait(0);
+            return;
+        }
+        if (overloaded) {
+            throw new ServiceOverloadedException("The service is overloaded, retry later", retryAfter);
+        }
+
+        long start = nanoTime.getAsLong();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxQueueNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Interrupted while queueing", retryAfter);
+        }
+        recordWait(nanoTime.getAsLong() - start);
+        if (!acquired) {
+            throw new ServiceOverloadedException(String.format(
+                    "Timed out after %d ms in the queue, retry later", Duration.ofNanos(maxQueueNanos).toMillis()),
+                    retryAfter);
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * Returns whether requests that cannot get a permit right away are rejected.
+     */
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    private void recordWait(long waitNanos) {
+        shortestWait.accumulateAndGet(waitNanos, Math::min);
+        long now = nanoTime.getAsLong();
+        long start = intervalStart.get();
+        if (now - start >= intervalNanos && intervalStart.compareAndSet(start, now)) {
+            overloaded = shortestWait.getAndSet(Long.MAX_VALUE) > targetNanos;
+        }
+    }
+}
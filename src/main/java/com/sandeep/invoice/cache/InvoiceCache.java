@@ -0,0 +1,106 @@
+package com.sandeep.invoice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.model.Invoice;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * In-process cache of invoices keyed by id.
+ * <p>
+ * Invoices are loaded on read and written through after every successful update. The cache only
+ * holds and hands out copies, so callers can modify what they get without affecting other readers.
+ * A write never replaces a cached invoice with one of a lower {@code version}: loads and writes of
+ * the same id are serialized by the cache, so an update that raced with a load is not lost, and a
+ * miss always goes to the database.
+ * </p>
+ * <p>
+ * Hit, miss and eviction statistics are published as {@code cache_*} meters tagged
+ * {@code cache="invoices"}.
+ * </p>
+ */
+@Component
+public class InvoiceCache {
+
+    private final Cache<Long, Invoice> cache;
+
+    public InvoiceCache(InvoiceProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getCache().getMaximumSize())
+                .expireAfterWrite(properties.getCache().getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "invoices");
+    }
+
+    /**
+     * Returns the cached invoice, loading and caching it on a miss.
+     *
+     * @param id     the id of the invoice
+     * @param loader reads the invoice from the database
+     */
+    public Optional<Invoice> get(Long id, Function<Long, Optional<Invoice>> loader) {
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).map(InvoiceCache::copy).orElse(null)))
+                .map(InvoiceCache::copy);
+    }
+
+    /**
+     * Returns the cached invoices with the given ids, loading all missing ones with a single call.
+     * Ids of invoices that do not exist are absent from the result.
+     *
+     * @param ids    the ids of the invoices
+     * @param loader reads the invoices with the given ids from the database
+     */
+    public Map<Long, Invoice> getAll(Collection<Long> ids, Function<Collection<Long>, Iterable<Invoice>> loader) {
+        Map<Long, Invoice> cached = cache.getAll(ids, missing -> {
+            Map<Long, Invoice> loaded = new HashMap<>();
+            loader.apply(Set.copyOf(missing)).forEach(invoice -> loaded.put(invoice.getId(), copy(invoice)));
+            return loaded;
+        });
+        Map<Long, Invoice> result = new HashMap<>(cached.size());
+        cached.forEach((id, invoice) -> result.put(id, copy(invoice)));
+        return result;
+    }
+
+    /**
+     * Caches the state of an invoice that was just written, unless a newer version is cached already.
+     */
+    public void put(Invoice invoice) {
+        cache.asMap().merge(invoice.getId(), copy(invoice), InvoiceCache::newer);
+    }
+
+    /**
+     * Updates the given invoices if they are cached, without adding the others. Used by bulk writes,
+     * which would otherwise flood the cache with invoices nobody reads.
+     */
+    public void updateIfPresent(Collection<Invoice> invoices) {
+        for (Invoice invoice : invoices) {
+            cache.asMap().computeIfPresent(invoice.getId(), (id, cached) -> newer(cached, copy(invoice)));
+        }
+    }
+
+    /**
+     * Drops an invoice whose cached state is known to be outdated, so the next read goes to the database.
+     */
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    private static Invoice newer(Invoice cached, Invoice written) {
+        return written.getVersion() >= cached.getVersion() ? written : cached;
+    }
+
+    private static Invoice copy(Invoice invoice) {
+        return invoice.toBuilder().build();
+    }
+}
@@ -0,0 +1,90 @@
+package com.sandeep.invoice.changes;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.model.InvoiceChange;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Long polling on the invoice change log: waits for changes after a cursor instead of returning an
+ * empty page.
+ * <p>
+ * Waiters are woken as soon as the relay of this instance has sequenced new changes. Changes
+ * sequenced by another instance are picked up by re-reading the log every
+ * {@code invoice.changes.poll-interval}.
+ * </p>
+ */
+@Component
+@Profile("!reactive")
+public class InvoiceChangeFeed {
+
+    private final InvoiceChangeLog changeLog;
+    private final Duration pollInterval;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition sequenced = lock.newCondition();
+    private long signals;
+
+    public InvoiceChangeFeed(InvoiceChangeLog changeLog, InvoiceProperties properties) {
+        this.changeLog = changeLog;
+        this.pollInterval = properties.getChanges().getPollInterval();
+    }
+
+    /**
+     * Returns the changes after the given sequence number, waiting up to {@code wait} for the first
+     * one if there are none yet.
+     *
+     * @return the changes in sequence order, empty if none arrived in time
+     */
+    public List<InvoiceChange> await(long seq, int limit, Duration wait) {
+        long deadline = System.nanoTime() + wait.toNanos();
+        while (true) {
+            long seen = signals();
+            List<InvoiceChange> changes = changeLog.findSequencedAfter(seq, limit);
+            long remaining = deadline - System.nanoTime();
+            if (!changes.isEmpty() || remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                return changes;
+            }
+            awaitSignal(seen, Math.min(remaining, pollInterval.toNanos()));
+        }
+    }
+
+    /**
+     * Wakes the waiters after new changes have been sequenced and committed.
+     */
+    public void signal() {
+        lock.lock();
+        try {
+            signals++;
+            sequenced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long signals() {
+        lock.lock();
+        try {
+            return signals;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitSignal(long seen, long nanos) {
+        lock.lock();
+        try {
+            while (signals == seen && nanos > 0) {
+                nanos = sequenced.awaitNanos(nanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
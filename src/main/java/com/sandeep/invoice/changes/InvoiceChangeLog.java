@@ -0,0 +1,154 @@
+package com.sandeep.invoice.changes;
+
+import com.sandeep.invoice.dto.InvoiceChangeType;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.InvoiceChange;
+import com.sandeep.invoice.model.Money;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The transactional outbox of invoice state changes, stored in the {@code invoice_change} table.
+ * <p>
+ * Every write that creates an invoice or changes its paid amount or status appends a change in its
+ * own transaction, so a change exists exactly when the invoice change committed. Changes become
+ * visible to consumers only once {@link #sequenceNext(int)} has given them a {@code seq}: unlike
+ * ids, which are assigned at insert time, sequence numbers follow commit order, so a consumer paging
+ * by {@code seq} cannot skip a change that committed late.
+ * </p>
+ */
+@Component
+@Profile("!reactive")
+public class InvoiceChangeLog {
+
+    private static final String COLUMNS = "id, seq, invoice_id, type, amount, paid_amount, due_date, status, created_at";
+
+    static final String INSERT = "INSERT INTO invoice_change"
+            + " (invoice_id, type, amount, paid_amount, due_date, status, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    static final String LOCK_RELAY = "SELECT last_seq FROM invoice_change_relay WHERE name = 'default' FOR UPDATE";
+
+    static final String FIND_UNSEQUENCED = "SELECT " + COLUMNS + " FROM invoice_change"
+            + " WHERE seq IS NULL ORDER BY id LIMIT ?";
+
+    static final String SET_SEQ = "UPDATE invoice_change SET seq = ? WHERE id = ?";
+
+    static final String UPDATE_RELAY = "UPDATE invoice_change_relay SET last_seq = ? WHERE name = 'default'";
+
+    static final String FIND_LAST_SEQ = "SELECT last_seq FROM invoice_change_relay WHERE name = 'default'";
+
+    static final String FIND_SEQUENCED_AFTER = "SELECT " + COLUMNS + " FROM invoice_change"
+            + " WHERE seq > ? ORDER BY seq LIMIT ?";
+
+    static final String DELETE_SEQUENCED_BEFORE = "DELETE FROM invoice_change"
+            + " WHERE seq IS NOT NULL AND created_at < ?";
+
+    private static final RowMapper<InvoiceChange> ROW_MAPPER = (rs, rowNum) -> InvoiceChange.builder()
+            .id(rs.getLong("id"))
+            .seq(rs.getObject("seq", Long.class))
+            .invoiceId(rs.getLong("invoice_id"))
+            .type(InvoiceChangeType.valueOf(rs.getString("type")))
+            .amount(Money.of(rs.getBigDecimal("amount")))
+            .paidAmount(Money.of(rs.getBigDecimal("paid_amount")))
+            .dueDate(rs.getObject("due_date", LocalDate.class))
+            .status(Status.fromCode(rs.getInt("status")))
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InvoiceChangeLog(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Appends a {@link InvoiceChangeType#CREATED} change for every given invoice. Must run in the
+     * transaction that inserts them.
+     */
+    public void appendCreated(Collection<Invoice> invoices) {
+        append(invoices, invoice -> InvoiceChangeType.CREATED);
+    }
+
+    /**
+     * Appends a change for every given invoice, typed by the status the update left it in. Must run
+     * in the transaction that updates them.
+     */
+    public void appendUpdated(Collection<Invoice> invoices) {
+        append(invoices, InvoiceChangeType::ofUpdated);
+    }
+
+    private void append(Collection<Invoice> invoices, Function<Invoice, InvoiceChangeType> type) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(invoices.size());
+        for (Invoice invoice : invoices) {
+            InvoiceChange change = InvoiceChange.of(type.apply(invoice), invoice, now);
+            rows.add(new Object[]{change.getInvoiceId(), change.getType().name(),
+                    change.getAmount().toBigDecimal(), change.getPaidAmount().toBigDecimal(),
+                    change.getDueDate() == null ? null : Date.valueOf(change.getDueDate()),
+                    change.getStatus().getCode(), Timestamp.valueOf(now)});
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+
+    /**
+     * Gives the next committed changes without a sequence number one, in the order they are found,
+     * and returns them. Must run in a transaction: the relay row stays locked until it ends, so
+     * concurrent callers, on this or other instances, sequence one after the other.
+     *
+     * @param limit the maximum number of changes to sequence
+     */
+    public List<InvoiceChange> sequenceNext(int limit) {
+        long lastSeq = jdbcTemplate.queryForObject(LOCK_RELAY, Long.class);
+        List<InvoiceChange> changes = jdbcTemplate.query(FIND_UNSEQUENCED, ROW_MAPPER, limit);
+        if (changes.isEmpty()) {
+            return changes;
+        }
+
+        List<Object[]> sequenced = new ArrayList<>(changes.size());
+        for (InvoiceChange change : changes) {
+            change.setSeq(++lastSeq);
+            sequenced.add(new Object[]{change.getSeq(), change.getId()});
+        }
+        jdbcTemplate.batchUpdate(SET_SEQ, sequenced);
+        jdbcTemplate.update(UPDATE_RELAY, lastSeq);
+        return changes;
+    }
+
+    /**
+     * Returns the sequence number of the last sequenced change, or 0 if there is none.
+     */
+    public long lastSequence() {
+        return jdbcTemplate.queryForObject(FIND_LAST_SEQ, Long.class);
+    }
+
+    /**
+     * Returns the sequenced changes after the given sequence number, in sequence order.
+     */
+    public List<InvoiceChange> findSequencedAfter(long seq, int limit) {
+        return jdbcTemplate.query(FIND_SEQUENCED_AFTER, ROW_MAPPER, seq, limit);
+    }
+
+    /**
+     * Deletes the sequenced changes recorded before the given time.
+     *
+     * @return the number of deleted changes
+     */
+    public int deleteSequencedBefore(LocalDateTime createdBefore) {
+        return jdbcTemplate.update(DELETE_SEQUENCED_BEFORE, Timestamp.valueOf(createdBefore));
+    }
+}
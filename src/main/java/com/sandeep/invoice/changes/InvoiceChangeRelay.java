@@ -0,0 +1,91 @@
+package com.sandeep.invoice.changes;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.model.InvoiceChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Relays committed invoice changes from the outbox: sequences them in batches, publishes every
+ * batch as an {@link InvoiceChangesPublishedEvent} and wakes the long polls of this instance.
+ * <p>
+ * Runs every {@code invoice.changes.relay-interval} and drains everything committed since the last
+ * run, in batches of {@code invoice.changes.relay-batch-size}. Every instance runs a relay; they take
+ * turns through the lock on the relay row. The number of relayed changes is published as the
+ * {@code invoice.changes.relayed} counter.
+ * </p>
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class InvoiceChangeRelay {
+
+    private final InvoiceChangeLog changeLog;
+    private final InvoiceChangeFeed changeFeed;
+    private final TransactionOperations transactionOperations;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final Duration retention;
+    private final Counter relayed;
+
+    public InvoiceChangeRelay(InvoiceChangeLog changeLog, InvoiceChangeFeed changeFeed,
+                              TransactionOperations transactionOperations, ApplicationEventPublisher eventPublisher,
+                              InvoiceProperties properties, MeterRegistry meterRegistry) {
+        this.changeLog = changeLog;
+        this.changeFeed = changeFeed;
+        this.transactionOperations = transactionOperations;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = properties.getChanges().getRelayBatchSize();
+        this.retention = properties.getChanges().getRetention();
+        this.relayed = Counter.builder("invoice.changes.relayed")
+                .description("Invoice changes sequenced and published by the relay")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sequences and publishes the changes committed since the last run.
+     *
+     * @return the number of relayed changes
+     */
+    @Scheduled(fixedDelayString = "${invoice.changes.relay-interval:PT0.2S}")
+    public int relay() {
+        int total = 0;
+        List<InvoiceChange> batch;
+        do {
+            batch = transactionOperations.execute(status -> {
+                List<InvoiceChange> changes = changeLog.sequenceNext(batchSize);
+                if (!changes.isEmpty()) {
+                    eventPublisher.publishEvent(new InvoiceChangesPublishedEvent(changes));
+                }
+                return changes;
+            });
+            if (!batch.isEmpty()) {
+                relayed.increment(batch.size());
+                changeFeed.signal();
+                total += batch.size();
+            }
+        } while (batch.size() == batchSize);
+        return total;
+    }
+
+    /**
+     * Deletes the relayed changes older than {@code invoice.changes.retention}. Consumers whose cursor
+     * is older than that miss them.
+     */
+    @Scheduled(fixedDelayString = "${invoice.changes.purge-interval:PT1H}",
+            initialDelayString = "${invoice.changes.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int deleted = changeLog.deleteSequencedBefore(LocalDateTime.now().minus(retention));
+        log.debug("Purged {} expired invoice changes", deleted);
+    }
+}
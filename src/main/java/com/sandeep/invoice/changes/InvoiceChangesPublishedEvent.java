@@ -0,0 +1,19 @@
+package com.sandeep.invoice.changes;
+
+import com.sandeep.invoice.model.InvoiceChange;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * A batch of invoice changes published by the {@link InvoiceChangeRelay}, in sequence order.
+ * <p>
+ * It is published inside the transaction that sequences the batch. A plain {@code @EventListener}
+ * that fails rolls the batch back, so it is published again on the next relay run (at-least-once).
+ * A {@code @TransactionalEventListener} only sees batches that have committed.
+ * </p>
+ */
+@Value
+public class InvoiceChangesPublishedEvent {
+    List<InvoiceChange> changes;
+}
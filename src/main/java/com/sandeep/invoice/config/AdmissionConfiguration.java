@@ -0,0 +1,47 @@
+package com.sandeep.invoice.config;
+
+import com.sandeep.invoice.admission.AdmissionInterceptor;
+import com.sandeep.invoice.admission.ClientRateLimiter;
+import com.sandeep.invoice.admission.LoadShedder;
+import com.sandeep.invoice.metrics.InvoiceMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Admission control of the endpoints that are expensive or easy to abuse, turned off with
+ * {@code invoice.admission.enabled=false}. Payments are rate limited per client and shed under overload;
+ * starting and resuming overdue runs, which scan the invoice table, are rate limited per client, and
+ * {@code OverdueProcessor} allows a single run at a time on top of that.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@ConditionalOnProperty(name = "invoice.admission.enabled", matchIfMissing = true)
+public class AdmissionConfiguration implements WebMvcConfigurer {
+
+    private final InvoiceProperties properties;
+    private final InvoiceMetrics metrics;
+
+    public AdmissionConfiguration(InvoiceProperties properties, InvoiceMetrics metrics) {
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        InvoiceProperties.Admission admission = properties.getAdmission();
+        registry.addInterceptor(new AdmissionInterceptor("payment",
+                        new ClientRateLimiter(admission.getPayments(), admission.getMaxClients()),
+                        new LoadShedder(admission.getMaxConcurrentPayments(), admission.getQueueTarget(),
+                                admission.getQueueInterval(), admission.getMaxQueueTime()),
+                        metrics))
+                .addPathPatterns("/invoices/{invoiceId}/payments", "/invoices/payments:batch");
+        registry.addInterceptor(new AdmissionInterceptor("overdue",
+                        new ClientRateLimiter(admission.getOverdue(), admission.getMaxClients()),
+                        null,
+                        metrics))
+                .addPathPatterns("/invoices/process-overdue", "/invoices/process-overdue/{runId}/resume");
+    }
+}
@@ -0,0 +1,430 @@
+package com.sandeep.invoice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@ConfigurationProperties(prefix = "invoice")
+public class InvoiceProperties {
+
+    private final Query query = new Query();
+    private final Overdue overdue = new Overdue();
+    private final Payment payment = new Payment();
+    private final Cache cache = new Cache();
+    private final VirtualThreads virtualThreads = new VirtualThreads();
+    private final Idempotency idempotency = new Idempotency();
+    private final Changes changes = new Changes();
+    private final Memory memory = new Memory();
+    private final Imports imports = new Imports();
+    private final Summary summary = new Summary();
+    private final Admission admission = new Admission();
+
+    @Data
+    public static class Query {
+
+        /**
+         * Number of rows fetched per round trip when streaming invoices from the database.
+         */
+        private int fetchSize = 500;
+    }
+
+    @Data
+    public static class Overdue {
+
+        /**
+         * Maximum number of overdue invoices processed and committed in one transaction.
+         */
+        private int chunkSize = 1000;
+
+        /**
+         * Number of disjoint id ranges an overdue run is split into. Partitions are the unit of work
+         * that workers, on this or other instances, claim through a lease.
+         */
+        private int partitions = 16;
+
+        /**
+         * Maximum number of partitions this instance processes concurrently.
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * How long a partition lease stays valid without progress before another worker may take it over.
+         */
+        private Duration leaseDuration = Duration.ofSeconds(30);
+
+        /**
+         * Identifies this instance as a lease owner.
+         */
+        private String nodeId = UUID.randomUUID().toString();
+
+        private final Schedule schedule = new Schedule();
+    }
+
+    /**
+     * Built-in overdue processing of the invoices that became overdue since the last tick, found
+     * through the in-memory due-date index.
+     */
+    @Data
+    public static class Schedule {
+
+        /**
+         * Whether to load the due-date index at startup and process expired due dates on schedule.
+         */
+        private boolean enabled = false;
+
+        /**
+         * When to process the due dates that have expired, by default shortly after midnight.
+         */
+        private String cron = "0 5 0 * * *";
+
+        /**
+         * Late fee added to the new invoice created for every overdue invoice.
+         */
+        private BigDecimal lateFee = BigDecimal.ZERO;
+
+        /**
+         * Number of days until the new invoices are due.
+         */
+        private int overdueDays = 30;
+    }
+
+    @Data
+    public static class Payment {
+
+        /**
+         * Maximum number of attempts to apply a payment when the invoice is modified concurrently.
+         */
+        private int maxAttempts = 5;
+
+        /**
+         * Upper bound of the randomized delay before the first retry. The bound doubles with every retry.
+         */
+        private Duration initialBackoff = Duration.ofMillis(2);
+
+        /**
+         * Whether concurrent payments without an {@code Idempotency-Key} are combined into batches that
+         * update each invoice once per batch, instead of racing for the invoice row one by one.
+         */
+        private boolean combine = false;
+
+        /**
+         * Maximum number of payments applied in one combined batch.
+         */
+        private int maxCombinedPayments = 256;
+
+        /**
+         * Number of independent combiners. Payments are assigned to one by invoice id, so payments of
+         * different invoices are combined in parallel.
+         */
+        private int combinerStripes = 16;
+    }
+
+    @Data
+    public static class Cache {
+
+        /**
+         * Maximum number of invoices kept in the cache. Beyond it, entries are evicted by W-TinyLFU, which
+         * favours frequently read invoices over recently read ones.
+         */
+        private long maximumSize = 100_000;
+
+        /**
+         * How long an invoice stays cached after it was loaded or last written.
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(5);
+    }
+
+    /**
+     * Settings that only apply when requests run on virtual threads ({@code spring.threads.virtual.enabled}).
+     */
+    @Data
+    public static class VirtualThreads {
+
+        /**
+         * Maximum number of database connections held at the same time. Should not exceed the size of the
+         * connection pool, so that virtual threads queue on a fair semaphore instead of inside the pool.
+         */
+        private int maxConcurrentConnections = 10;
+
+        /**
+         * How long a thread waits for a connection permit before the request fails.
+         */
+        private Duration connectionAcquireTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Minimum duration of a pinned virtual thread for it to be reported.
+         */
+        private Duration pinnedThreshold = Duration.ofMillis(20);
+    }
+
+    /**
+     * Replay of requests sent with an {@code Idempotency-Key} header.
+     */
+    @Data
+    public static class Idempotency {
+
+        /**
+         * Maximum number of responses kept in memory, in front of the {@code idempotency_key} table.
+         */
+        private long cacheMaximumSize = 100_000;
+
+        /**
+         * How long a response stays in memory after it was stored.
+         */
+        private Duration cacheExpireAfterWrite = Duration.ofMinutes(10);
+
+        /**
+         * How long a response is kept in the database, and so how long a key can be replayed.
+         */
+        private Duration retention = Duration.ofHours(24);
+
+        /**
+         * How often responses older than the retention are deleted from the database, in ISO-8601
+         * format (for example {@code PT1H}), as it is also read by {@code @Scheduled}.
+         */
+        private Duration purgeInterval = Duration.ofHours(1);
+    }
+
+    /**
+     * The invoice change outbox, its relay and the {@code /invoices/changes} stream.
+     */
+    @Data
+    public static class Changes {
+
+        /**
+         * How often the relay sequences and publishes committed changes, in ISO-8601 format (for
+         * example {@code PT0.2S}), as it is also read by {@code @Scheduled}. Bounds how long a change
+         * takes to show up in the stream.
+         */
+        private Duration relayInterval = Duration.ofMillis(200);
+
+        /**
+         * Maximum number of changes sequenced and published together.
+         */
+        private int relayBatchSize = 1000;
+
+        /**
+         * How often a long poll re-reads the log while it waits, to see changes relayed by other instances.
+         */
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        /**
+         * How long an SSE stream of changes stays open before the client has to reconnect with its
+         * {@code Last-Event-ID}.
+         */
+        private Duration streamTimeout = Duration.ofMinutes(5);
+
+        /**
+         * How long relayed changes are kept, and so how far behind a consumer may fall.
+         */
+        private Duration retention = Duration.ofDays(7);
+
+        /**
+         * How often changes older than the retention are deleted, in ISO-8601 format, as it is also
+         * read by {@code @Scheduled}.
+         */
+        private Duration purgeInterval = Duration.ofHours(1);
+    }
+
+    /**
+     * The in-memory invoice store of the {@code memory} profile.
+     */
+    @Data
+    public static class Memory {
+
+        /**
+         * Directory the store writes its snapshot and log to, so that it survives restarts. Unset, the
+         * invoices only live as long as the process.
+         */
+        private Path dataDir;
+
+        /**
+         * How often a snapshot is written and the log started over, in ISO-8601 format (for example
+         * {@code PT5M}), as it is also read by {@code @Scheduled}. Bounds the log replayed at startup.
+         */
+        private Duration snapshotInterval = Duration.ofMinutes(5);
+
+        /**
+         * How long a commit waits for its writes to reach the disk. Writes are never lost when only the
+         * process crashes; this decides what a crash of the machine can lose.
+         */
+        private Durability durability = Durability.COMMIT;
+
+        /**
+         * How long the {@link Durability#GROUP group} commit waits for more commits to join a force of the
+         * log, and so the latency it adds to every commit.
+         */
+        private Duration groupCommitInterval = Duration.ofMillis(2);
+
+        /**
+         * Size of the memory-mapped log segments. A commit larger than this gets a segment of its own.
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Number of log segments started since the last snapshot after which a snapshot is written early
+         * to compact the log.
+         */
+        private int compactAfterSegments = 4;
+
+        /**
+         * Number of locks rows are striped over. Rounded up to a power of two.
+         */
+        private int lockStripes = 64;
+
+        /**
+         * How long an overdue run waits for an invoice that a payment transaction is writing.
+         */
+        private Duration lockTimeout = Duration.ofSeconds(10);
+
+        public enum Durability {
+
+            /**
+             * Commits do not wait: the last writes before a crash of the machine can be lost.
+             */
+            NONE,
+
+            /**
+             * Every commit waits until its writes are forced to disk. Commits that wait at the same time
+             * share a force.
+             */
+            COMMIT,
+
+            /**
+             * Like {@link #COMMIT}, but each force is delayed by {@code group-commit-interval} so that more
+             * commits share it. Pays off where a force takes longer than the interval.
+             */
+            GROUP
+        }
+    }
+
+    /**
+     * Bulk CSV imports of invoices through {@code /invoices:import}.
+     */
+    @Data
+    public static class Imports {
+
+        /**
+         * Number of lines of the file that are parsed, validated and committed together. A resumed import
+         * continues after the last committed batch.
+         */
+        private int batchSize = 1000;
+
+        /**
+         * Number of batches a stage of the import pipeline may run ahead of the next stage.
+         */
+        private int queueCapacity = 4;
+
+        /**
+         * How long an import lease stays valid without a committed batch before the import may be resumed by
+         * another request.
+         */
+        private Duration leaseDuration = Duration.ofSeconds(30);
+
+        /**
+         * Directory the rejected rows of each import are written to, as {@code import-<id>-rejects.csv}.
+         */
+        private Path rejectsDir = Path.of(System.getProperty("java.io.tmpdir"), "invoice-imports");
+    }
+
+    /**
+     * The aggregates served by {@code /invoices/summary}.
+     */
+    @Data
+    public static class Summary {
+
+        /**
+         * How often the in-memory aggregates are reconciled with the database, in ISO-8601 format (for example
+         * {@code PT5M}), as it is also read by {@code @Scheduled}. Bounds how long writes of other instances,
+         * or a drift of this one, go unnoticed.
+         */
+        private Duration reconcileInterval = Duration.ofMinutes(5);
+
+        /**
+         * Upper bounds, in days past the due date, of the buckets overdue amounts are reported in. A last bucket
+         * holds everything beyond the highest bound.
+         */
+        private List<Integer> overdueBuckets = List.of(30, 60, 90);
+    }
+
+    /**
+     * Admission control of the payment and overdue endpoints: per-client rate limits and load shedding.
+     */
+    @Data
+    public static class Admission {
+
+        /**
+         * Whether requests to the payment and overdue endpoints go through admission control.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of clients whose rate limits are tracked. Beyond it, the least used are forgotten,
+         * which gives them a full bucket again.
+         */
+        private long maxClients = 100_000;
+
+        /**
+         * Rate limit of {@code POST /invoices/{invoiceId}/payments} and {@code POST /invoices/payments:batch}
+         * per client, shared by both.
+         */
+        private final RateLimit payments = new RateLimit(Duration.ofMillis(10), 200);
+
+        /**
+         * Rate limit of starting and resuming overdue runs per client.
+         */
+        private final RateLimit overdue = new RateLimit(Duration.ofMinutes(1), 3);
+
+        /**
+         * Maximum number of payment requests processed at the same time. Further requests queue for a permit.
+         */
+        private int maxConcurrentPayments = 64;
+
+        /**
+         * Queueing time for a payment permit that is tolerated. Once even the shortest wait of an interval
+         * exceeds it, a queue has built up that does not drain, and requests that would have to wait are
+         * rejected with {@code 503 Service Unavailable} until a permit is free on arrival again.
+         */
+        private Duration queueTarget = Duration.ofMillis(50);
+
+        /**
+         * Interval over which the shortest queueing time is compared with the target.
+         */
+        private Duration queueInterval = Duration.ofMillis(500);
+
+        /**
+         * Longest time a payment request waits for a permit before it is rejected.
+         */
+        private Duration maxQueueTime = Duration.ofSeconds(2);
+    }
+
+    /**
+     * A token bucket: a client may send {@code burst} requests at once, and one more every
+     * {@code permitInterval}.
+     */
+    @Data
+    public static class RateLimit {
+
+        /**
+         * Time it takes to earn one request back.
+         */
+        private Duration permitInterval;
+
+        /**
+         * Number of requests a client can send at once after being idle.
+         */
+        private int burst;
+
+        public RateLimit(Duration permitInterval, int burst) {
+            this.permitInterval = permitInterval;
+            this.burst = burst;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.sandeep.invoice.config;
+
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.jdbc.core.mapping.JdbcValue;
+import org.springframework.data.jdbc.repository.config.AbstractJdbcConfiguration;
+import org.springframework.data.jdbc.repository.config.EnableJdbcAuditing;
+import org.springframework.data.jdbc.repository.config.EnableJdbcRepositories;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+import java.math.BigDecimal;
+import java.sql.JDBCType;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Spring Data JDBC configuration, replacing the one of Spring Boot to register the {@link Money}
+ * converters for {@code DECIMAL} columns and the {@link Status} converters for the status code column.
+ * Auditing stamps the update time of invoices written through {@code save}, to the microsecond like the
+ * {@code updated_at} column.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@EnableJdbcAuditing(dateTimeProviderRef = "auditingDateTimeProvider")
+// Unlike R2DBC, Spring Data JDBC does not skip reactive repositories on its own.
+@EnableJdbcRepositories(basePackageClasses = InvoiceRepository.class,
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ReactiveCrudRepository.class))
+public class JdbcConfiguration extends AbstractJdbcConfiguration {
+
+    @Bean
+    DateTimeProvider auditingDateTimeProvider() {
+        return () -> Optional.of(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+    }
+
+    @Override
+    protected List<?> userConverters() {
+        return List.of(new MoneyWritingConverter(), new MoneyReadingConverter(),
+                new StatusWritingConverter(), new StatusReadingConverter());
+    }
+
+    @WritingConverter
+    static class MoneyWritingConverter implements Converter<Money, BigDecimal> {
+
+        @Override
+        public BigDecimal convert(Money source) {
+            return source.toBigDecimal();
+        }
+    }
+
+    @ReadingConverter
+    static class MoneyReadingConverter implements Converter<BigDecimal, Money> {
+
+        @Override
+        public Money convert(BigDecimal source) {
+            return Money.of(source);
+        }
+    }
+
+    // Converts to a JdbcValue rather than an Integer: Spring Data JDBC would otherwise bind enums by name.
+    @WritingConverter
+    static class StatusWritingConverter implements Converter<Status, JdbcValue> {
+
+        @Override
+        public JdbcValue convert(Status source) {
+            return JdbcValue.of(source.getCode(), JDBCType.TINYINT);
+        }
+    }
+
+    @ReadingConverter
+    static class StatusReadingConverter implements Converter<Number, Status> {
+
+        @Override
+        public Status convert(Number source) {
+            return Status.fromCode(source.intValue());
+        }
+    }
+}
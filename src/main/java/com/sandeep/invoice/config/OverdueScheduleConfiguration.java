@@ -0,0 +1,27 @@
+package com.sandeep.invoice.config;
+
+import com.sandeep.invoice.metrics.InvoiceMetrics;
+import com.sandeep.invoice.service.DueDateIndex;
+import com.sandeep.invoice.service.OverdueProcessor;
+import com.sandeep.invoice.service.OverdueScheduler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Opt-in built-in overdue processing, enabled with {@code invoice.overdue.schedule.enabled=true}.
+ * Loads the due-date index at startup and processes the due dates that expired on the configured
+ * cron schedule. The manual {@code /invoices/process-overdue} endpoint works either way.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "invoice.overdue.schedule", name = "enabled", havingValue = "true")
+public class OverdueScheduleConfiguration {
+
+    @Bean
+    OverdueScheduler overdueScheduler(DueDateIndex dueDateIndex, OverdueProcessor overdueProcessor,
+                                      InvoiceMetrics metrics, InvoiceProperties properties) {
+        return new OverdueScheduler(dueDateIndex, overdueProcessor, metrics, properties.getOverdue().getSchedule());
+    }
+}
@@ -0,0 +1,50 @@
+package com.sandeep.invoice.config;
+
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Money;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.r2dbc.config.EnableR2dbcAuditing;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Spring Data R2DBC configuration of the {@code reactive} profile, registering the same {@link Money} and
+ * {@link Status} conversions as {@link JdbcConfiguration}, and the same auditing of the update time.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("reactive")
+@EnableR2dbcAuditing(dateTimeProviderRef = "auditingDateTimeProvider")
+public class ReactiveConfiguration {
+
+    @Bean
+    DateTimeProvider auditingDateTimeProvider() {
+        return () -> Optional.of(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+    }
+
+    @Bean
+    R2dbcCustomConversions r2dbcCustomConversions(ConnectionFactory connectionFactory) {
+        return R2dbcCustomConversions.of(DialectResolver.getDialect(connectionFactory), List.of(
+                new JdbcConfiguration.MoneyWritingConverter(), new JdbcConfiguration.MoneyReadingConverter(),
+                new StatusWritingConverter(), new JdbcConfiguration.StatusReadingConverter()));
+    }
+
+    @WritingConverter
+    static class StatusWritingConverter implements Converter<Status, Integer> {
+
+        @Override
+        public Integer convert(Status source) {
+            return source.getCode();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.sandeep.invoice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the {@code @Scheduled} maintenance tasks, such as purging expired idempotency keys and, when
+ * enabled, scheduled overdue processing.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableScheduling
+public class SchedulingConfiguration {
+}
@@ -0,0 +1,44 @@
+package com.sandeep.invoice.config;
+
+import com.sandeep.invoice.metrics.InvoiceMetrics;
+import com.sandeep.invoice.threads.ConcurrencyLimitingDataSource;
+import com.sandeep.invoice.threads.PinnedThreadMonitor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Opt-in mode running requests on virtual threads, enabled with {@code spring.threads.virtual.enabled=true}
+ * (the {@code virtual-threads} profile). Spring Boot then serves requests, including every
+ * {@code InvoiceController} handler, on a virtual thread per request. On top of that, this mode bounds the
+ * concurrent database connections with a semaphore and reports pinned virtual threads.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfiguration {
+
+    @Bean
+    static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(ObjectProvider<InvoiceProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitingDataSource)) {
+                    InvoiceProperties.VirtualThreads settings = properties.getObject().getVirtualThreads();
+                    return new ConcurrencyLimitingDataSource(dataSource, settings.getMaxConcurrentConnections(),
+                            settings.getConnectionAcquireTimeout());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    PinnedThreadMonitor pinnedThreadMonitor(InvoiceMetrics metrics, InvoiceProperties properties) {
+        return new PinnedThreadMonitor(metrics, properties.getVirtualThreads().getPinnedThreshold());
+    }
+}
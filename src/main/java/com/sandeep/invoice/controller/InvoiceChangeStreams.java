@@ -0,0 +1,120 @@
+package com.sandeep.invoice.controller;
+
+import com.sandeep.invoice.dto.InvoiceChangeResponse;
+import com.sandeep.invoice.dto.InvoiceChangesResponse;
+import com.sandeep.invoice.service.InvoiceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Waits for invoice changes on behalf of {@code GET /invoices/changes}, on virtual threads of its own, so
+ * that long polls and server-sent event streams hold no container thread while they wait.
+ * <p>
+ * The bean depends on the {@link InvoiceService}, so it is shut down before the data source. Shutting
+ * down completes the open event streams and interrupts the waiting threads, which then return what they
+ * have.
+ * </p>
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class InvoiceChangeStreams implements DisposableBean {
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+    // Leaves the wait time to answer before the request itself times out.
+    private static final Duration POLL_TIMEOUT_MARGIN = Duration.ofSeconds(10);
+
+    private final InvoiceService invoiceService;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+
+    public InvoiceChangeStreams(InvoiceService invoiceService) {
+        this.invoiceService = invoiceService;
+    }
+
+    /**
+     * Returns the changes after {@code since}, waiting up to {@code wait} for the first one. Without a
+     * wait the changes are read on the calling thread.
+     */
+    public DeferredResult<InvoiceChangesResponse> poll(long since, int limit, Duration wait) {
+        DeferredResult<InvoiceChangesResponse> result = new DeferredResult<>(wait.plus(POLL_TIMEOUT_MARGIN).toMillis());
+        if (wait.isZero()) {
+            result.setResult(invoiceService.getChanges(since, limit, wait));
+            return result;
+        }
+        executor.execute(() -> {
+            try {
+                result.setResult(invoiceService.getChanges(since, limit, wait));
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Streams the changes after {@code since} to the emitter until it completes, times out or the client
+     * disconnects, sending a comment after {@code keepAlive} without changes.
+     */
+    public SseEmitter stream(long since, int pageSize, Duration timeout, Duration keepAlive) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        AtomicBoolean closed = new AtomicBoolean();
+        emitter.onCompletion(() -> {
+            closed.set(true);
+            emitters.remove(emitter);
+        });
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> closed.set(true));
+        emitters.add(emitter);
+
+        executor.execute(() -> {
+            try {
+                for (long cursor = since; !closed.get() && !Thread.currentThread().isInterrupted(); ) {
+                    InvoiceChangesResponse page = invoiceService.getChanges(cursor, pageSize, keepAlive);
+                    if (page.getChanges().isEmpty()) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    }
+                    for (InvoiceChangeResponse change : page.getChanges()) {
+                        emitter.send(SseEmitter.event()
+                                .id(change.getCursor())
+                                .name(change.getType().name())
+                                .data(change, MediaType.APPLICATION_JSON));
+                    }
+                    cursor = Long.parseLong(page.getNextCursor());
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client disconnected or the stream timed out.
+            } catch (RuntimeException e) {
+                emitter.completeWithError(e);
+            } finally {
+                emitters.remove(emitter);
+            }
+        });
+        return emitter;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        for (SseEmitter emitter : emitters) {
+            emitter.complete();
+        }
+        executor.shutdownNow();
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Invoice change streams did not stop within {}", SHUTDOWN_TIMEOUT);
+        }
+    }
+}
@@ -1,51 +1,310 @@
 package com.sandeep.invoice.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sandeep.invoice.config.InvoiceProperties;
 import com.sandeep.invoice.dto.*;
 import com.sandeep.invoice.service.InvoiceService;
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
-@RequestMapping("/invoices")
+@Profile("!reactive")
 @Validated
 @RequiredArgsConstructor
 public class InvoiceController {
 
+    // Not a class level mapping: custom methods such as "/invoices:batch" are not separate path segments.
+    private static final String INVOICES = "/invoices";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String DEFAULT_PAGE_SIZE = "100";
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_CHANGES_WAIT_SECONDS = 60;
+    // An SSE stream sends a comment after this long without changes, so dead connections are noticed.
+    private static final Duration CHANGES_KEEP_ALIVE = Duration.ofSeconds(15);
+
     private final InvoiceService invoiceService;
+    private final ObjectMapper objectMapper;
+    private final InvoiceProperties properties;
+    private final InvoiceChangeStreams changeStreams;
 
-    @PostMapping
+    @PostMapping(INVOICES)
     @ResponseStatus(HttpStatus.CREATED)
+    @Operation(description = "Creates an invoice. A request repeating the Idempotency-Key of an earlier one returns " +
+            "the response of the earlier request instead of creating another invoice.")
     public CreateInvoiceResponse createInvoice(
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) @Size(min = 1, max = 255) String idempotencyKey,
             @Valid @RequestBody CreateInvoiceRequest createInvoiceRequest) {
-        return invoiceService.createInvoice(createInvoiceRequest);
+        return invoiceService.createInvoice(createInvoiceRequest, idempotencyKey);
+    }
+
+    @PostMapping(INVOICES + ":batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(description = "Creates a batch of invoices in one transaction and returns their ids in request order.")
+    public BatchCreateInvoiceResponse createInvoices(
+            @Valid @RequestBody BatchCreateInvoiceRequest batchCreateInvoiceRequest) {
+        return invoiceService.createInvoices(batchCreateInvoiceRequest.getInvoices());
+    }
+
+    @PostMapping(path = INVOICES + ":import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    @Operation(description = "Imports invoices from a CSV file whose header names the columns amount and due_date. " +
+            "Rows are validated like POST /invoices and committed in batches; invalid rows are written to the " +
+            "rejects of the import. A failed import can be resumed from its last committed batch.")
+    public InvoiceImportResponse importInvoices(InputStream csv) {
+        return invoiceService.importInvoices(csv);
+    }
+
+    @PostMapping(path = INVOICES + "/imports/{importId}/resume", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    @Operation(description = "Resumes a failed import with the same file, skipping the lines already committed.")
+    public InvoiceImportResponse resumeImport(@PathVariable @NotNull @Positive Long importId, InputStream csv) {
+        return invoiceService.resumeImport(importId, csv);
+    }
+
+    @GetMapping(INVOICES + "/imports/{importId}")
+    @Operation(description = "Returns the progress of an import.")
+    public InvoiceImportResponse getImport(@PathVariable @NotNull @Positive Long importId) {
+        return invoiceService.getImport(importId);
+    }
+
+    @GetMapping(path = INVOICES + "/imports/{importId}/rejects", produces = "text/csv")
+    @Operation(description = "Downloads the rows rejected by an import, with their line number and the reason.")
+    public Resource getImportRejects(@PathVariable @NotNull @Positive Long importId) {
+        return new FileSystemResource(invoiceService.getImportRejects(importId));
+    }
+
+    @GetMapping(INVOICES)
+    @Operation(description = "Returns one page of invoices ordered by id. " +
+            "To fetch the next page, pass the id of the last invoice of the current page as after_id. " +
+            "updated_since keeps the invoices written after that time. The response carries an ETag that " +
+            "changes with every write to any invoice; with a matching If-None-Match, 304 is returned instead.")
+    public List<InvoiceResponse> getInvoices(
+            @RequestParam(name = "after_id", required = false) @Positive Long afterId,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) @Min(1) @Max(MAX_PAGE_SIZE) int limit,
+            @RequestParam(required = false) Status status,
+            @RequestParam(name = "due_from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate dueFrom,
+            @RequestParam(name = "due_to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate dueTo,
+            @RequestParam(name = "updated_since", required = false) @DateTimeFormat(iso = ISO.DATE_TIME)
+            LocalDateTime updatedSince,
+            WebRequest request) {
+        // Checked before the query, so a poll that matches touches neither the database nor Jackson.
+        if (request.checkNotModified(invoiceService.getInvoicesETag())) {
+            return null;
+        }
+        return invoiceService.getInvoices(InvoiceQuery.builder()
+                .afterId(afterId)
+                .limit(limit)
+                .status(status)
+                .dueFrom(dueFrom)
+                .dueTo(dueTo)
+                .updatedSince(updatedSince)
+                .build());
+    }
+
+    @GetMapping(path = INVOICES, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(description = "Streams all matching invoices ordered by id as newline delimited JSON, " +
+            "reading from a database cursor so the response size is not limited by server memory.")
+    public ResponseEntity<StreamingResponseBody> streamInvoices(
+            @RequestParam(name = "after_id", required = false) @Positive Long afterId,
+            @RequestParam(required = false) Status status,
+            @RequestParam(name = "due_from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate dueFrom,
+            @RequestParam(name = "due_to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate dueTo,
+            @RequestParam(name = "updated_since", required = false) @DateTimeFormat(iso = ISO.DATE_TIME)
+            LocalDateTime updatedSince) {
+        InvoiceQuery query = InvoiceQuery.builder()
+                .afterId(afterId)
+                .status(status)
+                .dueFrom(dueFrom)
+                .dueTo(dueTo)
+                .updatedSince(updatedSince)
+                .build();
+
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = objectMapper.createGenerator(outputStream)
+                    .setRootValueSeparator(null);
+            invoiceService.streamInvoices(query, invoice -> {
+                try {
+                    objectMapper.writeValue(generator, invoice);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping(INVOICES + ":export")
+    @Operation(description = "Exports all matching invoices ordered by id as a CSV file or in a compact columnar " +
+            "binary format, optionally gzip compressed. Rows are streamed from a database cursor straight into the " +
+            "response, so exports of any size take constant server memory.")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) Status status,
+            @RequestParam(name = "due_from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate dueFrom,
+            @RequestParam(name = "due_to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate dueTo) {
+        InvoiceQuery query = InvoiceQuery.builder()
+                .status(status)
+                .dueFrom(dueFrom)
+                .dueTo(dueTo)
+                .build();
+
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new FastGzipOutputStream(outputStream);
+                invoiceService.exportInvoices(query, format, Channels.newChannel(compressed));
+                compressed.finish();
+            } else {
+                invoiceService.exportInvoices(query, format, Channels.newChannel(outputStream));
+            }
+        };
+        String fileName = "invoices." + format.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
     }
 
-    @GetMapping
-    public List<InvoiceResponse> getInvoices() {
-        return invoiceService.getInvoices();
+    @GetMapping(INVOICES + "/summary")
+    @Operation(description = "Returns the number and totals of invoices per status, the outstanding balance of " +
+            "pending invoices and their overdue balance bucketed by days past due. Served from in-memory aggregates " +
+            "that are reconciled with the database every invoice.summary.reconcile-interval.")
+    public InvoiceSummaryResponse getSummary() {
+        return invoiceService.getSummary();
     }
 
-    @PostMapping("{invoiceId}/payments")
-    @Operation(description = "Processes a payment for a specified invoice. If the invoice is fully paid, it is marked as PAID.")
+    @GetMapping(INVOICES + "/changes")
+    @Operation(description = "Returns the invoice changes (creations, payments, PAID and VOIDED transitions) after the " +
+            "cursor since, in commit order, each with a snapshot of the invoice. Pass next_cursor as since to continue. " +
+            "With wait, the response is held for up to that many seconds until a change arrives instead of returning " +
+            "an empty page.")
+    public DeferredResult<InvoiceChangesResponse> getChanges(
+            @RequestParam(defaultValue = "0") @PositiveOrZero long since,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) @Min(1) @Max(MAX_PAGE_SIZE) int limit,
+            @RequestParam(defaultValue = "0") @Min(0) @Max(MAX_CHANGES_WAIT_SECONDS) int wait) {
+        return changeStreams.poll(since, limit, Duration.ofSeconds(wait));
+    }
+
+    @GetMapping(path = INVOICES + "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(description = "Streams the invoice changes after the cursor since as server-sent events, named after " +
+            "the change type and with the cursor as event id. The stream closes after invoice.changes.stream-timeout; " +
+            "reconnecting with Last-Event-ID resumes it.")
+    public SseEmitter streamChanges(
+            @RequestParam(defaultValue = "0") @PositiveOrZero long since,
+            @RequestHeader(name = "Last-Event-ID", required = false) @PositiveOrZero Long lastEventId) {
+        long start = lastEventId != null ? lastEventId : since;
+        return changeStreams.stream(start, MAX_PAGE_SIZE, properties.getChanges().getStreamTimeout(), CHANGES_KEEP_ALIVE);
+    }
+
+    @GetMapping(INVOICES + "/{invoiceId}")
+    @Operation(description = "Returns a single invoice. Invoices are served from an in-process cache that is " +
+            "updated on every write.")
+    public InvoiceResponse getInvoice(@PathVariable @NotNull @Positive Long invoiceId) {
+        return invoiceService.getInvoice(invoiceId);
+    }
+
+    @GetMapping(INVOICES + "/{invoiceId}/payments")
+    @Operation(description = "Returns the payments made towards an invoice, oldest first, from the append-only " +
+            "payment ledger. The paid amount of the invoice is the sum of these payments.")
+    public List<PaymentResponse> getPayments(@PathVariable @NotNull @Positive Long invoiceId) {
+        return invoiceService.getPayments(invoiceId);
+    }
+
+    @PostMapping(INVOICES + "/{invoiceId}/payments")
+    @Operation(description = "Processes a payment for a specified invoice. If the invoice is fully paid, it is marked as PAID. " +
+            "A request repeating the Idempotency-Key of an earlier one returns the response of the earlier request " +
+            "without paying again.")
     public InvoiceResponse payInvoice(@PathVariable @NotNull @Positive Long invoiceId,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) @Size(min = 1, max = 255) String idempotencyKey,
             @Valid @RequestBody PayInvoiceRequest payInvoiceRequest) {
-        return invoiceService.payInvoice(invoiceId, payInvoiceRequest.getAmount());
+        return invoiceService.payInvoice(invoiceId, payInvoiceRequest.getAmount(), idempotencyKey);
+    }
+
+    @PostMapping(INVOICES + "/payments:batch")
+    @Operation(description = "Processes a batch of payments. Each payment is validated like a single payment and " +
+            "payments for the same invoice are applied in request order. Returns one result per payment.")
+    public BatchPaymentResponse payInvoices(@Valid @RequestBody BatchPaymentRequest batchPaymentRequest) {
+        return invoiceService.payInvoices(batchPaymentRequest.getPayments());
     }
 
-    @PostMapping("process-overdue")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @PostMapping(INVOICES + "/process-overdue")
     @Operation(description = "Processes overdue invoices by handling partially and fully unpaid invoices. " +
             "Partially paid invoices are marked as PAID with a new invoice created for the remaining balance plus late fees. " +
-            "Fully unpaid invoices are marked as VOID, with a new invoice created for the total amount plus late fees.")
-    public void processOverdue(@Valid @RequestBody ProcessOverdueRequest request) {
-        invoiceService.processOverdue(request);
+            "Fully unpaid invoices are marked as VOID, with a new invoice created for the total amount plus late fees. " +
+            "The run is split into partitions that are processed concurrently and committed in chunks; " +
+            "the response summarizes the run.")
+    public ProcessOverdueResponse processOverdue(@Valid @RequestBody ProcessOverdueRequest request) {
+        return invoiceService.processOverdue(request);
+    }
+
+    @GetMapping(INVOICES + "/process-overdue/{runId}")
+    @Operation(description = "Returns the progress of an overdue run and of each of its partitions.")
+    public ProcessOverdueResponse getOverdueRun(@PathVariable @NotNull @Positive Long runId) {
+        return invoiceService.getOverdueRun(runId);
+    }
+
+    @PostMapping(INVOICES + "/process-overdue/{runId}/resume")
+    @Operation(description = "Resumes an unfinished overdue run, for example after a crash, or joins it from " +
+            "another instance. Only partitions that are unowned or whose lease has expired are claimed.")
+    public ProcessOverdueResponse resumeOverdueRun(@PathVariable @NotNull @Positive Long runId) {
+        return invoiceService.resumeOverdueRun(runId);
+    }
+
+    @PostMapping(INVOICES + "/process-overdue/due-date-index:rebuild")
+    @Operation(description = "Reloads the in-memory index of pending invoices by due date, which the overdue " +
+            "scheduler reads instead of scanning the invoice table, from the database. Use it if the index has drifted.")
+    public DueDateIndexResponse rebuildDueDateIndex() {
+        return invoiceService.rebuildDueDateIndex();
+    }
+
+    /**
+     * Gzip at the fastest compression level: the default level would make compression, not the database,
+     * the bottleneck of large exports, for little gain in size.
+     */
+    private static class FastGzipOutputStream extends GZIPOutputStream {
+
+        FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, 1 << 16);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
     }
 }
@@ -0,0 +1,128 @@
+package com.sandeep.invoice.controller;
+
+import com.sandeep.invoice.dto.CreateInvoiceRequest;
+import com.sandeep.invoice.dto.CreateInvoiceResponse;
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.dto.InvoiceResponse;
+import com.sandeep.invoice.dto.PayInvoiceRequest;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.exception.InvoiceDataException;
+import com.sandeep.invoice.service.ReactiveInvoiceService;
+import io.swagger.v3.oas.annotations.Operation;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * WebFlux variant of the single invoice endpoints of {@link InvoiceController}, active with the
+ * {@code reactive} profile. Paths, parameters, validation and error responses are the same. Batch and
+ * overdue endpoints are only served by the servlet stack.
+ * <p>
+ * Idempotency keys are not supported: requests sent with an {@code Idempotency-Key} are rejected with
+ * {@code 400 Bad Request} rather than executed without the guarantee the client asked for.
+ * </p>
+ */
+@RestController
+@Profile("reactive")
+@Validated
+@RequiredArgsConstructor
+public class ReactiveInvoiceController {
+
+    private static final String INVOICES = "/invoices";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String DEFAULT_PAGE_SIZE = "100";
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final ReactiveInvoiceService invoiceService;
+
+    @PostMapping(INVOICES)
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(description = "Creates an invoice. Requests with an Idempotency-Key are rejected, as the reactive " +
+            "stack cannot replay responses.")
+    public Mono<CreateInvoiceResponse> createInvoice(
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Valid @RequestBody CreateInvoiceRequest createInvoiceRequest) {
+        if (idempotencyKey != null) {
+            return idempotencyKeyNotSupported();
+        }
+        return invoiceService.createInvoice(createInvoiceRequest);
+    }
+
+    @GetMapping(INVOICES)
+    @Operation(description = "Returns one page of invoices ordered by id. " +
+            "To fetch the next page, pass the id of the last invoice of the current page as after_id.")
+    public Flux<InvoiceResponse> getInvoices(
+            @RequestParam(name = "after_id", required = false) @Positive Long afterId,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) @Min(1) @Max(MAX_PAGE_SIZE) int limit,
+            @RequestParam(required = false) Status status,
+            @RequestParam(name = "due_from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate dueFrom,
+            @RequestParam(name = "due_to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate dueTo,
+            @RequestParam(name = "updated_since", required = false) @DateTimeFormat(iso = ISO.DATE_TIME)
+            LocalDateTime updatedSince) {
+        return invoiceService.getInvoices(InvoiceQuery.builder()
+                .afterId(afterId)
+                .limit(limit)
+                .status(status)
+                .dueFrom(dueFrom)
+                .dueTo(dueTo)
+                .updatedSince(updatedSince)
+                .build());
+    }
+
+    @GetMapping(path = INVOICES, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(description = "Streams all matching invoices ordered by id as newline delimited JSON. " +
+            "Rows are read from the database only as fast as the client consumes them.")
+    public Flux<InvoiceResponse> streamInvoices(
+            @RequestParam(name = "after_id", required = false) @Positive Long afterId,
+            @RequestParam(required = false) Status status,
+            @RequestParam(name = "due_from", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate dueFrom,
+            @RequestParam(name = "due_to", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate dueTo,
+            @RequestParam(name = "updated_since", required = false) @DateTimeFormat(iso = ISO.DATE_TIME)
+            LocalDateTime updatedSince) {
+        return invoiceService.getInvoices(InvoiceQuery.builder()
+                .afterId(afterId)
+                .status(status)
+                .dueFrom(dueFrom)
+                .dueTo(dueTo)
+                .updatedSince(updatedSince)
+                .build());
+    }
+
+    @GetMapping(INVOICES + "/{invoiceId}")
+    public Mono<InvoiceResponse> getInvoice(@PathVariable @NotNull @Positive Long invoiceId) {
+        return invoiceService.getInvoice(invoiceId);
+    }
+
+    @PostMapping(INVOICES + "/{invoiceId}/payments")
+    @Operation(description = "Processes a payment for a specified invoice. " +
+            "If the invoice is fully paid, it is marked as PAID. " +
+            "Requests with an Idempotency-Key are rejected, as the reactive stack cannot replay responses.")
+    public Mono<InvoiceResponse> payInvoice(@PathVariable @NotNull @Positive Long invoiceId,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Valid @RequestBody PayInvoiceRequest payInvoiceRequest) {
+        if (idempotencyKey != null) {
+            return idempotencyKeyNotSupported();
+        }
+        return invoiceService.payInvoice(invoiceId, payInvoiceRequest.getAmount());
+    }
+
+    private static <T> Mono<T> idempotencyKeyNotSupported() {
+        return Mono.error(new InvoiceDataException(
+                IDEMPOTENCY_KEY + " is not supported by the reactive API, send the request without it"));
+    }
+}
@@ -0,0 +1,16 @@
+package com.sandeep.invoice.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Builder
+public class BatchCreateInvoiceResponse {
+
+    /**
+     * The ids of the created invoices, in request order.
+     */
+    List<String> ids;
+}
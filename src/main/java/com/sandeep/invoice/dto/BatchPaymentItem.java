@@ -0,0 +1,17 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class BatchPaymentItem extends PayInvoiceRequest {
+
+    @JsonProperty("invoice_id")
+    @NotNull
+    @Positive
+    Long invoiceId;
+}
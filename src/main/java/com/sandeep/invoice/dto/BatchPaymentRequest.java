@@ -0,0 +1,19 @@
+package com.sandeep.invoice.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchPaymentRequest {
+
+    public static final int MAX_PAYMENTS = 10_000;
+
+    @NotEmpty
+    @Size(max = MAX_PAYMENTS)
+    List<@Valid @NotNull BatchPaymentItem> payments;
+}
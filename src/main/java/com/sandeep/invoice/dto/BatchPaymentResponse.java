@@ -0,0 +1,23 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Builder
+public class BatchPaymentResponse {
+
+    @JsonProperty("succeeded_count")
+    int succeededCount;
+
+    @JsonProperty("failed_count")
+    int failedCount;
+
+    /**
+     * One result per requested payment, in request order.
+     */
+    List<BatchPaymentResult> results;
+}
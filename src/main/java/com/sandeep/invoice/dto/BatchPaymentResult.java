@@ -0,0 +1,21 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchPaymentResult {
+
+    @JsonProperty("invoice_id")
+    String invoiceId;
+
+    boolean success;
+
+    InvoiceResponse invoice;
+
+    String error;
+}
@@ -3,9 +3,11 @@ package com.sandeep.invoice.dto;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Builder;
 import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
 @Value
 @Builder
+@Jacksonized
 public class CreateInvoiceResponse {
 
     @NotBlank
@@ -0,0 +1,22 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class DueDateIndexResponse {
+
+    /**
+     * Number of pending invoices in the index.
+     */
+    @JsonProperty("invoice_count")
+    int invoiceCount;
+
+    /**
+     * Number of distinct due dates the invoices are bucketed by.
+     */
+    @JsonProperty("bucket_count")
+    int bucketCount;
+}
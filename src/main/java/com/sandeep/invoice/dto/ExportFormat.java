@@ -0,0 +1,34 @@
+package com.sandeep.invoice.dto;
+
+/**
+ * File format of an invoice export.
+ */
+public enum ExportFormat {
+
+    /**
+     * Comma separated values with a header row: {@code id,amount,paid_amount,due_date,status}.
+     */
+    CSV("text/csv", "csv"),
+
+    /**
+     * Compact binary format storing the invoices column by column in row groups, see
+     * {@link com.sandeep.invoice.export.ColumnarInvoiceExportWriter}.
+     */
+    COLUMNAR("application/vnd.invoice.columnar", "icol");
+
+    private final String mediaType;
+    private final String extension;
+
+    ExportFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
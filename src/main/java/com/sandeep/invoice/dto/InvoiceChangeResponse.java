@@ -0,0 +1,27 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+@Builder
+public class InvoiceChangeResponse {
+
+    /**
+     * Position of the change in the stream. Pass it as {@code since} to read the changes after it.
+     */
+    String cursor;
+
+    InvoiceChangeType type;
+
+    /**
+     * The invoice as it was right after the change.
+     */
+    InvoiceResponse invoice;
+
+    @JsonProperty("changed_at")
+    LocalDateTime changedAt;
+}
@@ -0,0 +1,30 @@
+package com.sandeep.invoice.dto;
+
+import com.sandeep.invoice.model.Invoice;
+
+/**
+ * What happened to an invoice in a change of the change stream.
+ */
+public enum InvoiceChangeType {
+    CREATED,
+    /**
+     * A payment that left the invoice pending.
+     */
+    PAYMENT,
+    /**
+     * The invoice became PAID, through its final payment or because overdue processing closed it.
+     */
+    PAID,
+    VOIDED;
+
+    /**
+     * Returns the type of a change that updated an existing invoice, from the status it left it in.
+     */
+    public static InvoiceChangeType ofUpdated(Invoice invoice) {
+        return switch (invoice.getStatus()) {
+            case PENDING -> PAYMENT;
+            case PAID -> PAID;
+            case VOID -> VOIDED;
+        };
+    }
+}
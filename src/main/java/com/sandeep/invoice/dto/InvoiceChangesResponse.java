@@ -0,0 +1,21 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Builder
+public class InvoiceChangesResponse {
+
+    List<InvoiceChangeResponse> changes;
+
+    /**
+     * Cursor to pass as {@code since} for the next request: the cursor of the last change, or the
+     * requested one if there were no changes.
+     */
+    @JsonProperty("next_cursor")
+    String nextCursor;
+}
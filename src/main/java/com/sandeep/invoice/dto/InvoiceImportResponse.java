@@ -0,0 +1,33 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class InvoiceImportResponse {
+
+    @JsonProperty("import_id")
+    Long importId;
+
+    RunStatus status;
+
+    @JsonProperty("last_committed_line")
+    long lastCommittedLine;
+
+    @JsonProperty("imported_count")
+    long importedCount;
+
+    @JsonProperty("rejected_count")
+    long rejectedCount;
+
+    @JsonProperty("batch_count")
+    long batchCount;
+
+    @JsonProperty("elapsed_ms")
+    long elapsedMs;
+
+    @JsonProperty("invoices_per_second")
+    double invoicesPerSecond;
+}
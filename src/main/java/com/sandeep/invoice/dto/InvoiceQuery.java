@@ -0,0 +1,26 @@
+package com.sandeep.invoice.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Filter and keyset cursor for listing invoices.
+ * <p>
+ * All fields are optional. Invoices are always returned in ascending {@code id} order, starting
+ * after {@code afterId}, so the last id of a page is the cursor for the next page.
+ * {@code updatedSince} keeps the invoices written after that time.
+ * </p>
+ */
+@Value
+@Builder
+public class InvoiceQuery {
+    Status status;
+    LocalDate dueFrom;
+    LocalDate dueTo;
+    LocalDateTime updatedSince;
+    Long afterId;
+    Integer limit;
+}
@@ -1,20 +1,29 @@
 package com.sandeep.invoice.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.sandeep.invoice.model.Money;
 import lombok.Builder;
 import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Value
 @Builder
+@Jacksonized
+@JsonSerialize(using = InvoiceResponseSerializer.class)
 public class InvoiceResponse {
     String id;
-    BigDecimal amount;
+    Money amount;
     @JsonProperty("paid_amount")
-    BigDecimal paidAmount;
+    Money paidAmount;
     @JsonProperty("due_date")
     LocalDate dueDate;
     Status status;
+    @JsonProperty("updated_at")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    LocalDateTime updatedAt;
 }
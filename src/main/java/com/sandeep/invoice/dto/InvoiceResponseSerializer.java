@@ -0,0 +1,152 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.sandeep.invoice.model.Money;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes {@link InvoiceResponse} with the same bytes as Jackson's bean serializer under the application's
+ * configuration, but without reflection: field names are encoded once, amounts, dates and times are
+ * formatted into a small char buffer rather than through strings and {@link DateTimeFormatter}, and status
+ * names are encoded once per constant. Lists of invoices are the bulk of every {@code GET /invoices} and
+ * NDJSON stream, so this is where serialization time goes.
+ * <p>
+ * Like the bean serializer, nulls are written except for {@code updated_at}, which is left out. A change of
+ * the {@code spring.jackson} settings that changes the format of dates or enums must be made here as well;
+ * {@code InvoiceResponseSerializerTest} compares both serializers to catch that.
+ * </p>
+ */
+class InvoiceResponseSerializer extends StdSerializer<InvoiceResponse> {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString AMOUNT = new SerializedString("amount");
+    private static final SerializedString PAID_AMOUNT = new SerializedString("paid_amount");
+    private static final SerializedString DUE_DATE = new SerializedString("due_date");
+    private static final SerializedString STATUS = new SerializedString("status");
+    private static final SerializedString UPDATED_AT = new SerializedString("updated_at");
+    private static final SerializedString[] STATUS_NAMES = new SerializedString[Status.values().length];
+
+    // A date and time with nanoseconds, or a signed long of cents with a decimal point.
+    private static final int MAX_VALUE_CHARS = 32;
+
+    static {
+        for (Status status : Status.values()) {
+            STATUS_NAMES[status.ordinal()] = new SerializedString(status.name());
+        }
+    }
+
+    InvoiceResponseSerializer() {
+        super(InvoiceResponse.class);
+    }
+
+    @Override
+    public void serialize(InvoiceResponse value, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        char[] buffer = new char[MAX_VALUE_CHARS];
+        generator.writeStartObject(value);
+        generator.writeFieldName(ID);
+        generator.writeString(value.getId());
+        generator.writeFieldName(AMOUNT);
+        writeMoney(generator, value.getAmount(), buffer);
+        // The bean serializer writes the properties renamed with @JsonProperty last.
+        generator.writeFieldName(STATUS);
+        if (value.getStatus() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(STATUS_NAMES[value.getStatus().ordinal()]);
+        }
+        generator.writeFieldName(PAID_AMOUNT);
+        writeMoney(generator, value.getPaidAmount(), buffer);
+        generator.writeFieldName(DUE_DATE);
+        writeDate(generator, value.getDueDate(), buffer);
+        if (value.getUpdatedAt() != null) {
+            generator.writeFieldName(UPDATED_AT);
+            writeDateTime(generator, value.getUpdatedAt(), buffer);
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeMoney(JsonGenerator generator, Money money, char[] buffer) throws IOException {
+        if (money == null) {
+            generator.writeNull();
+            return;
+        }
+        long cents = money.getCents();
+        // Digits are produced from the negated value, which covers Long.MIN_VALUE as well.
+        long remaining = cents < 0 ? cents : -cents;
+        int start = buffer.length;
+        buffer[--start] = (char) ('0' - remaining % 10);
+        remaining /= 10;
+        buffer[--start] = (char) ('0' - remaining % 10);
+        remaining /= 10;
+        buffer[--start] = '.';
+        do {
+            buffer[--start] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (cents < 0) {
+            buffer[--start] = '-';
+        }
+        generator.writeNumber(buffer, start, buffer.length - start);
+    }
+
+    private static void writeDate(JsonGenerator generator, LocalDate date, char[] buffer) throws IOException {
+        if (date == null) {
+            generator.writeNull();
+        } else if (date.getYear() < 0 || date.getYear() > 9999) {
+            generator.writeString(date.toString());
+        } else {
+            generator.writeString(buffer, 0, putDate(buffer, date));
+        }
+    }
+
+    private static void writeDateTime(JsonGenerator generator, LocalDateTime dateTime, char[] buffer)
+            throws IOException {
+        if (dateTime.getYear() < 0 || dateTime.getYear() > 9999) {
+            generator.writeString(dateTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            return;
+        }
+        int position = putDate(buffer, dateTime.toLocalDate());
+        buffer[position++] = 'T';
+        position = putDigits(buffer, position, dateTime.getHour(), 2);
+        buffer[position++] = ':';
+        position = putDigits(buffer, position, dateTime.getMinute(), 2);
+        buffer[position++] = ':';
+        position = putDigits(buffer, position, dateTime.getSecond(), 2);
+        int nanos = dateTime.getNano();
+        if (nanos != 0) {
+            // ISO_LOCAL_DATE_TIME writes the fraction with as many digits as needed, at most 9.
+            int digits = 9;
+            while (nanos % 10 == 0) {
+                nanos /= 10;
+                digits--;
+            }
+            buffer[position++] = '.';
+            position = putDigits(buffer, position, nanos, digits);
+        }
+        generator.writeString(buffer, 0, position);
+    }
+
+    private static int putDate(char[] buffer, LocalDate date) {
+        int position = putDigits(buffer, 0, date.getYear(), 4);
+        buffer[position++] = '-';
+        position = putDigits(buffer, position, date.getMonthValue(), 2);
+        buffer[position++] = '-';
+        return putDigits(buffer, position, date.getDayOfMonth(), 2);
+    }
+
+    private static int putDigits(char[] buffer, int position, int value, int width) {
+        for (int i = position + width - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + width;
+    }
+}
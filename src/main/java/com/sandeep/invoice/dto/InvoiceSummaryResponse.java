@@ -0,0 +1,31 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sandeep.invoice.model.Money;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Value
+@Builder
+public class InvoiceSummaryResponse {
+
+    Map<Status, StatusSummary> statuses;
+
+    @JsonProperty("outstanding_amount")
+    Money outstandingAmount;
+
+    @JsonProperty("overdue_count")
+    long overdueCount;
+
+    @JsonProperty("overdue_amount")
+    Money overdueAmount;
+
+    List<OverdueBucketSummary> overdue;
+
+    @JsonProperty("reconciled_at")
+    LocalDateTime reconciledAt;
+}
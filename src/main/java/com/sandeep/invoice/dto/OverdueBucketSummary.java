@@ -0,0 +1,23 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sandeep.invoice.model.Money;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class OverdueBucketSummary {
+
+    @JsonProperty("days_from")
+    int daysFrom;
+
+    // Null for the last bucket, which has no upper bound.
+    @JsonProperty("days_to")
+    Integer daysTo;
+
+    long count;
+
+    // The outstanding balance of the overdue invoices in the bucket.
+    Money amount;
+}
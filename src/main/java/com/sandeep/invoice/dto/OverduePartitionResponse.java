@@ -0,0 +1,30 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class OverduePartitionResponse {
+
+    @JsonProperty("partition_no")
+    int partitionNo;
+
+    @JsonProperty("from_id")
+    long fromId;
+
+    @JsonProperty("to_id")
+    long toId;
+
+    @JsonProperty("last_processed_id")
+    long lastProcessedId;
+
+    RunStatus status;
+
+    @JsonProperty("lease_owner")
+    String leaseOwner;
+
+    @JsonProperty("processed_count")
+    long processedCount;
+}
@@ -0,0 +1,19 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sandeep.invoice.model.Money;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+@Builder
+public class PaymentResponse {
+    String id;
+    @JsonProperty("invoice_id")
+    String invoiceId;
+    Money amount;
+    @JsonProperty("created_at")
+    LocalDateTime createdAt;
+}
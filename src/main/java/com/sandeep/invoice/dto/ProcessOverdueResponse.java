@@ -0,0 +1,40 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Builder
+public class ProcessOverdueResponse {
+
+    @JsonProperty("run_id")
+    Long runId;
+
+    RunStatus status;
+
+    @JsonProperty("processed_count")
+    long processedCount;
+
+    @JsonProperty("paid_count")
+    long paidCount;
+
+    @JsonProperty("void_count")
+    long voidCount;
+
+    @JsonProperty("created_count")
+    long createdCount;
+
+    @JsonProperty("chunk_count")
+    long chunkCount;
+
+    @JsonProperty("elapsed_ms")
+    long elapsedMs;
+
+    @JsonProperty("invoices_per_second")
+    double invoicesPerSecond;
+
+    List<OverduePartitionResponse> partitions;
+}
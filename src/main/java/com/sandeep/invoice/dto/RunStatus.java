@@ -0,0 +1,7 @@
+package com.sandeep.invoice.dto;
+
+public enum RunStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED
+}
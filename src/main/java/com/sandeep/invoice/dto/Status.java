@@ -1,7 +1,30 @@
 package com.sandeep.invoice.dto;
 
+/**
+ * Status of an invoice. The {@link #getCode() code} is what the {@code invoice.status} column stores
+ * and must never change for an existing constant.
+ */
 public enum Status {
-    PENDING,
-    PAID,
-    VOID
+    PENDING(0),
+    PAID(1),
+    VOID(2);
+
+    private static final Status[] BY_CODE = values();
+
+    private final int code;
+
+    Status(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public static Status fromCode(int code) {
+        if (code < 0 || code >= BY_CODE.length || BY_CODE[code].code != code) {
+            throw new IllegalArgumentException("Unknown invoice status code " + code);
+        }
+        return BY_CODE[code];
+    }
 }
@@ -0,0 +1,18 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sandeep.invoice.model.Money;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class StatusSummary {
+
+    long count;
+
+    Money amount;
+
+    @JsonProperty("paid_amount")
+    Money paidAmount;
+}
@@ -3,15 +3,21 @@ package com.sandeep.invoice.exception;
 import com.sandeep.invoice.dto.ErrorResponse;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.server.ServerWebInputException;
 
+import java.time.Duration;
 import java.util.stream.Collectors;
 
 @RestControllerAdvice
@@ -22,8 +28,19 @@ public class GlobalExceptionHandler {
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleValidationException(MethodArgumentNotValidException ex) {
         logException(ex);
+        return validationFailed(ex.getBindingResult());
+    }
+
+    // The reactive profile reports invalid request bodies with this exception instead.
+    @ExceptionHandler(WebExchangeBindException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleValidationException(WebExchangeBindException ex) {
+        logException(ex);
+        return validationFailed(ex.getBindingResult());
+    }
 
-        String errorMessage = ex.getBindingResult().getAllErrors().stream()
+    private static ErrorResponse validationFailed(BindingResult bindingResult) {
+        String errorMessage = bindingResult.getAllErrors().stream()
                 .map(error -> {
                     String fieldName = ((FieldError) error).getField();
                     String fieldErrorMessage = error.getDefaultMessage();
@@ -54,6 +71,39 @@ public class GlobalExceptionHandler {
         return logAndReturnException(ex);
     }
 
+    // Unreadable bodies and mismatched parameter types of the reactive profile.
+    @ExceptionHandler(ServerWebInputException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleServerWebInputException(ServerWebInputException ex) {
+        logException(ex);
+        return new ErrorResponse(ex.getMostSpecificCause().getMessage());
+    }
+
+    @ExceptionHandler(InvoiceConcurrencyException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleConflictExceptions(Exception ex) {
+        return logAndReturnException(ex);
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleRateLimitExceededException(RateLimitExceededException ex) {
+        return rejected(HttpStatus.TOO_MANY_REQUESTS, ex, ex.getRetryAfter());
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloadedException(ServiceOverloadedException ex) {
+        return rejected(HttpStatus.SERVICE_UNAVAILABLE, ex, ex.getRetryAfter());
+    }
+
+    // Not logged as errors: rejections come in floods exactly when the logs are needed for something else.
+    private static ResponseEntity<ErrorResponse> rejected(HttpStatus status, Exception ex, Duration retryAfter) {
+        log.debug("Request rejected: {}", ex.getMessage());
+        long seconds = Math.max(1, retryAfter.plusNanos(999_999_999).toSeconds());
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds))
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleAllExceptions(Exception ex) {
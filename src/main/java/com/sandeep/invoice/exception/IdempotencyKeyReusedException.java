@@ -0,0 +1,8 @@
+package com.sandeep.invoice.exception;
+
+public class IdempotencyKeyReusedException extends InvoiceDataException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
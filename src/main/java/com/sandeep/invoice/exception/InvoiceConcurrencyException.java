@@ -0,0 +1,8 @@
+package com.sandeep.invoice.exception;
+
+public class InvoiceConcurrencyException extends RuntimeException {
+
+    public InvoiceConcurrencyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.sandeep.invoice.exception;
+
+public class InvoiceImportFailedException extends RuntimeException {
+
+    public InvoiceImportFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,8 @@
+package com.sandeep.invoice.exception;
+
+public class InvoiceImportNotFoundException extends InvoiceDataException {
+
+    public InvoiceImportNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.sandeep.invoice.exception;
+
+public class OverdueRunInProgressException extends InvoiceConcurrencyException {
+
+    public OverdueRunInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.sandeep.invoice.exception;
+
+public class OverdueRunNotFoundException extends InvoiceDataException {
+
+    public OverdueRunNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.sandeep.invoice.exception;
+
+import java.time.Duration;
+
+public class RateLimitExceededException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public RateLimitExceededException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Returns how long the client has to wait until the request would be admitted.
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
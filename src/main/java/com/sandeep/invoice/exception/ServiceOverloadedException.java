@@ -0,0 +1,20 @@
+package com.sandeep.invoice.exception;
+
+import java.time.Duration;
+
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ServiceOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Returns how long the client should wait before retrying.
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
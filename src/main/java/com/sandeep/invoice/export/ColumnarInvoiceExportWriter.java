@@ -0,0 +1,141 @@
+package com.sandeep.invoice.export;
+
+import com.sandeep.invoice.dto.Status;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDate;
+
+/**
+ * Writes invoices in a compact binary format that stores them column by column, in row groups of up to
+ * {@value #ROW_GROUP_SIZE} invoices. Within a column, values of neighbouring rows are alike, so the format
+ * is much smaller than CSV, and compresses further with gzip.
+ * <p>
+ * The file starts with the magic bytes {@code INVC} and a version byte, followed by the row groups and an
+ * end marker. Each row group is its row count as a 4-byte big-endian int, followed by its columns:
+ * </p>
+ * <ul>
+ *     <li>{@code id}: the difference to the id of the previous row of the group (or to 0), as a varint;</li>
+ *     <li>{@code amount} and {@code paid_amount}: cents as zigzag varints;</li>
+ *     <li>{@code due_date}: 0 for no due date, otherwise 1 plus the zigzag-encoded difference in days to the
+ *         previous due date of the group (or to 1970-01-01), as a varint;</li>
+ *     <li>{@code status}: one byte per row, the status code.</li>
+ * </ul>
+ * <p>
+ * The end marker is a row count of 0 followed by the total number of rows as an 8-byte big-endian long.
+ * Varints are little-endian base-128, with 7 bits per byte. {@link ColumnarInvoiceReader} reads the format.
+ * </p>
+ */
+public final class ColumnarInvoiceExportWriter implements InvoiceExportWriter {
+
+    static final int MAGIC = 0x494e5643;
+    static final byte VERSION = 1;
+    static final int ROW_GROUP_SIZE = 1 << 16;
+
+    private static final int MAX_VARINT_BYTES = 10;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private final long[] ids = new long[ROW_GROUP_SIZE];
+    private final long[] amounts = new long[ROW_GROUP_SIZE];
+    private final long[] paidAmounts = new long[ROW_GROUP_SIZE];
+    private final long[] dueDays = new long[ROW_GROUP_SIZE];
+    private final boolean[] hasDueDate = new boolean[ROW_GROUP_SIZE];
+    private final byte[] statuses = new byte[ROW_GROUP_SIZE];
+    private int groupRows;
+    private long rowCount;
+
+    public ColumnarInvoiceExportWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+    }
+
+    @Override
+    public void accept(long id, long amountCents, long paidAmountCents, LocalDate dueDate, Status status) {
+        ids[groupRows] = id;
+        amounts[groupRows] = amountCents;
+        paidAmounts[groupRows] = paidAmountCents;
+        hasDueDate[groupRows] = dueDate != null;
+        dueDays[groupRows] = dueDate != null ? dueDate.toEpochDay() : 0;
+        statuses[groupRows] = (byte) status.getCode();
+        groupRows++;
+        rowCount++;
+        if (groupRows == ROW_GROUP_SIZE) {
+            try {
+                writeRowGroup();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (groupRows > 0) {
+            writeRowGroup();
+        }
+        ensureRemaining(Integer.BYTES + Long.BYTES);
+        buffer.putInt(0);
+        buffer.putLong(rowCount);
+        InvoiceExportWriter.drain(buffer, channel);
+    }
+
+    @Override
+    public long rowCount() {
+        return rowCount;
+    }
+
+    private void writeRowGroup() throws IOException {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(groupRows);
+
+        long previousId = 0;
+        for (int row = 0; row < groupRows; row++) {
+            putVarLong(ids[row] - previousId);
+            previousId = ids[row];
+        }
+        for (int row = 0; row < groupRows; row++) {
+            putVarLong(zigzag(amounts[row]));
+        }
+        for (int row = 0; row < groupRows; row++) {
+            putVarLong(zigzag(paidAmounts[row]));
+        }
+        long previousDueDay = 0;
+        for (int row = 0; row < groupRows; row++) {
+            if (hasDueDate[row]) {
+                putVarLong(zigzag(dueDays[row] - previousDueDay) + 1);
+                previousDueDay = dueDays[row];
+            } else {
+                putVarLong(0);
+            }
+        }
+        for (int row = 0; row < groupRows; row++) {
+            ensureRemaining(1);
+            buffer.put(statuses[row]);
+        }
+        groupRows = 0;
+    }
+
+    private void putVarLong(long value) throws IOException {
+        ensureRemaining(MAX_VARINT_BYTES);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            InvoiceExportWriter.drain(buffer, channel);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+}
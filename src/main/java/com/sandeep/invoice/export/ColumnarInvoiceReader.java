@@ -0,0 +1,94 @@
+package com.sandeep.invoice.export;
+
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.repository.InvoiceColumnsConsumer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+
+/**
+ * Reads invoices exported by {@link ColumnarInvoiceExportWriter}, one row group at a time.
+ */
+public final class ColumnarInvoiceReader {
+
+    private ColumnarInvoiceReader() {
+    }
+
+    /**
+     * Passes every invoice of the export to the consumer, in file order.
+     *
+     * @return the number of invoices read
+     * @throws IOException if the input is not a complete export in the columnar format
+     */
+    public static long read(InputStream input, InvoiceColumnsConsumer consumer) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input, InvoiceExportWriter.BUFFER_SIZE));
+        if (in.readInt() != ColumnarInvoiceExportWriter.MAGIC) {
+            throw new IOException("Not a columnar invoice export");
+        }
+        int version = in.readByte();
+        if (version != ColumnarInvoiceExportWriter.VERSION) {
+            throw new IOException("Unsupported columnar invoice export version " + version);
+        }
+
+        long[] ids = new long[ColumnarInvoiceExportWriter.ROW_GROUP_SIZE];
+        long[] amounts = new long[ids.length];
+        long[] paidAmounts = new long[ids.length];
+        LocalDate[] dueDates = new LocalDate[ids.length];
+        long rowCount = 0;
+        for (int groupRows = in.readInt(); groupRows != 0; groupRows = in.readInt()) {
+            if (groupRows < 0 || groupRows > ids.length) {
+                throw new IOException("Invalid row group size " + groupRows);
+            }
+            long id = 0;
+            for (int row = 0; row < groupRows; row++) {
+                id += readVarLong(in);
+                ids[row] = id;
+            }
+            for (int row = 0; row < groupRows; row++) {
+                amounts[row] = unzigzag(readVarLong(in));
+            }
+            for (int row = 0; row < groupRows; row++) {
+                paidAmounts[row] = unzigzag(readVarLong(in));
+            }
+            long dueDay = 0;
+            for (int row = 0; row < groupRows; row++) {
+                long encoded = readVarLong(in);
+                if (encoded == 0) {
+                    dueDates[row] = null;
+                } else {
+                    dueDay += unzigzag(encoded - 1);
+                    dueDates[row] = LocalDate.ofEpochDay(dueDay);
+                }
+            }
+            for (int row = 0; row < groupRows; row++) {
+                consumer.accept(ids[row], amounts[row], paidAmounts[row], dueDates[row], Status.fromCode(in.readByte()));
+            }
+            rowCount += groupRows;
+        }
+
+        long expectedRowCount = in.readLong();
+        if (expectedRowCount != rowCount) {
+            throw new IOException(String.format("Export has %d rows instead of %d", rowCount, expectedRowCount));
+        }
+        return rowCount;
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+}
@@ -0,0 +1,126 @@
+package com.sandeep.invoice.export;
+
+import com.sandeep.invoice.dto.Status;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Writes invoices as CSV, one row per invoice after a header row:
+ * <pre>
+ * id,amount,paid_amount,due_date,status
+ * 1234,100.00,40.00,2024-11-30,PENDING
+ * </pre>
+ * Numbers and dates are formatted straight into the output buffer, without intermediate strings. The due
+ * date is empty for invoices without one.
+ */
+public final class CsvInvoiceExportWriter implements InvoiceExportWriter {
+
+    static final String HEADER = "id,amount,paid_amount,due_date,status\n";
+
+    // Two signed longs with a decimal point, a long, a date and the longest status name, plus separators.
+    private static final int MAX_ROW_BYTES = 128;
+    private static final byte[][] STATUS_NAMES = new byte[Status.values().length][];
+
+    static {
+        for (Status status : Status.values()) {
+            STATUS_NAMES[status.ordinal()] = status.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] digits = new byte[20];
+    private long rowCount;
+
+    public CsvInvoiceExportWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer.put(HEADER.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public void accept(long id, long amountCents, long paidAmountCents, LocalDate dueDate, Status status) {
+        if (buffer.remaining() < MAX_ROW_BYTES) {
+            drain();
+        }
+        putLong(id);
+        buffer.put((byte) ',');
+        putCents(amountCents);
+        buffer.put((byte) ',');
+        putCents(paidAmountCents);
+        buffer.put((byte) ',');
+        if (dueDate != null) {
+            putDate(dueDate);
+        }
+        buffer.put((byte) ',');
+        buffer.put(STATUS_NAMES[status.ordinal()]);
+        buffer.put((byte) '\n');
+        rowCount++;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        InvoiceExportWriter.drain(buffer, channel);
+    }
+
+    @Override
+    public long rowCount() {
+        return rowCount;
+    }
+
+    private void drain() {
+        try {
+            InvoiceExportWriter.drain(buffer, channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void putLong(long value) {
+        // Digits are produced from the negated value, which covers Long.MIN_VALUE as well.
+        long remaining = value < 0 ? value : -value;
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' - remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+        buffer.put(digits, start, digits.length - start);
+    }
+
+    private void putCents(long cents) {
+        if (cents < 0) {
+            buffer.put((byte) '-');
+        }
+        putLong(Math.abs(cents / 100));
+        int fraction = (int) Math.abs(cents % 100);
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + fraction / 10));
+        buffer.put((byte) ('0' + fraction % 10));
+    }
+
+    private void putDate(LocalDate date) {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            buffer.put(date.toString().getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        putDigits(year, 4);
+        buffer.put((byte) '-');
+        putDigits(date.getMonthValue(), 2);
+        buffer.put((byte) '-');
+        putDigits(date.getDayOfMonth(), 2);
+    }
+
+    private void putDigits(int value, int width) {
+        for (int divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+}
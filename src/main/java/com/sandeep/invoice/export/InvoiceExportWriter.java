@@ -0,0 +1,47 @@
+package com.sandeep.invoice.export;
+
+import com.sandeep.invoice.dto.ExportFormat;
+import com.sandeep.invoice.repository.InvoiceColumnsConsumer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes exported invoices to a channel in one {@link ExportFormat}. Rows are encoded into a buffer of
+ * fixed size, which is written to the channel whenever it fills up, so memory use does not depend on the
+ * number of invoices. Write errors of the channel are thrown as {@link java.io.UncheckedIOException}
+ * from {@link #accept}.
+ */
+public interface InvoiceExportWriter extends InvoiceColumnsConsumer {
+
+    int BUFFER_SIZE = 1 << 16;
+
+    static InvoiceExportWriter create(ExportFormat format, WritableByteChannel channel) {
+        return switch (format) {
+            case CSV -> new CsvInvoiceExportWriter(channel);
+            case COLUMNAR -> new ColumnarInvoiceExportWriter(channel);
+        };
+    }
+
+    /**
+     * Writes the rows still buffered and the end of the file. The channel is left open.
+     */
+    void finish() throws IOException;
+
+    /**
+     * Returns the number of invoices written so far.
+     */
+    long rowCount();
+
+    /**
+     * Writes the buffer to the channel and clears it.
+     */
+    static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
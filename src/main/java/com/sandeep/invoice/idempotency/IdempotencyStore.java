@@ -0,0 +1,166 @@
+package com.sandeep.invoice.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.exception.IdempotencyKeyReusedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stores the responses of requests sent with an {@code Idempotency-Key}, so that a retried request
+ * returns the response of the first one instead of being executed again.
+ * <p>
+ * Responses are written to the {@code idempotency_key} table in the transaction of the request
+ * itself, so a response is stored exactly when the request took effect, and a concurrent duplicate
+ * fails on the primary key and rolls back its own effects. After the commit they are also kept in a
+ * bounded in-memory cache. A request that has not been seen before is therefore recognised with a
+ * cache lookup and the insert its transaction makes anyway, never with an extra query; the table is
+ * only read when the request fails or loses the race for its key.
+ * </p>
+ * <p>
+ * Hit, miss and eviction statistics of the in-memory tier are published as {@code cache_*} meters
+ * tagged {@code cache="idempotency"}.
+ * </p>
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class IdempotencyStore {
+
+    static final String INSERT = "INSERT INTO idempotency_key (idempotency_key, fingerprint, response, created_at)"
+            + " VALUES (?, ?, ?, ?)";
+
+    static final String SELECT = "SELECT fingerprint, response FROM idempotency_key WHERE idempotency_key = ?";
+
+    static final String DELETE_CREATED_BEFORE = "DELETE FROM idempotency_key WHERE created_at < ?";
+
+    private final Cache<String, StoredResponse> cache;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+
+    public IdempotencyStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, InvoiceProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.retention = properties.getIdempotency().getRetention();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getIdempotency().getCacheMaximumSize())
+                .expireAfterWrite(properties.getIdempotency().getCacheExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+    }
+
+    /**
+     * Returns the response of an earlier request with the same key if it is in memory, without
+     * accessing the database.
+     *
+     * @throws IdempotencyKeyReusedException if the key was used for a different request
+     */
+    public <T> Optional<T> findCached(IdempotentRequest request, Class<T> type) {
+        return Optional.ofNullable(cache.getIfPresent(request.getKey()))
+                .map(stored -> {
+                    checkFingerprint(request, stored.getFingerprint());
+                    return type.cast(stored.getResponse());
+                });
+    }
+
+    /**
+     * Returns the response of an earlier request with the same key from memory or, failing that,
+     * from the database.
+     *
+     * @throws IdempotencyKeyReusedException if the key was used for a different request
+     */
+    public <T> Optional<T> find(IdempotentRequest request, Class<T> type) {
+        Optional<T> cached = findCached(request, type);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        List<T> responses = jdbcTemplate.query(SELECT, (rs, rowNum) -> {
+            checkFingerprint(request, rs.getString("fingerprint"));
+            return read(rs.getString("response"), type);
+        }, request.getKey());
+        if (responses.isEmpty()) {
+            return Optional.empty();
+        }
+        remember(request, responses.get(0));
+        return Optional.of(responses.get(0));
+    }
+
+    /**
+     * Writes the response of a request. Must run in the transaction that makes the request take
+     * effect; call {@link #remember(IdempotentRequest, Object)} once it has committed.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException if a response is already stored for the
+     *                                                       key, typically by a concurrent duplicate
+     */
+    public void save(IdempotentRequest request, Object response) {
+        jdbcTemplate.update(INSERT, request.getKey(), request.getFingerprint(), write(response),
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * Keeps a response that was just committed with {@link #save(IdempotentRequest, Object)} in memory.
+     */
+    public void remember(IdempotentRequest request, Object response) {
+        cache.put(request.getKey(), new StoredResponse(request.getFingerprint(), response));
+    }
+
+    /**
+     * Deletes the responses stored longer ago than {@code invoice.idempotency.retention}.
+     */
+    @Scheduled(fixedDelayString = "${invoice.idempotency.purge-interval:PT1H}",
+            initialDelayString = "${invoice.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int deleted = jdbcTemplate.update(DELETE_CREATED_BEFORE,
+                Timestamp.valueOf(LocalDateTime.now().minus(retention)));
+        log.debug("Purged {} expired idempotency keys", deleted);
+    }
+
+    private String write(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> T read(String response, Class<T> type) {
+        try {
+            return objectMapper.readValue(response, type);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void checkFingerprint(IdempotentRequest request, String storedFingerprint) {
+        if (!storedFingerprint.equals(request.getFingerprint())) {
+            throw new IdempotencyKeyReusedException(String.format(
+                    "Idempotency-Key %s was already used for a different request", request.getKey()));
+        }
+    }
+
+    @Value
+    private static class StoredResponse {
+        String fingerprint;
+        Object response;
+    }
+}
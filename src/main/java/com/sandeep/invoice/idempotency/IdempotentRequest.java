@@ -0,0 +1,21 @@
+package com.sandeep.invoice.idempotency;
+
+import lombok.Value;
+
+/**
+ * A request sent with an {@code Idempotency-Key} header.
+ */
+@Value
+public class IdempotentRequest {
+
+    /**
+     * The client supplied key.
+     */
+    String key;
+
+    /**
+     * Identifies the operation and its arguments, so that a key reused for a different request is
+     * rejected instead of replaying a response that does not belong to it.
+     */
+    String fingerprint;
+}
@@ -0,0 +1,249 @@
+package com.sandeep.invoice.memory;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
+
+/**
+ * Persists the rows of the {@link MemoryInvoiceStore} as a snapshot plus a write-ahead log of the
+ * writes since.
+ * <p>
+ * Committed writes are appended to the {@link InvoiceStoreLog} as full row images, one frame per
+ * commit. A snapshot is written from a copy of all rows taken when the log is rotated: it covers every
+ * segment before the one started at the rotation, which are then deleted. Recovery reads the snapshot
+ * and replays the segments after it. Row images carry the row version, and versions only grow, so the
+ * order in which concurrent commits reached the log does not matter. The one exception is the undo of a
+ * transaction that rolled back after its writes were logged: it logs the previous images again with the
+ * versions of the writes, and replaces them by coming later.
+ * </p>
+ * <p>
+ * Row images written before invoices had an update time are still read, with {@link #NO_UPDATED_AT}.
+ * </p>
+ */
+final class InvoiceStoreJournal implements Closeable {
+
+    static final String SNAPSHOT = "snapshot.dat";
+    static final long NO_UPDATED_AT = Long.MIN_VALUE;
+
+    private static final int MAGIC = 0x494e5653;
+    private static final byte END = 0;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte PUT_WITH_UPDATED_AT = 3;
+
+    private final Path directory;
+    private final InvoiceStoreLog log;
+    private final int compactAfterSegments;
+
+    private volatile long snapshotGeneration;
+
+    InvoiceStoreJournal(InvoiceProperties.Memory settings) {
+        this.directory = settings.getDataDir();
+        this.log = new InvoiceStoreLog(directory, (int) settings.getSegmentSize().toBytes(),
+                settings.getDurability(), settings.getGroupCommitInterval().toNanos());
+        this.compactAfterSegments = settings.getCompactAfterSegments();
+    }
+
+    /**
+     * Receives the rows read back by {@link #recover(RecordSink)} and writes rows to
+     * {@link #writeSnapshot(long, Consumer) snapshots} and {@link Batch batches}.
+     */
+    interface RecordSink {
+
+        void put(long id, long amount, long paidAmount, int dueDay, byte status, long version, long updatedAt);
+
+        void delete(long id);
+    }
+
+    /**
+     * Records written to the log together by {@link #append(Batch)}.
+     */
+    static final class Batch implements RecordSink {
+
+        private final Bytes bytes = new Bytes();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        @Override
+        public void put(long id, long amount, long paidAmount, int dueDay, byte status, long version,
+                        long updatedAt) {
+            try {
+                writePut(out, id, amount, paidAmount, dueDay, status, version, updatedAt);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void delete(long id) {
+            try {
+                out.writeByte(DELETE);
+                out.writeLong(id);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        boolean isEmpty() {
+            return bytes.size() == 0;
+        }
+    }
+
+    private static final class Bytes extends ByteArrayOutputStream {
+
+        ByteBuffer view() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    /**
+     * Replays the snapshot and the log written since into the sink, then starts a new log segment.
+     */
+    void recover(RecordSink sink) throws IOException {
+        Files.createDirectories(directory);
+        long generation = 0;
+        Path snapshot = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            try (DataInputStream in = open(snapshot)) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Not an invoice store snapshot: " + snapshot);
+                }
+                generation = in.readLong();
+                readRecords(in, sink);
+            }
+        }
+        snapshotGeneration = generation;
+
+        log.recover(generation, frame -> {
+            byte[] records = new byte[frame.remaining()];
+            frame.get(records);
+            try {
+                readRecords(new DataInputStream(new ByteArrayInputStream(records)), sink);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Appends the records of a batch to the log.
+     *
+     * @return the log position to pass to {@link #awaitDurable(long)}
+     */
+    long append(Batch batch) throws IOException {
+        return log.append(batch.bytes.view());
+    }
+
+    /**
+     * Returns once the log up to the position is as durable as {@code invoice.memory.durability} asks for.
+     */
+    void awaitDurable(long position) throws IOException {
+        log.awaitDurable(position);
+    }
+
+    /**
+     * Starts a new log segment. Records appended from now on are only in the new segment, so a snapshot
+     * of the rows as of now, written with the returned generation, replaces all earlier segments.
+     *
+     * @return the generation of the new segment
+     */
+    long rotate() throws IOException {
+        return log.rotate();
+    }
+
+    /**
+     * Returns whether {@code invoice.memory.compact-after-segments} segments were started since the last
+     * snapshot, so that a snapshot should be written to compact the log.
+     */
+    boolean isCompactionDue() {
+        return log.currentSegment() - snapshotGeneration >= compactAfterSegments;
+    }
+
+    /**
+     * Writes a snapshot of the rows the writer puts into the sink, replacing the previous snapshot
+     * atomically, and deletes the logs it covers.
+     */
+    void writeSnapshot(long snapshotGeneration, Consumer<RecordSink> writer) throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeLong(snapshotGeneration);
+            writer.accept(new RecordSink() {
+                @Override
+                public void put(long id, long amount, long paidAmount, int dueDay, byte status, long version,
+                        long updatedAt) {
+                    try {
+                        writePut(out, id, amount, paidAmount, dueDay, status, version, updatedAt);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public void delete(long id) {
+                    throw new UnsupportedOperationException("Snapshots only contain live rows");
+                }
+            });
+            out.writeByte(END);
+            out.flush();
+            file.getChannel().force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        this.snapshotGeneration = snapshotGeneration;
+        log.deleteBefore(snapshotGeneration);
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+    }
+
+    private static void readRecords(DataInputStream in, RecordSink sink) throws IOException {
+        while (true) {
+            int type = in.read();
+            switch (type) {
+                case -1, END -> {
+                    return;
+                }
+                case PUT -> sink.put(in.readLong(), in.readLong(), in.readLong(), in.readInt(), in.readByte(),
+                        in.readLong(), NO_UPDATED_AT);
+                case PUT_WITH_UPDATED_AT -> sink.put(in.readLong(), in.readLong(), in.readLong(), in.readInt(),
+                        in.readByte(), in.readLong(), in.readLong());
+                case DELETE -> sink.delete(in.readLong());
+                default -> throw new IOException("Unknown invoice store record type " + type);
+            }
+        }
+    }
+
+    private static void writePut(DataOutputStream out, long id, long amount, long paidAmount, int dueDay,
+                                 byte status, long version, long updatedAt) throws IOException {
+        out.writeByte(PUT_WITH_UPDATED_AT);
+        out.writeLong(id);
+        out.writeLong(amount);
+        out.writeLong(paidAmount);
+        out.writeInt(dueDay);
+        out.writeByte(status);
+        out.writeLong(version);
+        out.writeLong(updatedAt);
+    }
+}
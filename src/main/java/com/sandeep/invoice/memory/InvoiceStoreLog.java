@@ -0,0 +1,308 @@
+package com.sandeep.invoice.memory;
+
+import com.sandeep.invoice.config.InvoiceProperties.Memory.Durability;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log of the {@link InvoiceStoreJournal}, kept in memory-mapped segment files.
+ * <p>
+ * Segments are numbered and mapped at their full size when they are started. Each append copies one
+ * frame, a length, a CRC-32C checksum and the payload, into the mapping; a zero length ends the
+ * segment, as do a frame cut short or a checksum mismatch left by a crash. A segment that cannot fit
+ * the next frame is forced and followed by a new one.
+ * </p>
+ * <p>
+ * Appended frames are in the page cache at once, so they survive a crash of the process. Surviving a
+ * crash of the machine takes a force of the mapping, which {@link #awaitDurable(long)} shares between
+ * concurrent commits: one of the waiting threads forces everything appended so far while the others
+ * wait for it, and the commits that arrive meanwhile are covered by the next force. With
+ * {@link Durability#GROUP} the forcing thread first waits for the group commit interval, so that more
+ * commits join the force.
+ * </p>
+ */
+@Slf4j
+final class InvoiceStoreLog implements Closeable {
+
+    private static final Pattern SEGMENT = Pattern.compile("log-(\\d+)\\.dat");
+    private static final int FRAME_HEADER = Integer.BYTES * 2;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Durability durability;
+    private final long groupCommitNanos;
+
+    // Guarded by the append lock.
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final CRC32C checksum = new CRC32C();
+    private long segment;
+    private MappedByteBuffer mapping;
+    private volatile long appended;
+
+    // Guarded by the force lock.
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private final Condition forced = forceLock.newCondition();
+    private boolean forcing;
+    private long durable;
+    private long forces;
+
+    InvoiceStoreLog(Path directory, int segmentSize, Durability durability, long groupCommitNanos) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.durability = durability;
+        this.groupCommitNanos = durability == Durability.GROUP ? groupCommitNanos : 0;
+    }
+
+    /**
+     * Passes the payload of every intact frame of the segments numbered {@code fromSegment} or higher to
+     * the consumer, in log order, then starts a new segment after the last one.
+     */
+    void recover(long fromSegment, Consumer<ByteBuffer> frames) throws IOException {
+        long lastSegment = fromSegment - 1;
+        for (long number : segments()) {
+            if (number >= fromSegment) {
+                replay(number, frames);
+                lastSegment = number;
+            }
+        }
+        // Never append to a segment recovered from: it may end with a torn frame.
+        appendLock.lock();
+        try {
+            startSegment(lastSegment + 1, segmentSize);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Appends the payload as one frame, starting a new segment if the current one is full.
+     *
+     * @return the log position after the frame, to pass to {@link #awaitDurable(long)}
+     */
+    long append(ByteBuffer payload) throws IOException {
+        int length = payload.remaining();
+        appendLock.lock();
+        try {
+            if (mapping.remaining() < FRAME_HEADER + length) {
+                forceMapping(mapping);
+                startSegment(segment + 1, Math.max(segmentSize, FRAME_HEADER + length + Integer.BYTES));
+            }
+            checksum.reset();
+            checksum.update(payload.duplicate());
+            mapping.putInt(length);
+            mapping.putInt((int) checksum.getValue());
+            mapping.put(payload);
+            appended = position(segment, mapping.position());
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Returns once everything up to the position is on disk, as far as the durability setting asks for.
+     */
+    void awaitDurable(long position) throws IOException {
+        if (durability == Durability.NONE) {
+            return;
+        }
+        forceLock.lock();
+        try {
+            while (durable < position) {
+                if (forcing) {
+                    forced.awaitUninterruptibly();
+                    continue;
+                }
+                forcing = true;
+                long covered = 0;
+                forceLock.unlock();
+                try {
+                    if (groupCommitNanos > 0) {
+                        LockSupport.parkNanos(groupCommitNanos);
+                    }
+                    covered = force();
+                } finally {
+                    forceLock.lock();
+                    forcing = false;
+                    durable = Math.max(durable, covered);
+                    forces++;
+                    forced.signalAll();
+                }
+            }
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Starts a new segment. Frames appended from now on are only in the new segment.
+     *
+     * @return the number of the new segment
+     */
+    long rotate() throws IOException {
+        appendLock.lock();
+        try {
+            forceMapping(mapping);
+            startSegment(segment + 1, segmentSize);
+            return segment;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments numbered below the given one, once a snapshot covers them.
+     */
+    void deleteBefore(long number) throws IOException {
+        for (long older : segments()) {
+            if (older < number) {
+                Files.deleteIfExists(segmentFile(older));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of the segment frames are appended to.
+     */
+    long currentSegment() {
+        appendLock.lock();
+        try {
+            return segment;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Returns how many forces commits have waited for.
+     */
+    long forces() {
+        forceLock.lock();
+        try {
+            return forces;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            if (mapping != null) {
+                mapping.force();
+                mapping = null;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Forces the current segment, and so every frame appended before, to disk.
+     *
+     * @return the log position up to which frames are on disk
+     */
+    private long force() throws IOException {
+        MappedByteBuffer current;
+        long position;
+        appendLock.lock();
+        try {
+            current = mapping;
+            position = appended;
+        } finally {
+            appendLock.unlock();
+        }
+        // Frames appended while forcing may or may not be covered, so only claim the earlier ones.
+        current.force();
+        return position;
+    }
+
+    private void forceMapping(MappedByteBuffer segmentMapping) {
+        // Earlier segments must be on disk before positions in later ones are reported as durable.
+        if (durability != Durability.NONE && segmentMapping != null) {
+            segmentMapping.force();
+        }
+    }
+
+    private void startSegment(long number, int size) throws IOException {
+        Files.createDirectories(directory);
+        // The mapping stays valid after the channel is closed.
+        try (FileChannel channel = FileChannel.open(segmentFile(number),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        segment = number;
+        appended = position(number, 0);
+    }
+
+    private void replay(long number, Consumer<ByteBuffer> frames) throws IOException {
+        MappedByteBuffer segmentMapping;
+        try (FileChannel channel = FileChannel.open(segmentFile(number), StandardOpenOption.READ)) {
+            segmentMapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        CRC32C frameChecksum = new CRC32C();
+        while (segmentMapping.remaining() >= FRAME_HEADER) {
+            int length = segmentMapping.getInt();
+            if (length == 0) {
+                return;
+            }
+            int expectedChecksum = segmentMapping.getInt();
+            ByteBuffer payload = length > 0 && length <= segmentMapping.remaining()
+                    ? segmentMapping.slice(segmentMapping.position(), length)
+                    : null;
+            if (payload != null) {
+                frameChecksum.reset();
+                frameChecksum.update(payload.duplicate());
+            }
+            if (payload == null || (int) frameChecksum.getValue() != expectedChecksum) {
+                log.warn("Invoice store log segment {} ends with a torn frame, which is skipped", number);
+                return;
+            }
+            frames.accept(payload);
+            segmentMapping.position(segmentMapping.position() + length);
+        }
+    }
+
+    private List<Long> segments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .map(file -> SEGMENT.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentFile(long number) {
+        return directory.resolve("log-" + number + ".dat");
+    }
+
+    /**
+     * Log positions order frames across segments: the segment number above the offset in the segment.
+     */
+    private static long position(long number, int offset) {
+        return number << 32 | offset;
+    }
+}
@@ -0,0 +1,205 @@
+package com.sandeep.invoice.memory;
+
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.repository.IdRange;
+import com.sandeep.invoice.repository.InvoiceColumnsConsumer;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import com.sandeep.invoice.repository.InvoiceTotalsConsumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link InvoiceRepository} of the {@code memory} profile, keeping the invoices in the
+ * {@link MemoryInvoiceStore} instead of the {@code invoice} table. Takes precedence over the Spring Data
+ * JDBC repository; everything else, including the payment ledger and the change outbox, stays in the
+ * database.
+ */
+@Repository
+@Primary
+@Profile("memory & !reactive")
+@RequiredArgsConstructor
+public class MemoryInvoiceRepository implements InvoiceRepository {
+
+    private final MemoryInvoiceStore store;
+
+    @Override
+    public <S extends Invoice> S save(S invoice) {
+        invoice.setUpdatedAt(now());
+        if (invoice.getVersion() == null) {
+            store.insert(List.of(invoice));
+        } else {
+            store.replace(invoice);
+        }
+        return invoice;
+    }
+
+    @Override
+    public <S extends Invoice> Iterable<S> saveAll(Iterable<S> invoices) {
+        List<S> saved = new ArrayList<>();
+        invoices.forEach(invoice -> saved.add(save(invoice)));
+        return saved;
+    }
+
+    @Override
+    public Optional<Invoice> findById(Long id) {
+        return store.find(id);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return store.find(id).isPresent();
+    }
+
+    @Override
+    public Iterable<Invoice> findAll() {
+        List<Invoice> invoices = new ArrayList<>();
+        store.streamAll(InvoiceQuery.builder().build(), invoices::add);
+        return invoices;
+    }
+
+    @Override
+    public Iterable<Invoice> findAllById(Iterable<Long> ids) {
+        List<Invoice> invoices = new ArrayList<>();
+        for (Long id : ids) {
+            store.find(id).ifPresent(invoices::add);
+        }
+        return invoices;
+    }
+
+    @Override
+    public long count() {
+        return store.count();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        store.delete(List.of(id));
+    }
+
+    @Override
+    public void delete(Invoice invoice) {
+        store.delete(List.of(invoice.getId()));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        store.delete(StreamSupport.stream(ids.spliterator(), false).map(Long.class::cast).toList());
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Invoice> invoices) {
+        store.delete(StreamSupport.stream(invoices.spliterator(), false).map(Invoice::getId).toList());
+    }
+
+    @Override
+    public void deleteAll() {
+        store.deleteAll();
+    }
+
+    @Override
+    public List<Invoice> findPage(InvoiceQuery query) {
+        return store.findPage(query);
+    }
+
+    @Override
+    public void streamAll(InvoiceQuery query, Consumer<Invoice> consumer) {
+        store.streamAll(query, consumer);
+    }
+
+    @Override
+    public void exportAll(InvoiceQuery query, InvoiceColumnsConsumer consumer) {
+        store.streamAll(query, invoice -> consumer.accept(invoice.getId(), invoice.getAmount().getCents(),
+                invoice.getPaidAmount().getCents(), invoice.getDueDate(), invoice.getStatus()));
+    }
+
+    @Override
+    public void aggregateTotals(InvoiceTotalsConsumer consumer) {
+        Map<Status, Map<LocalDate, long[]>> totals = new EnumMap<>(Status.class);
+        store.streamAll(InvoiceQuery.builder().build(), invoice -> {
+            long[] sums = totals.computeIfAbsent(invoice.getStatus(), status -> new HashMap<>())
+                    .computeIfAbsent(invoice.getDueDate(), dueDate -> new long[3]);
+            sums[0]++;
+            sums[1] += invoice.getAmount().getCents();
+            sums[2] += invoice.getPaidAmount().getCents();
+        });
+        totals.forEach((status, byDueDate) -> byDueDate.forEach((dueDate, sums) ->
+                consumer.accept(status, dueDate, sums[0], sums[1], sums[2])));
+    }
+
+    @Override
+    public void streamDueDates(Status status, BiConsumer<Long, LocalDate> consumer) {
+        store.streamDueDates(status, consumer);
+    }
+
+    @Override
+    public Optional<IdRange> findIdRangeDueBefore(Status status, LocalDate processingDate) {
+        return store.findIdRangeDueBefore(status, processingDate);
+    }
+
+    @Override
+    public List<Invoice> lockNextChunkDueBefore(Status status, LocalDate processingDate, long afterId, long maxId,
+                                                int chunkSize) {
+        return store.lockNextChunkDueBefore(status, processingDate, afterId, maxId, chunkSize);
+    }
+
+    @Override
+    public boolean updatePaymentIfVersionMatches(Invoice invoice) {
+        invoice.setUpdatedAt(now());
+        return store.updatePaymentIfVersionMatches(invoice);
+    }
+
+    @Override
+    public Set<Long> batchUpdatePaymentsIfVersionMatches(Collection<Invoice> invoices) {
+        Set<Long> conflicts = new HashSet<>();
+        LocalDateTime now = now();
+        for (Invoice invoice : invoices) {
+            invoice.setUpdatedAt(now);
+            if (!store.updatePaymentIfVersionMatches(invoice)) {
+                conflicts.add(invoice.getId());
+            }
+        }
+        return conflicts;
+    }
+
+    @Override
+    public void batchUpdateStatus(List<Invoice> invoices) {
+        stamp(invoices);
+        store.updateStatus(invoices);
+    }
+
+    @Override
+    public void batchInsert(List<Invoice> invoices) {
+        stamp(invoices);
+        store.insert(invoices);
+    }
+
+    // Microseconds, like the invoice table.
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static void stamp(List<Invoice> invoices) {
+        LocalDateTime now = now();
+        invoices.forEach(invoice -> invoice.setUpdatedAt(now));
+    }
+}
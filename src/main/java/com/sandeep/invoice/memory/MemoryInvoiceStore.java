@@ -0,0 +1,1179 @@
+package com.sandeep.invoice.memory;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.repository.IdRange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * In-memory invoice storage of the {@code memory} profile, behind {@link MemoryInvoiceRepository}.
+ * <p>
+ * Rows are kept column-wise in primitive arrays, in ascending id order, and found by id through a
+ * {@link LongIntMap}, so neither ids nor amounts are boxed. Ids are allocated by the store. Pending,
+ * paid and void rows are indexed in one {@link SlotSet} per status, and rows with a due date in a
+ * map from due day to slots, which serve keyset pages and the overdue queries without a full scan.
+ * </p>
+ * <p>
+ * Rows are guarded by {@code invoice.memory.lock-stripes} stamped locks, so readers of a row take no
+ * lock unless a write to the same stripe interferes. Inserts and deletes lock the whole store.
+ * </p>
+ * <p>
+ * Writes take part in the surrounding Spring transaction, like the JDBC repository: they only become
+ * visible to others when it commits, and are discarded when it rolls back. Until then the written rows
+ * are locked by the transaction, as are the rows returned by
+ * {@link #lockNextChunkDueBefore(Status, LocalDate, long, long, int)}; other writers wait for up to
+ * {@code invoice.memory.lock-timeout}. Scans return committed rows only.
+ * </p>
+ * <p>
+ * With {@code invoice.memory.data-dir} set, committed writes are logged and the store is snapshotted
+ * every {@code invoice.memory.snapshot-interval} by an {@link InvoiceStoreJournal}. Commits wait for
+ * their log records to reach the disk as configured by {@code invoice.memory.durability}. The writes of a
+ * transaction are logged before the database commits, so that a failure to log them rolls the whole
+ * transaction back; they are published to the store once it committed.
+ * </p>
+ */
+@Slf4j
+@Component
+@Profile("memory & !reactive")
+public class MemoryInvoiceStore implements DisposableBean {
+
+    private static final byte DELETED = -1;
+    private static final int NO_DUE_DATE = Integer.MIN_VALUE;
+    private static final long NO_UPDATED_AT = InvoiceStoreJournal.NO_UPDATED_AT;
+    private static final int NO_OWNER = 0;
+    private static final int INITIAL_CAPACITY = 1024;
+    // Rows read per acquisition of the store lock when streaming, so long streams do not hold off inserts.
+    private static final int STREAM_PAGE_SIZE = 1000;
+    private static final long LOCK_WAIT_NANOS = Duration.ofMillis(1).toNanos();
+
+    private final ReentrantReadWriteLock storeLock = new ReentrantReadWriteLock();
+    private final StampedLock[] stripes;
+    private final long lockTimeoutNanos;
+    private final InvoiceStoreJournal journal;
+    private final AtomicInteger transactionIds = new AtomicInteger();
+    private final AtomicInteger liveRows = new AtomicInteger();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    // Transactions whose writes are logged but not yet published. Changes under the store lock.
+    private final Set<Transaction> loggedTransactions = ConcurrentHashMap.newKeySet();
+
+    // Columns by slot. The arrays are only replaced under the write lock of the store, their elements are
+    // written under the lock of the stripe.
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private long[] paidAmounts = new long[INITIAL_CAPACITY];
+    private int[] dueDays = new int[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    // Microseconds since 1970-01-01T00:00 of the local update time.
+    private long[] updatedAts = new long[INITIAL_CAPACITY];
+    private int[] owners = new int[INITIAL_CAPACITY];
+
+    private int slots;
+    private long lastId;
+
+    // Guarded by the store lock.
+    private final LongIntMap slotsById = new LongIntMap(INITIAL_CAPACITY);
+    private final TreeMap<Integer, SlotList> slotsByDueDay = new TreeMap<>();
+    private final SlotSet[] slotsByStatus = new SlotSet[Status.values().length];
+
+    public MemoryInvoiceStore(InvoiceProperties properties) throws IOException {
+        InvoiceProperties.Memory settings = properties.getMemory();
+        this.stripes = new StampedLock[Integer.highestOneBit(Math.max(1, settings.getLockStripes() - 1)) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new StampedLock();
+        }
+        this.lockTimeoutNanos = settings.getLockTimeout().toNanos();
+        for (Status status : Status.values()) {
+            slotsByStatus[status.getCode()] = new SlotSet();
+        }
+
+        if (settings.getDataDir() == null) {
+            this.journal = null;
+        } else {
+            this.journal = new InvoiceStoreJournal(settings);
+            Recovery recovery = new Recovery();
+            journal.recover(recovery);
+            recovery.load();
+            log.info("Recovered {} invoices from {}", liveRows.get(), settings.getDataDir());
+        }
+    }
+
+    /**
+     * Returns the invoice with the given id as committed, or as written by the current transaction.
+     */
+    public Optional<Invoice> find(long id) {
+        storeLock.readLock().lock();
+        try {
+            int slot = slotsById.get(id);
+            if (slot == LongIntMap.MISSING) {
+                return Optional.empty();
+            }
+            if (owners[slot] != NO_OWNER) {
+                Transaction transaction = currentTransaction(false);
+                PendingRow pending = transaction != null ? transaction.pending(slot) : null;
+                if (pending != null) {
+                    return Optional.ofNullable(pending.toInvoice(ids[slot]));
+                }
+            }
+            return Optional.ofNullable(readCommitted(slot));
+        } finally {
+            storeLock.readLock().unlock();
+        }
+    }
+
+    public long count() {
+        return liveRows.get();
+    }
+
+    /**
+     * Returns the committed invoices matching the query, ordered by id and starting after
+     * {@link InvoiceQuery#getAfterId()}.
+     */
+    public List<Invoice> findPage(InvoiceQuery query) {
+        List<Invoice> page = new ArrayList<>(query.getLimit() != null ? query.getLimit() : STREAM_PAGE_SIZE);
+        int limit = query.getLimit() != null ? query.getLimit() : Integer.MAX_VALUE;
+        storeLock.readLock().lock();
+        try {
+            collect(query, query.getAfterId(), page, limit);
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        return page;
+    }
+
+    /**
+     * Streams every committed invoice matching the query to the consumer in id order. The store is only
+     * locked while a page of invoices is read, not while the consumer runs.
+     */
+    public void streamAll(InvoiceQuery query, Consumer<Invoice> consumer) {
+        Long afterId = query.getAfterId();
+        long remaining = query.getLimit() != null ? query.getLimit() : Long.MAX_VALUE;
+        while (remaining > 0) {
+            List<Invoice> page = new ArrayList<>(STREAM_PAGE_SIZE);
+            storeLock.readLock().lock();
+            try {
+                collect(query, afterId, page, (int) Math.min(remaining, STREAM_PAGE_SIZE));
+            } finally {
+                storeLock.readLock().unlock();
+            }
+            page.forEach(consumer);
+            if (page.size() < Math.min(remaining, STREAM_PAGE_SIZE)) {
+                return;
+            }
+            remaining -= page.size();
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Streams the id and due date of every committed invoice with the given status and a due date.
+     */
+    public void streamDueDates(Status status, BiConsumer<Long, LocalDate> consumer) {
+        SlotSet withStatus = slotsByStatus[status.getCode()];
+        long[] pageIds = new long[STREAM_PAGE_SIZE];
+        int[] pageDueDays = new int[STREAM_PAGE_SIZE];
+        int slot = 0;
+        while (slot >= 0) {
+            int size = 0;
+            storeLock.readLock().lock();
+            try {
+                for (slot = withStatus.next(slot, slots); slot >= 0 && size < STREAM_PAGE_SIZE;
+                     slot = withStatus.next(slot + 1, slots)) {
+                    int dueDay = dueDays[slot];
+                    if (dueDay != NO_DUE_DATE) {
+                        pageIds[size] = ids[slot];
+                        pageDueDays[size++] = dueDay;
+                    }
+                }
+            } finally {
+                storeLock.readLock().unlock();
+            }
+            for (int i = 0; i < size; i++) {
+                consumer.accept(pageIds[i], LocalDate.ofEpochDay(pageDueDays[i]));
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest and largest id of the committed invoices with the given status that are due
+     * before the processing date, read off the due-date index.
+     */
+    public Optional<IdRange> findIdRangeDueBefore(Status status, LocalDate processingDate) {
+        SlotSet withStatus = slotsByStatus[status.getCode()];
+        int minSlot = Integer.MAX_VALUE;
+        int maxSlot = -1;
+        storeLock.readLock().lock();
+        try {
+            for (var bucket : slotsByDueDay.headMap((int) processingDate.toEpochDay(), false).entrySet()) {
+                SlotList bucketSlots = bucket.getValue();
+                for (int i = 0; i < bucketSlots.size; i++) {
+                    int slot = bucketSlots.slots[i];
+                    if (withStatus.get(slot) && dueDays[slot] == bucket.getKey()) {
+                        minSlot = Math.min(minSlot, slot);
+                        maxSlot = Math.max(maxSlot, slot);
+                    }
+                }
+            }
+            return maxSlot < 0 ? Optional.empty() : Optional.of(new IdRange(ids[minSlot], ids[maxSlot]));
+        } finally {
+            storeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the next chunk of invoices with the given status that are due before the processing date,
+     * in id order, with ids greater than {@code afterId} and at most {@code maxId}. In a transaction, the
+     * invoices stay locked until it ends, waiting for the transactions that hold any of them first.
+     */
+    public List<Invoice> lockNextChunkDueBefore(Status status, LocalDate processingDate, long afterId, long maxId,
+                                                int chunkSize) {
+        Transaction transaction = currentTransaction(true);
+        SlotSet withStatus = slotsByStatus[status.getCode()];
+        int processingDay = (int) processingDate.toEpochDay();
+        List<Invoice> chunk = new ArrayList<>(chunkSize);
+        storeLock.readLock().lock();
+        try {
+            for (int slot = withStatus.next(firstSlotAfter(afterId), slots); slot >= 0 && chunk.size() < chunkSize;
+                 slot = withStatus.next(slot + 1, slots)) {
+                if (ids[slot] > maxId) {
+                    break;
+                }
+                if (dueDays[slot] == NO_DUE_DATE || dueDays[slot] >= processingDay) {
+                    continue;
+                }
+                long stamp = lockRow(slot, transaction);
+                try {
+                    // Check again: the invoice may have changed while waiting for its lock.
+                    PendingRow row = view(slot, transaction);
+                    if (row.status == status.getCode() && row.dueDay != NO_DUE_DATE && row.dueDay < processingDay) {
+                        if (transaction != null) {
+                            transaction.lock(slot, row);
+                            owners[slot] = transaction.id;
+                        }
+                        chunk.add(row.toInvoice(ids[slot]));
+                    }
+                } finally {
+                    stripe(slot).unlockWrite(stamp);
+                }
+            }
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        return chunk;
+    }
+
+    /**
+     * Inserts the invoices, giving those without an id the next ids of the store. Given ids must be
+     * larger than every id in the store, as rows are kept in id order. Sets the version of the invoices
+     * to 0.
+     */
+    public void insert(List<Invoice> invoices) {
+        Transaction transaction = currentTransaction(true);
+        InvoiceStoreJournal.Batch batch = transaction == null && journal != null ? new InvoiceStoreJournal.Batch() : null;
+        long logPosition;
+        storeLock.writeLock().lock();
+        try {
+            ensureCapacity(slots + invoices.size());
+            for (Invoice invoice : invoices) {
+                if (invoice.getId() == null) {
+                    invoice.setId(lastId + 1);
+                } else if (slotsById.get(invoice.getId()) != LongIntMap.MISSING) {
+                    throw new DuplicateKeyException("Invoice " + invoice.getId() + " already exists");
+                } else if (invoice.getId() <= lastId) {
+                    throw new IllegalArgumentException(String.format(
+                            "Invoice id %d is not larger than the last id %d of the store", invoice.getId(), lastId));
+                }
+                invoice.setVersion(0L);
+
+                int slot = slots++;
+                lastId = invoice.getId();
+                ids[slot] = lastId;
+                statuses[slot] = DELETED;
+                slotsById.put(lastId, slot);
+                PendingRow row = PendingRow.of(invoice);
+                int dueDay = row.dueDay;
+                if (dueDay != NO_DUE_DATE) {
+                    slotsByDueDay.computeIfAbsent(dueDay, day -> new SlotList()).add(slot);
+                }
+                if (transaction != null) {
+                    // Invisible to others until the commit.
+                    dueDays[slot] = dueDay;
+                    owners[slot] = transaction.id;
+                    transaction.insert(slot, row);
+                } else {
+                    apply(slot, row, batch);
+                }
+            }
+            logPosition = append(batch);
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+        awaitDurable(logPosition);
+    }
+
+    /**
+     * Writes the paid amount, status and update time of the invoice if its version still matches the stored one, and
+     * increments the version of both.
+     *
+     * @return {@code false} if the invoice does not exist or its version does not match
+     */
+    public boolean updatePaymentIfVersionMatches(Invoice invoice) {
+        Transaction transaction = currentTransaction(true);
+        InvoiceStoreJournal.Batch batch = transaction == null && journal != null ? new InvoiceStoreJournal.Batch() : null;
+        boolean updated;
+        long logPosition;
+        storeLock.readLock().lock();
+        try {
+            updated = update(invoice, transaction, batch, true, row -> {
+                row.paidAmount = invoice.getPaidAmount().getCents();
+                row.status = (byte) invoice.getStatus().getCode();
+                row.updatedAt = toMicros(invoice.getUpdatedAt());
+            });
+            logPosition = append(batch);
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        awaitDurable(logPosition);
+        if (updated) {
+            invoice.setVersion(invoice.getVersion() + 1);
+        }
+        return updated;
+    }
+
+    /**
+     * Writes the status and update time of the invoices, whatever their version, and increments the version of both
+     * the rows and the invoices.
+     */
+    public void updateStatus(List<Invoice> invoices) {
+        Transaction transaction = currentTransaction(true);
+        InvoiceStoreJournal.Batch batch = transaction == null && journal != null ? new InvoiceStoreJournal.Batch() : null;
+        long logPosition;
+        storeLock.readLock().lock();
+        try {
+            for (Invoice invoice : invoices) {
+                if (update(invoice, transaction, batch, false, row -> {
+                    row.status = (byte) invoice.getStatus().getCode();
+                    row.updatedAt = toMicros(invoice.getUpdatedAt());
+                })) {
+                    invoice.setVersion(invoice.getVersion() + 1);
+                }
+            }
+            logPosition = append(batch);
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        awaitDurable(logPosition);
+    }
+
+    /**
+     * Writes every column of an existing invoice and increments the version of both.
+     *
+     * @throws OptimisticLockingFailureException if the invoice does not exist or its version does not match
+     */
+    public void replace(Invoice invoice) {
+        Transaction transaction = currentTransaction(true);
+        InvoiceStoreJournal.Batch batch = transaction == null && journal != null ? new InvoiceStoreJournal.Batch() : null;
+        PendingRow replacement = PendingRow.of(invoice);
+        if (replacement.dueDay != NO_DUE_DATE) {
+            // The due-date index only changes under the write lock. An entry left behind by a failed or
+            // rolled back write is harmless: lookups check the due day of the row.
+            storeLock.writeLock().lock();
+            try {
+                int slot = slotsById.get(invoice.getId());
+                if (slot != LongIntMap.MISSING && dueDays[slot] != replacement.dueDay) {
+                    slotsByDueDay.computeIfAbsent(replacement.dueDay, day -> new SlotList()).add(slot);
+                }
+            } finally {
+                storeLock.writeLock().unlock();
+            }
+        }
+        long logPosition;
+        storeLock.readLock().lock();
+        try {
+            boolean updated = update(invoice, transaction, batch, true, row -> {
+                row.amount = replacement.amount;
+                row.paidAmount = replacement.paidAmount;
+                row.dueDay = replacement.dueDay;
+                row.status = replacement.status;
+                row.updatedAt = replacement.updatedAt;
+            });
+            if (!updated) {
+                throw new OptimisticLockingFailureException(String.format(
+                        "Invoice %d does not exist or was modified concurrently", invoice.getId()));
+            }
+            logPosition = append(batch);
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        awaitDurable(logPosition);
+        invoice.setVersion(invoice.getVersion() + 1);
+    }
+
+    /**
+     * Deletes the invoices with the given ids. Deletes take effect immediately, outside of any transaction.
+     */
+    public void delete(Iterable<Long> invoiceIds) {
+        InvoiceStoreJournal.Batch batch = journal != null ? new InvoiceStoreJournal.Batch() : null;
+        long logPosition;
+        storeLock.writeLock().lock();
+        try {
+            for (long id : invoiceIds) {
+                int slot = slotsById.get(id);
+                if (slot == LongIntMap.MISSING) {
+                    continue;
+                }
+                slotsById.remove(id);
+                if (statuses[slot] != DELETED) {
+                    slotsByStatus[statuses[slot]].clear(slot);
+                    statuses[slot] = DELETED;
+                    liveRows.decrementAndGet();
+                }
+                // Also for rows inserted by a transaction, whose insert may already be logged.
+                if (batch != null) {
+                    batch.delete(id);
+                }
+            }
+            logPosition = append(batch);
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+        awaitDurable(logPosition);
+    }
+
+    /**
+     * Deletes every invoice, like {@link #delete(Iterable)}.
+     */
+    public void deleteAll() {
+        long[] allIds;
+        storeLock.readLock().lock();
+        try {
+            allIds = Arrays.copyOf(ids, slots);
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        delete(() -> Arrays.stream(allIds).iterator());
+    }
+
+    /**
+     * Writes a snapshot of the committed rows and deletes the log segments it replaces. The store is only
+     * locked while the rows are copied, not while they are written. Also runs early when the log grows to
+     * {@code invoice.memory.compact-after-segments} segments.
+     */
+    @Scheduled(fixedDelayString = "${invoice.memory.snapshot-interval:PT5M}",
+            initialDelayString = "${invoice.memory.snapshot-interval:PT5M}")
+    public void snapshot() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        snapshotLock.lock();
+        try {
+            writeSnapshot();
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        long generation;
+        int count;
+        long[] snapshotIds;
+        long[] snapshotAmounts;
+        long[] snapshotPaidAmounts;
+        int[] snapshotDueDays;
+        byte[] snapshotStatuses;
+        long[] snapshotVersions;
+        long[] snapshotUpdatedAts;
+        storeLock.writeLock().lock();
+        try {
+            count = slots;
+            snapshotIds = Arrays.copyOf(ids, count);
+            snapshotAmounts = Arrays.copyOf(amounts, count);
+            snapshotPaidAmounts = Arrays.copyOf(paidAmounts, count);
+            snapshotDueDays = Arrays.copyOf(dueDays, count);
+            snapshotStatuses = Arrays.copyOf(statuses, count);
+            snapshotVersions = Arrays.copyOf(versions, count);
+            snapshotUpdatedAts = Arrays.copyOf(updatedAts, count);
+            // Rows logged before the rotation but not yet published must be in the snapshot, as the segment
+            // they are logged in is deleted. Should their transaction roll back, its undo is logged after.
+            for (Transaction transaction : loggedTransactions) {
+                for (PendingRow row : transaction.rows) {
+                    if (row.logged && !isDeleted(row)) {
+                        snapshotAmounts[row.slot] = row.amount;
+                        snapshotPaidAmounts[row.slot] = row.paidAmount;
+                        snapshotDueDays[row.slot] = row.dueDay;
+                        snapshotStatuses[row.slot] = row.status;
+                        snapshotVersions[row.slot] = row.version;
+                        snapshotUpdatedAts[row.slot] = row.updatedAt;
+                    }
+                }
+            }
+            generation = journal.rotate();
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+
+        long start = System.nanoTime();
+        journal.writeSnapshot(generation, sink -> {
+            for (int slot = 0; slot < count; slot++) {
+                if (snapshotStatuses[slot] != DELETED) {
+                    sink.put(snapshotIds[slot], snapshotAmounts[slot], snapshotPaidAmounts[slot], snapshotDueDays[slot],
+                            snapshotStatuses[slot], snapshotVersions[slot], snapshotUpdatedAts[slot]);
+                }
+            }
+        });
+        log.debug("Wrote a snapshot of {} invoice slots in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Applies a write to the row of the invoice, in the transaction if there is one. Must be called with
+     * the store lock held.
+     *
+     * @return {@code false} if the invoice does not exist, or if {@code checkVersion} and its version does
+     *         not match
+     */
+    private boolean update(Invoice invoice, Transaction transaction, InvoiceStoreJournal.Batch batch,
+                           boolean checkVersion, Consumer<PendingRow> write) {
+        int slot = slotsById.get(invoice.getId());
+        if (slot == LongIntMap.MISSING) {
+            return false;
+        }
+        long stamp = lockRow(slot, transaction);
+        try {
+            PendingRow row = view(slot, transaction);
+            if (row.status == DELETED || checkVersion && row.version != invoice.getVersion()) {
+                return false;
+            }
+            write.accept(row);
+            row.version++;
+            if (transaction != null) {
+                transaction.write(slot, row);
+                owners[slot] = transaction.id;
+            } else {
+                apply(slot, row, batch);
+            }
+            return true;
+        } finally {
+            stripe(slot).unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Locks the stripe of the row for writing once no other transaction holds the row. Must be called with
+     * the read lock of the store held, which is released while waiting.
+     *
+     * @throws CannotAcquireLockException if the row is still held after {@code invoice.memory.lock-timeout}
+     */
+    private long lockRow(int slot, Transaction transaction) {
+        long deadline = System.nanoTime() + lockTimeoutNanos;
+        while (true) {
+            StampedLock stripe = stripe(slot);
+            long stamp = stripe.writeLock();
+            int owner = owners[slot];
+            if (owner == NO_OWNER || transaction != null && owner == transaction.id) {
+                return stamp;
+            }
+            stripe.unlockWrite(stamp);
+            if (System.nanoTime() - deadline > 0) {
+                throw new CannotAcquireLockException(String.format(
+                        "Timed out waiting for invoice %d, which is locked by another transaction", ids[slot]));
+            }
+            // Let the holder commit, which takes the read lock: a queued insert would hold it off otherwise.
+            int holds = storeLock.getReadHoldCount();
+            for (int i = 0; i < holds; i++) {
+                storeLock.readLock().unlock();
+            }
+            try {
+                LockSupport.parkNanos(LOCK_WAIT_NANOS);
+            } finally {
+                for (int i = 0; i < holds; i++) {
+                    storeLock.readLock().lock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the row as the transaction sees it. Must be called with the stripe locked.
+     */
+    private PendingRow view(int slot, Transaction transaction) {
+        PendingRow pending = transaction != null ? transaction.pending(slot) : null;
+        if (pending != null) {
+            return pending.copy();
+        }
+        return new PendingRow(amounts[slot], paidAmounts[slot], dueDays[slot], statuses[slot], versions[slot],
+                updatedAts[slot]);
+    }
+
+    /**
+     * Makes the row committed. Must be called with the stripe or the whole store locked for writing.
+     */
+    private void apply(int slot, PendingRow row, InvoiceStoreJournal.Batch batch) {
+        byte previous = statuses[slot];
+        if (previous == DELETED) {
+            liveRows.incrementAndGet();
+        } else {
+            slotsByStatus[previous].clear(slot);
+        }
+        amounts[slot] = row.amount;
+        paidAmounts[slot] = row.paidAmount;
+        dueDays[slot] = row.dueDay;
+        versions[slot] = row.version;
+        updatedAts[slot] = row.updatedAt;
+        statuses[slot] = row.status;
+        slotsByStatus[row.status].set(slot);
+        if (batch != null) {
+            batch.put(ids[slot], row.amount, row.paidAmount, row.dueDay, row.status, row.version, row.updatedAt);
+        }
+    }
+
+    /**
+     * Logs the rows written by the transaction and waits for them to be durable, before the database
+     * commits. The rows stay locked by the transaction, and invisible to others, until it completes.
+     *
+     * @throws UncheckedIOException if the rows cannot be logged, which rolls the transaction back
+     */
+    private void prepare(Transaction transaction) {
+        transaction.prepared = true;
+        if (journal == null) {
+            return;
+        }
+        InvoiceStoreJournal.Batch batch = new InvoiceStoreJournal.Batch();
+        long logPosition;
+        storeLock.readLock().lock();
+        try {
+            for (PendingRow row : transaction.rows) {
+                if (row.written && !isDeleted(row)) {
+                    batch.put(ids[row.slot], row.amount, row.paidAmount, row.dueDay, row.status, row.version,
+                            row.updatedAt);
+                }
+            }
+            logPosition = append(batch);
+            if (logPosition >= 0) {
+                for (PendingRow row : transaction.rows) {
+                    row.logged = row.written && !isDeleted(row);
+                }
+                transaction.logged = true;
+                loggedTransactions.add(transaction);
+            }
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        awaitDurable(logPosition);
+    }
+
+    /**
+     * Makes the rows written by a committed transaction visible and unlocks its rows.
+     */
+    private void publish(Transaction transaction) {
+        storeLock.readLock().lock();
+        try {
+            for (PendingRow row : transaction.rows) {
+                StampedLock stripe = stripe(row.slot);
+                long stamp = stripe.writeLock();
+                try {
+                    owners[row.slot] = NO_OWNER;
+                    // Skip rows that were only locked, and rows deleted in the meantime.
+                    if (row.written && !isDeleted(row)) {
+                        apply(row.slot, row, null);
+                    }
+                } finally {
+                    stripe.unlockWrite(stamp);
+                }
+            }
+            loggedTransactions.remove(transaction);
+        } finally {
+            storeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Discards the rows written by a transaction that rolled back and unlocks its rows. If they were
+     * already logged, because the database failed to commit after {@link #prepare(Transaction)}, their
+     * committed state is logged over them.
+     */
+    private void rollback(Transaction transaction) {
+        InvoiceStoreJournal.Batch undo = transaction.logged ? new InvoiceStoreJournal.Batch() : null;
+        long logPosition = -1;
+        // Forgetting the ids of inserted rows changes the id map, which only changes under the write lock.
+        Lock lock = transaction.inserted ? storeLock.writeLock() : storeLock.readLock();
+        lock.lock();
+        try {
+            for (PendingRow row : transaction.rows) {
+                StampedLock stripe = stripe(row.slot);
+                long stamp = stripe.writeLock();
+                try {
+                    owners[row.slot] = NO_OWNER;
+                    if (row.logged && !isDeleted(row)) {
+                        undo(row, undo);
+                    }
+                    if (row.inserted) {
+                        // The id is skipped, like an id drawn from a sequence by a rolled back insert.
+                        slotsById.remove(ids[row.slot]);
+                    }
+                } finally {
+                    stripe.unlockWrite(stamp);
+                }
+            }
+            loggedTransactions.remove(transaction);
+            if (undo != null) {
+                logPosition = append(undo);
+            }
+        } catch (UncheckedIOException e) {
+            log.error("Could not log the undo of a rolled back transaction, its writes may be recovered", e);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            awaitDurable(logPosition);
+        } catch (UncheckedIOException e) {
+            log.error("Could not force the undo of a rolled back transaction to disk", e);
+        }
+    }
+
+    /**
+     * Logs the committed state of a row over its logged write. The undo carries the version of the write,
+     * so that it replaces the write on recovery, and the row takes that version so that later writes
+     * still log higher versions. Must be called with the stripe locked for writing.
+     */
+    private void undo(PendingRow row, InvoiceStoreJournal.Batch batch) {
+        if (row.inserted) {
+            batch.delete(ids[row.slot]);
+            return;
+        }
+        versions[row.slot] = row.version;
+        batch.put(ids[row.slot], amounts[row.slot], paidAmounts[row.slot], dueDays[row.slot], statuses[row.slot],
+                row.version, updatedAts[row.slot]);
+    }
+
+    /**
+     * Returns whether the row written by a transaction was deleted in the meantime. Must be called with
+     * the store lock held.
+     */
+    private boolean isDeleted(PendingRow row) {
+        return row.inserted ? slotsById.get(ids[row.slot]) != row.slot : statuses[row.slot] == DELETED;
+    }
+
+    /**
+     * Logs the committed rows. Must be called with the store lock held, so that a snapshot either
+     * contains the rows or is taken before they are logged.
+     *
+     * @return the log position to wait for with {@link #awaitDurable(long)}, or {@code -1}
+     */
+    private long append(InvoiceStoreJournal.Batch batch) {
+        if (batch == null || batch.isEmpty()) {
+            return -1;
+        }
+        try {
+            return journal.append(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not log invoice writes", e);
+        }
+    }
+
+    /**
+     * Waits until the logged rows are as durable as {@code invoice.memory.durability} asks for. Called
+     * after the store lock is released, so that commits waiting for the disk do not hold off others.
+     * Starts compacting the log when enough segments piled up since the last snapshot.
+     */
+    private void awaitDurable(long logPosition) {
+        if (logPosition < 0) {
+            return;
+        }
+        try {
+            journal.awaitDurable(logPosition);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not force invoice writes to disk", e);
+        }
+        if (journal.isCompactionDue() && compacting.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("invoice-store-compaction").start(() -> {
+                try {
+                    snapshot();
+                } catch (IOException | RuntimeException e) {
+                    log.error("Could not write an invoice store snapshot to compact the log", e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds the committed rows after {@code afterId} that match the filters of the query to the page, up to
+     * the limit. Must be called with the store lock held.
+     */
+    private void collect(InvoiceQuery query, Long afterId, List<Invoice> page, int limit) {
+        int from = afterId != null ? firstSlotAfter(afterId) : 0;
+        SlotSet withStatus = query.getStatus() != null ? slotsByStatus[query.getStatus().getCode()] : null;
+        Integer dueFrom = query.getDueFrom() != null ? (int) query.getDueFrom().toEpochDay() : null;
+        Integer dueTo = query.getDueTo() != null ? (int) query.getDueTo().toEpochDay() : null;
+        for (int slot = withStatus != null ? withStatus.next(from, slots) : from; slot >= 0 && slot < slots
+                && page.size() < limit; slot = withStatus != null ? withStatus.next(slot + 1, slots) : slot + 1) {
+            int dueDay = dueDays[slot];
+            if (dueFrom != null && (dueDay == NO_DUE_DATE || dueDay < dueFrom)
+                    || dueTo != null && (dueDay == NO_DUE_DATE || dueDay > dueTo)) {
+                continue;
+            }
+            Invoice invoice = readCommitted(slot);
+            if (invoice != null && (query.getStatus() == null || invoice.getStatus() == query.getStatus())
+                    && (query.getUpdatedSince() == null || invoice.getUpdatedAt() != null
+                    && invoice.getUpdatedAt().isAfter(query.getUpdatedSince()))) {
+                page.add(invoice);
+            }
+        }
+    }
+
+    /**
+     * Reads the committed row optimistically, retrying under the read lock of the stripe if a write
+     * interfered. Must be called with the store lock held.
+     */
+    private Invoice readCommitted(int slot) {
+        StampedLock stripe = stripe(slot);
+        long stamp = stripe.tryOptimisticRead();
+        long amount = amounts[slot];
+        long paidAmount = paidAmounts[slot];
+        int dueDay = dueDays[slot];
+        byte status = statuses[slot];
+        long version = versions[slot];
+        long updatedAt = updatedAts[slot];
+        if (!stripe.validate(stamp)) {
+            stamp = stripe.readLock();
+            try {
+                amount = amounts[slot];
+                paidAmount = paidAmounts[slot];
+                dueDay = dueDays[slot];
+                status = statuses[slot];
+                version = versions[slot];
+                updatedAt = updatedAts[slot];
+            } finally {
+                stripe.unlockRead(stamp);
+            }
+        }
+        return new PendingRow(amount, paidAmount, dueDay, status, version, updatedAt).toInvoice(ids[slot]);
+    }
+
+    /**
+     * Returns the first slot whose id is greater than the given one. Must be called with the store lock held.
+     */
+    private int firstSlotAfter(long afterId) {
+        int index = Arrays.binarySearch(ids, 0, slots, afterId);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int grown = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, grown);
+            amounts = Arrays.copyOf(amounts, grown);
+            paidAmounts = Arrays.copyOf(paidAmounts, grown);
+            dueDays = Arrays.copyOf(dueDays, grown);
+            statuses = Arrays.copyOf(statuses, grown);
+            versions = Arrays.copyOf(versions, grown);
+            updatedAts = Arrays.copyOf(updatedAts, grown);
+            owners = Arrays.copyOf(owners, grown);
+        }
+        for (SlotSet withStatus : slotsByStatus) {
+            withStatus.ensureCapacity(capacity);
+        }
+    }
+
+    private StampedLock stripe(int slot) {
+        return stripes[slot & (stripes.length - 1)];
+    }
+
+    /**
+     * Returns the store's part of the current Spring transaction, or {@code null} outside of one.
+     */
+    private Transaction currentTransaction(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Transaction transaction = (Transaction) TransactionSynchronizationManager.getResource(this);
+        if (transaction == null && create) {
+            int id = transactionIds.incrementAndGet();
+            transaction = new Transaction(id == NO_OWNER ? transactionIds.incrementAndGet() : id);
+            TransactionSynchronizationManager.bindResource(this, transaction);
+            TransactionSynchronizationManager.registerSynchronization(transaction);
+        }
+        return transaction;
+    }
+
+    /**
+     * The rows a transaction wrote or locked, applied to the store when it commits.
+     */
+    private final class Transaction implements TransactionSynchronization {
+
+        private final int id;
+        private final List<PendingRow> rows = new ArrayList<>();
+        private final LongIntMap rowsBySlot = new LongIntMap(16);
+        private boolean inserted;
+        private boolean prepared;
+        private boolean logged;
+
+        private Transaction(int id) {
+            this.id = id;
+        }
+
+        PendingRow pending(int slot) {
+            int index = rowsBySlot.get(slot);
+            return index == LongIntMap.MISSING ? null : rows.get(index);
+        }
+
+        void lock(int slot, PendingRow row) {
+            if (pending(slot) == null) {
+                add(slot, row);
+            }
+        }
+
+        void write(int slot, PendingRow row) {
+            row.written = true;
+            PendingRow pending = pending(slot);
+            if (pending == null) {
+                add(slot, row);
+            } else {
+                rows.set(rowsBySlot.get(slot), row.withStateOf(pending));
+            }
+        }
+
+        void insert(int slot, PendingRow row) {
+            row.written = true;
+            row.inserted = true;
+            inserted = true;
+            add(slot, row);
+        }
+
+        private void add(int slot, PendingRow row) {
+            row.slot = slot;
+            rowsBySlot.put(slot, rows.size());
+            rows.add(row);
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(MemoryInvoiceStore.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(MemoryInvoiceStore.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            prepare(this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MemoryInvoiceStore.this);
+            if (status == STATUS_COMMITTED) {
+                try {
+                    if (!prepared) {
+                        // Joined the transaction after beforeCommit, from a callback of another synchronization.
+                        prepare(this);
+                    }
+                } finally {
+                    publish(this);
+                }
+            } else {
+                rollback(this);
+            }
+        }
+    }
+
+    /**
+     * A copy of the columns of a row, as written by a transaction.
+     */
+    private static final class PendingRow {
+
+        long amount;
+        long paidAmount;
+        int dueDay;
+        byte status;
+        long version;
+        long updatedAt;
+
+        int slot;
+        boolean written;
+        boolean inserted;
+        boolean logged;
+
+        PendingRow(long amount, long paidAmount, int dueDay, byte status, long version, long updatedAt) {
+            this.amount = amount;
+            this.paidAmount = paidAmount;
+            this.dueDay = dueDay;
+            this.status = status;
+            this.version = version;
+            this.updatedAt = updatedAt;
+        }
+
+        static PendingRow of(Invoice invoice) {
+            return new PendingRow(invoice.getAmount().getCents(), invoice.getPaidAmount().getCents(),
+                    invoice.getDueDate() != null ? (int) invoice.getDueDate().toEpochDay() : NO_DUE_DATE,
+                    (byte) invoice.getStatus().getCode(), invoice.getVersion() != null ? invoice.getVersion() : 0,
+                    toMicros(invoice.getUpdatedAt()));
+        }
+
+        PendingRow copy() {
+            return new PendingRow(amount, paidAmount, dueDay, status, version, updatedAt).withStateOf(this);
+        }
+
+        PendingRow withStateOf(PendingRow other) {
+            slot = other.slot;
+            written |= other.written;
+            inserted = other.inserted;
+            return this;
+        }
+
+        Invoice toInvoice(long id) {
+            if (status == DELETED) {
+                return null;
+            }
+            return Invoice.builder()
+                    .id(id)
+                    .amount(Money.ofCents(amount))
+                    .paidAmount(Money.ofCents(paidAmount))
+                    .dueDate(dueDay != NO_DUE_DATE ? LocalDate.ofEpochDay(dueDay) : null)
+                    .status(Status.fromCode(status))
+                    .version(version)
+                    .updatedAt(fromMicros(updatedAt))
+                    .build();
+        }
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        if (time == null) {
+            return NO_UPDATED_AT;
+        }
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        if (micros == NO_UPDATED_AT) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Growable list of slots, in the order they were added.
+     */
+    private static final class SlotList {
+
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+
+    /**
+     * Collects the rows read back from the journal, keeping the latest version of each, and loads them in
+     * id order.
+     */
+    private final class Recovery implements InvoiceStoreJournal.RecordSink {
+
+        private final LongIntMap indexById = new LongIntMap(INITIAL_CAPACITY);
+        private final List<PendingRow> recovered = new ArrayList<>();
+        private long[] recoveredIds = new long[INITIAL_CAPACITY];
+
+        @Override
+        public void put(long id, long amount, long paidAmount, int dueDay, byte status, long version,
+                        long updatedAt) {
+            PendingRow row = new PendingRow(amount, paidAmount, dueDay, status, version, updatedAt);
+            int index = indexById.get(id);
+            if (index == LongIntMap.MISSING) {
+                add(id, row);
+            } else if (recovered.get(index).status != DELETED && version >= recovered.get(index).version) {
+                recovered.set(index, row);
+            }
+        }
+
+        @Override
+        public void delete(long id) {
+            int index = indexById.get(id);
+            if (index == LongIntMap.MISSING) {
+                add(id, new PendingRow(0, 0, NO_DUE_DATE, DELETED, Long.MAX_VALUE, NO_UPDATED_AT));
+            } else {
+                recovered.get(index).status = DELETED;
+            }
+        }
+
+        private void add(long id, PendingRow row) {
+            if (recovered.size() == recoveredIds.length) {
+                recoveredIds = Arrays.copyOf(recoveredIds, recoveredIds.length * 2);
+            }
+            recoveredIds[recovered.size()] = id;
+            indexById.put(id, recovered.size());
+            recovered.add(row);
+        }
+
+        void load() {
+            long[] sortedIds = Arrays.copyOf(recoveredIds, recovered.size());
+            Arrays.sort(sortedIds);
+            ensureCapacity(sortedIds.length);
+            for (long id : sortedIds) {
+                lastId = id;
+                PendingRow row = recovered.get(indexById.get(id));
+                if (row.status == DELETED) {
+                    continue;
+                }
+                int slot = slots++;
+                ids[slot] = id;
+                slotsById.put(id, slot);
+                statuses[slot] = DELETED;
+                if (row.dueDay != NO_DUE_DATE) {
+                    slotsByDueDay.computeIfAbsent(row.dueDay, day -> new SlotList()).add(slot);
+                }
+                apply(slot, row, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.sandeep.invoice.memory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bit set of row slots that can be updated concurrently. Bits are set and cleared atomically; growing
+ * the set replaces its words, so it must not run concurrently with any other method.
+ */
+final class SlotSet {
+
+    private AtomicLongArray words = new AtomicLongArray(1);
+
+    void ensureCapacity(int slots) {
+        int required = (slots + 63) >>> 6;
+        if (required > words.length()) {
+            AtomicLongArray grown = new AtomicLongArray(Math.max(required, words.length() * 2));
+            for (int i = 0; i < words.length(); i++) {
+                grown.set(i, words.get(i));
+            }
+            words = grown;
+        }
+    }
+
+    void set(int slot) {
+        words.getAndAccumulate(slot >>> 6, 1L << slot, (word, bit) -> word | bit);
+    }
+
+    void clear(int slot) {
+        words.getAndAccumulate(slot >>> 6, ~(1L << slot), (word, mask) -> word & mask);
+    }
+
+    boolean get(int slot) {
+        int index = slot >>> 6;
+        return index < words.length() && (words.get(index) & (1L << slot)) != 0;
+    }
+
+    /**
+     * Returns the first slot at or after {@code from} and before {@code limit} in the set, or -1.
+     */
+    int next(int from, int limit) {
+        if (from >= limit) {
+            return -1;
+        }
+        int index = from >>> 6;
+        if (index >= words.length()) {
+            return -1;
+        }
+        long word = words.get(index) & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int slot = (index << 6) + Long.numberOfTrailingZeros(word);
+                return slot < limit ? slot : -1;
+            }
+            if (++index >= words.length() || index << 6 >= limit) {
+                return -1;
+            }
+            word = words.get(index);
+        }
+    }
+
+    void clearAll() {
+        words = new AtomicLongArray(1);
+    }
+}
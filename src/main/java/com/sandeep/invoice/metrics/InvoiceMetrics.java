@@ -0,0 +1,152 @@
+package com.sandeep.invoice.metrics;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the invoice operations.
+ * <p>
+ * All meters are registered up front, so recording on the hot path is a map lookup on an enum and
+ * no tag resolution. Every meter name starts with {@code invoice}, which lets
+ * {@code management.metrics.enable.invoice=false} replace them all with no-op meters.
+ * </p>
+ */
+@Component
+public class InvoiceMetrics {
+
+    public enum Operation {
+        CREATE,
+        CREATE_BATCH,
+        IMPORT,
+        RESUME_IMPORT,
+        GET,
+        LIST,
+        STREAM,
+        EXPORT,
+        SUMMARY,
+        LIST_PAYMENTS,
+        LIST_CHANGES,
+        PAY,
+        PAY_BATCH,
+        PROCESS_OVERDUE,
+        PROCESS_OVERDUE_SCHEDULED,
+        RESUME_OVERDUE
+    }
+
+    public enum PaymentOutcome {
+        SUCCESS, NOT_FOUND, INVALID, CONFLICT
+    }
+
+    public enum AdmissionRejection {
+        RATE_LIMITED, OVERLOADED
+    }
+
+    private final Map<Operation, Timer> operationTimers = new EnumMap<>(Operation.class);
+    private final Map<PaymentOutcome, Counter> paymentCounters = new EnumMap<>(PaymentOutcome.class);
+    private final Map<Operation, Counter> idempotentReplayCounters = new EnumMap<>(Operation.class);
+    private final Map<AdmissionRejection, Counter> admissionRejectionCounters = new EnumMap<>(AdmissionRejection.class);
+    private final AtomicLong lastOverdueRunInvoices = new AtomicLong();
+    private final Timer pinnedVirtualThreads;
+    private final Clock clock;
+
+    public InvoiceMetrics(MeterRegistry registry) {
+        clock = registry.config().clock();
+        for (Operation operation : Operation.values()) {
+            operationTimers.put(operation, Timer.builder("invoice.operation")
+                    .description("Latency of invoice operations")
+                    .tag("operation", tagValue(operation))
+                    .register(registry));
+        }
+        for (PaymentOutcome outcome : PaymentOutcome.values()) {
+            paymentCounters.put(outcome, Counter.builder("invoice.payments")
+                    .description("Payments by outcome, including each payment of a batch")
+                    .tag("outcome", tagValue(outcome))
+                    .register(registry));
+        }
+        for (Operation operation : EnumSet.of(Operation.CREATE, Operation.PAY)) {
+            idempotentReplayCounters.put(operation, Counter.builder("invoice.idempotent.replays")
+                    .description("Requests answered with the stored response of an earlier request with the same Idempotency-Key")
+                    .tag("operation", tagValue(operation))
+                    .register(registry));
+        }
+        for (AdmissionRejection reason : AdmissionRejection.values()) {
+            admissionRejectionCounters.put(reason, Counter.builder("invoice.admission.rejections")
+                    .description("Requests rejected by admission control before they were processed")
+                    .tag("reason", tagValue(reason))
+                    .register(registry));
+        }
+        Gauge.builder("invoice.overdue.last.run.invoices", lastOverdueRunInvoices, AtomicLong::get)
+                .description("Number of invoices processed by the last overdue run")
+                .register(registry);
+        pinnedVirtualThreads = Timer.builder("invoice.virtual.threads.pinned")
+                .description("Time virtual threads spent pinned to their carrier thread")
+                .register(registry);
+    }
+
+    /**
+     * Runs the operation and records its duration, whether it completes normally or not.
+     */
+    public <T> T time(Operation operation, Supplier<T> supplier) {
+        return operationTimers.get(operation).record(supplier);
+    }
+
+    public void time(Operation operation, Runnable runnable) {
+        operationTimers.get(operation).record(runnable);
+    }
+
+    /**
+     * Returns a {@link Mono} that records the duration of the operation from subscription until it
+     * completes, fails or is cancelled.
+     */
+    public <T> Mono<T> time(Operation operation, Mono<T> mono) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(clock);
+            return mono.doFinally(signal -> sample.stop(operationTimers.get(operation)));
+        });
+    }
+
+    public <T> Flux<T> time(Operation operation, Flux<T> flux) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(clock);
+            return flux.doFinally(signal -> sample.stop(operationTimers.get(operation)));
+        });
+    }
+
+    public void recordPayment(PaymentOutcome outcome) {
+        paymentCounters.get(outcome).increment();
+    }
+
+    public void recordIdempotentReplay(Operation operation) {
+        idempotentReplayCounters.get(operation).increment();
+    }
+
+    public void recordAdmissionRejection(AdmissionRejection reason) {
+        admissionRejectionCounters.get(reason).increment();
+    }
+
+    public void recordOverdueRun(long processedInvoices) {
+        lastOverdueRunInvoices.set(processedInvoices);
+    }
+
+    public void recordPinnedVirtualThread(Duration duration) {
+        pinnedVirtualThreads.record(duration);
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
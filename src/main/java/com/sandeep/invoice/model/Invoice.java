@@ -4,19 +4,29 @@ import com.sandeep.invoice.dto.Status;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
+@Table
 public class Invoice {
 
     @Id
     Long id;
 
-    BigDecimal amount;
-    BigDecimal paidAmount;
+    Money amount;
+    Money paidAmount;
     LocalDate dueDate;
     Status status;
+
+    @Version
+    Long version;
+
+    @LastModifiedDate
+    LocalDateTime updatedAt;
 }
@@ -0,0 +1,45 @@
+package com.sandeep.invoice.model;
+
+import com.sandeep.invoice.dto.InvoiceChangeType;
+import com.sandeep.invoice.dto.Status;
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * An entry of the invoice change outbox: a snapshot of an invoice right after a state change. The
+ * {@code seq} is assigned by the relay once the change has committed and is {@code null} until then.
+ */
+@Data
+@Builder
+@Table
+public class InvoiceChange {
+
+    @Id
+    Long id;
+
+    Long seq;
+    Long invoiceId;
+    InvoiceChangeType type;
+    Money amount;
+    Money paidAmount;
+    LocalDate dueDate;
+    Status status;
+    LocalDateTime createdAt;
+
+    public static InvoiceChange of(InvoiceChangeType type, Invoice invoice, LocalDateTime createdAt) {
+        return InvoiceChange.builder()
+                .invoiceId(invoice.getId())
+                .type(type)
+                .amount(invoice.getAmount())
+                .paidAmount(invoice.getPaidAmount())
+                .dueDate(invoice.getDueDate())
+                .status(invoice.getStatus())
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.sandeep.invoice.model;
+
+import com.sandeep.invoice.dto.RunStatus;
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@Table
+public class InvoiceImport {
+
+    @Id
+    Long id;
+
+    RunStatus status;
+    long lastCommittedLine;
+    long importedCount;
+    long rejectedCount;
+    long batchCount;
+    String leaseOwner;
+    LocalDateTime leaseExpiresAt;
+    LocalDateTime createdAt;
+    LocalDateTime completedAt;
+}
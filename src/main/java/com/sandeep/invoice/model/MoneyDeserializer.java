@@ -0,0 +1,35 @@
+package com.sandeep.invoice.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Reads {@link Money} from a JSON number, or a numeric string, with at most two fraction digits.
+ */
+class MoneyDeserializer extends StdScalarDeserializer<Money> {
+
+    MoneyDeserializer() {
+        super(Money.class);
+    }
+
+    @Override
+    public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        try {
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return Money.of(parser.getDecimalValue());
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                return Money.of(parser.getText().trim());
+            }
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw context.weirdStringException(parser.getText(), Money.class,
+                    "not an amount with at most two fraction digits");
+        }
+        return (Money) context.handleUnexpectedToken(Money.class, parser);
+    }
+}
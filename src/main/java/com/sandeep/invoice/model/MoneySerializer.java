@@ -0,0 +1,23 @@
+package com.sandeep.invoice.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link Money} as a JSON number with two fraction digits, exactly as Jackson writes a
+ * {@code BigDecimal} of scale 2, without creating one.
+ */
+class MoneySerializer extends StdSerializer<Money> {
+
+    MoneySerializer() {
+        super(Money.class);
+    }
+
+    @Override
+    public void serialize(Money value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeNumber(value.toString());
+    }
+}
@@ -0,0 +1,31 @@
+package com.sandeep.invoice.model;
+
+import com.sandeep.invoice.dto.RunStatus;
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@Table
+public class OverduePartition {
+
+    @Id
+    Long id;
+
+    Long runId;
+    int partitionNo;
+    long fromId;
+    long toId;
+    long lastProcessedId;
+    RunStatus status;
+    String leaseOwner;
+    LocalDateTime leaseExpiresAt;
+    long processedCount;
+    long paidCount;
+    long voidCount;
+    long chunkCount;
+}
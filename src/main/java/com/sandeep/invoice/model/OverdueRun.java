@@ -0,0 +1,27 @@
+package com.sandeep.invoice.model;
+
+import com.sandeep.invoice.dto.RunStatus;
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@Table
+public class OverdueRun {
+
+    @Id
+    Long id;
+
+    Money lateFee;
+    int overdueDays;
+    LocalDate processingDate;
+    int partitionCount;
+    RunStatus status;
+    LocalDateTime createdAt;
+    LocalDateTime completedAt;
+}
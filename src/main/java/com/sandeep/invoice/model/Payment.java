@@ -0,0 +1,25 @@
+package com.sandeep.invoice.model;
+
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * An entry of the append-only payment ledger. Entries are never updated or deleted; the paid amount
+ * of an invoice is the sum of its entries.
+ */
+@Data
+@Builder
+@Table
+public class Payment {
+
+    @Id
+    Long id;
+
+    Long invoiceId;
+    Money amount;
+    LocalDateTime createdAt;
+}
@@ -0,0 +1,95 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+public interface CustomInvoiceRepository {
+
+    /**
+     * Returns one page of invoices matching the query, ordered by id and starting after
+     * {@link InvoiceQuery#getAfterId()}.
+     */
+    List<Invoice> findPage(InvoiceQuery query);
+
+    /**
+     * Streams every invoice matching the query to the consumer, reading from a database cursor
+     * with a bounded fetch size so that memory use does not depend on the size of the result.
+     */
+    void streamAll(InvoiceQuery query, Consumer<Invoice> consumer);
+
+    /**
+     * Streams the columns of every invoice matching the query to the consumer, reading from a database
+     * cursor like {@link #streamAll(InvoiceQuery, Consumer)}. Amounts are converted to cents by the
+     * query and no {@link Invoice} is created, which keeps exports of the whole table cheap.
+     */
+    void exportAll(InvoiceQuery query, InvoiceColumnsConsumer consumer);
+
+    /**
+     * Passes the number of invoices and the sums of their amounts and paid amounts to the consumer, once
+     * for every combination of status and due date, computed by a single aggregate query.
+     */
+    void aggregateTotals(InvoiceTotalsConsumer consumer);
+
+    /**
+     * Streams the id and due date of every invoice with the given status and a due date, reading
+     * from a database cursor like {@link #streamAll(InvoiceQuery, Consumer)}. Only the
+     * {@code (status, due_date)} index is read, not the rows themselves.
+     */
+    void streamDueDates(Status status, BiConsumer<Long, LocalDate> consumer);
+
+    /**
+     * Returns the smallest and largest id of the invoices with the given status that are due before
+     * the processing date, or an empty optional if there are none.
+     */
+    Optional<IdRange> findIdRangeDueBefore(Status status, LocalDate processingDate);
+
+    /**
+     * Locks and returns the next chunk of invoices with the given status that are due before the
+     * processing date, in id order, with ids greater than {@code afterId} and at most {@code maxId}.
+     * <p>
+     * The rows stay locked until the surrounding transaction ends, so the chunk can be updated
+     * without concurrent payments slipping in between the read and the write.
+     * </p>
+     */
+    List<Invoice> lockNextChunkDueBefore(Status status, LocalDate processingDate, long afterId, long maxId,
+                                         int chunkSize);
+
+    /**
+     * Writes the paid amount and status of the invoice if its version still matches the stored one,
+     * and increments the version of both the row and the given invoice. Sets the update time of both
+     * to now.
+     *
+     * @return {@code false} if the invoice was modified concurrently, in which case nothing is written
+     */
+    boolean updatePaymentIfVersionMatches(Invoice invoice);
+
+    /**
+     * Batched variant of {@link #updatePaymentIfVersionMatches(Invoice)}: writes all given invoices in
+     * a single JDBC batch, skipping those whose version no longer matches.
+     *
+     * @return the ids of the invoices that were modified concurrently and therefore not written
+     */
+    Set<Long> batchUpdatePaymentsIfVersionMatches(Collection<Invoice> invoices);
+
+    /**
+     * Updates the status of all given invoices in a single JDBC batch, increments the version of
+     * both the rows and the given invoices and sets their update time to now.
+     */
+    void batchUpdateStatus(List<Invoice> invoices);
+
+    /**
+     * Inserts all given invoices in a single JDBC batch. Invoices without an id are first given one
+     * from the {@link InvoiceIdAllocator}, so the ids are set on the given invoices afterwards, as is
+     * the update time.
+     */
+    void batchInsert(List<Invoice> invoices);
+}
@@ -0,0 +1,258 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+class CustomInvoiceRepositoryImpl implements CustomInvoiceRepository {
+
+    private static final String UPDATE_PAYMENT_IF_VERSION_MATCHES = "UPDATE invoice"
+            + " SET paid_amount = :paidAmount, status = :status, version = version + 1, updated_at = :updatedAt"
+            + " WHERE id = :id AND version = :version";
+
+    // Both overdue queries filter on (status, due_date) and are meant to run off
+    // idx_invoice_status_due_date; InvoiceQueryPlanTest checks that they do.
+    static final String FIND_ID_RANGE_DUE_BEFORE = "SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM invoice"
+            + " WHERE status = :status AND due_date < :processingDate";
+
+    static final String LOCK_NEXT_CHUNK_DUE_BEFORE = "SELECT " + InvoiceRowMapper.COLUMNS + " FROM invoice"
+            + " WHERE status = :status AND due_date < :processingDate AND id > :afterId AND id <= :maxId"
+            + " ORDER BY id LIMIT :chunkSize FOR UPDATE";
+
+    // Amounts are read as cents so that exports need not go through BigDecimal.
+    static final String EXPORT_COLUMNS = "id, CAST(amount * 100 AS BIGINT) AS amount_cents,"
+            + " CAST(paid_amount * 100 AS BIGINT) AS paid_amount_cents, due_date, status";
+
+    static final String FIND_DUE_DATES = "SELECT id, due_date FROM invoice"
+            + " WHERE status = :status AND due_date IS NOT NULL";
+
+    static final String AGGREGATE_TOTALS = "SELECT status, due_date, COUNT(*) AS invoice_count,"
+            + " CAST(SUM(amount) * 100 AS BIGINT) AS amount_cents,"
+            + " CAST(COALESCE(SUM(paid_amount), 0) * 100 AS BIGINT) AS paid_amount_cents"
+            + " FROM invoice GROUP BY status, due_date";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private final InvoiceIdAllocator invoiceIdAllocator;
+
+    CustomInvoiceRepositoryImpl(DataSource dataSource, InvoiceProperties properties,
+                                InvoiceIdAllocator invoiceIdAllocator) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.invoiceIdAllocator = invoiceIdAllocator;
+
+        JdbcTemplate streamingTemplate = new JdbcTemplate(dataSource);
+        streamingTemplate.setFetchSize(properties.getQuery().getFetchSize());
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streamingTemplate);
+    }
+
+    @Override
+    public List<Invoice> findPage(InvoiceQuery query) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        return jdbcTemplate.query(buildSelect(InvoiceRowMapper.COLUMNS, query, params), params,
+                InvoiceRowMapper.INSTANCE);
+    }
+
+    @Override
+    public void streamAll(InvoiceQuery query, Consumer<Invoice> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        RowCallbackHandler handler = rs -> consumer.accept(InvoiceRowMapper.INSTANCE.mapRow(rs, rs.getRow()));
+        streamingJdbcTemplate.query(buildSelect(InvoiceRowMapper.COLUMNS, query, params), params, handler);
+    }
+
+    @Override
+    public void exportAll(InvoiceQuery query, InvoiceColumnsConsumer consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        streamingJdbcTemplate.query(buildSelect(EXPORT_COLUMNS, query, params), params, (RowCallbackHandler) rs -> {
+            Date dueDate = rs.getDate("due_date");
+            consumer.accept(rs.getLong("id"), rs.getLong("amount_cents"), rs.getLong("paid_amount_cents"),
+                    dueDate == null ? null : dueDate.toLocalDate(), Status.fromCode(rs.getInt("status")));
+        });
+    }
+
+    @Override
+    public void aggregateTotals(InvoiceTotalsConsumer consumer) {
+        jdbcTemplate.query(AGGREGATE_TOTALS, (RowCallbackHandler) rs -> {
+            Date dueDate = rs.getDate("due_date");
+            consumer.accept(Status.fromCode(rs.getInt("status")), dueDate == null ? null : dueDate.toLocalDate(),
+                    rs.getLong("invoice_count"), rs.getLong("amount_cents"), rs.getLong("paid_amount_cents"));
+        });
+    }
+
+    @Override
+    public void streamDueDates(Status status, BiConsumer<Long, LocalDate> consumer) {
+        streamingJdbcTemplate.query(FIND_DUE_DATES,
+                new MapSqlParameterSource("status", status.getCode()),
+                (RowCallbackHandler) rs -> consumer.accept(rs.getLong("id"), rs.getObject("due_date", LocalDate.class)));
+    }
+
+    @Override
+    public Optional<IdRange> findIdRangeDueBefore(Status status, LocalDate processingDate) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(
+                FIND_ID_RANGE_DUE_BEFORE,
+                new MapSqlParameterSource()
+                        .addValue("status", status.getCode())
+                        .addValue("processingDate", processingDate),
+                (rs, rowNum) -> rs.getObject("min_id") == null
+                        ? null
+                        : new IdRange(rs.getLong("min_id"), rs.getLong("max_id"))));
+    }
+
+    @Override
+    public List<Invoice> lockNextChunkDueBefore(Status status, LocalDate processingDate, long afterId, long maxId,
+                                                int chunkSize) {
+        return jdbcTemplate.query(LOCK_NEXT_CHUNK_DUE_BEFORE,
+                new MapSqlParameterSource()
+                        .addValue("status", status.getCode())
+                        .addValue("processingDate", processingDate)
+                        .addValue("afterId", afterId)
+                        .addValue("maxId", maxId)
+                        .addValue("chunkSize", chunkSize),
+                InvoiceRowMapper.INSTANCE);
+    }
+
+    @Override
+    public boolean updatePaymentIfVersionMatches(Invoice invoice) {
+        invoice.setUpdatedAt(now());
+        if (jdbcTemplate.update(UPDATE_PAYMENT_IF_VERSION_MATCHES, paymentParameters(invoice)) == 0) {
+            return false;
+        }
+        invoice.setVersion(invoice.getVersion() + 1);
+        return true;
+    }
+
+    @Override
+    public Set<Long> batchUpdatePaymentsIfVersionMatches(Collection<Invoice> invoices) {
+        List<Invoice> batch = List.copyOf(invoices);
+        LocalDateTime now = now();
+        batch.forEach(invoice -> invoice.setUpdatedAt(now));
+        int[] updateCounts = jdbcTemplate.batchUpdate(UPDATE_PAYMENT_IF_VERSION_MATCHES, batch.stream()
+                .map(CustomInvoiceRepositoryImpl::paymentParameters)
+                .toArray(SqlParameterSource[]::new));
+
+        Set<Long> conflicts = new HashSet<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            Invoice invoice = batch.get(i);
+            if (updateCounts[i] == 0) {
+                conflicts.add(invoice.getId());
+            } else {
+                invoice.setVersion(invoice.getVersion() + 1);
+            }
+        }
+        return conflicts;
+    }
+
+    private static SqlParameterSource paymentParameters(Invoice invoice) {
+        return new MapSqlParameterSource()
+                .addValue("id", invoice.getId())
+                .addValue("paidAmount", invoice.getPaidAmount().toBigDecimal())
+                .addValue("status", invoice.getStatus().getCode())
+                .addValue("version", invoice.getVersion())
+                .addValue("updatedAt", invoice.getUpdatedAt());
+    }
+
+    @Override
+    public void batchUpdateStatus(List<Invoice> invoices) {
+        LocalDateTime now = now();
+        invoices.forEach(invoice -> invoice.setUpdatedAt(now));
+        jdbcTemplate.batchUpdate("UPDATE invoice SET status = :status, version = version + 1, updated_at = :updatedAt"
+                        + " WHERE id = :id",
+                invoices.stream()
+                        .map(invoice -> new MapSqlParameterSource()
+                                .addValue("id", invoice.getId())
+                                .addValue("status", invoice.getStatus().getCode())
+                                .addValue("updatedAt", now))
+                        .toArray(SqlParameterSource[]::new));
+        invoices.forEach(invoice -> invoice.setVersion(invoice.getVersion() + 1));
+    }
+
+    @Override
+    public void batchInsert(List<Invoice> invoices) {
+        List<Invoice> withoutId = invoices.stream()
+                .filter(invoice -> invoice.getId() == null)
+                .toList();
+        long[] ids = invoiceIdAllocator.nextIds(withoutId.size());
+        for (int i = 0; i < ids.length; i++) {
+            withoutId.get(i).setId(ids[i]);
+        }
+
+        LocalDateTime now = now();
+        invoices.forEach(invoice -> invoice.setUpdatedAt(now));
+        jdbcTemplate.batchUpdate("INSERT INTO invoice (id, amount, paid_amount, due_date, status, version, updated_at)"
+                        + " VALUES (:id, :amount, :paidAmount, :dueDate, :status, 0, :updatedAt)",
+                invoices.stream()
+                        .map(invoice -> new MapSqlParameterSource()
+                                .addValue("id", invoice.getId())
+                                .addValue("amount", invoice.getAmount().toBigDecimal())
+                                .addValue("paidAmount", invoice.getPaidAmount().toBigDecimal())
+                                .addValue("dueDate", invoice.getDueDate())
+                                .addValue("status", invoice.getStatus().getCode())
+                                .addValue("updatedAt", now))
+                        .toArray(SqlParameterSource[]::new));
+        invoices.forEach(invoice -> invoice.setVersion(0L));
+    }
+
+    /**
+     * Returns the current time at the precision of the {@code updated_at} column, so that invoices carry the
+     * update time as stored.
+     */
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    /**
+     * Builds a keyset query that only contains predicates for the filters that are set, so that the
+     * database can use the primary key (and any index on the filtered columns) for every combination.
+     */
+    static String buildSelect(String columns, InvoiceQuery query, MapSqlParameterSource params) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns)
+                .append(" FROM invoice WHERE 1 = 1");
+
+        if (query.getAfterId() != null) {
+            sql.append(" AND id > :afterId");
+            params.addValue("afterId", query.getAfterId());
+        }
+        if (query.getStatus() != null) {
+            sql.append(" AND status = :status");
+            params.addValue("status", query.getStatus().getCode());
+        }
+        if (query.getDueFrom() != null) {
+            sql.append(" AND due_date >= :dueFrom");
+            params.addValue("dueFrom", query.getDueFrom());
+        }
+        if (query.getDueTo() != null) {
+            sql.append(" AND due_date <= :dueTo");
+            params.addValue("dueTo", query.getDueTo());
+        }
+        if (query.getUpdatedSince() != null) {
+            sql.append(" AND updated_at > :updatedSince");
+            params.addValue("updatedSince", query.getUpdatedSince());
+        }
+
+        sql.append(" ORDER BY id");
+
+        if (query.getLimit() != null) {
+            sql.append(" LIMIT :limit");
+            params.addValue("limit", query.getLimit());
+        }
+        return sql.toString();
+    }
+}
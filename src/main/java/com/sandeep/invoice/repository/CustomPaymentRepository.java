@@ -0,0 +1,14 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.model.Payment;
+
+import java.util.List;
+
+public interface CustomPaymentRepository {
+
+    /**
+     * Appends all given payments to the ledger in a single JDBC batch. The generated ids are not read
+     * back, so the given payments keep a {@code null} id.
+     */
+    void batchInsert(List<Payment> payments);
+}
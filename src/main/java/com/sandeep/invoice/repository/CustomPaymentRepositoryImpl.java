@@ -0,0 +1,32 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.model.Payment;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.List;
+
+class CustomPaymentRepositoryImpl implements CustomPaymentRepository {
+
+    static final String INSERT = "INSERT INTO payment (invoice_id, amount, created_at)"
+            + " VALUES (:invoiceId, :amount, :createdAt)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    CustomPaymentRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void batchInsert(List<Payment> payments) {
+        jdbcTemplate.batchUpdate(INSERT, payments.stream()
+                .map(payment -> new MapSqlParameterSource()
+                        .addValue("invoiceId", payment.getInvoiceId())
+                        .addValue("amount", payment.getAmount().toBigDecimal())
+                        .addValue("createdAt", Timestamp.valueOf(payment.getCreatedAt())))
+                .toArray(SqlParameterSource[]::new));
+    }
+}
@@ -0,0 +1,14 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.model.Invoice;
+import reactor.core.publisher.Flux;
+
+public interface CustomReactiveInvoiceRepository {
+
+    /**
+     * Returns the invoices matching the query ordered by id, at most {@code query.limit} of them or all
+     * of them without a limit. Rows are emitted as they are requested.
+     */
+    Flux<Invoice> findPage(InvoiceQuery query);
+}
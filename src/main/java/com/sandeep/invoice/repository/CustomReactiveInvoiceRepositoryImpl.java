@@ -0,0 +1,44 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.model.Invoice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import reactor.core.publisher.Flux;
+
+class CustomReactiveInvoiceRepositoryImpl implements CustomReactiveInvoiceRepository {
+
+    private final R2dbcEntityTemplate entityTemplate;
+
+    CustomReactiveInvoiceRepositoryImpl(R2dbcEntityTemplate entityTemplate) {
+        this.entityTemplate = entityTemplate;
+    }
+
+    @Override
+    public Flux<Invoice> findPage(InvoiceQuery query) {
+        Criteria criteria = Criteria.empty();
+        if (query.getAfterId() != null) {
+            criteria = criteria.and("id").greaterThan(query.getAfterId());
+        }
+        if (query.getStatus() != null) {
+            criteria = criteria.and("status").is(query.getStatus().getCode());
+        }
+        if (query.getDueFrom() != null) {
+            criteria = criteria.and("dueDate").greaterThanOrEquals(query.getDueFrom());
+        }
+        if (query.getDueTo() != null) {
+            criteria = criteria.and("dueDate").lessThanOrEquals(query.getDueTo());
+        }
+        if (query.getUpdatedSince() != null) {
+            criteria = criteria.and("updatedAt").greaterThan(query.getUpdatedSince());
+        }
+
+        Query select = Query.query(criteria).sort(Sort.by("id"));
+        if (query.getLimit() != null) {
+            select = select.limit(query.getLimit());
+        }
+        return entityTemplate.select(Invoice.class).matching(select).all();
+    }
+}
@@ -0,0 +1,9 @@
+package com.sandeep.invoice.repository;
+
+import lombok.Value;
+
+@Value
+public class IdRange {
+    long minId;
+    long maxId;
+}
@@ -0,0 +1,18 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.dto.Status;
+
+import java.time.LocalDate;
+
+/**
+ * Receives the columns of one invoice at a time, with the amounts as numbers of cents, so that rows can
+ * be passed on without creating an {@link com.sandeep.invoice.model.Invoice} for each of them.
+ */
+@FunctionalInterface
+public interface InvoiceColumnsConsumer {
+
+    /**
+     * @param dueDate the due date, or {@code null} if the invoice has none
+     */
+    void accept(long id, long amountCents, long paidAmountCents, LocalDate dueDate, Status status);
+}
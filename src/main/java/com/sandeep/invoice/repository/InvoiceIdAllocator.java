@@ -0,0 +1,65 @@
+package com.sandeep.invoice.repository;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Allocates invoice ids from {@code invoice_id_seq} in blocks (hi/lo), so that ids are known before
+ * the insert and only one in {@link #BLOCK_SIZE} ids costs a round trip to the database.
+ * <p>
+ * Every value drawn from the sequence reserves itself and the following {@code BLOCK_SIZE - 1} ids,
+ * which is why the sequence increments by the block size. Ids left in a block when the application
+ * stops are skipped, never reused.
+ * </p>
+ */
+@Component
+@Profile("!reactive")
+public class InvoiceIdAllocator {
+
+    /**
+     * Must match the {@code INCREMENT BY} of {@code invoice_id_seq}.
+     */
+    static final int BLOCK_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    // Not synchronized: fetching a block is a JDBC call, which would pin a virtual thread.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long next;
+    private long blockEnd;
+
+    public InvoiceIdAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns the next free invoice id.
+     */
+    public long nextId() {
+        return nextIds(1)[0];
+    }
+
+    /**
+     * Returns {@code count} free invoice ids in ascending order. Ids of one call are contiguous within
+     * a block but may span several blocks.
+     */
+    public long[] nextIds(int count) {
+        long[] ids = new long[count];
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (next == blockEnd) {
+                    next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR invoice_id_seq", Long.class);
+                    blockEnd = next + BLOCK_SIZE;
+                }
+                ids[i] = next++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,28 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.model.Invoice;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.relational.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Assigns an id from the {@link InvoiceIdAllocator} to invoices saved through
+ * {@link InvoiceRepository#save(Object)} without one. New invoices are still recognised as new
+ * because their {@code version} is not set yet.
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+class InvoiceIdCallback implements BeforeConvertCallback<Invoice> {
+
+    private final InvoiceIdAllocator invoiceIdAllocator;
+
+    @Override
+    public Invoice onBeforeConvert(Invoice invoice) {
+        if (invoice.getId() == null) {
+            invoice.setId(invoiceIdAllocator.nextId());
+        }
+        return invoice;
+    }
+}
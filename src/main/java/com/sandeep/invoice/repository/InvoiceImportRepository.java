@@ -0,0 +1,51 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.model.InvoiceImport;
+import org.springframework.data.jdbc.repository.query.Modifying;
+import org.springframework.data.jdbc.repository.query.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface InvoiceImportRepository extends CrudRepository<InvoiceImport, Long> {
+
+    /**
+     * Takes the lease on an import that is not completed and is either unowned or whose lease has expired.
+     *
+     * @return {@code true} if the lease was taken by {@code owner}
+     */
+    @Modifying
+    @Query("UPDATE invoice_import SET lease_owner = :owner, lease_expires_at = :expiresAt"
+            + " WHERE id = :id AND status <> 'COMPLETED'"
+            + " AND (lease_owner IS NULL OR lease_expires_at < :now)")
+    boolean claim(Long id, String owner, LocalDateTime now, LocalDateTime expiresAt);
+
+    /**
+     * Records an imported batch and renews the lease, provided {@code owner} still holds it.
+     *
+     * @return {@code false} if the lease has been lost, in which case the batch must be rolled back
+     */
+    @Modifying
+    @Query("UPDATE invoice_import SET last_committed_line = :lastLine,"
+            + " imported_count = imported_count + :imported, rejected_count = rejected_count + :rejected,"
+            + " batch_count = batch_count + 1, lease_expires_at = :expiresAt"
+            + " WHERE id = :id AND lease_owner = :owner")
+    boolean recordProgress(Long id, String owner, long lastLine, long imported, long rejected,
+                           LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("UPDATE invoice_import SET status = 'COMPLETED', completed_at = :completedAt,"
+            + " lease_owner = NULL, lease_expires_at = NULL"
+            + " WHERE id = :id AND lease_owner = :owner")
+    boolean complete(Long id, String owner, LocalDateTime completedAt);
+
+    /**
+     * Gives up the lease after a failure, so the import can be resumed right away.
+     */
+    @Modifying
+    @Query("UPDATE invoice_import SET lease_owner = NULL, lease_expires_at = NULL"
+            + " WHERE id = :id AND lease_owner = :owner")
+    boolean release(Long id, String owner);
+}
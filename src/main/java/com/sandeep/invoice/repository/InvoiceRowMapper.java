@@ -0,0 +1,39 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+class InvoiceRowMapper implements RowMapper<Invoice> {
+
+    static final InvoiceRowMapper INSTANCE = new InvoiceRowMapper();
+
+    static final String COLUMNS = "id, amount, paid_amount, due_date, status, version, updated_at";
+
+    @Override
+    public Invoice mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Date dueDate = rs.getDate("due_date");
+        int status = rs.getInt("status");
+        boolean statusNull = rs.wasNull();
+        return Invoice.builder()
+                .id(rs.getLong("id"))
+                .amount(toMoney(rs.getBigDecimal("amount")))
+                .paidAmount(toMoney(rs.getBigDecimal("paid_amount")))
+                .dueDate(dueDate == null ? null : dueDate.toLocalDate())
+                .status(statusNull ? null : Status.fromCode(status))
+                .version(rs.getLong("version"))
+                .updatedAt(rs.getObject("updated_at", LocalDateTime.class))
+                .build();
+    }
+
+    private static Money toMoney(BigDecimal amount) {
+        return amount == null ? null : Money.of(amount);
+    }
+}
@@ -0,0 +1,17 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.dto.Status;
+
+import java.time.LocalDate;
+
+/**
+ * Receives the totals of the invoices that share a status and a due date, with the amounts as numbers of cents.
+ */
+@FunctionalInterface
+public interface InvoiceTotalsConsumer {
+
+    /**
+     * @param dueDate the due date, or {@code null} for the invoices without one
+     */
+    void accept(Status status, LocalDate dueDate, long count, long amountCents, long paidAmountCents);
+}
@@ -0,0 +1,45 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.model.OverduePartition;
+import org.springframework.data.jdbc.repository.query.Modifying;
+import org.springframework.data.jdbc.repository.query.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OverduePartitionRepository extends CrudRepository<OverduePartition, Long> {
+
+    List<OverduePartition> findByRunIdOrderByPartitionNo(Long runId);
+
+    /**
+     * Takes the lease on a partition that is not completed and is either unowned or whose lease has expired.
+     *
+     * @return {@code true} if the lease was taken by {@code owner}
+     */
+    @Modifying
+    @Query("UPDATE overdue_partition SET lease_owner = :owner, lease_expires_at = :expiresAt"
+            + " WHERE id = :id AND status <> 'COMPLETED'"
+            + " AND (lease_owner IS NULL OR lease_expires_at < :now)")
+    boolean claim(Long id, String owner, LocalDateTime now, LocalDateTime expiresAt);
+
+    /**
+     * Records a processed chunk and renews the lease, provided {@code owner} still holds it.
+     *
+     * @return {@code false} if the lease has been lost, in which case the chunk must be rolled back
+     */
+    @Modifying
+    @Query("UPDATE overdue_partition SET last_processed_id = :lastProcessedId,"
+            + " processed_count = processed_count + :processed, paid_count = paid_count + :paid,"
+            + " void_count = void_count + :voided, chunk_count = chunk_count + 1, lease_expires_at = :expiresAt"
+            + " WHERE id = :id AND lease_owner = :owner")
+    boolean recordProgress(Long id, String owner, long lastProcessedId, long processed, long paid, long voided,
+                           LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("UPDATE overdue_partition SET status = 'COMPLETED', lease_owner = NULL, lease_expires_at = NULL"
+            + " WHERE id = :id AND lease_owner = :owner")
+    boolean complete(Long id, String owner);
+}
@@ -0,0 +1,19 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.model.OverdueRun;
+import org.springframework.data.jdbc.repository.query.Modifying;
+import org.springframework.data.jdbc.repository.query.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface OverdueRunRepository extends CrudRepository<OverdueRun, Long> {
+
+    @Modifying
+    @Query("UPDATE overdue_run SET status = 'COMPLETED', completed_at = :completedAt"
+            + " WHERE id = :id AND status <> 'COMPLETED'"
+            + " AND NOT EXISTS (SELECT 1 FROM overdue_partition WHERE run_id = :id AND status <> 'COMPLETED')")
+    boolean completeIfAllPartitionsCompleted(Long id, LocalDateTime completedAt);
+}
@@ -0,0 +1,17 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.model.Payment;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PaymentRepository extends CrudRepository<Payment, Long>, CustomPaymentRepository {
+
+    /**
+     * Returns the ledger entries of an invoice in the order they were made, read off
+     * {@code idx_payment_invoice_id}.
+     */
+    List<Payment> findByInvoiceIdOrderById(Long invoiceId);
+}
@@ -0,0 +1,9 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.model.InvoiceChange;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReactiveInvoiceChangeRepository extends ReactiveCrudRepository<InvoiceChange, Long> {
+}
@@ -0,0 +1,69 @@
+package com.sandeep.invoice.repository;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Non-blocking counterpart of {@link InvoiceIdAllocator} for the {@code reactive} profile, allocating
+ * invoice ids from {@code invoice_id_seq} in blocks of {@link InvoiceIdAllocator#BLOCK_SIZE}.
+ * <p>
+ * Nothing waits for a block to be fetched: callers that find the current block exhausted at the same
+ * time each fetch a block of their own, and the ids left in the block that is replaced are skipped.
+ * </p>
+ */
+@Component
+@Profile("reactive")
+public class ReactiveInvoiceIdAllocator {
+
+    private final DatabaseClient databaseClient;
+    private final AtomicReference<Block> current = new AtomicReference<>(new Block(0, 0));
+
+    public ReactiveInvoiceIdAllocator(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Returns the next free invoice id.
+     */
+    public Mono<Long> nextId() {
+        return Mono.defer(() -> {
+            long id = current.get().take();
+            if (id >= 0) {
+                return Mono.just(id);
+            }
+            return databaseClient.sql("SELECT NEXT VALUE FOR invoice_id_seq")
+                    .map(row -> row.get(0, Long.class))
+                    .one()
+                    .map(start -> {
+                        Block block = new Block(start, start + InvoiceIdAllocator.BLOCK_SIZE);
+                        long first = block.take();
+                        current.set(block);
+                        return first;
+                    });
+        });
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+
+        /**
+         * Returns the next id of the block, or -1 if the block is exhausted.
+         */
+        private long take() {
+            long id = next.getAndIncrement();
+            return id < end ? id : -1;
+        }
+    }
+}
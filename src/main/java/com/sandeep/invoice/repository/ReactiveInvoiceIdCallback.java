@@ -0,0 +1,33 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.model.Invoice;
+import lombok.RequiredArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Assigns an id from the {@link ReactiveInvoiceIdAllocator} to invoices saved through
+ * {@link ReactiveInvoiceRepository#save(Object)} without one, like {@link InvoiceIdCallback} does for JDBC.
+ */
+@Component
+@Profile("reactive")
+@RequiredArgsConstructor
+class ReactiveInvoiceIdCallback implements BeforeConvertCallback<Invoice> {
+
+    private final ReactiveInvoiceIdAllocator invoiceIdAllocator;
+
+    @Override
+    public Publisher<Invoice> onBeforeConvert(Invoice invoice, SqlIdentifier table) {
+        if (invoice.getId() != null) {
+            return Mono.just(invoice);
+        }
+        return invoiceIdAllocator.nextId().map(id -> {
+            invoice.setId(id);
+            return invoice;
+        });
+    }
+}
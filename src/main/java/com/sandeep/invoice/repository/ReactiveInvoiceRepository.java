@@ -0,0 +1,10 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.model.Invoice;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReactiveInvoiceRepository extends ReactiveCrudRepository<Invoice, Long>,
+        CustomReactiveInvoiceRepository {
+}
@@ -0,0 +1,9 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.model.Payment;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReactivePaymentRepository extends ReactiveCrudRepository<Payment, Long> {
+}
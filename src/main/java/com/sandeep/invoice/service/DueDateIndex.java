@@ -0,0 +1,195 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index of the ids of PENDING invoices, bucketed by due date: a time wheel with one slot
+ * per day.
+ * <p>
+ * The index is empty and ignores updates until it is first loaded with {@link #rebuild()}. From
+ * then on every write that changes whether an invoice is pending reports it through
+ * {@link #update(Invoice)}, after its commit, so the invoices that become overdue on a day can be
+ * read from the buckets that expired instead of being searched for in the table.
+ * </p>
+ * <p>
+ * A rebuild streams the pending invoices from the database into a new set of buckets while updates
+ * keep being applied to both the old and the new buckets. An invoice that stops being pending during
+ * the rebuild is remembered, so a row read before that change cannot bring it back. The index may
+ * still hold invoices that are no longer pending, for example after a failed write, which is why it
+ * only ever tells where to look: overdue processing re-checks the status of every invoice it locks.
+ * </p>
+ * <p>
+ * The number of indexed invoices is published as the {@code invoice.overdue.index.invoices} gauge.
+ * </p>
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class DueDateIndex {
+
+    private final InvoiceRepository invoiceRepository;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile Map<LocalDate, Set<Long>> buckets = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private volatile Rebuild rebuild;
+
+    public DueDateIndex(InvoiceRepository invoiceRepository, MeterRegistry meterRegistry) {
+        this.invoiceRepository = invoiceRepository;
+        Gauge.builder("invoice.overdue.index.invoices", this, DueDateIndex::size)
+                .description("Number of PENDING invoices in the due-date index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns whether the index has been loaded and is being maintained.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Records the committed state of an invoice: adds it to the bucket of its due date if it is
+     * PENDING, removes it otherwise. Does nothing until the index is loaded.
+     */
+    public void update(Invoice invoice) {
+        if (invoice.getDueDate() == null) {
+            return;
+        }
+        boolean pending = invoice.getStatus() == Status.PENDING;
+        // Read before the buckets: see rebuild() for why this order never loses an update.
+        Rebuild current = rebuild;
+        if (loaded) {
+            apply(buckets, null, invoice.getId(), invoice.getDueDate(), pending);
+        }
+        if (current != null) {
+            apply(current.buckets, current.removed, invoice.getId(), invoice.getDueDate(), pending);
+        }
+    }
+
+    public void updateAll(Collection<Invoice> invoices) {
+        invoices.forEach(this::update);
+    }
+
+    /**
+     * Returns a copy of the buckets of the invoices due before the given date, which are overdue on
+     * that date, ordered by due date.
+     */
+    public SortedMap<LocalDate, Set<Long>> expiredBuckets(LocalDate date) {
+        SortedMap<LocalDate, Set<Long>> expired = new TreeMap<>();
+        buckets.forEach((dueDate, ids) -> {
+            if (dueDate.isBefore(date)) {
+                expired.put(dueDate, Set.copyOf(ids));
+            }
+        });
+        return expired;
+    }
+
+    /**
+     * Removes the given ids from the given buckets, typically those returned by
+     * {@link #expiredBuckets(LocalDate)} once they have been processed. Ids added since are kept.
+     */
+    public void discard(Map<LocalDate, Set<Long>> processed) {
+        Rebuild current = rebuild;
+        processed.forEach((dueDate, ids) -> ids.forEach(id -> {
+            apply(buckets, null, id, dueDate, false);
+            if (current != null) {
+                apply(current.buckets, current.removed, id, dueDate, false);
+            }
+        }));
+    }
+
+    /**
+     * Returns the number of invoices in the index.
+     */
+    public int size() {
+        return buckets.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Returns the number of distinct due dates in the index.
+     */
+    public int bucketCount() {
+        return buckets.size();
+    }
+
+    /**
+     * Replaces the content of the index with the PENDING invoices currently in the database and
+     * starts maintaining it if it was not loaded yet.
+     * <p>
+     * Updates that happen during the rebuild are applied to the new buckets as well, so none is
+     * lost: an update reads {@code rebuild} before the buckets, so it either sees the rebuild, or
+     * its commit happened before the rebuild started streaming and is part of what is streamed.
+     * </p>
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            Rebuild current = new Rebuild();
+            rebuild = current;
+            try {
+                invoiceRepository.streamDueDates(Status.PENDING,
+                        (id, dueDate) -> apply(current.buckets, current.removed, id, dueDate, true));
+                buckets = current.buckets;
+                loaded = true;
+            } finally {
+                rebuild = null;
+            }
+            log.info("Loaded {} pending invoices into {} due-date buckets in {} ms",
+                    size(), bucketCount(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Adds or removes the id in the bucket of its due date. Both happen inside {@code compute}, so
+     * they are serialized per bucket with each other and with the check against {@code removed}.
+     *
+     * @param removed ids that stopped being pending during a rebuild, or {@code null} outside one;
+     *                a removal records the id, an addition of a recorded id is ignored
+     */
+    private static void apply(Map<LocalDate, Set<Long>> buckets, Set<Long> removed, long id, LocalDate dueDate,
+                              boolean pending) {
+        buckets.compute(dueDate, (date, ids) -> {
+            if (pending) {
+                if (removed != null && removed.contains(id)) {
+                    return ids;
+                }
+                Set<Long> bucket = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                bucket.add(id);
+                return bucket;
+            }
+            if (removed != null) {
+                removed.add(id);
+            }
+            if (ids == null) {
+                return null;
+            }
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static class Rebuild {
+        final Map<LocalDate, Set<Long>> buckets = new ConcurrentHashMap<>();
+        final Set<Long> removed = ConcurrentHashMap.newKeySet();
+    }
+}
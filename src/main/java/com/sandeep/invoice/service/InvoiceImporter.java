@@ -0,0 +1,519 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.changes.InvoiceChangeLog;
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.CreateInvoiceRequest;
+import com.sandeep.invoice.dto.InvoiceImportResponse;
+import com.sandeep.invoice.dto.RunStatus;
+import com.sandeep.invoice.exception.InvoiceConcurrencyException;
+import com.sandeep.invoice.exception.InvoiceDataException;
+import com.sandeep.invoice.exception.InvoiceImportFailedException;
+import com.sandeep.invoice.exception.InvoiceImportNotFoundException;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.InvoiceImport;
+import com.sandeep.invoice.repository.InvoiceImportRepository;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Imports invoices from CSV files as a persistent, resumable job.
+ * <p>
+ * The file is processed by three stages on virtual threads, connected by bounded queues of batches: parsing,
+ * validation with the constraints of {@link CreateInvoiceRequest}, and inserting. A slow stage therefore holds
+ * back the others instead of letting batches pile up in memory. Every batch commits its invoices together with
+ * the line of the file it ends on, under a lease on the {@code invoice_import} row, so a failed import can be
+ * resumed with the same file from the end of its last committed batch.
+ * </p>
+ * <p>
+ * Rows that cannot be parsed or are invalid are written with their line number and the reason to a rejects
+ * file, before the batch they belong to commits. A resumed import first drops the rejects after the last
+ * committed line, so the file ends up with every rejected row exactly once.
+ * </p>
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class InvoiceImporter {
+
+    static final String REJECTS_HEADER = "line,error,row";
+
+    private static final ParsedBatch END_OF_PARSED = new ParsedBatch(-1, List.of());
+    private static final ValidatedBatch END_OF_VALIDATED = new ValidatedBatch(-1, List.of(), List.of());
+
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceImportRepository invoiceImportRepository;
+    private final TransactionOperations transactionOperations;
+    private final InvoiceProperties properties;
+    private final DueDateIndex dueDateIndex;
+    private final InvoiceSummary invoiceSummary;
+    private final InvoiceTableVersion invoiceTableVersion;
+    private final InvoiceChangeLog changeLog;
+    private final Validator validator;
+
+    /**
+     * Creates an import and imports the file.
+     *
+     * @param input a CSV file whose header names the columns {@code amount} and {@code due_date}
+     * @return the state of the completed import
+     * @throws InvoiceDataException          if the header lacks one of the columns
+     * @throws InvoiceImportFailedException if the import stopped before the end of the file, in which case it
+     *                                       can be resumed
+     */
+    public InvoiceImportResponse startImport(InputStream input) {
+        BufferedReader reader = reader(input);
+        Columns columns = readHeader(reader);
+
+        String owner = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        InvoiceImport invoiceImport = invoiceImportRepository.save(InvoiceImport.builder()
+                .status(RunStatus.RUNNING)
+                .leaseOwner(owner)
+                .leaseExpiresAt(leaseExpiry(now))
+                .createdAt(now)
+                .build());
+        runImport(invoiceImport, owner, reader, columns);
+        return getImport(invoiceImport.getId());
+    }
+
+    /**
+     * Continues an unfinished import with the same file, skipping the lines that have been committed.
+     *
+     * @param importId the id of the import
+     * @param input    the file the import was started with
+     * @return the state of the completed import
+     * @throws InvoiceImportNotFoundException if no import exists with the specified {@code importId}
+     * @throws InvoiceConcurrencyException    if the import is still held by another request
+     * @throws InvoiceImportFailedException   if the import stopped again before the end of the file
+     */
+    public InvoiceImportResponse resumeImport(Long importId, InputStream input) {
+        if (findImport(importId).getStatus() == RunStatus.COMPLETED) {
+            return getImport(importId);
+        }
+        BufferedReader reader = reader(input);
+        Columns columns = readHeader(reader);
+
+        String owner = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        if (!invoiceImportRepository.claim(importId, owner, now, leaseExpiry(now))) {
+            throw new InvoiceConcurrencyException(String.format(
+                    "Import %d is in progress, it can be resumed once its lease expires", importId));
+        }
+        // Reload after claiming: the previous owner may have committed more batches.
+        runImport(findImport(importId), owner, reader, columns);
+        return getImport(importId);
+    }
+
+    /**
+     * Returns the progress of an import.
+     *
+     * @throws InvoiceImportNotFoundException if no import exists with the specified {@code importId}
+     */
+    public InvoiceImportResponse getImport(Long importId) {
+        InvoiceImport invoiceImport = findImport(importId);
+        LocalDateTime end = invoiceImport.getCompletedAt() == null
+                ? LocalDateTime.now()
+                : invoiceImport.getCompletedAt();
+        long elapsedMs = Duration.between(invoiceImport.getCreatedAt(), end).toMillis();
+        return InvoiceImportResponse.builder()
+                .importId(invoiceImport.getId())
+                .status(invoiceImport.getStatus())
+                .lastCommittedLine(invoiceImport.getLastCommittedLine())
+                .importedCount(invoiceImport.getImportedCount())
+                .rejectedCount(invoiceImport.getRejectedCount())
+                .batchCount(invoiceImport.getBatchCount())
+                .elapsedMs(elapsedMs)
+                .invoicesPerSecond(elapsedMs == 0 ? 0 : invoiceImport.getImportedCount() * 1000.0 / elapsedMs)
+                .build();
+    }
+
+    /**
+     * Returns the rejects file of an import, with the header {@value #REJECTS_HEADER}.
+     *
+     * @throws InvoiceImportNotFoundException if no import exists with the specified {@code importId}, or its
+     *                                        rejects were written by another instance
+     */
+    public Path getRejects(Long importId) {
+        findImport(importId);
+        Path rejects = rejectsPath(importId);
+        if (!Files.exists(rejects)) {
+            throw new InvoiceImportNotFoundException(
+                    String.format("The rejects of import %d are not on this instance", importId));
+        }
+        return rejects;
+    }
+
+    private InvoiceImport findImport(Long importId) {
+        return invoiceImportRepository.findById(importId)
+                .orElseThrow(() -> new InvoiceImportNotFoundException(
+                        String.format("No import found with id %s", importId)));
+    }
+
+    private void runImport(InvoiceImport invoiceImport, String owner, BufferedReader reader, Columns columns) {
+        Long importId = invoiceImport.getId();
+        Throwable failure;
+        try (BufferedWriter rejects = openRejects(importId, invoiceImport.getLastCommittedLine())) {
+            failure = runStages(invoiceImport, owner, reader, columns, rejects);
+        } catch (IOException e) {
+            failure = e;
+        }
+        if (failure != null) {
+            throw failed(importId, owner, failure);
+        }
+        invoiceImportRepository.complete(importId, owner, LocalDateTime.now());
+    }
+
+    /**
+     * Runs the parse, validate and insert stages until the end of the file or the first failure.
+     *
+     * @return the failure of the first stage that failed, or {@code null}
+     */
+    private Throwable runStages(InvoiceImport invoiceImport, String owner, BufferedReader reader, Columns columns,
+                                BufferedWriter rejects) {
+        int capacity = properties.getImports().getQueueCapacity();
+        BlockingQueue<ParsedBatch> parsed = new ArrayBlockingQueue<>(capacity);
+        BlockingQueue<ValidatedBatch> validated = new ArrayBlockingQueue<>(capacity);
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            CompletionService<Void> stages = new ExecutorCompletionService<>(executor);
+            stages.submit(() -> parse(reader, columns, invoiceImport.getLastCommittedLine(), parsed));
+            stages.submit(() -> validate(parsed, validated));
+            stages.submit(() -> insert(invoiceImport.getId(), owner, validated, rejects));
+            for (int i = 0; i < 3; i++) {
+                stages.take().get();
+            }
+            return null;
+        } catch (ExecutionException e) {
+            // Stops the stages still blocked on a queue of the one that failed.
+            executor.shutdownNow();
+            return e.getCause();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            return e;
+        } finally {
+            executor.close();
+        }
+    }
+
+    private InvoiceImportFailedException failed(Long importId, String owner, Throwable cause) {
+        invoiceImportRepository.release(importId, owner);
+        long lastCommittedLine = findImport(importId).getLastCommittedLine();
+        log.error("Import {} failed after line {}, it can be resumed", importId, lastCommittedLine, cause);
+        return new InvoiceImportFailedException(String.format(
+                "Import %d failed after line %d: %s. Resume it by posting the same file to /invoices/imports/%d/resume",
+                importId, lastCommittedLine, cause.getMessage(), importId), cause);
+    }
+
+    /**
+     * Reads the lines after {@code skipLines} into batches of rows, parsing the fields of each row.
+     */
+    private Void parse(BufferedReader reader, Columns columns, long skipLines, BlockingQueue<ParsedBatch> parsed)
+            throws IOException, InterruptedException {
+        int batchSize = properties.getImports().getBatchSize();
+        // The header is line 1.
+        long lineNo = 1;
+        List<Row> rows = new ArrayList<>(batchSize);
+        int batchLines = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNo++;
+            if (lineNo <= skipLines) {
+                continue;
+            }
+            if (!line.isBlank()) {
+                rows.add(parseRow(lineNo, line, columns));
+            }
+            if (++batchLines == batchSize) {
+                parsed.put(new ParsedBatch(lineNo, rows));
+                rows = new ArrayList<>(batchSize);
+                batchLines = 0;
+            }
+        }
+        if (batchLines > 0) {
+            parsed.put(new ParsedBatch(lineNo, rows));
+        }
+        parsed.put(END_OF_PARSED);
+        return null;
+    }
+
+    static Row parseRow(long lineNo, String line, Columns columns) {
+        List<String> fields = splitCsv(line);
+        if (fields == null) {
+            return Row.rejected(lineNo, line, "unterminated quoted field");
+        }
+        if (fields.size() <= Math.max(columns.getAmount(), columns.getDueDate())) {
+            return Row.rejected(lineNo, line, String.format("expected %d fields, found %d",
+                    columns.getCount(), fields.size()));
+        }
+
+        String amount = fields.get(columns.getAmount()).trim();
+        String dueDate = fields.get(columns.getDueDate()).trim();
+        CreateInvoiceRequest.CreateInvoiceRequestBuilder request = CreateInvoiceRequest.builder();
+        try {
+            request.amount(amount.isEmpty() ? null : new BigDecimal(amount));
+        } catch (NumberFormatException e) {
+            return Row.rejected(lineNo, line, "amount: not a number");
+        }
+        try {
+            request.dueDate(dueDate.isEmpty() ? null : LocalDate.parse(dueDate));
+        } catch (DateTimeParseException e) {
+            return Row.rejected(lineNo, line, "due_date: not a date in the format yyyy-MM-dd");
+        }
+        return new Row(lineNo, line, request.build(), null);
+    }
+
+    /**
+     * Checks the parsed rows against the constraints of {@link CreateInvoiceRequest}, separating the new invoices
+     * from the rejected rows.
+     */
+    private Void validate(BlockingQueue<ParsedBatch> parsed, BlockingQueue<ValidatedBatch> validated)
+            throws InterruptedException {
+        for (ParsedBatch batch = parsed.take(); batch != END_OF_PARSED; batch = parsed.take()) {
+            List<Invoice> invoices = new ArrayList<>(batch.getRows().size());
+            List<Row> rejected = new ArrayList<>();
+            for (Row row : batch.getRows()) {
+                String error = row.getError() != null ? row.getError() : validate(row.getRequest());
+                if (error != null) {
+                    rejected.add(row.getError() != null ? row : Row.rejected(row.getLine(), row.getText(), error));
+                } else {
+                    invoices.add(InvoiceServiceImpl.buildNewInvoice(row.getRequest()));
+                }
+            }
+            validated.put(new ValidatedBatch(batch.getLastLine(), invoices, rejected));
+        }
+        validated.put(END_OF_VALIDATED);
+        return null;
+    }
+
+    /**
+     * Returns the violated constraints in the format of validation errors of the API, or {@code null}.
+     */
+    private String validate(CreateInvoiceRequest request) {
+        var violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> String.format("%s: %s", fieldName(violation), violation.getMessage()))
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String fieldName(ConstraintViolation<CreateInvoiceRequest> violation) {
+        String property = violation.getPropertyPath().toString();
+        return "dueDate".equals(property) ? "due_date" : property;
+    }
+
+    /**
+     * Writes the rejects of each batch, then commits its invoices together with the progress of the import.
+     */
+    private Void insert(Long importId, String owner, BlockingQueue<ValidatedBatch> validated, BufferedWriter rejects)
+            throws IOException, InterruptedException {
+        while (true) {
+            ValidatedBatch batch = validated.take();
+            if (batch == END_OF_VALIDATED) {
+                return null;
+            }
+            writeRejects(rejects, batch.getRejects());
+            List<Invoice> invoices = batch.getInvoices();
+            transactionOperations.executeWithoutResult(status -> {
+                if (!invoices.isEmpty()) {
+                    invoiceRepository.batchInsert(invoices);
+                    changeLog.appendCreated(invoices);
+                }
+                if (!invoiceImportRepository.recordProgress(importId, owner, batch.getLastLine(), invoices.size(),
+                        batch.getRejects().size(), leaseExpiry(LocalDateTime.now()))) {
+                    throw new InvoiceConcurrencyException(String.format(
+                            "The lease on import %d was lost to another request", importId));
+                }
+            });
+            // Only after the commit, so readers never see a state that could still be rolled back.
+            dueDateIndex.updateAll(invoices);
+            invoiceSummary.created(invoices);
+            invoiceTableVersion.changed();
+        }
+    }
+
+    private LocalDateTime leaseExpiry(LocalDateTime now) {
+        return now.plus(properties.getImports().getLeaseDuration());
+    }
+
+    private static BufferedReader reader(InputStream input) {
+        return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private static Columns readHeader(BufferedReader reader) {
+        String header;
+        try {
+            header = reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (header == null) {
+            throw new InvoiceDataException(
+                    "The file is empty, expected a header naming the columns amount and due_date");
+        }
+
+        List<String> names = splitCsv(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        int amount = -1;
+        int dueDate = -1;
+        for (int i = 0; names != null && i < names.size(); i++) {
+            String name = names.get(i).trim().toLowerCase(Locale.ROOT);
+            if (name.equals("amount")) {
+                amount = i;
+            } else if (name.equals("due_date")) {
+                dueDate = i;
+            }
+        }
+        if (amount < 0 || dueDate < 0) {
+            throw new InvoiceDataException("The header of the file must name the columns amount and due_date");
+        }
+        return new Columns(amount, dueDate, names.size());
+    }
+
+    /**
+     * Splits a CSV line into its fields. Fields may be quoted, with quotes inside doubled.
+     *
+     * @return the fields, or {@code null} if a quoted field is not terminated
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private Path rejectsPath(Long importId) {
+        return properties.getImports().getRejectsDir().resolve("import-" + importId + "-rejects.csv");
+    }
+
+    /**
+     * Opens the rejects file for appending, after dropping the rows of batches that did not commit.
+     */
+    private BufferedWriter openRejects(Long importId, long lastCommittedLine) throws IOException {
+        Path path = rejectsPath(importId);
+        Files.createDirectories(path.getParent());
+        List<String> kept = new ArrayList<>();
+        kept.add(REJECTS_HEADER);
+        if (Files.exists(path)) {
+            try (var lines = Files.lines(path, StandardCharsets.UTF_8)) {
+                lines.skip(1)
+                        .filter(line -> Long.parseLong(line.substring(0, line.indexOf(','))) <= lastCommittedLine)
+                        .forEach(kept::add);
+            }
+        }
+        Files.write(path, kept, StandardCharsets.UTF_8);
+        return Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    private static void writeRejects(BufferedWriter writer, List<Row> rejects) throws IOException {
+        for (Row row : rejects) {
+            writer.write(Long.toString(row.getLine()));
+            writer.write(',');
+            writer.write(quote(row.getError()));
+            writer.write(',');
+            writer.write(quote(row.getText()));
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    private static String quote(String field) {
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    @Value
+    static class Columns {
+        int amount;
+        int dueDate;
+        int count;
+    }
+
+    /**
+     * A non-blank line of the file, parsed into a request unless it could not be, in which case it has an error.
+     */
+    @Value
+    static class Row {
+        long line;
+        String text;
+        CreateInvoiceRequest request;
+        String error;
+
+        static Row rejected(long line, String text, String error) {
+            return new Row(line, text, null, error);
+        }
+    }
+
+    @Value
+    private static class ParsedBatch {
+        long lastLine;
+        List<Row> rows;
+    }
+
+    @Value
+    private static class ValidatedBatch {
+        long lastLine;
+        List<Invoice> invoices;
+        List<Row> rejects;
+    }
+}
@@ -1,17 +1,51 @@
 package com.sandeep.invoice.service;
 
+import com.sandeep.invoice.dto.BatchCreateInvoiceResponse;
+import com.sandeep.invoice.dto.BatchPaymentItem;
+import com.sandeep.invoice.dto.BatchPaymentResponse;
 import com.sandeep.invoice.dto.CreateInvoiceRequest;
 import com.sandeep.invoice.dto.CreateInvoiceResponse;
+import com.sandeep.invoice.dto.DueDateIndexResponse;
+import com.sandeep.invoice.dto.ExportFormat;
+import com.sandeep.invoice.dto.InvoiceChangesResponse;
+import com.sandeep.invoice.dto.InvoiceImportResponse;
+import com.sandeep.invoice.dto.InvoiceQuery;
 import com.sandeep.invoice.dto.InvoiceResponse;
+import com.sandeep.invoice.dto.InvoiceSummaryResponse;
+import com.sandeep.invoice.dto.PaymentResponse;
 import com.sandeep.invoice.dto.ProcessOverdueRequest;
+import com.sandeep.invoice.dto.ProcessOverdueResponse;
 import jakarta.validation.constraints.NotNull;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface InvoiceService {
     CreateInvoiceResponse createInvoice(@NotNull CreateInvoiceRequest createInvoiceRequest);
-    List<InvoiceResponse> getInvoices();
+    CreateInvoiceResponse createInvoice(@NotNull CreateInvoiceRequest createInvoiceRequest, String idempotencyKey);
+    BatchCreateInvoiceResponse createInvoices(@NotNull List<CreateInvoiceRequest> createInvoiceRequests);
+    InvoiceImportResponse importInvoices(@NotNull InputStream csv);
+    InvoiceImportResponse resumeImport(@NotNull Long importId, @NotNull InputStream csv);
+    InvoiceImportResponse getImport(@NotNull Long importId);
+    Path getImportRejects(@NotNull Long importId);
+    InvoiceResponse getInvoice(@NotNull Long invoiceId);
+    List<InvoiceResponse> getInvoices(@NotNull InvoiceQuery query);
+    void streamInvoices(@NotNull InvoiceQuery query, @NotNull Consumer<InvoiceResponse> consumer);
+    long exportInvoices(@NotNull InvoiceQuery query, @NotNull ExportFormat format, @NotNull WritableByteChannel channel);
+    String getInvoicesETag();
+    InvoiceSummaryResponse getSummary();
+    List<PaymentResponse> getPayments(@NotNull Long invoiceId);
     InvoiceResponse payInvoice(@NotNull Long invoiceId, @NotNull BigDecimal amount);
-    void processOverdue(@NotNull ProcessOverdueRequest processOverdueRequest);
+    InvoiceResponse payInvoice(@NotNull Long invoiceId, @NotNull BigDecimal amount, String idempotencyKey);
+    BatchPaymentResponse payInvoices(@NotNull List<BatchPaymentItem> payments);
+    ProcessOverdueResponse processOverdue(@NotNull ProcessOverdueRequest processOverdueRequest);
+    ProcessOverdueResponse getOverdueRun(@NotNull Long runId);
+    ProcessOverdueResponse resumeOverdueRun(@NotNull Long runId);
+    DueDateIndexResponse rebuildDueDateIndex();
+    InvoiceChangesResponse getChanges(long since, int limit, @NotNull Duration wait);
 }
@@ -1,58 +1,362 @@
 package com.sandeep.invoice.service;
 
+import com.sandeep.invoice.cache.InvoiceCache;
+import com.sandeep.invoice.changes.InvoiceChangeFeed;
+import com.sandeep.invoice.changes.InvoiceChangeLog;
+import com.sandeep.invoice.config.InvoiceProperties;
 import com.sandeep.invoice.dto.*;
+import com.sandeep.invoice.exception.IdempotencyKeyReusedException;
+import com.sandeep.invoice.exception.InvoiceConcurrencyException;
+import com.sandeep.invoice.exception.InvoiceDataException;
 import com.sandeep.invoice.exception.InvoiceNotFoundException;
 import com.sandeep.invoice.exception.InvoicePaymentDataException;
+import com.sandeep.invoice.export.InvoiceExportWriter;
+import com.sandeep.invoice.idempotency.IdempotencyStore;
+import com.sandeep.invoice.idempotency.IdempotentRequest;
+import com.sandeep.invoice.metrics.InvoiceMetrics;
+import com.sandeep.invoice.metrics.InvoiceMetrics.Operation;
+import com.sandeep.invoice.metrics.InvoiceMetrics.PaymentOutcome;
 import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.InvoiceChange;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.model.Payment;
 import com.sandeep.invoice.repository.InvoiceRepository;
+import com.sandeep.invoice.repository.PaymentRepository;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
+@Profile("!reactive")
 @RequiredArgsConstructor
 public class InvoiceServiceImpl implements InvoiceService {
 
-    private static final String PAYMENT_FAILURE_MESSAGE_PREFIX = "Payment failed: ";
+    static final String PAYMENT_FAILURE_MESSAGE_PREFIX = "Payment failed: ";
 
     private final InvoiceRepository invoiceRepository;
+    private final OverdueProcessor overdueProcessor;
+    private final InvoiceImporter invoiceImporter;
+    private final TransactionOperations transactionOperations;
+    private final InvoiceProperties properties;
+    private final InvoiceMetrics metrics;
+    private final InvoiceCache invoiceCache;
+    private final DueDateIndex dueDateIndex;
+    private final InvoiceSummary invoiceSummary;
+    private final InvoiceTableVersion invoiceTableVersion;
+    private final IdempotencyStore idempotencyStore;
+    private final PaymentRepository paymentRepository;
+    private final PaymentCombiner paymentCombiner;
+    private final InvoiceChangeLog changeLog;
+    private final InvoiceChangeFeed changeFeed;
 
     @Override
     public CreateInvoiceResponse createInvoice(@NotNull CreateInvoiceRequest createInvoiceRequest) {
-        Invoice invoice = Invoice.builder()
-                .amount(createInvoiceRequest.getAmount())
-                .paidAmount(BigDecimal.ZERO)
-                .dueDate(createInvoiceRequest.getDueDate())
-                .status(Status.PENDING)
-                .build();
+        return createInvoice(createInvoiceRequest, null);
+    }
+
+    /**
+     * Creates an invoice, at most once per idempotency key.
+     * <p>
+     * With a key, the invoice and the response are committed together, and a request repeating the
+     * key gets the stored response back without creating another invoice. Reusing a key for a
+     * different invoice fails.
+     * </p>
+     *
+     * @param createInvoiceRequest the invoice to create
+     * @param idempotencyKey       the client's {@code Idempotency-Key}, or {@code null}
+     * @return the id of the created invoice
+     * @throws IdempotencyKeyReusedException if the key was used for a different request
+     * @throws InvoiceConcurrencyException   if a request with the same key is still in progress
+     */
+    @Override
+    public CreateInvoiceResponse createInvoice(CreateInvoiceRequest createInvoiceRequest, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            Invoice invoice = metrics.time(Operation.CREATE, () -> transactionOperations.execute(status -> {
+                Invoice saved = invoiceRepository.save(buildNewInvoice(createInvoiceRequest));
+                changeLog.appendCreated(List.of(saved));
+                return saved;
+            }));
+            invoiceCache.put(invoice);
+            dueDateIndex.update(invoice);
+            invoiceSummary.created(List.of(invoice));
+            invoiceTableVersion.changed();
+            return buildCreateInvoiceResponse(invoice);
+        }
+
+        IdempotentRequest request = new IdempotentRequest(idempotencyKey, String.format("POST /invoices %s %s",
+                Money.of(createInvoiceRequest.getAmount()), createInvoiceRequest.getDueDate()));
+        Optional<CreateInvoiceResponse> stored = idempotencyStore.findCached(request, CreateInvoiceResponse.class);
+        if (stored.isPresent()) {
+            metrics.recordIdempotentReplay(Operation.CREATE);
+            return stored.get();
+        }
+
+        Invoice invoice;
+        try {
+            invoice = metrics.time(Operation.CREATE, () -> transactionOperations.execute(status -> {
+                Invoice saved = invoiceRepository.save(buildNewInvoice(createInvoiceRequest));
+                changeLog.appendCreated(List.of(saved));
+                idempotencyStore.save(request, buildCreateInvoiceResponse(saved));
+                return saved;
+            }));
+        } catch (DuplicateKeyException | ConcurrencyFailureException e) {
+            return replay(request, CreateInvoiceResponse.class, Operation.CREATE, e);
+        }
+        invoiceCache.put(invoice);
+        dueDateIndex.update(invoice);
+        invoiceSummary.created(List.of(invoice));
+        invoiceTableVersion.changed();
 
-        invoice = invoiceRepository.save(invoice);
+        CreateInvoiceResponse response = buildCreateInvoiceResponse(invoice);
+        idempotencyStore.remember(request, response);
+        return response;
+    }
 
+    private static CreateInvoiceResponse buildCreateInvoiceResponse(Invoice invoice) {
         return CreateInvoiceResponse.builder()
                 .id(String.valueOf(invoice.getId()))
                 .build();
     }
 
+    /**
+     * Returns the stored response of the earlier request with the same key after this one failed,
+     * because the earlier request took effect first.
+     *
+     * @throws InvoiceConcurrencyException if no response is stored yet although the key is taken,
+     *                                     because the earlier request has not committed yet
+     */
+    private <T> T replay(IdempotentRequest request, Class<T> type, Operation operation, RuntimeException failure) {
+        Optional<T> stored = idempotencyStore.find(request, type);
+        if (stored.isPresent()) {
+            metrics.recordIdempotentReplay(operation);
+            return stored.get();
+        }
+        if (failure instanceof DataAccessException) {
+            throw new InvoiceConcurrencyException(String.format(
+                    "A request with Idempotency-Key %s is still in progress, please retry", request.getKey()));
+        }
+        throw failure;
+    }
+
+    /**
+     * Creates a batch of invoices in one transaction.
+     * <p>
+     * Ids are taken from blocks pre-allocated from the invoice id sequence, so the rows are written
+     * with a single JDBC batch of inserts instead of one round trip per invoice to learn its
+     * generated id.
+     * </p>
+     *
+     * @param createInvoiceRequests the invoices to create
+     * @return the ids of the created invoices, in request order
+     */
     @Override
-    public List<InvoiceResponse> getInvoices() {
-        List<InvoiceResponse> responseList = new ArrayList<>();
-        invoiceRepository.findAll().forEach(invoice ->
-                responseList.add(buildInvoiceResponse(invoice)));
-        return responseList;
+    public BatchCreateInvoiceResponse createInvoices(List<CreateInvoiceRequest> createInvoiceRequests) {
+        List<Invoice> invoices = createInvoiceRequests.stream()
+                .map(InvoiceServiceImpl::buildNewInvoice)
+                .toList();
+
+        metrics.time(Operation.CREATE_BATCH, () ->
+                transactionOperations.executeWithoutResult(status -> {
+                    invoiceRepository.batchInsert(invoices);
+                    changeLog.appendCreated(invoices);
+                }));
+        dueDateIndex.updateAll(invoices);
+        invoiceSummary.created(invoices);
+        invoiceTableVersion.changed();
+
+        return BatchCreateInvoiceResponse.builder()
+                .ids(invoices.stream()
+                        .map(invoice -> String.valueOf(invoice.getId()))
+                        .toList())
+                .build();
+    }
+
+    /**
+     * Imports invoices from a CSV file with the columns {@code amount} and {@code due_date}, validated like
+     * {@link CreateInvoiceRequest}. Invalid rows are written to the rejects file of the import instead.
+     * <p>
+     * The file is parsed, validated and inserted by concurrent stages and committed in batches, see
+     * {@link InvoiceImporter}. If the import fails, it can be resumed from its last committed batch with
+     * {@link #resumeImport}.
+     * </p>
+     *
+     * @param csv the file
+     * @return the state of the completed import
+     */
+    @Override
+    public InvoiceImportResponse importInvoices(InputStream csv) {
+        return metrics.time(Operation.IMPORT, () -> invoiceImporter.startImport(csv));
+    }
+
+    @Override
+    public InvoiceImportResponse resumeImport(Long importId, InputStream csv) {
+        return metrics.time(Operation.RESUME_IMPORT, () -> invoiceImporter.resumeImport(importId, csv));
+    }
+
+    @Override
+    public InvoiceImportResponse getImport(Long importId) {
+        return invoiceImporter.getImport(importId);
+    }
+
+    @Override
+    public Path getImportRejects(Long importId) {
+        return invoiceImporter.getRejects(importId);
+    }
+
+    static Invoice buildNewInvoice(CreateInvoiceRequest createInvoiceRequest) {
+        return Invoice.builder()
+                .amount(Money.of(createInvoiceRequest.getAmount()))
+                .paidAmount(Money.ZERO)
+                .dueDate(createInvoiceRequest.getDueDate())
+                .status(Status.PENDING)
+                .build();
+    }
+
+    /**
+     * Returns one page of invoices matching the query, ordered by id.
+     * <p>
+     * Pagination is keyset based: the next page is requested with {@code afterId} set to the id of
+     * the last invoice of the current page, so every page is an index range scan on the primary key.
+     * </p>
+     *
+     * @param query the filters, cursor and page size
+     * @return the invoices of the requested page
+     */
+    @Override
+    public List<InvoiceResponse> getInvoices(InvoiceQuery query) {
+        return metrics.time(Operation.LIST, () -> invoiceRepository.findPage(query).stream()
+                .map(InvoiceServiceImpl::buildInvoiceResponse)
+                .toList());
+    }
+
+    /**
+     * Returns the entity tag of the invoice list, which changes whenever an invoice is written. It is read
+     * from memory, see {@link InvoiceTableVersion}, and must be read before the invoices it tags.
+     *
+     * @return a strong entity tag, quoted
+     */
+    @Override
+    public String getInvoicesETag() {
+        return invoiceTableVersion.etag();
+    }
+
+    /**
+     * Returns a single invoice, served from the invoice cache when possible.
+     *
+     * @param invoiceId the ID of the invoice
+     * @return the invoice
+     * @throws InvoiceNotFoundException if no invoice is found with the specified {@code invoiceId}
+     */
+    @Override
+    public InvoiceResponse getInvoice(Long invoiceId) {
+        return metrics.time(Operation.GET, () -> invoiceCache.get(invoiceId, invoiceRepository::findById)
+                .map(InvoiceServiceImpl::buildInvoiceResponse)
+                .orElseThrow(() -> new InvoiceNotFoundException(
+                        String.format("No invoice found with id %s", invoiceId))));
+    }
+
+    @Override
+    public void streamInvoices(InvoiceQuery query, Consumer<InvoiceResponse> consumer) {
+        metrics.time(Operation.STREAM, () ->
+                invoiceRepository.streamAll(query, invoice -> consumer.accept(buildInvoiceResponse(invoice))));
+    }
+
+    /**
+     * Writes every invoice matching the query to the channel in the given format, ordered by id. Rows go
+     * from the database cursor straight into the buffer of the export writer, so memory use is constant
+     * whatever the number of invoices.
+     *
+     * @param query the filters of the export
+     * @param format the file format
+     * @param channel the channel to write to, which is left open
+     * @return the number of invoices written
+     */
+    @Override
+    public long exportInvoices(InvoiceQuery query, ExportFormat format, WritableByteChannel channel) {
+        return metrics.time(Operation.EXPORT, () -> {
+            InvoiceExportWriter writer = InvoiceExportWriter.create(format, channel);
+            invoiceRepository.exportAll(query, writer);
+            try {
+                writer.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return writer.rowCount();
+        });
+    }
+
+    /**
+     * Returns the totals of the invoices per status, the outstanding balance and the overdue balance by
+     * days past due, from the in-memory aggregates of {@link InvoiceSummary}. No query is run: the
+     * aggregates are maintained by every write and reconciled with the database periodically.
+     *
+     * @return the summary as of now
+     */
+    @Override
+    public InvoiceSummaryResponse getSummary() {
+        return metrics.time(Operation.SUMMARY, () -> invoiceSummary.summarize(LocalDate.now()));
+    }
+
+    /**
+     * Returns the payments made towards an invoice from the payment ledger, oldest first.
+     *
+     * @param invoiceId the ID of the invoice
+     * @return the payments of the invoice, empty if it has not been paid yet
+     * @throws InvoiceNotFoundException if no invoice is found with the specified {@code invoiceId}
+     */
+    @Override
+    public List<PaymentResponse> getPayments(Long invoiceId) {
+        return metrics.time(Operation.LIST_PAYMENTS, () -> {
+            List<Payment> payments = paymentRepository.findByInvoiceIdOrderById(invoiceId);
+            if (payments.isEmpty() && invoiceCache.get(invoiceId, invoiceRepository::findById).isEmpty()) {
+                throw new InvoiceNotFoundException(String.format("No invoice found with id %s", invoiceId));
+            }
+            return payments.stream()
+                    .map(InvoiceServiceImpl::buildPaymentResponse)
+                    .toList();
+        });
     }
 
     /**
      * Processes a payment for a specified invoice.
      * <p>
      * This method allows payment to be made on an invoice if it has a PENDING status.
-     * The payment amount is added to the current paid amount. If the total paid amount
-     * equals the invoice amount, the invoice status is updated to PAID. The updated
-     * invoice is saved in the repository.
+     * The payment is appended to the payment ledger and added to the current paid amount. If the
+     * total paid amount equals the invoice amount, the invoice status is updated to PAID. The ledger
+     * entry and the updated invoice are saved in the same transaction.
+     * </p>
+     * <p>
+     * The invoice is read through the invoice cache and updated only if it has not been modified
+     * since it was read (optimistic locking on the {@code version} column), so a stale cached copy can
+     * never overwrite a newer payment. On a conflict the cached copy is dropped and the payment is
+     * re-validated against the fresh invoice and retried, with a randomized exponential backoff, up to
+     * {@code invoice.payment.max-attempts} times.
+     * </p>
+     * <p>
+     * With {@code invoice.payment.combine} enabled, the payment is instead applied together with the
+     * payments made concurrently, through the {@link PaymentCombiner}, like a batch from
+     * {@link #payInvoices(List)}.
      * </p>
      * <p>
      * The method performs the following validations:
@@ -69,85 +373,414 @@ public class InvoiceServiceImpl implements InvoiceService {
      * @throws InvoiceNotFoundException if no invoice is found with the specified {@code invoiceId}
      * @throws InvoicePaymentDataException if the invoice is not in a PENDING status or if the payment
      *                                     amount exceeds the remaining balance
+     * @throws InvoiceConcurrencyException if the invoice kept being modified concurrently on every attempt
      */
     @Override
     public InvoiceResponse payInvoice(Long invoiceId, BigDecimal amount) {
-        Invoice invoice = invoiceRepository.findById(invoiceId)
-                .orElseThrow(() -> new InvoiceNotFoundException(String.format(
-                        "%s No invoice found with id %s", PAYMENT_FAILURE_MESSAGE_PREFIX, invoiceId)));
+        return payInvoice(invoiceId, amount, null);
+    }
+
+    /**
+     * Processes a payment like {@link #payInvoice(Long, BigDecimal)}, at most once per idempotency key.
+     * <p>
+     * With a key, the payment and the response are committed together, and a request repeating the
+     * key gets the stored response back without touching the invoice, even if the invoice has been
+     * paid in full by then. Reusing a key for a different payment fails.
+     * </p>
+     *
+     * @param invoiceId      the ID of the invoice to be paid
+     * @param amount         the amount to be paid towards the invoice
+     * @param idempotencyKey the client's {@code Idempotency-Key}, or {@code null}
+     * @return an {@link InvoiceResponse} object containing details of the updated invoice
+     * @throws IdempotencyKeyReusedException if the key was used for a different request
+     * @throws InvoiceConcurrencyException   if a request with the same key is still in progress, or the
+     *                                       invoice kept being modified concurrently on every attempt
+     */
+    @Override
+    public InvoiceResponse payInvoice(Long invoiceId, BigDecimal amount, String idempotencyKey) {
+        IdempotentRequest request = idempotencyKey == null ? null : new IdempotentRequest(idempotencyKey,
+                String.format("POST /invoices/%s/payments %s", invoiceId, Money.of(amount)));
+        return metrics.time(Operation.PAY, () -> {
+            try {
+                InvoiceResponse response;
+                if (request != null) {
+                    response = payIdempotently(invoiceId, Money.of(amount), request);
+                } else if (properties.getPayment().isCombine()) {
+                    response = payCombined(invoiceId, amount);
+                } else {
+                    response = payWithRetries(invoiceId, Money.of(amount), null);
+                }
+                metrics.recordPayment(PaymentOutcome.SUCCESS);
+                return response;
+            } catch (InvoiceNotFoundException e) {
+                metrics.recordPayment(PaymentOutcome.NOT_FOUND);
+                throw e;
+            } catch (InvoicePaymentDataException e) {
+                metrics.recordPayment(PaymentOutcome.INVALID);
+                throw e;
+            } catch (InvoiceConcurrencyException e) {
+                metrics.recordPayment(PaymentOutcome.CONFLICT);
+                throw e;
+            }
+        });
+    }
+
+    private InvoiceResponse payIdempotently(Long invoiceId, Money amount, IdempotentRequest request) {
+        Optional<InvoiceResponse> stored = idempotencyStore.findCached(request, InvoiceResponse.class);
+        if (stored.isPresent()) {
+            metrics.recordIdempotentReplay(Operation.PAY);
+            return stored.get();
+        }
+
+        try {
+            InvoiceResponse response = payWithRetries(invoiceId, amount, request);
+            idempotencyStore.remember(request, response);
+            return response;
+        } catch (InvoiceDataException | InvoiceConcurrencyException | DuplicateKeyException
+                 | ConcurrencyFailureException e) {
+            // A retry of a payment that took effect may fail validation against the updated invoice.
+            return replay(request, InvoiceResponse.class, Operation.PAY, e);
+        }
+    }
+
+    private InvoiceResponse payCombined(Long invoiceId, BigDecimal amount) {
+        BatchPaymentItem payment = new BatchPaymentItem();
+        payment.setInvoiceId(invoiceId);
+        payment.setAmount(amount);
+
+        AppliedPayment applied = paymentCombiner.apply(payment, this::applyPayments);
+        return switch (applied.getOutcome()) {
+            case SUCCESS -> applied.getInvoice();
+            case NOT_FOUND -> throw new InvoiceNotFoundException(applied.getError());
+            case INVALID -> throw new InvoicePaymentDataException(applied.getError());
+            case CONFLICT -> throw new InvoiceConcurrencyException(applied.getError());
+        };
+    }
+
+    /**
+     * @param request the idempotent request to store the response of, in the transaction of the
+     *                update, or {@code null}
+     */
+    private InvoiceResponse payWithRetries(Long invoiceId, Money amount, IdempotentRequest request) {
+        int maxAttempts = properties.getPayment().getMaxAttempts();
+        for (int attempt = 1; ; attempt++) {
+            Invoice invoice = invoiceCache.get(invoiceId, invoiceRepository::findById)
+                    .orElseThrow(() -> new InvoiceNotFoundException(String.format(
+                            "%s No invoice found with id %s", PAYMENT_FAILURE_MESSAGE_PREFIX, invoiceId)));
+
+            applyPayment(invoice, amount);
+
+            if (updatePayment(invoice, amount, request)) {
+                invoiceCache.put(invoice);
+                dueDateIndex.update(invoice);
+                invoiceSummary.paid(invoice, amount);
+                invoiceTableVersion.changed();
+                return buildInvoiceResponse(invoice);
+            }
+            invoiceCache.invalidate(invoiceId);
+
+            if (attempt >= maxAttempts) {
+                throw new InvoiceConcurrencyException(String.format(
+                        "%s Invoice id %s was modified concurrently, please retry",
+                        PAYMENT_FAILURE_MESSAGE_PREFIX, invoiceId));
+            }
+            backOff(attempt);
+        }
+    }
+
+    private boolean updatePayment(Invoice invoice, Money amount, IdempotentRequest request) {
+        return transactionOperations.execute(status -> {
+            if (!invoiceRepository.updatePaymentIfVersionMatches(invoice)) {
+                return false;
+            }
+            paymentRepository.save(buildPayment(invoice.getId(), amount));
+            changeLog.appendUpdated(List.of(invoice));
+            if (request != null) {
+                idempotencyStore.save(request, buildInvoiceResponse(invoice));
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Applies a batch of payments, each validated like {@link #payInvoice(Long, BigDecimal)}.
+     * <p>
+     * The target invoices missing from the invoice cache are loaded with a single {@code IN} query,
+     * the payments are applied in memory in request order (so several payments for the same invoice
+     * see each other's effect) and the modified invoices are written with one JDBC batch of
+     * version-checked updates. Invoices that were modified concurrently are reloaded and their
+     * payments re-applied, up to {@code invoice.payment.max-attempts} times. The successful payments
+     * of the invoices that were written are appended to the payment ledger with one JDBC batch in the
+     * same transaction.
+     * </p>
+     *
+     * @param payments the payments to apply, in order
+     * @return one result per payment, in request order, with either the updated invoice or the error
+     */
+    @Override
+    public BatchPaymentResponse payInvoices(List<BatchPaymentItem> payments) {
+        return metrics.time(Operation.PAY_BATCH, () -> {
+            List<AppliedPayment> applied = applyPayments(payments);
+
+            List<BatchPaymentResult> results = new ArrayList<>(applied.size());
+            for (int i = 0; i < applied.size(); i++) {
+                metrics.recordPayment(applied.get(i).getOutcome());
+                results.add(BatchPaymentResult.builder()
+                        .invoiceId(String.valueOf(payments.get(i).getInvoiceId()))
+                        .success(applied.get(i).getOutcome() == PaymentOutcome.SUCCESS)
+                        .invoice(applied.get(i).getInvoice())
+                        .error(applied.get(i).getError())
+                        .build());
+            }
+
+            int succeeded = (int) results.stream().filter(BatchPaymentResult::isSuccess).count();
+            return BatchPaymentResponse.builder()
+                    .succeededCount(succeeded)
+                    .failedCount(results.size() - succeeded)
+                    .results(results)
+                    .build();
+        });
+    }
+
+    /**
+     * Applies the payments as described for {@link #payInvoices(List)}, without recording metrics.
+     *
+     * @return one result per payment, in order
+     */
+    private List<AppliedPayment> applyPayments(List<BatchPaymentItem> payments) {
+        AppliedPayment[] results = new AppliedPayment[payments.size()];
+        Set<Long> pendingIds = payments.stream()
+                .map(BatchPaymentItem::getInvoiceId)
+                .collect(Collectors.toSet());
 
+        for (int attempt = 1; !pendingIds.isEmpty(); attempt++) {
+            Map<Long, Invoice> invoices = invoiceCache.getAll(pendingIds, invoiceRepository::findAllById);
+
+            Map<Long, Invoice> modified = new LinkedHashMap<>();
+            Map<Long, Money> paidAmounts = new HashMap<>();
+            List<Payment> ledgerEntries = new ArrayList<>();
+            for (int i = 0; i < payments.size(); i++) {
+                BatchPaymentItem payment = payments.get(i);
+                if (!pendingIds.contains(payment.getInvoiceId())) {
+                    continue;
+                }
+
+                Invoice invoice = invoices.get(payment.getInvoiceId());
+                if (invoice == null) {
+                    results[i] = new AppliedPayment(PaymentOutcome.NOT_FOUND, null, String.format(
+                            "%s No invoice found with id %s", PAYMENT_FAILURE_MESSAGE_PREFIX, payment.getInvoiceId()));
+                    continue;
+                }
+
+                try {
+                    Money amount = Money.of(payment.getAmount());
+                    applyPayment(invoice, amount);
+                    modified.put(invoice.getId(), invoice);
+                    ledgerEntries.add(buildPayment(invoice.getId(), amount));
+                    paidAmounts.merge(invoice.getId(), amount, Money::plus);
+                    results[i] = new AppliedPayment(PaymentOutcome.SUCCESS, buildInvoiceResponse(invoice), null);
+                } catch (InvoicePaymentDataException e) {
+                    results[i] = new AppliedPayment(PaymentOutcome.INVALID, null, e.getMessage());
+                }
+            }
+
+            Set<Long> conflicts = modified.isEmpty()
+                    ? Set.of()
+                    : transactionOperations.execute(status -> {
+                        Set<Long> conflicting = invoiceRepository.batchUpdatePaymentsIfVersionMatches(modified.values());
+                        List<Payment> committed = ledgerEntries.stream()
+                                .filter(entry -> !conflicting.contains(entry.getInvoiceId()))
+                                .toList();
+                        if (!committed.isEmpty()) {
+                            paymentRepository.batchInsert(committed);
+                        }
+                        changeLog.appendUpdated(modified.values().stream()
+                                .filter(invoice -> !conflicting.contains(invoice.getId()))
+                                .toList());
+                        return conflicting;
+                    });
+            pendingIds = conflicts;
+            modified.forEach((id, invoice) -> {
+                if (conflicts.contains(id)) {
+                    invoiceCache.invalidate(id);
+                } else {
+                    invoiceCache.put(invoice);
+                    dueDateIndex.update(invoice);
+                    invoiceSummary.paid(invoice, paidAmounts.get(id));
+                }
+            });
+            if (conflicts.size() < modified.size()) {
+                invoiceTableVersion.changed();
+            }
+
+            if (!conflicts.isEmpty()) {
+                if (attempt >= properties.getPayment().getMaxAttempts()) {
+                    for (int i = 0; i < payments.size(); i++) {
+                        BatchPaymentItem payment = payments.get(i);
+                        if (conflicts.contains(payment.getInvoiceId())) {
+                            results[i] = new AppliedPayment(PaymentOutcome.CONFLICT, null, String.format(
+                                    "%s Invoice id %s was modified concurrently, please retry",
+                                    PAYMENT_FAILURE_MESSAGE_PREFIX, payment.getInvoiceId()));
+                        }
+                    }
+                    break;
+                }
+                backOff(attempt);
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * The result of one payment of a batch: the updated invoice, or why the payment failed.
+     */
+    @Value
+    private static class AppliedPayment {
+        PaymentOutcome outcome;
+        InvoiceResponse invoice;
+        String error;
+    }
+
+    static Payment buildPayment(Long invoiceId, Money amount) {
+        return Payment.builder()
+                .invoiceId(invoiceId)
+                .amount(amount)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    static void applyPayment(Invoice invoice, Money amount) {
         if (!Status.PENDING.equals(invoice.getStatus())) {
             throw new InvoicePaymentDataException(String.format(
                     "%s Payments can be made only for pending invoices. Status of invoice id %s is: %s",
-                    PAYMENT_FAILURE_MESSAGE_PREFIX, invoiceId, invoice.getStatus()));
+                    PAYMENT_FAILURE_MESSAGE_PREFIX, invoice.getId(), invoice.getStatus()));
         }
 
-        BigDecimal newPaidAmount = invoice.getPaidAmount().add(amount);
+        Money newPaidAmount = invoice.getPaidAmount().plus(amount);
 
-        if (newPaidAmount.compareTo(invoice.getAmount()) > 0) {
+        if (newPaidAmount.isGreaterThan(invoice.getAmount())) {
             throw new InvoicePaymentDataException(String.format(
                     "%s Payment amount %s is more than remaining payment amount %s",
-                    PAYMENT_FAILURE_MESSAGE_PREFIX, amount, invoice.getAmount().subtract(invoice.getPaidAmount())));
+                    PAYMENT_FAILURE_MESSAGE_PREFIX, amount, invoice.getAmount().minus(invoice.getPaidAmount())));
         }
 
         invoice.setPaidAmount(newPaidAmount);
         if (newPaidAmount.equals(invoice.getAmount())) {
             invoice.setStatus(Status.PAID);
         }
+    }
+
+    /**
+     * Sleeps for a random time below a bound that doubles with every attempt ("full jitter"), so that
+     * payments racing for the same invoice spread out instead of colliding again.
+     */
+    private void backOff(int attempt) {
+        long boundNanos = properties.getPayment().getInitialBackoff().toNanos() << Math.min(attempt - 1, 20);
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(boundNanos + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvoiceConcurrencyException(PAYMENT_FAILURE_MESSAGE_PREFIX + " Interrupted while retrying");
+        }
+    }
 
-        invoiceRepository.save(invoice);
+    @Override
+    public ProcessOverdueResponse processOverdue(ProcessOverdueRequest request) {
+        ProcessOverdueResponse response = metrics.time(Operation.PROCESS_OVERDUE,
+                () -> overdueProcessor.startRun(request));
+        metrics.recordOverdueRun(response.getProcessedCount());
+        return response;
+    }
 
-        return buildInvoiceResponse(invoice);
+    @Override
+    public ProcessOverdueResponse getOverdueRun(Long runId) {
+        return overdueProcessor.getRun(runId);
+    }
+
+    @Override
+    public ProcessOverdueResponse resumeOverdueRun(Long runId) {
+        ProcessOverdueResponse response = metrics.time(Operation.RESUME_OVERDUE,
+                () -> overdueProcessor.resumeRun(runId));
+        metrics.recordOverdueRun(response.getProcessedCount());
+        return response;
+    }
+
+    /**
+     * Reloads the due-date index of pending invoices from the database, for example after it has
+     * drifted, and starts maintaining it if it was not loaded yet.
+     *
+     * @return the size of the rebuilt index
+     */
+    @Override
+    public DueDateIndexResponse rebuildDueDateIndex() {
+        dueDateIndex.rebuild();
+        return DueDateIndexResponse.builder()
+                .invoiceCount(dueDateIndex.size())
+                .bucketCount(dueDateIndex.bucketCount())
+                .build();
     }
 
     /**
-     * Processes overdue invoices by updating their statuses and generating new invoices.
+     * Returns the invoice changes after a cursor: creations, payments and status transitions, each
+     * with a snapshot of the invoice right after it, in the order they committed.
      * <p>
-     * This method performs the following operations for invoices with a PENDING status
-     * and a due date before the current date:
-     * <ul>
-     *   <li>If the invoice is partially paid, it marks the invoice as PAID and creates a
-     *       new invoice for the remaining balance plus the late fee.</li>
-     *   <li>If the invoice is not paid at all, it marks the invoice as VOID and creates a
-     *       new invoice for the total amount plus the late fee.</li>
-     * </ul>
-     * The newly created invoices have a due date calculated by adding the number of overdue
-     * days specified in the {@code request}.
+     * If there are no changes after the cursor yet, waits up to {@code wait} for the next one (long
+     * polling), so consumers can pull deltas continuously without re-reading the invoices.
      * </p>
      *
-     * @param request the request object containing the late fee to be applied and the number
-     *                of overdue days to calculate the new due date
+     * @param since the cursor of the last change the caller has seen, {@code 0} to start from the
+     *              oldest change kept
+     * @param limit the maximum number of changes to return
+     * @param wait  how long to wait for a change if there is none yet
+     * @return the changes and the cursor to continue from
      */
     @Override
-    public void processOverdue(ProcessOverdueRequest request) {
-        List<Invoice> invoices = invoiceRepository.findByStatusAndDueDateBefore(
-                Status.PENDING, LocalDate.now());
-
-        for (Invoice invoice : invoices) {
-            Invoice newInvoice = Invoice.builder()
-                    .amount(invoice.getAmount().subtract(invoice.getPaidAmount()).add(request.getLateFee()))
-                    .paidAmount(BigDecimal.ZERO)
-                    .dueDate(LocalDate.now().plusDays(request.getOverdueDays()))
-                    .status(Status.PENDING)
+    public InvoiceChangesResponse getChanges(long since, int limit, Duration wait) {
+        return metrics.time(Operation.LIST_CHANGES, () -> {
+            List<InvoiceChange> changes = changeFeed.await(since, limit, wait);
+            return InvoiceChangesResponse.builder()
+                    .changes(changes.stream()
+                            .map(InvoiceServiceImpl::buildInvoiceChangeResponse)
+                            .toList())
+                    .nextCursor(String.valueOf(changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq()))
                     .build();
+        });
+    }
 
-            if (invoice.getPaidAmount().compareTo(BigDecimal.ZERO) > 0) {
-                invoice.setStatus(Status.PAID);
-            } else {
-                invoice.setStatus(Status.VOID);
-            }
-
-            invoiceRepository.saveAll(List.of(invoice, newInvoice));
-        }
+    static InvoiceChangeResponse buildInvoiceChangeResponse(InvoiceChange change) {
+        return InvoiceChangeResponse.builder()
+                .cursor(String.valueOf(change.getSeq()))
+                .type(change.getType())
+                .invoice(InvoiceResponse.builder()
+                        .id(String.valueOf(change.getInvoiceId()))
+                        .amount(change.getAmount())
+                        .paidAmount(change.getPaidAmount())
+                        .dueDate(change.getDueDate())
+                        .status(change.getStatus())
+                        .build())
+                .changedAt(change.getCreatedAt())
+                .build();
     }
 
-    private InvoiceResponse buildInvoiceResponse(Invoice invoice) {
+    static InvoiceResponse buildInvoiceResponse(Invoice invoice) {
         return InvoiceResponse.builder()
                 .id(String.valueOf(invoice.getId()))
                 .amount(invoice.getAmount())
                 .paidAmount(invoice.getPaidAmount())
                 .dueDate(invoice.getDueDate())
                 .status(invoice.getStatus())
+                .updatedAt(invoice.getUpdatedAt())
+                .build();
+    }
+
+    static PaymentResponse buildPaymentResponse(Payment payment) {
+        return PaymentResponse.builder()
+                .id(String.valueOf(payment.getId()))
+                .invoiceId(String.valueOf(payment.getInvoiceId()))
+                .amount(payment.getAmount())
+                .createdAt(payment.getCreatedAt())
                 .build();
     }
+
 }
@@ -0,0 +1,264 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.InvoiceSummaryResponse;
+import com.sandeep.invoice.dto.OverdueBucketSummary;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.dto.StatusSummary;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory totals of the invoices by status, and of the PENDING invoices by due date, which answer
+ * {@code GET /invoices/summary} without touching the database.
+ * <p>
+ * Every write reports its effect after its commit, the same way it updates the {@link DueDateIndex}:
+ * created invoices, payments, and invoices that an overdue run moved out of PENDING. The totals are
+ * {@link LongAdder}s, which spread concurrent increments over striped cells instead of contending on a
+ * single value, so reporting costs the write path next to nothing.
+ * </p>
+ * <p>
+ * The totals are loaded at startup and reconciled with an aggregate query every
+ * {@code invoice.summary.reconcile-interval}, which also brings in the writes of other instances. A
+ * reconciliation adds the difference between the query and the totals instead of replacing them, so the
+ * writes reported meanwhile are kept. Writes that commit while the query runs may still leave the totals
+ * off by their amounts until the next reconciliation.
+ * </p>
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class InvoiceSummary {
+
+    private final InvoiceRepository invoiceRepository;
+    private final List<Integer> overdueBuckets;
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    private final Totals[] byStatus = new Totals[Status.values().length];
+    // Never shrinks: a due date whose invoices are all paid keeps empty totals, which are skipped.
+    private final Map<LocalDate, Totals> pendingByDueDate = new ConcurrentHashMap<>();
+    private volatile LocalDateTime reconciledAt;
+
+    public InvoiceSummary(InvoiceRepository invoiceRepository, InvoiceProperties properties) {
+        this.invoiceRepository = invoiceRepository;
+        this.overdueBuckets = properties.getSummary().getOverdueBuckets().stream().sorted().toList();
+        for (Status status : Status.values()) {
+            byStatus[status.ordinal()] = new Totals();
+        }
+    }
+
+    /**
+     * Records committed new invoices.
+     */
+    public void created(Collection<Invoice> invoices) {
+        for (Invoice invoice : invoices) {
+            add(invoice.getStatus(), invoice.getDueDate(), 1, invoice.getAmount().getCents(),
+                    invoice.getPaidAmount().getCents());
+        }
+    }
+
+    /**
+     * Records committed payments of {@code amount} in total towards a PENDING invoice, given in its state after
+     * the payments. If they paid it in full, the invoice moves from PENDING to PAID.
+     */
+    public void paid(Invoice invoice, Money amount) {
+        long paidCents = amount.getCents();
+        if (invoice.getStatus() == Status.PENDING) {
+            add(Status.PENDING, invoice.getDueDate(), 0, 0, paidCents);
+            return;
+        }
+        long amountCents = invoice.getAmount().getCents();
+        long totalPaidCents = invoice.getPaidAmount().getCents();
+        add(Status.PENDING, invoice.getDueDate(), -1, -amountCents, -(totalPaidCents - paidCents));
+        add(invoice.getStatus(), invoice.getDueDate(), 1, amountCents, totalPaidCents);
+    }
+
+    /**
+     * Records committed status changes of invoices that were PENDING, given in their new state, with their
+     * amounts unchanged.
+     */
+    public void leftPending(Collection<Invoice> invoices) {
+        for (Invoice invoice : invoices) {
+            long amountCents = invoice.getAmount().getCents();
+            long paidCents = invoice.getPaidAmount().getCents();
+            add(Status.PENDING, invoice.getDueDate(), -1, -amountCents, -paidCents);
+            add(invoice.getStatus(), invoice.getDueDate(), 1, amountCents, paidCents);
+        }
+    }
+
+    private void add(Status status, LocalDate dueDate, long count, long amountCents, long paidCents) {
+        byStatus[status.ordinal()].add(count, amountCents, paidCents);
+        if (status == Status.PENDING && dueDate != null) {
+            pendingByDueDate.computeIfAbsent(dueDate, date -> new Totals()).add(count, amountCents, paidCents);
+        }
+    }
+
+    /**
+     * Returns the totals per status, the outstanding balance of the PENDING invoices and, of those due before
+     * {@code today}, the balance bucketed by the number of days they are past due.
+     */
+    public InvoiceSummaryResponse summarize(LocalDate today) {
+        Map<Status, StatusSummary> statuses = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            Totals totals = byStatus[status.ordinal()];
+            statuses.put(status, StatusSummary.builder()
+                    .count(totals.count.sum())
+                    .amount(Money.ofCents(totals.amountCents.sum()))
+                    .paidAmount(Money.ofCents(totals.paidCents.sum()))
+                    .build());
+        }
+
+        long[] bucketCounts = new long[overdueBuckets.size() + 1];
+        long[] bucketCents = new long[overdueBuckets.size() + 1];
+        pendingByDueDate.forEach((dueDate, totals) -> {
+            if (dueDate.isBefore(today)) {
+                int bucket = bucketOf(ChronoUnit.DAYS.between(dueDate, today));
+                bucketCounts[bucket] += totals.count.sum();
+                bucketCents[bucket] += totals.outstandingCents();
+            }
+        });
+
+        List<OverdueBucketSummary> overdue = new ArrayList<>(bucketCounts.length);
+        long overdueCount = 0;
+        long overdueCents = 0;
+        for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+            overdue.add(OverdueBucketSummary.builder()
+                    .daysFrom(bucket == 0 ? 1 : overdueBuckets.get(bucket - 1) + 1)
+                    .daysTo(bucket < overdueBuckets.size() ? overdueBuckets.get(bucket) : null)
+                    .count(bucketCounts[bucket])
+                    .amount(Money.ofCents(bucketCents[bucket]))
+                    .build());
+            overdueCount += bucketCounts[bucket];
+            overdueCents += bucketCents[bucket];
+        }
+
+        return InvoiceSummaryResponse.builder()
+                .statuses(statuses)
+                .outstandingAmount(Money.ofCents(byStatus[Status.PENDING.ordinal()].outstandingCents()))
+                .overdueCount(overdueCount)
+                .overdueAmount(Money.ofCents(overdueCents))
+                .overdue(overdue)
+                .reconciledAt(reconciledAt)
+                .build();
+    }
+
+    private int bucketOf(long daysPastDue) {
+        for (int bucket = 0; bucket < overdueBuckets.size(); bucket++) {
+            if (daysPastDue <= overdueBuckets.get(bucket)) {
+                return bucket;
+            }
+        }
+        return overdueBuckets.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reconcile();
+    }
+
+    /**
+     * Corrects the totals to the aggregates of the invoice table.
+     *
+     * @return the number of totals that had drifted
+     */
+    @Scheduled(fixedDelayString = "${invoice.summary.reconcile-interval:PT5M}",
+            initialDelayString = "${invoice.summary.reconcile-interval:PT5M}")
+    public int reconcile() {
+        reconcileLock.lock();
+        try {
+            long start = System.nanoTime();
+            Map<Status, long[]> statusSums = new EnumMap<>(Status.class);
+            Map<LocalDate, long[]> dueDateSums = new HashMap<>();
+            invoiceRepository.aggregateTotals((status, dueDate, count, amountCents, paidCents) -> {
+                accumulate(statusSums.computeIfAbsent(status, s -> new long[3]), count, amountCents, paidCents);
+                if (status == Status.PENDING && dueDate != null) {
+                    accumulate(dueDateSums.computeIfAbsent(dueDate, d -> new long[3]), count, amountCents, paidCents);
+                }
+            });
+
+            int drifted = 0;
+            for (Status status : Status.values()) {
+                drifted += correct(byStatus[status.ordinal()], statusSums.get(status));
+            }
+            Set<LocalDate> dueDates = new HashSet<>(pendingByDueDate.keySet());
+            dueDates.addAll(dueDateSums.keySet());
+            for (LocalDate dueDate : dueDates) {
+                drifted += correct(pendingByDueDate.computeIfAbsent(dueDate, date -> new Totals()),
+                        dueDateSums.get(dueDate));
+            }
+            reconciledAt = LocalDateTime.now();
+            log.debug("Reconciled the invoice summary in {} ms, {} totals had drifted",
+                    (System.nanoTime() - start) / 1_000_000, drifted);
+            return drifted;
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private static void accumulate(long[] sums, long count, long amountCents, long paidCents) {
+        sums[0] += count;
+        sums[1] += amountCents;
+        sums[2] += paidCents;
+    }
+
+    /**
+     * Adds the difference to the expected sums, or to zero if there are none, to the totals.
+     *
+     * @return 1 if the totals differed, 0 otherwise
+     */
+    private static int correct(Totals totals, long[] expected) {
+        long[] sums = expected == null ? new long[3] : expected;
+        long count = sums[0] - totals.count.sum();
+        long amountCents = sums[1] - totals.amountCents.sum();
+        long paidCents = sums[2] - totals.paidCents.sum();
+        if (count == 0 && amountCents == 0 && paidCents == 0) {
+            return 0;
+        }
+        totals.add(count, amountCents, paidCents);
+        return 1;
+    }
+
+    private static class Totals {
+        final LongAdder count = new LongAdder();
+        final LongAdder amountCents = new LongAdder();
+        final LongAdder paidCents = new LongAdder();
+
+        void add(long count, long amountCents, long paidCents) {
+            if (count != 0) {
+                this.count.add(count);
+            }
+            if (amountCents != 0) {
+                this.amountCents.add(amountCents);
+            }
+            if (paidCents != 0) {
+                this.paidCents.add(paidCents);
+            }
+        }
+
+        long outstandingCents() {
+            return amountCents.sum() - paidCents.sum();
+        }
+    }
+}
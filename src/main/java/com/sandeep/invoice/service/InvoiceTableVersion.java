@@ -0,0 +1,59 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.changes.InvoiceChangeLog;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A version of the {@code invoice} table as a whole, which changes whenever an invoice is written, for the
+ * {@code ETag} of {@code GET /invoices}. Reading it costs two memory reads, so a poll whose
+ * {@code If-None-Match} still matches is answered without a query.
+ * <p>
+ * The version has two parts. The writes of this instance count up the first one after they commit, the
+ * same way they update the {@link DueDateIndex}. The second one is the sequence number of the last change
+ * relayed from the outbox (see {@link InvoiceChangeLog}), read every {@code invoice.changes.relay-interval},
+ * which brings in the writes of other instances within about two relay intervals.
+ * </p>
+ * <p>
+ * The version is read before the query it tags. A write that commits while the query runs may or may not
+ * be in the response, and changes the version either way, so the next poll gets the response again rather
+ * than missing the write.
+ * </p>
+ */
+@Component
+@Profile("!reactive")
+public class InvoiceTableVersion {
+
+    private final InvoiceChangeLog changeLog;
+    private final AtomicLong writes = new AtomicLong();
+    private volatile long lastSequence;
+
+    public InvoiceTableVersion(InvoiceChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * Records that invoices were written by a transaction that committed.
+     */
+    public void changed() {
+        writes.incrementAndGet();
+    }
+
+    /**
+     * Returns the current version as a strong entity tag, quoted.
+     */
+    public String etag() {
+        return "\"" + writes.get() + "-" + lastSequence + "\"";
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${invoice.changes.relay-interval:PT0.2S}")
+    public void refresh() {
+        lastSequence = changeLog.lastSequence();
+    }
+}
@@ -0,0 +1,353 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.cache.InvoiceCache;
+import com.sandeep.invoice.changes.InvoiceChangeLog;
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.*;
+import com.sandeep.invoice.exception.OverdueRunInProgressException;
+import com.sandeep.invoice.exception.OverdueRunNotFoundException;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.model.OverduePartition;
+import com.sandeep.invoice.model.OverdueRun;
+import com.sandeep.invoice.repository.IdRange;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import com.sandeep.invoice.repository.OverduePartitionRepository;
+import com.sandeep.invoice.repository.OverdueRunRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Runs overdue processing as a persistent, partitioned job.
+ * <p>
+ * A run splits the ids of the overdue invoices into disjoint ranges, stored as rows of
+ * {@code overdue_partition}. Workers claim partitions through a time-limited lease, so several
+ * instances can work on one run without processing an invoice twice. Every chunk commits the
+ * invoice changes together with the partition progress and fails if the lease was lost, which
+ * makes a run resumable from its last committed chunk after a crash.
+ * </p>
+ * <p>
+ * An instance works on one run at a time. Starting or resuming a run while another one is processed
+ * fails with {@link OverdueRunInProgressException}, as both runs would compete for the same invoices
+ * and database connections.
+ * </p>
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class OverdueProcessor {
+
+    private final InvoiceRepository invoiceRepository;
+    private final OverdueRunRepository overdueRunRepository;
+    private final OverduePartitionRepository overduePartitionRepository;
+    private final TransactionOperations transactionOperations;
+    private final InvoiceProperties properties;
+    private final InvoiceCache invoiceCache;
+    private final DueDateIndex dueDateIndex;
+    private final InvoiceSummary invoiceSummary;
+    private final InvoiceTableVersion invoiceTableVersion;
+    private final InvoiceChangeLog changeLog;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Creates a run for the invoices that are overdue today and processes it on this instance.
+     *
+     * @param request the late fee and the number of days until the new invoices are due
+     * @return the state of the run once this instance has no more partitions to claim
+     * @throws OverdueRunInProgressException if this instance is processing a run already
+     */
+    public ProcessOverdueResponse startRun(ProcessOverdueRequest request) {
+        LocalDate processingDate = LocalDate.now();
+        return startRun(request, processingDate,
+                invoiceRepository.findIdRangeDueBefore(Status.PENDING, processingDate));
+    }
+
+    /**
+     * Creates a run for the invoices that are overdue today within the given id range, for callers
+     * that already know where the overdue invoices are, and processes it on this instance.
+     *
+     * @param request the late fee and the number of days until the new invoices are due
+     * @param idRange the ids to search for overdue invoices
+     * @return the state of the run once this instance has no more partitions to claim
+     * @throws OverdueRunInProgressException if this instance is processing a run already
+     */
+    public ProcessOverdueResponse startRun(ProcessOverdueRequest request, IdRange idRange) {
+        return startRun(request, LocalDate.now(), Optional.of(idRange));
+    }
+
+    private ProcessOverdueResponse startRun(ProcessOverdueRequest request, LocalDate processingDate,
+                                            Optional<IdRange> idRange) {
+        return exclusively(() -> {
+            OverdueRun run = createRun(request, processingDate, idRange);
+            processRun(run);
+            return getRun(run.getId());
+        });
+    }
+
+    /**
+     * Joins an unfinished run, claiming any partition that is unowned or whose lease has expired.
+     *
+     * @param runId the id of the run
+     * @return the state of the run once this instance has no more partitions to claim
+     * @throws OverdueRunNotFoundException if no run exists with the specified {@code runId}
+     * @throws OverdueRunInProgressException if this instance is processing a run already
+     */
+    public ProcessOverdueResponse resumeRun(Long runId) {
+        OverdueRun run = findRun(runId);
+        if (run.getStatus() == RunStatus.COMPLETED) {
+            return getRun(runId);
+        }
+        return exclusively(() -> {
+            processRun(run);
+            return getRun(runId);
+        });
+    }
+
+    private ProcessOverdueResponse exclusively(Supplier<ProcessOverdueResponse> work) {
+        if (!running.compareAndSet(false, true)) {
+            throw new OverdueRunInProgressException(
+                    "An overdue run is already being processed, retry once it has completed");
+        }
+        try {
+            return work.get();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Returns the progress of a run and of each of its partitions.
+     *
+     * @param runId the id of the run
+     * @return the state of the run
+     * @throws OverdueRunNotFoundException if no run exists with the specified {@code runId}
+     */
+    public ProcessOverdueResponse getRun(Long runId) {
+        OverdueRun run = findRun(runId);
+        List<OverduePartition> partitions = overduePartitionRepository.findByRunIdOrderByPartitionNo(runId);
+
+        long processed = 0;
+        long paid = 0;
+        long voided = 0;
+        long chunks = 0;
+        List<OverduePartitionResponse> partitionResponses = new ArrayList<>(partitions.size());
+        for (OverduePartition partition : partitions) {
+            processed += partition.getProcessedCount();
+            paid += partition.getPaidCount();
+            voided += partition.getVoidCount();
+            chunks += partition.getChunkCount();
+            partitionResponses.add(OverduePartitionResponse.builder()
+                    .partitionNo(partition.getPartitionNo())
+                    .fromId(partition.getFromId())
+                    .toId(partition.getToId())
+                    .lastProcessedId(partition.getLastProcessedId())
+                    .status(partition.getStatus())
+                    .leaseOwner(partition.getLeaseOwner())
+                    .processedCount(partition.getProcessedCount())
+                    .build());
+        }
+
+        LocalDateTime end = run.getCompletedAt() == null ? LocalDateTime.now() : run.getCompletedAt();
+        long elapsedMs = Duration.between(run.getCreatedAt(), end).toMillis();
+        return ProcessOverdueResponse.builder()
+                .runId(run.getId())
+                .status(run.getStatus())
+                .processedCount(processed)
+                .paidCount(paid)
+                .voidCount(voided)
+                .createdCount(processed)
+                .chunkCount(chunks)
+                .elapsedMs(elapsedMs)
+                .invoicesPerSecond(elapsedMs == 0 ? 0 : processed * 1000.0 / elapsedMs)
+                .partitions(partitionResponses)
+                .build();
+    }
+
+    private OverdueRun findRun(Long runId) {
+        return overdueRunRepository.findById(runId)
+                .orElseThrow(() -> new OverdueRunNotFoundException(
+                        String.format("No overdue run found with id %s", runId)));
+    }
+
+    private OverdueRun createRun(ProcessOverdueRequest request, LocalDate processingDate, Optional<IdRange> idRange) {
+        List<OverduePartition> partitions = split(idRange, properties.getOverdue().getPartitions());
+        LocalDateTime now = LocalDateTime.now();
+
+        return transactionOperations.execute(status -> {
+            OverdueRun run = overdueRunRepository.save(OverdueRun.builder()
+                    .lateFee(Money.of(request.getLateFee()))
+                    .overdueDays(request.getOverdueDays())
+                    .processingDate(processingDate)
+                    .partitionCount(partitions.size())
+                    .status(partitions.isEmpty() ? RunStatus.COMPLETED : RunStatus.RUNNING)
+                    .createdAt(now)
+                    .completedAt(partitions.isEmpty() ? now : null)
+                    .build());
+            partitions.forEach(partition -> partition.setRunId(run.getId()));
+            overduePartitionRepository.saveAll(partitions);
+            return run;
+        });
+    }
+
+    /**
+     * Splits the id range into at most {@code count} contiguous, disjoint partitions of equal width.
+     */
+    static List<OverduePartition> split(Optional<IdRange> idRange, int count) {
+        List<OverduePartition> partitions = new ArrayList<>();
+        if (idRange.isEmpty()) {
+            return partitions;
+        }
+
+        long minId = idRange.get().getMinId();
+        long maxId = idRange.get().getMaxId();
+        long width = Math.ceilDiv(maxId - minId + 1, count);
+        for (long fromId = minId; fromId <= maxId; fromId += width) {
+            partitions.add(OverduePartition.builder()
+                    .partitionNo(partitions.size())
+                    .fromId(fromId)
+                    .toId(Math.min(fromId + width - 1, maxId))
+                    .lastProcessedId(fromId - 1)
+                    .status(RunStatus.PENDING)
+                    .build());
+        }
+        return partitions;
+    }
+
+    private void processRun(OverdueRun run) {
+        List<OverduePartition> partitions = overduePartitionRepository.findByRunIdOrderByPartitionNo(run.getId())
+                .stream()
+                .filter(partition -> partition.getStatus() != RunStatus.COMPLETED)
+                .toList();
+        int workers = Math.min(properties.getOverdue().getParallelism(), partitions.size());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < workers; i++) {
+                String owner = properties.getOverdue().getNodeId() + "/" + i;
+                executor.submit(() -> work(run, partitions, owner));
+            }
+        }
+
+        overdueRunRepository.completeIfAllPartitionsCompleted(run.getId(), LocalDateTime.now());
+    }
+
+    private void work(OverdueRun run, List<OverduePartition> partitions, String owner) {
+        for (OverduePartition partition : partitions) {
+            LocalDateTime now = LocalDateTime.now();
+            if (!overduePartitionRepository.claim(partition.getId(), owner, now, leaseExpiry(now))) {
+                continue;
+            }
+
+            try {
+                processPartition(run, partition.getId(), owner);
+            } catch (LeaseLostException e) {
+                log.warn("Lease on partition {} of overdue run {} lost by {}",
+                        partition.getPartitionNo(), run.getId(), owner);
+            } catch (RuntimeException e) {
+                log.error("Processing partition {} of overdue run {} failed, it can be resumed once its lease expires",
+                        partition.getPartitionNo(), run.getId(), e);
+            }
+        }
+    }
+
+    private void processPartition(OverdueRun run, Long partitionId, String owner) {
+        // Reload after claiming: another worker may have committed progress before its lease expired.
+        OverduePartition partition = overduePartitionRepository.findById(partitionId).orElseThrow();
+        LocalDate newDueDate = run.getProcessingDate().plusDays(run.getOverdueDays());
+        int chunkSize = properties.getOverdue().getChunkSize();
+
+        long afterId = partition.getLastProcessedId();
+        while (true) {
+            long lastProcessedId = afterId;
+            Chunk chunk = transactionOperations.execute(status -> processChunk(
+                    run, partition, owner, lastProcessedId, chunkSize, newDueDate));
+            if (chunk.getProcessed().isEmpty()) {
+                overduePartitionRepository.complete(partitionId, owner);
+                return;
+            }
+            // Only after the commit, so readers never see a state that could still be rolled back.
+            invoiceCache.updateIfPresent(chunk.getProcessed());
+            dueDateIndex.updateAll(chunk.getProcessed());
+            dueDateIndex.updateAll(chunk.getCreated());
+            invoiceSummary.leftPending(chunk.getProcessed());
+            invoiceSummary.created(chunk.getCreated());
+            invoiceTableVersion.changed();
+            afterId = chunk.getProcessed().get(chunk.getProcessed().size() - 1).getId();
+        }
+    }
+
+    /**
+     * Processes the next chunk of a partition and records the progress under the lease.
+     *
+     * @return the processed invoices with their new status, none if the partition is exhausted, and
+     *         the invoices created for them
+     */
+    private Chunk processChunk(OverdueRun run, OverduePartition partition, String owner, long afterId,
+                               int chunkSize, LocalDate newDueDate) {
+        List<Invoice> invoices = invoiceRepository.lockNextChunkDueBefore(
+                Status.PENDING, run.getProcessingDate(), afterId, partition.getToId(), chunkSize);
+        if (invoices.isEmpty()) {
+            return new Chunk(invoices, List.of());
+        }
+
+        long paid = 0;
+        long voided = 0;
+        List<Invoice> newInvoices = new ArrayList<>(invoices.size());
+        for (Invoice invoice : invoices) {
+            newInvoices.add(Invoice.builder()
+                    .amount(invoice.getAmount().minus(invoice.getPaidAmount()).plus(run.getLateFee()))
+                    .paidAmount(Money.ZERO)
+                    .dueDate(newDueDate)
+                    .status(Status.PENDING)
+                    .build());
+
+            if (invoice.getPaidAmount().isPositive()) {
+                invoice.setStatus(Status.PAID);
+                paid++;
+            } else {
+                invoice.setStatus(Status.VOID);
+                voided++;
+            }
+        }
+
+        invoiceRepository.batchUpdateStatus(invoices);
+        invoiceRepository.batchInsert(newInvoices);
+        changeLog.appendUpdated(invoices);
+        changeLog.appendCreated(newInvoices);
+
+        long lastId = invoices.get(invoices.size() - 1).getId();
+        if (!overduePartitionRepository.recordProgress(partition.getId(), owner, lastId, invoices.size(),
+                paid, voided, leaseExpiry(LocalDateTime.now()))) {
+            throw new LeaseLostException();
+        }
+        return new Chunk(invoices, newInvoices);
+    }
+
+    private LocalDateTime leaseExpiry(LocalDateTime now) {
+        return now.plus(properties.getOverdue().getLeaseDuration());
+    }
+
+    @Value
+    private static class Chunk {
+        List<Invoice> processed;
+        List<Invoice> created;
+    }
+
+    private static class LeaseLostException extends RuntimeException {
+    }
+}
@@ -0,0 +1,106 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.ProcessOverdueRequest;
+import com.sandeep.invoice.dto.ProcessOverdueResponse;
+import com.sandeep.invoice.dto.RunStatus;
+import com.sandeep.invoice.exception.OverdueRunInProgressException;
+import com.sandeep.invoice.metrics.InvoiceMetrics;
+import com.sandeep.invoice.metrics.InvoiceMetrics.Operation;
+import com.sandeep.invoice.repository.IdRange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.LocalDate;
+import java.util.LongSummaryStatistics;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Processes overdue invoices on a schedule, reading them from the {@link DueDateIndex} instead of
+ * searching the invoice table.
+ * <p>
+ * The index is loaded once the application is ready. Every tick takes the buckets of the due dates
+ * that have expired since the last successful tick, normally just yesterday's, and starts an
+ * {@link OverdueProcessor} run over the id range they span, so the work done per day follows the
+ * number of invoices due that day rather than the size of the table. Nothing is read from the
+ * database on a day without expired invoices.
+ * </p>
+ * <p>
+ * Once the run completes, its buckets are dropped from the index. If the run processed a different
+ * number of invoices than the index held, the index has drifted from the table and is rebuilt.
+ * </p>
+ */
+@Slf4j
+public class OverdueScheduler {
+
+    private final DueDateIndex dueDateIndex;
+    private final OverdueProcessor overdueProcessor;
+    private final InvoiceMetrics metrics;
+    private final InvoiceProperties.Schedule schedule;
+
+    public OverdueScheduler(DueDateIndex dueDateIndex, OverdueProcessor overdueProcessor, InvoiceMetrics metrics,
+                            InvoiceProperties.Schedule schedule) {
+        this.dueDateIndex = dueDateIndex;
+        this.overdueProcessor = overdueProcessor;
+        this.metrics = metrics;
+        this.schedule = schedule;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        dueDateIndex.rebuild();
+    }
+
+    /**
+     * Processes the invoices of every due date before today that is still in the index.
+     */
+    @Scheduled(cron = "${invoice.overdue.schedule.cron:0 5 0 * * *}")
+    public void processExpiredDueDates() {
+        if (!dueDateIndex.isLoaded()) {
+            dueDateIndex.rebuild();
+        }
+
+        SortedMap<LocalDate, Set<Long>> expired = dueDateIndex.expiredBuckets(LocalDate.now());
+        LongSummaryStatistics ids = expired.values().stream()
+                .flatMap(Set::stream)
+                .mapToLong(Long::longValue)
+                .summaryStatistics();
+        if (ids.getCount() == 0) {
+            log.debug("No pending invoices have become overdue");
+            return;
+        }
+
+        ProcessOverdueRequest request = ProcessOverdueRequest.builder()
+                .lateFee(schedule.getLateFee())
+                .overdueDays(schedule.getOverdueDays())
+                .build();
+        ProcessOverdueResponse response;
+        try {
+            response = metrics.time(Operation.PROCESS_OVERDUE_SCHEDULED,
+                    () -> overdueProcessor.startRun(request, new IdRange(ids.getMin(), ids.getMax())));
+        } catch (OverdueRunInProgressException e) {
+            log.info("Another overdue run is in progress, the expired due dates stay in the index for the next tick");
+            return;
+        }
+        metrics.recordOverdueRun(response.getProcessedCount());
+        log.info("Overdue run {} for {} due dates from {} to {} processed {} invoices",
+                response.getRunId(), expired.size(), expired.firstKey(), expired.lastKey(),
+                response.getProcessedCount());
+
+        if (response.getStatus() != RunStatus.COMPLETED) {
+            log.warn("Overdue run {} did not complete, its due dates stay in the index for the next tick",
+                    response.getRunId());
+            return;
+        }
+        dueDateIndex.discard(expired);
+
+        if (response.getProcessedCount() != ids.getCount()) {
+            log.warn("Due-date index held {} overdue invoices but overdue run {} processed {}, rebuilding it",
+                    ids.getCount(), response.getRunId(), response.getProcessedCount());
+            dueDateIndex.rebuild();
+        }
+    }
+}
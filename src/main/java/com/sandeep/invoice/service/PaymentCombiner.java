@@ -0,0 +1,126 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.BatchPaymentItem;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Combines payments made concurrently into batches that are applied in one transaction (group
+ * commit), so that the payments of a hot invoice write its row once per batch instead of once each,
+ * and no longer fail each other's version check.
+ * <p>
+ * A payment is queued on one of {@code invoice.payment.combiner-stripes} stripes, chosen by invoice
+ * id so that the payments of an invoice always meet. The caller that takes the stripe lock applies
+ * everything queued so far, up to {@code invoice.payment.max-combined-payments}, while the others
+ * wait for the lock; by the time they get it their payment has usually been applied and they return
+ * its result straight away. There is no background thread: every caller returns only after its own
+ * payment has committed, so it reads its own write.
+ * </p>
+ * <p>
+ * The number of payments applied per batch is published as the {@code invoice.payment.combined}
+ * distribution summary.
+ * </p>
+ */
+@Component
+@Profile("!reactive")
+public class PaymentCombiner {
+
+    private final Stripe[] stripes;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSizes;
+
+    public PaymentCombiner(InvoiceProperties properties, MeterRegistry meterRegistry) {
+        this.stripes = new Stripe[properties.getPayment().getCombinerStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.maxBatchSize = properties.getPayment().getMaxCombinedPayments();
+        this.batchSizes = DistributionSummary.builder("invoice.payment.combined")
+                .description("Number of payments applied together in one combined batch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Applies a payment together with the payments queued concurrently on the same stripe.
+     *
+     * @param payment the payment to apply
+     * @param applier applies a batch of payments in one transaction and returns one result per
+     *                payment, in order; every caller must pass an equivalent function
+     * @return the result of the payment
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R apply(BatchPaymentItem payment, Function<List<BatchPaymentItem>, List<R>> applier) {
+        Stripe stripe = stripes[Math.floorMod(Long.hashCode(payment.getInvoiceId()), stripes.length)];
+        Pending pending = new Pending(payment);
+        stripe.queue.add(pending);
+
+        while (!pending.done) {
+            stripe.lock.lock();
+            try {
+                if (!pending.done) {
+                    combine(stripe, applier);
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        if (pending.failure instanceof RuntimeException e) {
+            throw e;
+        }
+        if (pending.failure instanceof Error e) {
+            throw e;
+        }
+        return (R) pending.result;
+    }
+
+    private <R> void combine(Stripe stripe, Function<List<BatchPaymentItem>, List<R>> applier) {
+        List<Pending> batch = new ArrayList<>();
+        for (Pending next; batch.size() < maxBatchSize && (next = stripe.queue.poll()) != null; ) {
+            batch.add(next);
+        }
+        batchSizes.record(batch.size());
+
+        try {
+            List<R> results = applier.apply(batch.stream().map(pending -> pending.payment).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result = results.get(i);
+                batch.get(i).done = true;
+            }
+        } catch (RuntimeException | Error e) {
+            // The batch was rolled back as a whole, so every payment in it failed.
+            for (Pending pending : batch) {
+                pending.failure = e;
+                pending.done = true;
+            }
+        }
+    }
+
+    private static class Stripe {
+        final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+        final ReentrantLock lock = new ReentrantLock();
+    }
+
+    // Written by the thread holding the stripe lock and read by the owner after taking it, or through
+    // the volatile done flag.
+    private static class Pending {
+        final BatchPaymentItem payment;
+        Object result;
+        Throwable failure;
+        volatile boolean done;
+
+        Pending(BatchPaymentItem payment) {
+            this.payment = payment;
+        }
+    }
+}
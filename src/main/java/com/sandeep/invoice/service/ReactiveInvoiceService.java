@@ -0,0 +1,22 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.dto.CreateInvoiceRequest;
+import com.sandeep.invoice.dto.CreateInvoiceResponse;
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.dto.InvoiceResponse;
+import jakarta.validation.constraints.NotNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+/**
+ * Non-blocking counterpart of the single invoice operations of {@link InvoiceService}, used by the
+ * {@code reactive} profile. Errors are signalled with the same exceptions.
+ */
+public interface ReactiveInvoiceService {
+    Mono<CreateInvoiceResponse> createInvoice(@NotNull CreateInvoiceRequest createInvoiceRequest);
+    Mono<InvoiceResponse> getInvoice(@NotNull Long invoiceId);
+    Flux<InvoiceResponse> getInvoices(@NotNull InvoiceQuery query);
+    Mono<InvoiceResponse> payInvoice(@NotNull Long invoiceId, @NotNull BigDecimal amount);
+}
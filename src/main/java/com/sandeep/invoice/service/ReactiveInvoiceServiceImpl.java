@@ -0,0 +1,135 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.CreateInvoiceRequest;
+import com.sandeep.invoice.dto.CreateInvoiceResponse;
+import com.sandeep.invoice.dto.InvoiceChangeType;
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.dto.InvoiceResponse;
+import com.sandeep.invoice.exception.InvoiceConcurrencyException;
+import com.sandeep.invoice.exception.InvoiceNotFoundException;
+import com.sandeep.invoice.exception.InvoicePaymentDataException;
+import com.sandeep.invoice.metrics.InvoiceMetrics;
+import com.sandeep.invoice.metrics.InvoiceMetrics.Operation;
+import com.sandeep.invoice.metrics.InvoiceMetrics.PaymentOutcome;
+import com.sandeep.invoice.model.InvoiceChange;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.repository.ReactiveInvoiceChangeRepository;
+import com.sandeep.invoice.repository.ReactiveInvoiceRepository;
+import com.sandeep.invoice.repository.ReactivePaymentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static com.sandeep.invoice.service.InvoiceServiceImpl.PAYMENT_FAILURE_MESSAGE_PREFIX;
+
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveInvoiceServiceImpl implements ReactiveInvoiceService {
+
+    private final ReactiveInvoiceRepository invoiceRepository;
+    private final ReactivePaymentRepository paymentRepository;
+    private final ReactiveInvoiceChangeRepository changeRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final InvoiceProperties properties;
+    private final InvoiceMetrics metrics;
+
+    @Override
+    public Mono<CreateInvoiceResponse> createInvoice(CreateInvoiceRequest createInvoiceRequest) {
+        return metrics.time(Operation.CREATE, Mono.defer(() ->
+                        invoiceRepository.save(InvoiceServiceImpl.buildNewInvoice(createInvoiceRequest))
+                                .flatMap(saved -> changeRepository
+                                        .save(InvoiceChange.of(InvoiceChangeType.CREATED, saved, LocalDateTime.now()))
+                                        .thenReturn(saved))
+                                .as(transactionalOperator::transactional)))
+                .map(invoice -> CreateInvoiceResponse.builder()
+                        .id(String.valueOf(invoice.getId()))
+                        .build());
+    }
+
+    /**
+     * Returns a single invoice.
+     *
+     * @param invoiceId the ID of the invoice
+     * @return the invoice, or an {@link InvoiceNotFoundException} error if no invoice is found with the
+     *         specified {@code invoiceId}
+     */
+    @Override
+    public Mono<InvoiceResponse> getInvoice(Long invoiceId) {
+        return metrics.time(Operation.GET, invoiceRepository.findById(invoiceId)
+                .map(InvoiceServiceImpl::buildInvoiceResponse)
+                .switchIfEmpty(Mono.error(() -> new InvoiceNotFoundException(
+                        String.format("No invoice found with id %s", invoiceId)))));
+    }
+
+    /**
+     * Returns the invoices matching the query, ordered by id: one page when the query has a limit, all
+     * of them otherwise. Rows are read from the database as the subscriber requests them, so a slow
+     * client slows down the query instead of buffering the result.
+     *
+     * @param query the filters, cursor and optional page size
+     * @return the matching invoices
+     */
+    @Override
+    public Flux<InvoiceResponse> getInvoices(InvoiceQuery query) {
+        return metrics.time(query.getLimit() == null ? Operation.STREAM : Operation.LIST,
+                invoiceRepository.findPage(query).map(InvoiceServiceImpl::buildInvoiceResponse));
+    }
+
+    /**
+     * Processes a payment for a specified invoice, with the validations of
+     * {@link InvoiceService#payInvoice(Long, BigDecimal)}.
+     * <p>
+     * The invoice is saved with optimistic locking on its {@code version}, in one transaction with the
+     * payment's entry in the payment ledger and the change in the invoice change outbox. On a conflict the invoice is
+     * read again, the payment re-validated and retried with a randomized exponential backoff, up to
+     * {@code invoice.payment.max-attempts} times. The backoff is a timer, not a sleeping thread.
+     * </p>
+     *
+     * @param invoiceId the ID of the invoice to be paid
+     * @param amount    the amount to be paid towards the invoice
+     * @return the updated invoice, or an {@link InvoiceNotFoundException},
+     *         {@link InvoicePaymentDataException} or {@link InvoiceConcurrencyException} error
+     */
+    @Override
+    public Mono<InvoiceResponse> payInvoice(Long invoiceId, BigDecimal amount) {
+        Money payment = Money.of(amount);
+        InvoiceProperties.Payment settings = properties.getPayment();
+
+        Mono<InvoiceResponse> attempt = invoiceRepository.findById(invoiceId)
+                .switchIfEmpty(Mono.error(() -> new InvoiceNotFoundException(String.format(
+                        "%s No invoice found with id %s", PAYMENT_FAILURE_MESSAGE_PREFIX, invoiceId))))
+                .flatMap(invoice -> {
+                    InvoiceServiceImpl.applyPayment(invoice, payment);
+                    return invoiceRepository.save(invoice)
+                            .flatMap(saved -> paymentRepository
+                                    .save(InvoiceServiceImpl.buildPayment(saved.getId(), payment))
+                                    .then(changeRepository.save(InvoiceChange.of(
+                                            InvoiceChangeType.ofUpdated(saved), saved, LocalDateTime.now())))
+                                    .thenReturn(saved))
+                            .as(transactionalOperator::transactional);
+                })
+                .map(InvoiceServiceImpl::buildInvoiceResponse);
+
+        return metrics.time(Operation.PAY, attempt
+                .retryWhen(Retry.backoff(settings.getMaxAttempts() - 1, settings.getInitialBackoff())
+                        .jitter(1.0)
+                        .filter(OptimisticLockingFailureException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> new InvoiceConcurrencyException(String.format(
+                                "%s Invoice id %s was modified concurrently, please retry",
+                                PAYMENT_FAILURE_MESSAGE_PREFIX, invoiceId))))
+                .doOnSuccess(response -> metrics.recordPayment(PaymentOutcome.SUCCESS))
+                .doOnError(InvoiceNotFoundException.class, e -> metrics.recordPayment(PaymentOutcome.NOT_FOUND))
+                .doOnError(InvoicePaymentDataException.class, e -> metrics.recordPayment(PaymentOutcome.INVALID))
+                .doOnError(InvoiceConcurrencyException.class, e -> metrics.recordPayment(PaymentOutcome.CONFLICT)));
+    }
+}
@@ -0,0 +1,115 @@
+package com.sandeep.invoice.threads;
+
+import com.sandeep.invoice.metrics.InvoiceMetrics;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads pinned to their carrier thread, which happens when a virtual thread blocks
+ * inside a {@code synchronized} block or a native frame, typically deep in a JDBC driver. A pinned
+ * virtual thread holds its carrier, so enough of them starve every other virtual thread.
+ * <p>
+ * Listens to the {@code jdk.VirtualThreadPinned} JFR event in-process. Every pinning above the threshold
+ * is recorded in the {@code invoice.virtual.threads.pinned} timer; the stack trace is logged as a warning
+ * the first time a call site pins and at debug level afterwards.
+ * </p>
+ */
+@Slf4j
+public class PinnedThreadMonitor implements SmartLifecycle {
+
+    static final String EVENT_NAME = "jdk.VirtualThreadPinned";
+
+    private static final int LOGGED_FRAMES = 16;
+
+    private final InvoiceMetrics metrics;
+    private final Duration threshold;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+
+    private volatile RecordingStream recordingStream;
+
+    public PinnedThreadMonitor(InvoiceMetrics metrics, Duration threshold) {
+        this.metrics = metrics;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void start() {
+        RecordingStream stream = new RecordingStream();
+        stream.enable(EVENT_NAME).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT_NAME, this::onPinned);
+        stream.startAsync();
+        recordingStream = stream;
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream stream = recordingStream;
+        if (stream != null) {
+            recordingStream = null;
+            stream.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return recordingStream != null;
+    }
+
+    void onPinned(RecordedEvent event) {
+        metrics.recordPinnedVirtualThread(event.getDuration());
+
+        List<RecordedFrame> frames = frames(event.getStackTrace());
+        String site = site(frames);
+        if (reportedSites.add(site)) {
+            log.warn("Virtual thread pinned for {} ms at {}\n{}", event.getDuration().toMillis(), site,
+                    format(frames));
+        } else if (log.isDebugEnabled()) {
+            log.debug("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), site);
+        }
+    }
+
+    private static List<RecordedFrame> frames(RecordedStackTrace stackTrace) {
+        return stackTrace == null ? List.of() : stackTrace.getFrames().stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .toList();
+    }
+
+    /**
+     * Returns the innermost frame outside the JDK, which is where the application or a library blocked.
+     */
+    private static String site(List<RecordedFrame> frames) {
+        return frames.stream()
+                .filter(frame -> !isJdkFrame(frame))
+                .findFirst()
+                .or(() -> frames.stream().findFirst())
+                .map(PinnedThreadMonitor::describe)
+                .orElse("unknown");
+    }
+
+    private static boolean isJdkFrame(RecordedFrame frame) {
+        String type = frame.getMethod().getType().getName();
+        return type.startsWith("java.") || type.startsWith("jdk.") || type.startsWith("sun.");
+    }
+
+    private static String format(List<RecordedFrame> frames) {
+        return frames.stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> "\tat " + describe(frame))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+}
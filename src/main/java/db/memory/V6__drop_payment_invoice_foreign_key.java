@@ -0,0 +1,43 @@
+package db.memory;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drops the foreign key from {@code payment.invoice_id} to {@code invoice.id}, so that the invoices can be
+ * kept in another store (the {@code memory} profile) while the ledger stays in the database. Every payment
+ * is still inserted in the transaction that reads and updates its invoice, so it cannot refer to a missing
+ * one.
+ * <p>
+ * Only the {@code memory} profile adds this location to {@code spring.flyway.locations}; everywhere else the
+ * constraint is kept.
+ * </p>
+ * <p>
+ * A Java migration because V4 left the constraint unnamed, and its generated name can only be looked up.
+ * </p>
+ */
+public class V6__drop_payment_invoice_foreign_key extends BaseJavaMigration {
+
+    static final String FIND_FOREIGN_KEYS = "SELECT constraint_name FROM information_schema.table_constraints"
+            + " WHERE table_schema = CURRENT_SCHEMA AND table_name = 'PAYMENT' AND constraint_type = 'FOREIGN KEY'";
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            List<String> foreignKeys = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery(FIND_FOREIGN_KEYS)) {
+                while (rs.next()) {
+                    foreignKeys.add(rs.getString(1));
+                }
+            }
+            for (String foreignKey : foreignKeys) {
+                statement.execute("ALTER TABLE payment DROP CONSTRAINT \"" + foreignKey + "\"");
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+-- Invoice ids are allocated by the application in blocks of 100 (see InvoiceIdAllocator): every value
+-- drawn from the sequence reserves itself and the following 99 ids, so the increment must match the
+-- block size.
+CREATE SEQUENCE invoice_id_seq START WITH 1234 INCREMENT BY 100;
+
+CREATE TABLE invoice (
+    id BIGINT PRIMARY KEY,
+    amount DECIMAL(19, 2) NOT NULL,
+    paid_amount DECIMAL(19, 2),
+    due_date DATE,
+    status VARCHAR(255),
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE overdue_run (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    late_fee DECIMAL(19, 2) NOT NULL,
+    overdue_days INT NOT NULL,
+    processing_date DATE NOT NULL,
+    partition_count INT NOT NULL,
+    status VARCHAR(32) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    completed_at TIMESTAMP
+);
+
+CREATE TABLE overdue_partition (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    run_id BIGINT NOT NULL REFERENCES overdue_run (id),
+    partition_no INT NOT NULL,
+    from_id BIGINT NOT NULL,
+    to_id BIGINT NOT NULL,
+    last_processed_id BIGINT NOT NULL,
+    status VARCHAR(32) NOT NULL,
+    lease_owner VARCHAR(64),
+    lease_expires_at TIMESTAMP,
+    processed_count BIGINT NOT NULL DEFAULT 0,
+    paid_count BIGINT NOT NULL DEFAULT 0,
+    void_count BIGINT NOT NULL DEFAULT 0,
+    chunk_count BIGINT NOT NULL DEFAULT 0,
+    UNIQUE (run_id, partition_no)
+);
@@ -0,0 +1,14 @@
+-- Store the invoice status as a one-byte code (see Status#getCode) instead of its name, and index
+-- (status, due_date) for the overdue scans, which filter on both.
+ALTER TABLE invoice ADD COLUMN status_code TINYINT;
+
+UPDATE invoice SET status_code = CASE status
+    WHEN 'PENDING' THEN 0
+    WHEN 'PAID' THEN 1
+    WHEN 'VOID' THEN 2
+END;
+
+ALTER TABLE invoice DROP COLUMN status;
+ALTER TABLE invoice ALTER COLUMN status_code RENAME TO status;
+
+CREATE INDEX idx_invoice_status_due_date ON invoice (status, due_date);
@@ -0,0 +1,10 @@
+-- Responses of requests sent with an Idempotency-Key header (see IdempotencyStore). A row is written in
+-- the transaction of the request it belongs to, so it exists exactly when the request took effect.
+CREATE TABLE idempotency_key (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    fingerprint VARCHAR(255) NOT NULL,
+    response VARCHAR(4000) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_idempotency_key_created_at ON idempotency_key (created_at);
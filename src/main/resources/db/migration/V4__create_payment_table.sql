@@ -0,0 +1,14 @@
+-- Append-only payment ledger. Every payment adds a row in the transaction that updates the paid amount
+-- and status of its invoice, so invoice.paid_amount is a projection of SUM(payment.amount).
+CREATE TABLE payment (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    invoice_id BIGINT NOT NULL REFERENCES invoice (id),
+    amount DECIMAL(19, 2) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_payment_invoice_id ON payment (invoice_id, id);
+
+-- Payments made before the ledger existed are carried over as one opening entry per invoice.
+INSERT INTO payment (invoice_id, amount, created_at)
+SELECT id, paid_amount, CURRENT_TIMESTAMP FROM invoice WHERE paid_amount > 0;
@@ -0,0 +1,26 @@
+-- Transactional outbox of invoice state changes (see InvoiceChangeLog). A row is written in the transaction that
+-- changes the invoice, with a snapshot of the invoice after the change.
+--
+-- Ids are assigned at insert time, so they do not follow commit order. The relay therefore gives committed rows a
+-- gap-free seq in the order it finds them, and consumers of GET /invoices/changes page by seq, never by id.
+CREATE TABLE invoice_change (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    seq BIGINT,
+    invoice_id BIGINT NOT NULL,
+    type VARCHAR(16) NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    paid_amount DECIMAL(19, 2) NOT NULL,
+    due_date DATE,
+    status TINYINT NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE UNIQUE INDEX idx_invoice_change_seq ON invoice_change (seq);
+
+-- Position of the relay. Instances lock the row while they sequence a batch, so only one of them does at a time.
+CREATE TABLE invoice_change_relay (
+    name VARCHAR(64) PRIMARY KEY,
+    last_seq BIGINT NOT NULL
+);
+
+INSERT INTO invoice_change_relay (name, last_seq) VALUES ('default', 0);
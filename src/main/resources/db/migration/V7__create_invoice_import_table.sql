@@ -0,0 +1,15 @@
+-- Bulk CSV imports (see InvoiceImporter). Each batch of rows commits its invoices together with the import's
+-- progress, so last_committed_line is exactly the part of the file that has been imported, and a resumed import
+-- skips the lines up to it. Like overdue partitions, an import is worked on under a lease.
+CREATE TABLE invoice_import (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    status VARCHAR(32) NOT NULL,
+    last_committed_line BIGINT NOT NULL DEFAULT 0,
+    imported_count BIGINT NOT NULL DEFAULT 0,
+    rejected_count BIGINT NOT NULL DEFAULT 0,
+    batch_count BIGINT NOT NULL DEFAULT 0,
+    lease_owner VARCHAR(64),
+    lease_expires_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL,
+    completed_at TIMESTAMP
+);
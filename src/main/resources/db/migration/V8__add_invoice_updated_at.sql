@@ -0,0 +1,5 @@
+-- Time of the last write to each invoice, for GET /invoices?updated_since=. Existing rows count as written now.
+-- Set by the application (see Invoice#updatedAt); the default only covers rows inserted by hand.
+ALTER TABLE invoice ADD COLUMN updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL;
+
+CREATE INDEX idx_invoice_updated_at ON invoice (updated_at);
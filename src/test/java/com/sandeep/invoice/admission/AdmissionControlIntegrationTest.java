@@ -0,0 +1,90 @@
+package com.sandeep.invoice.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:admission-control-integration-test",
+        "invoice.admission.payments.permit-interval=PT1H",
+        "invoice.admission.payments.burst=2",
+        "invoice.admission.overdue.permit-interval=PT1H",
+        "invoice.admission.overdue.burst=1"
+})
+@AutoConfigureMockMvc
+class AdmissionControlIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testPaymentsAreRateLimitedPerClient() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(pay("10.0.0.1"))
+                    .andExpect(status().is(not(429)));
+        }
+        mockMvc.perform(post("/invoices/payments:batch")
+                        .with(remoteAddress("10.0.0.1"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"payments\": [{\"invoice_id\": 1, \"amount\": 10.00}]}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3600"))
+                .andExpect(jsonPath("$.message", containsString("Too many payment requests")));
+
+        mockMvc.perform(pay("10.0.0.2"))
+                .andExpect(status().is(not(429)));
+        mockMvc.perform(get("/invoices/1/payments").with(remoteAddress("10.0.0.1")))
+                .andExpect(status().is(not(429)));
+        assertThat(meterRegistry.get("invoice.admission.rejections").tag("reason", "rate_limited").counter()
+                .count()).isPositive();
+    }
+
+    @Test
+    void testOverdueRunsAreRateLimitedPerClient() throws Exception {
+        mockMvc.perform(processOverdue("10.0.1.1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(processOverdue("10.0.1.1"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(jsonPath("$.message", containsString("Too many overdue requests")));
+    }
+
+    private static MockHttpServletRequestBuilder pay(String remoteAddress) {
+        return post("/invoices/1/payments")
+                .with(remoteAddress(remoteAddress))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"amount\": 10.00}");
+    }
+
+    private static MockHttpServletRequestBuilder processOverdue(String remoteAddress) {
+        return post("/invoices/process-overdue")
+                .with(remoteAddress(remoteAddress))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"late_fee\": 10.00, \"overdue_days\": 30}");
+    }
+
+    private static RequestPostProcessor remoteAddress(String remoteAddress) {
+        return request -> {
+            request.setRemoteAddr(remoteAddress);
+            return request;
+        };
+    }
+}
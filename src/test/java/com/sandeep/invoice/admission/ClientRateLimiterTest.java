@@ -0,0 +1,69 @@
+package com.sandeep.invoice.admission;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientRateLimiterTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final AtomicLong now = new AtomicLong(123 * SECOND);
+    private final ClientRateLimiter rateLimiter = new ClientRateLimiter(
+            new InvoiceProperties.RateLimit(Duration.ofSeconds(1), 3), 10, now::get);
+
+    @Test
+    void testBurstThenOnePermitPerInterval() {
+        assertThat(rateLimiter.tryAcquire("a")).isZero();
+        assertThat(rateLimiter.tryAcquire("a")).isZero();
+        assertThat(rateLimiter.tryAcquire("a")).isZero();
+        assertThat(rateLimiter.tryAcquire("a")).isEqualTo(SECOND);
+
+        now.addAndGet(SECOND / 4);
+        assertThat(rateLimiter.tryAcquire("a")).isEqualTo(SECOND * 3 / 4);
+
+        now.addAndGet(SECOND * 3 / 4);
+        assertThat(rateLimiter.tryAcquire("a")).isZero();
+        assertThat(rateLimiter.tryAcquire("a")).isEqualTo(SECOND);
+    }
+
+    @Test
+    void testRejectedRequestsDoNotTakePermits() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("a");
+        }
+        for (int i = 0; i < 100; i++) {
+            assertThat(rateLimiter.tryAcquire("a")).isPositive();
+        }
+
+        now.addAndGet(SECOND);
+        assertThat(rateLimiter.tryAcquire("a")).isZero();
+    }
+
+    @Test
+    void testIdleClientGetsAFullBucketAgain() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("a");
+        }
+
+        now.addAndGet(10 * SECOND);
+        for (int i = 0; i < 3; i++) {
+            assertThat(rateLimiter.tryAcquire("a")).isZero();
+        }
+        assertThat(rateLimiter.tryAcquire("a")).isPositive();
+    }
+
+    @Test
+    void testClientsHaveSeparateBuckets() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("a");
+        }
+
+        assertThat(rateLimiter.tryAcquire("a")).isPositive();
+        assertThat(rateLimiter.tryAcquire("b")).isZero();
+    }
+}
@@ -0,0 +1,49 @@
+package com.sandeep.invoice.admission;
+
+import com.sandeep.invoice.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoadShedderTest {
+
+    // Every wait ends an interval, so each one decides on its own whether requests are shed.
+    private static final Duration INTERVAL = Duration.ofNanos(1);
+
+    @Test
+    void testShortWaitsDoNotShed() throws Exception {
+        LoadShedder loadShedder = new LoadShedder(1, Duration.ofSeconds(1), INTERVAL, Duration.ofSeconds(5));
+        loadShedder.acquire();
+
+        CompletableFuture<Void> release = CompletableFuture.runAsync(loadShedder::release,
+                CompletableFuture.delayedExecutor(20, TimeUnit.MILLISECONDS));
+        loadShedder.acquire();
+        release.get();
+
+        assertThat(loadShedder.isOverloaded()).isFalse();
+    }
+
+    @Test
+    void testStandingQueueShedsUntilAPermitIsFreeOnArrival() {
+        LoadShedder loadShedder = new LoadShedder(1, Duration.ofMillis(10), INTERVAL, Duration.ofMillis(50));
+        loadShedder.acquire();
+
+        ServiceOverloadedException timedOut = assertThrows(ServiceOverloadedException.class, loadShedder::acquire);
+        assertThat(timedOut.getMessage()).contains("Timed out after 50 ms");
+        assertThat(loadShedder.isOverloaded()).isTrue();
+
+        long start = System.nanoTime();
+        ServiceOverloadedException shed = assertThrows(ServiceOverloadedException.class, loadShedder::acquire);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(50));
+        assertThat(shed.getRetryAfter()).isEqualTo(INTERVAL);
+
+        loadShedder.release();
+        loadShedder.acquire();
+        assertThat(loadShedder.isOverloaded()).isFalse();
+    }
+}
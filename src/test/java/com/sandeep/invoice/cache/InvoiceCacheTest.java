@@ -0,0 +1,105 @@
+package com.sandeep.invoice.cache;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvoiceCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InvoiceCache invoiceCache = new InvoiceCache(new InvoiceProperties(), meterRegistry);
+
+    @Test
+    void testGet_LoadsOnceAndReturnsCopies() {
+        AtomicInteger loads = new AtomicInteger();
+
+        Invoice first = invoiceCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(invoice(id, "10.00", 0));
+        }).orElseThrow();
+        first.setPaidAmount(Money.of("99.00"));
+        Invoice second = invoiceCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        }).orElseThrow();
+
+        assertThat(loads).hasValue(1);
+        assertThat(second.getPaidAmount()).isEqualTo(Money.of("10.00"));
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "invoices").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testGet_MissingInvoiceIsNotCached() {
+        assertThat(invoiceCache.get(1L, id -> Optional.empty())).isEmpty();
+        assertThat(invoiceCache.get(1L, id -> Optional.of(invoice(id, "0.00", 0)))).isPresent();
+    }
+
+    @Test
+    void testPut_KeepsNewerVersion() {
+        invoiceCache.put(invoice(1L, "20.00", 2));
+        invoiceCache.put(invoice(1L, "10.00", 1));
+
+        assertThat(cached(1L).getPaidAmount()).isEqualTo(Money.of("20.00"));
+
+        invoiceCache.put(invoice(1L, "30.00", 3));
+        assertThat(cached(1L).getPaidAmount()).isEqualTo(Money.of("30.00"));
+    }
+
+    @Test
+    void testUpdateIfPresent_DoesNotAddInvoices() {
+        invoiceCache.put(invoice(1L, "0.00", 0));
+
+        invoiceCache.updateIfPresent(List.of(invoice(1L, "5.00", 1), invoice(2L, "5.00", 1)));
+
+        assertThat(cached(1L).getPaidAmount()).isEqualTo(Money.of("5.00"));
+        assertThat(invoiceCache.get(2L, id -> Optional.empty())).isEmpty();
+    }
+
+    @Test
+    void testGetAll_LoadsOnlyMissingInvoices() {
+        invoiceCache.put(invoice(1L, "1.00", 0));
+
+        Map<Long, Invoice> invoices = invoiceCache.getAll(List.of(1L, 2L, 3L), ids -> {
+            assertThat(ids).containsExactlyInAnyOrder(2L, 3L);
+            return List.of(invoice(2L, "2.00", 0));
+        });
+
+        assertThat(invoices).containsOnlyKeys(1L, 2L);
+        assertThat(invoices.get(1L).getPaidAmount()).isEqualTo(Money.of("1.00"));
+    }
+
+    @Test
+    void testInvalidate_ForcesReload() {
+        invoiceCache.put(invoice(1L, "1.00", 0));
+        invoiceCache.invalidate(1L);
+
+        assertThat(invoiceCache.get(1L, id -> Optional.of(invoice(id, "2.00", 1))).orElseThrow().getPaidAmount())
+                .isEqualTo(Money.of("2.00"));
+    }
+
+    private Invoice cached(Long id) {
+        return invoiceCache.get(id, key -> Optional.empty()).orElseThrow();
+    }
+
+    private static Invoice invoice(Long id, String paidAmount, long version) {
+        return Invoice.builder()
+                .id(id)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of(paidAmount))
+                .status(Status.PENDING)
+                .version(version)
+                .build();
+    }
+}
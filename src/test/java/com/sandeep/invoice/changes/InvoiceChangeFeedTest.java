@@ -0,0 +1,73 @@
+package com.sandeep.invoice.changes;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.model.InvoiceChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InvoiceChangeFeedTest {
+
+    private static final InvoiceChange CHANGE = InvoiceChange.builder().id(1L).seq(6L).build();
+
+    @Mock
+    private InvoiceChangeLog changeLog;
+
+    private final InvoiceProperties properties = new InvoiceProperties();
+
+    private InvoiceChangeFeed changeFeed;
+
+    @BeforeEach
+    void setUp() {
+        properties.getChanges().setPollInterval(Duration.ofMinutes(1));
+        changeFeed = new InvoiceChangeFeed(changeLog, properties);
+    }
+
+    @Test
+    void testAwait_ReturnsAvailableChangesWithoutWaiting() {
+        when(changeLog.findSequencedAfter(5, 10)).thenReturn(List.of(CHANGE));
+
+        assertThat(changeFeed.await(5, 10, Duration.ofMinutes(1))).containsExactly(CHANGE);
+    }
+
+    @Test
+    void testAwait_WakesUpOnSignal() throws Exception {
+        when(changeLog.findSequencedAfter(5, 10)).thenReturn(List.of(), List.of(CHANGE));
+
+        CompletableFuture<List<InvoiceChange>> changes =
+                CompletableFuture.supplyAsync(() -> changeFeed.await(5, 10, Duration.ofMinutes(1)));
+        verify(changeLog, timeout(5000)).findSequencedAfter(5, 10);
+        changeFeed.signal();
+
+        assertThat(changes.get(5, TimeUnit.SECONDS)).containsExactly(CHANGE);
+    }
+
+    @Test
+    void testAwait_RereadsEveryPollInterval() {
+        properties.getChanges().setPollInterval(Duration.ofMillis(10));
+        changeFeed = new InvoiceChangeFeed(changeLog, properties);
+        when(changeLog.findSequencedAfter(5, 10)).thenReturn(List.of(), List.of(), List.of(CHANGE));
+
+        assertThat(changeFeed.await(5, 10, Duration.ofMinutes(1))).containsExactly(CHANGE);
+        verify(changeLog, times(3)).findSequencedAfter(5, 10);
+    }
+
+    @Test
+    void testAwait_ReturnsEmptyAfterWait() {
+        when(changeLog.findSequencedAfter(5, 10)).thenReturn(List.of());
+
+        assertThat(changeFeed.await(5, 10, Duration.ofMillis(50))).isEmpty();
+        assertThat(changeFeed.await(5, 10, Duration.ZERO)).isEmpty();
+    }
+}
@@ -0,0 +1,87 @@
+package com.sandeep.invoice.changes;
+
+import com.sandeep.invoice.dto.InvoiceChangeType;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.InvoiceChange;
+import com.sandeep.invoice.model.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@JdbcTest
+class InvoiceChangeLogTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private InvoiceChangeLog changeLog;
+
+    @BeforeEach
+    void setUp() {
+        changeLog = new InvoiceChangeLog(jdbcTemplate);
+    }
+
+    @Test
+    void testChangesAreVisibleOnlyOnceSequenced() {
+        changeLog.appendCreated(List.of(invoice(1L, "0.00", Status.PENDING), invoice(2L, "0.00", Status.PENDING)));
+        assertThat(changeLog.findSequencedAfter(0, 10)).isEmpty();
+
+        assertThat(changeLog.sequenceNext(10)).extracting(InvoiceChange::getSeq).containsExactly(1L, 2L);
+        assertThat(changeLog.sequenceNext(10)).isEmpty();
+
+        List<InvoiceChange> changes = changeLog.findSequencedAfter(0, 10);
+        assertThat(changes).extracting(InvoiceChange::getInvoiceId).containsExactly(1L, 2L);
+        assertThat(changes.get(0).getType()).isEqualTo(InvoiceChangeType.CREATED);
+        assertThat(changes.get(0).getAmount()).isEqualTo(Money.of("100.00"));
+        assertThat(changes.get(0).getDueDate()).isEqualTo(LocalDate.of(2024, 11, 30));
+        assertThat(changeLog.findSequencedAfter(1, 10)).extracting(InvoiceChange::getSeq).containsExactly(2L);
+    }
+
+    @Test
+    void testAppendUpdated_TypedByStatus() {
+        changeLog.appendUpdated(List.of(
+                invoice(1L, "40.00", Status.PENDING),
+                invoice(2L, "100.00", Status.PAID),
+                invoice(3L, "0.00", Status.VOID)));
+
+        assertThat(changeLog.sequenceNext(2)).extracting(InvoiceChange::getType)
+                .containsExactly(InvoiceChangeType.PAYMENT, InvoiceChangeType.PAID);
+        assertThat(changeLog.sequenceNext(2)).singleElement().satisfies(change -> {
+            assertThat(change.getSeq()).isEqualTo(3L);
+            assertThat(change.getType()).isEqualTo(InvoiceChangeType.VOIDED);
+        });
+        assertThat(changeLog.findSequencedAfter(0, 10).get(0).getPaidAmount()).isEqualTo(Money.of("40.00"));
+    }
+
+    @Test
+    void testDeleteSequencedBefore_KeepsUnrelayedChanges() {
+        changeLog.appendCreated(List.of(invoice(1L, "0.00", Status.PENDING)));
+        changeLog.sequenceNext(10);
+        changeLog.appendCreated(List.of(invoice(2L, "0.00", Status.PENDING)));
+
+        assertThat(changeLog.deleteSequencedBefore(LocalDateTime.now().plusMinutes(1))).isEqualTo(1);
+
+        assertThat(changeLog.sequenceNext(10)).extracting(InvoiceChange::getInvoiceId, InvoiceChange::getSeq)
+                .containsExactly(tuple(2L, 2L));
+    }
+
+    private static Invoice invoice(Long id, String paidAmount, Status status) {
+        return Invoice.builder()
+                .id(id)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of(paidAmount))
+                .dueDate(LocalDate.of(2024, 11, 30))
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,167 @@
+package com.sandeep.invoice.changes;
+
+import com.sandeep.invoice.dto.CreateInvoiceRequest;
+import com.sandeep.invoice.dto.InvoiceChangeResponse;
+import com.sandeep.invoice.dto.InvoiceChangeType;
+import com.sandeep.invoice.dto.InvoiceChangesResponse;
+import com.sandeep.invoice.dto.ProcessOverdueRequest;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.InvoiceChange;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.service.InvoiceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:invoice-change-stream-test")
+class InvoiceChangeStreamIntegrationTest {
+
+    private static final CreateInvoiceRequest INVOICE = CreateInvoiceRequest.builder()
+            .amount(new BigDecimal("100.00"))
+            .dueDate(LocalDate.now().plusDays(30))
+            .build();
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceChangeRelay changeRelay;
+
+    @Autowired
+    private PublishedChanges publishedChanges;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void testChangesAreStreamedInCommitOrder() {
+        long since = currentCursor();
+        Long paidId = Long.valueOf(invoiceService.createInvoice(INVOICE).getId());
+        invoiceService.payInvoice(paidId, new BigDecimal("40.00"));
+        invoiceService.payInvoice(paidId, new BigDecimal("60.00"));
+        Long overdueId = Long.valueOf(invoiceService.createInvoice(INVOICE).getId());
+        jdbcTemplate.update("UPDATE invoice SET due_date = ? WHERE id = ?", LocalDate.now().minusDays(10), overdueId);
+        invoiceService.processOverdue(ProcessOverdueRequest.builder()
+                .lateFee(new BigDecimal("10.50"))
+                .overdueDays(5)
+                .build());
+        changeRelay.relay();
+
+        List<InvoiceChangeResponse> changes = invoiceService.getChanges(since, 100, Duration.ZERO).getChanges();
+
+        assertThat(changes).extracting(change -> change.getInvoice().getId(), InvoiceChangeResponse::getType)
+                .startsWith(
+                        tuple(paidId.toString(), InvoiceChangeType.CREATED),
+                        tuple(paidId.toString(), InvoiceChangeType.PAYMENT),
+                        tuple(paidId.toString(), InvoiceChangeType.PAID),
+                        tuple(overdueId.toString(), InvoiceChangeType.CREATED),
+                        tuple(overdueId.toString(), InvoiceChangeType.VOIDED));
+        assertThat(changes.get(1).getInvoice().getPaidAmount()).isEqualTo(Money.of("40.00"));
+        assertThat(changes.get(2).getInvoice().getStatus()).isEqualTo(Status.PAID);
+        assertThat(changes.get(5).getType()).isEqualTo(InvoiceChangeType.CREATED);
+        assertThat(changes.get(5).getInvoice().getAmount()).isEqualTo(Money.of("110.50"));
+        assertThat(changes).extracting(change -> Long.parseLong(change.getCursor()))
+                .isSorted()
+                .doesNotHaveDuplicates();
+
+        Set<Long> published = publishedChanges.seqs();
+        assertThat(changes).allSatisfy(change -> assertThat(published).contains(Long.parseLong(change.getCursor())));
+    }
+
+    @Test
+    void testLongPoll_ReturnsAsSoonAsAChangeIsRelayed() throws Exception {
+        long since = currentCursor();
+
+        CompletableFuture<InvoiceChangesResponse> poll =
+                CompletableFuture.supplyAsync(() -> invoiceService.getChanges(since, 100, Duration.ofSeconds(30)));
+        String invoiceId = invoiceService.createInvoice(INVOICE).getId();
+
+        InvoiceChangesResponse response = poll.get(10, TimeUnit.SECONDS);
+        assertThat(response.getChanges()).extracting(change -> change.getInvoice().getId(), InvoiceChangeResponse::getType)
+                .containsExactly(tuple(invoiceId, InvoiceChangeType.CREATED));
+        assertThat(response.getNextCursor()).isEqualTo(response.getChanges().get(0).getCursor());
+    }
+
+    @Test
+    void testServerSentEvents() throws Exception {
+        long since = currentCursor();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/invoices/changes?since=" + since))
+                .header("Accept", "text/event-stream")
+                .build();
+
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+            assertThat(response.statusCode()).isEqualTo(200);
+            String invoiceId = invoiceService.createInvoice(INVOICE).getId();
+
+            CompletableFuture<List<String>> event = CompletableFuture.supplyAsync(() -> response.body()
+                    .filter(line -> !line.startsWith(":"))
+                    .dropWhile(String::isEmpty)
+                    .takeWhile(line -> !line.isEmpty())
+                    .toList());
+            List<String> lines = event.get(10, TimeUnit.SECONDS);
+            response.body().close();
+
+            assertThat(lines).contains("id:" + (since + 1), "event:CREATED");
+            assertThat(lines).anySatisfy(line -> assertThat(line)
+                    .startsWith("data:")
+                    .contains("\"type\":\"CREATED\"", "\"id\":\"" + invoiceId + "\""));
+        }
+    }
+
+    private long currentCursor() {
+        changeRelay.relay();
+        Long seq = jdbcTemplate.queryForObject("SELECT last_seq FROM invoice_change_relay", Long.class);
+        return seq;
+    }
+
+    @TestConfiguration
+    static class PublishedChangesConfiguration {
+
+        @Bean
+        PublishedChanges publishedChanges() {
+            return new PublishedChanges();
+        }
+    }
+
+    static class PublishedChanges {
+
+        private final List<InvoiceChange> changes = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        void onPublished(InvoiceChangesPublishedEvent event) {
+            changes.addAll(event.getChanges());
+        }
+
+        Set<Long> seqs() {
+            return changes.stream().map(InvoiceChange::getSeq).collect(Collectors.toSet());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.sandeep.invoice.controller;
+
+import com.sandeep.invoice.dto.InvoiceChangesResponse;
+import com.sandeep.invoice.service.InvoiceService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InvoiceChangeStreamsTest {
+
+    @Test
+    void testDestroy_InterruptsWaitingStreams() throws Exception {
+        InvoiceService invoiceService = mock(InvoiceService.class);
+        CountDownLatch waiting = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(invoiceService.getChanges(anyLong(), anyInt(), any())).thenAnswer(invocation -> {
+            waiting.countDown();
+            try {
+                Thread.sleep(Duration.ofMinutes(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            return InvoiceChangesResponse.builder().changes(List.of()).nextCursor("0").build();
+        });
+        InvoiceChangeStreams changeStreams = new InvoiceChangeStreams(invoiceService);
+
+        changeStreams.stream(0, 100, Duration.ofMinutes(5), Duration.ofMinutes(1));
+        assertThat(waiting.await(5, TimeUnit.SECONDS)).isTrue();
+        changeStreams.destroy();
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -2,29 +2,52 @@ package com.sandeep.invoice.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sandeep.invoice.dto.*;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.exception.IdempotencyKeyReusedException;
+import com.sandeep.invoice.exception.InvoiceConcurrencyException;
+import com.sandeep.invoice.exception.OverdueRunInProgressException;
+import com.sandeep.invoice.exception.ServiceOverloadedException;
 import com.sandeep.invoice.service.InvoiceService;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doNothing;
-import static org.mockito.Mockito.when;
-import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
-import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
-
-@WebMvcTest(InvoiceController.class)
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Admission control is covered by AdmissionControlIntegrationTest; its rate limits would outlive each test here.
+@WebMvcTest(controllers = InvoiceController.class, properties = "invoice.admission.enabled=false")
+@Import(InvoiceChangeStreams.class)
 class InvoiceControllerTest {
 
     @Autowired
@@ -46,7 +69,7 @@ class InvoiceControllerTest {
         CreateInvoiceResponse response = CreateInvoiceResponse.builder()
                 .id("1")
                 .build();
-        when(invoiceService.createInvoice(any(CreateInvoiceRequest.class))).thenReturn(response);
+        when(invoiceService.createInvoice(any(CreateInvoiceRequest.class), isNull())).thenReturn(response);
 
         mockMvc.perform(post("/invoices")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -55,16 +78,92 @@ class InvoiceControllerTest {
                 .andExpect(jsonPath("$.id", is("1")));
     }
 
+    @Test
+    void testCreateInvoices() throws Exception {
+        when(invoiceService.createInvoices(anyList())).thenReturn(BatchCreateInvoiceResponse.builder()
+                .ids(List.of("1234", "1235"))
+                .build());
+
+        mockMvc.perform(post("/invoices:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"invoices\": [{\"amount\": 100.00, \"due_date\": \"2024-11-30\"}, " +
+                        "{\"amount\": 200.00, \"due_date\": \"2024-12-31\"}]}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.ids", contains("1234", "1235")));
+
+        ArgumentCaptor<List<CreateInvoiceRequest>> captor = ArgumentCaptor.captor();
+        verify(invoiceService).createInvoices(captor.capture());
+        assertThat(captor.getValue()).extracting(CreateInvoiceRequest::getAmount)
+                .containsExactly(new BigDecimal("100.00"), new BigDecimal("200.00"));
+    }
+
+    @Test
+    void testValidationFailureForCreateInvoices() throws Exception {
+        mockMvc.perform(post("/invoices:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"invoices\": [{\"amount\": 100.00}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("Validation failed")));
+
+        mockMvc.perform(post("/invoices:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"invoices\": []}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetInvoice() throws Exception {
+        when(invoiceService.getInvoice(1234L)).thenReturn(InvoiceResponse.builder()
+                .id("1234")
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of("50.00"))
+                .dueDate(LocalDate.parse("2024-11-30"))
+                .status(Status.PENDING)
+                .build());
+
+        mockMvc.perform(get("/invoices/1234"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is("1234")))
+                .andExpect(jsonPath("$.paid_amount", is(50.00)));
+    }
+
+    @Test
+    void testGetSummary() throws Exception {
+        when(invoiceService.getSummary()).thenReturn(InvoiceSummaryResponse.builder()
+                .statuses(Map.of(Status.PENDING, StatusSummary.builder()
+                        .count(2)
+                        .amount(Money.of("150.00"))
+                        .paidAmount(Money.of("25.00"))
+                        .build()))
+                .outstandingAmount(Money.of("125.00"))
+                .overdueCount(1)
+                .overdueAmount(Money.of("100.00"))
+                .overdue(List.of(OverdueBucketSummary.builder()
+                        .daysFrom(91)
+                        .count(1)
+                        .amount(Money.of("100.00"))
+                        .build()))
+                .build());
+
+        mockMvc.perform(get("/invoices/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.statuses.PENDING.count", is(2)))
+                .andExpect(jsonPath("$.statuses.PENDING.paid_amount", is(25.00)))
+                .andExpect(jsonPath("$.outstanding_amount", is(125.00)))
+                .andExpect(jsonPath("$.overdue[0].days_from", is(91)))
+                .andExpect(jsonPath("$.overdue[0].days_to").value(nullValue()));
+    }
+
     @Test
     void testGetInvoices() throws Exception {
         InvoiceResponse invoice = InvoiceResponse.builder()
                 .id("1")
-                .amount(new BigDecimal("100.00"))
-                .paidAmount(new BigDecimal("50.00"))
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of("50.00"))
                 .dueDate(LocalDate.parse("2024-11-30"))
                 .status(Status.PENDING)
                 .build();
-        when(invoiceService.getInvoices()).thenReturn(List.of(invoice));
+        when(invoiceService.getInvoices(any(InvoiceQuery.class))).thenReturn(List.of(invoice));
 
         mockMvc.perform(get("/invoices")
                 .contentType(MediaType.APPLICATION_JSON))
@@ -76,6 +175,243 @@ class InvoiceControllerTest {
                 .andExpect(jsonPath("$[0].status", is("PENDING")));
     }
 
+    @Test
+    void testGetInvoicesWithCursorAndFilters() throws Exception {
+        when(invoiceService.getInvoices(any(InvoiceQuery.class))).thenReturn(List.of());
+
+        mockMvc.perform(get("/invoices")
+                .param("after_id", "1234")
+                .param("limit", "50")
+                .param("status", "PENDING")
+                .param("due_from", "2024-11-01")
+                .param("due_to", "2024-11-30")
+                .param("updated_since", "2024-11-20T09:30:15.123456"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        ArgumentCaptor<InvoiceQuery> captor = ArgumentCaptor.forClass(InvoiceQuery.class);
+        verify(invoiceService).getInvoices(captor.capture());
+
+        InvoiceQuery query = captor.getValue();
+        assertThat(query.getAfterId()).isEqualTo(1234L);
+        assertThat(query.getLimit()).isEqualTo(50);
+        assertThat(query.getStatus()).isEqualTo(Status.PENDING);
+        assertThat(query.getDueFrom()).isEqualTo(LocalDate.parse("2024-11-01"));
+        assertThat(query.getDueTo()).isEqualTo(LocalDate.parse("2024-11-30"));
+        assertThat(query.getUpdatedSince()).isEqualTo(LocalDateTime.parse("2024-11-20T09:30:15.123456"));
+    }
+
+    @Test
+    void testGetInvoices_ETag() throws Exception {
+        when(invoiceService.getInvoicesETag()).thenReturn("\"3-17\"");
+        when(invoiceService.getInvoices(any(InvoiceQuery.class))).thenReturn(List.of(InvoiceResponse.builder()
+                .id("1")
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
+                .dueDate(LocalDate.parse("2024-11-30"))
+                .status(Status.PENDING)
+                .updatedAt(LocalDateTime.parse("2024-11-20T09:30:15.123456"))
+                .build()));
+
+        mockMvc.perform(get("/invoices")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"2-17\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-17\""))
+                .andExpect(jsonPath("$[0].updated_at", is("2024-11-20T09:30:15.123456")));
+    }
+
+    @Test
+    void testGetInvoices_NotModified() throws Exception {
+        when(invoiceService.getInvoicesETag()).thenReturn("\"3-17\"");
+
+        mockMvc.perform(get("/invoices")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3-17\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-17\""))
+                .andExpect(content().string(""));
+        verify(invoiceService, never()).getInvoices(any());
+    }
+
+    @Test
+    void testGetInvoicesDefaultLimit() throws Exception {
+        when(invoiceService.getInvoices(any(InvoiceQuery.class))).thenReturn(List.of());
+
+        mockMvc.perform(get("/invoices"))
+                .andExpect(status().isOk());
+
+        ArgumentCaptor<InvoiceQuery> captor = ArgumentCaptor.forClass(InvoiceQuery.class);
+        verify(invoiceService).getInvoices(captor.capture());
+        assertThat(captor.getValue().getLimit()).isEqualTo(100);
+    }
+
+    @Test
+    void testValidationFailureForGetInvoicesLimit() throws Exception {
+        mockMvc.perform(get("/invoices")
+                .param("limit", "1001"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("Validation failed")));
+    }
+
+    @Test
+    void testStreamInvoices() throws Exception {
+        InvoiceResponse first = InvoiceResponse.builder()
+                .id("1")
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
+                .dueDate(LocalDate.parse("2024-11-30"))
+                .status(Status.PENDING)
+                .build();
+        InvoiceResponse second = InvoiceResponse.builder()
+                .id("2")
+                .amount(Money.of("200.00"))
+                .paidAmount(Money.of("200.00"))
+                .dueDate(LocalDate.parse("2024-12-30"))
+                .status(Status.PAID)
+                .build();
+        doAnswer(invocation -> {
+            Consumer<InvoiceResponse> consumer = invocation.getArgument(1);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(invoiceService).streamInvoices(any(InvoiceQuery.class), any());
+
+        MvcResult result = mockMvc.perform(get("/invoices")
+                .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.lines().toList()).containsExactly(
+                objectMapper.writeValueAsString(first),
+                objectMapper.writeValueAsString(second));
+    }
+
+    @Test
+    void testExportInvoices() throws Exception {
+        doAnswer(invocation -> {
+            WritableByteChannel channel = invocation.getArgument(2);
+            channel.write(ByteBuffer.wrap("id\n1\n".getBytes(StandardCharsets.US_ASCII)));
+            return 1L;
+        }).when(invoiceService).exportInvoices(any(InvoiceQuery.class), eq(ExportFormat.CSV), any());
+
+        MvcResult result = mockMvc.perform(get("/invoices:export")
+                .param("status", "PENDING")
+                .param("due_to", "2024-11-30"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"invoices.csv\""))
+                .andExpect(content().string("id\n1\n"));
+        verify(invoiceService).exportInvoices(eq(InvoiceQuery.builder()
+                .status(Status.PENDING)
+                .dueTo(LocalDate.of(2024, 11, 30))
+                .build()), eq(ExportFormat.CSV), any());
+    }
+
+    @Test
+    void testExportInvoices_Gzip() throws Exception {
+        doAnswer(invocation -> {
+            WritableByteChannel channel = invocation.getArgument(2);
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+            return 1L;
+        }).when(invoiceService).exportInvoices(any(InvoiceQuery.class), eq(ExportFormat.COLUMNAR), any());
+
+        MvcResult result = mockMvc.perform(get("/invoices:export")
+                .param("format", "COLUMNAR")
+                .param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/gzip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"invoices.icol.gz\""))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(in.readAllBytes()).containsExactly(1, 2, 3);
+        }
+    }
+
+    @Test
+    void testExportInvoices_UnknownFormat() throws Exception {
+        mockMvc.perform(get("/invoices:export").param("format", "XML"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetPayments() throws Exception {
+        when(invoiceService.getPayments(1L)).thenReturn(List.of(PaymentResponse.builder()
+                .id("7")
+                .invoiceId("1")
+                .amount(Money.of("40.00"))
+                .createdAt(LocalDateTime.parse("2024-11-01T10:00:00"))
+                .build()));
+
+        mockMvc.perform(get("/invoices/1/payments"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is("7")))
+                .andExpect(jsonPath("$[0].invoice_id", is("1")))
+                .andExpect(jsonPath("$[0].amount", is(40.00)))
+                .andExpect(jsonPath("$[0].created_at", is("2024-11-01T10:00:00")));
+    }
+
+    @Test
+    void testGetChanges() throws Exception {
+        CountDownLatch changed = new CountDownLatch(1);
+        InvoiceChangesResponse changes = InvoiceChangesResponse.builder()
+                .changes(List.of(InvoiceChangeResponse.builder()
+                        .cursor("6")
+                        .type(InvoiceChangeType.PAID)
+                        .invoice(InvoiceResponse.builder()
+                                .id("1")
+                                .amount(Money.of("100.00"))
+                                .paidAmount(Money.of("100.00"))
+                                .dueDate(LocalDate.parse("2024-11-30"))
+                                .status(Status.PAID)
+                                .build())
+                        .changedAt(LocalDateTime.parse("2024-11-01T10:00:00"))
+                        .build()))
+                .nextCursor("6")
+                .build();
+        when(invoiceService.getChanges(eq(5L), eq(100), eq(Duration.ofSeconds(30)))).thenAnswer(invocation -> {
+            changed.await();
+            return changes;
+        });
+
+        // The long poll releases the request thread while it waits for the change.
+        MvcResult result = mockMvc.perform(get("/invoices/changes").param("since", "5").param("wait", "30"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        changed.countDown();
+        result.getAsyncResult(5_000);
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[0].cursor", is("6")))
+                .andExpect(jsonPath("$.changes[0].type", is("PAID")))
+                .andExpect(jsonPath("$.changes[0].invoice.status", is("PAID")))
+                .andExpect(jsonPath("$.changes[0].changed_at", is("2024-11-01T10:00:00")))
+                .andExpect(jsonPath("$.next_cursor", is("6")));
+
+        verify(invoiceService).getChanges(5L, 100, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void testGetChanges_WaitTooLong() throws Exception {
+        mockMvc.perform(get("/invoices/changes").param("wait", "61"))
+                .andExpect(status().isBadRequest());
+
+        verify(invoiceService, never()).getChanges(anyLong(), anyInt(), any());
+    }
+
     @Test
     void testPayInvoice() throws Exception {
         PayInvoiceRequest request = new PayInvoiceRequest();
@@ -83,12 +419,12 @@ class InvoiceControllerTest {
 
         InvoiceResponse response = InvoiceResponse.builder()
                 .id("1")
-                .amount(new BigDecimal("100.00"))
-                .paidAmount(new BigDecimal("50.00"))
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of("50.00"))
                 .dueDate(LocalDate.parse("2024-11-30"))
                 .status(Status.PENDING)
                 .build();
-        when(invoiceService.payInvoice(eq(1L), eq(new BigDecimal("50.00")))).thenReturn(response);
+        when(invoiceService.payInvoice(eq(1L), eq(new BigDecimal("50.00")), isNull())).thenReturn(response);
 
         mockMvc.perform(post("/invoices/1/payments")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -99,6 +435,179 @@ class InvoiceControllerTest {
                 .andExpect(jsonPath("$.status", is("PENDING")));
     }
 
+    @Test
+    void testPayInvoice_IdempotencyKey() throws Exception {
+        PayInvoiceRequest request = new PayInvoiceRequest();
+        request.setAmount(new BigDecimal("50.00"));
+
+        when(invoiceService.payInvoice(1L, new BigDecimal("50.00"), "pay-1"))
+                .thenThrow(new IdempotencyKeyReusedException("Idempotency-Key pay-1 was already used for a different request"));
+
+        mockMvc.perform(post("/invoices/1/payments")
+                .header("Idempotency-Key", "pay-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("already used")));
+    }
+
+    @Test
+    void testCreateInvoice_IdempotencyKeyTooLong() throws Exception {
+        CreateInvoiceRequest request = CreateInvoiceRequest.builder()
+                .amount(new BigDecimal("100.00"))
+                .dueDate(LocalDate.parse("2024-11-30"))
+                .build();
+
+        mockMvc.perform(post("/invoices")
+                .header("Idempotency-Key", "k".repeat(256))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(invoiceService);
+    }
+
+    @Test
+    void testPayInvoiceOverloaded() throws Exception {
+        PayInvoiceRequest request = new PayInvoiceRequest();
+        request.setAmount(new BigDecimal("50.00"));
+
+        when(invoiceService.payInvoice(eq(1L), eq(new BigDecimal("50.00")), isNull()))
+                .thenThrow(new ServiceOverloadedException("The service is overloaded, retry later",
+                        Duration.ofMillis(500)));
+
+        mockMvc.perform(post("/invoices/1/payments")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.message", containsString("overloaded")));
+    }
+
+    @Test
+    void testPayInvoiceConflict() throws Exception {
+        PayInvoiceRequest request = new PayInvoiceRequest();
+        request.setAmount(new BigDecimal("50.00"));
+
+        when(invoiceService.payInvoice(eq(1L), eq(new BigDecimal("50.00")), isNull()))
+                .thenThrow(new InvoiceConcurrencyException("Payment failed: modified concurrently"));
+
+        mockMvc.perform(post("/invoices/1/payments")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message", containsString("modified concurrently")));
+    }
+
+    @Test
+    void testPayInvoices() throws Exception {
+        BatchPaymentResponse response = BatchPaymentResponse.builder()
+                .succeededCount(1)
+                .failedCount(1)
+                .results(List.of(
+                        BatchPaymentResult.builder()
+                                .invoiceId("1")
+                                .success(true)
+                                .invoice(InvoiceResponse.builder()
+                                        .id("1")
+                                        .amount(Money.of("100.00"))
+                                        .paidAmount(Money.of("50.00"))
+                                        .status(Status.PENDING)
+                                        .build())
+                                .build(),
+                        BatchPaymentResult.builder()
+                                .invoiceId("2")
+                                .success(false)
+                                .error("Payment failed:  No invoice found with id 2")
+                                .build()))
+                .build();
+        when(invoiceService.payInvoices(anyList())).thenReturn(response);
+
+        mockMvc.perform(post("/invoices/payments:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"payments\": [{\"invoice_id\": 1, \"amount\": 50.00}, " +
+                        "{\"invoice_id\": 2, \"amount\": 10.00}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded_count", is(1)))
+                .andExpect(jsonPath("$.results", hasSize(2)))
+                .andExpect(jsonPath("$.results[0].invoice.paid_amount", is(50.00)))
+                .andExpect(jsonPath("$.results[1].success", is(false)))
+                .andExpect(jsonPath("$.results[1].invoice").doesNotExist())
+                .andExpect(jsonPath("$.results[1].error", containsString("No invoice found")));
+
+        ArgumentCaptor<List<BatchPaymentItem>> captor = ArgumentCaptor.captor();
+        verify(invoiceService).payInvoices(captor.capture());
+        assertThat(captor.getValue()).extracting(BatchPaymentItem::getInvoiceId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void testValidationFailureForPayInvoices() throws Exception {
+        mockMvc.perform(post("/invoices/payments:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"payments\": [{\"invoice_id\": 1, \"amount\": -5}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("Validation failed")));
+
+        mockMvc.perform(post("/invoices/payments:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"payments\": []}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testImportInvoices() throws Exception {
+        when(invoiceService.importInvoices(any(InputStream.class))).thenAnswer(invocation -> {
+            String csv = new String(invocation.getArgument(0, InputStream.class).readAllBytes(),
+                    StandardCharsets.UTF_8);
+            assertThat(csv).isEqualTo("amount,due_date\n100.00,2024-12-31\n");
+            return InvoiceImportResponse.builder()
+                    .importId(4L)
+                    .status(RunStatus.COMPLETED)
+                    .lastCommittedLine(2)
+                    .importedCount(1)
+                    .batchCount(1)
+                    .build();
+        });
+
+        mockMvc.perform(post("/invoices:import")
+                        .contentType("text/csv")
+                        .content("amount,due_date\n100.00,2024-12-31\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.import_id", is(4)))
+                .andExpect(jsonPath("$.status", is("COMPLETED")))
+                .andExpect(jsonPath("$.last_committed_line", is(2)))
+                .andExpect(jsonPath("$.imported_count", is(1)));
+    }
+
+    @Test
+    void testResumeImport() throws Exception {
+        when(invoiceService.resumeImport(eq(4L), any(InputStream.class))).thenReturn(InvoiceImportResponse.builder()
+                .importId(4L)
+                .status(RunStatus.COMPLETED)
+                .build());
+
+        mockMvc.perform(post("/invoices/imports/4/resume")
+                        .contentType("text/csv")
+                        .content("amount,due_date\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("COMPLETED")));
+    }
+
+    @Test
+    void testGetImportRejects() throws Exception {
+        Path rejects = Files.createTempFile("import-4-rejects", ".csv");
+        Files.writeString(rejects, "line,error,row\n3,\"amount: not a number\",\"abc,2024-12-31\"\n");
+        when(invoiceService.getImportRejects(4L)).thenReturn(rejects);
+
+        try {
+            mockMvc.perform(get("/invoices/imports/4/rejects"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                    .andExpect(content().string(containsString("3,\"amount: not a number\",\"abc,2024-12-31\"")));
+        } finally {
+            Files.delete(rejects);
+        }
+    }
+
     @Test
     void testProcessOverdue() throws Exception {
         ProcessOverdueRequest request = ProcessOverdueRequest.builder()
@@ -106,12 +615,91 @@ class InvoiceControllerTest {
                 .overdueDays(30)
                 .build();
 
-        doNothing().when(invoiceService).processOverdue(any(ProcessOverdueRequest.class));
+        ProcessOverdueResponse response = ProcessOverdueResponse.builder()
+                .runId(1L)
+                .status(RunStatus.COMPLETED)
+                .processedCount(2)
+                .paidCount(1)
+                .voidCount(1)
+                .createdCount(2)
+                .chunkCount(1)
+                .elapsedMs(5)
+                .invoicesPerSecond(400)
+                .build();
+        when(invoiceService.processOverdue(any(ProcessOverdueRequest.class))).thenReturn(response);
 
         mockMvc.perform(post("/invoices/process-overdue")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
-                .andExpect(status().isNoContent());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.processed_count", is(2)))
+                .andExpect(jsonPath("$.void_count", is(1)))
+                .andExpect(jsonPath("$.chunk_count", is(1)))
+                .andExpect(jsonPath("$.run_id", is(1)))
+                .andExpect(jsonPath("$.status", is("COMPLETED")));
+    }
+
+    @Test
+    void testProcessOverdue_RunInProgress() throws Exception {
+        when(invoiceService.processOverdue(any(ProcessOverdueRequest.class)))
+                .thenThrow(new OverdueRunInProgressException("An overdue run is already being processed"));
+
+        mockMvc.perform(post("/invoices/process-overdue")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"late_fee\": 10.00, \"overdue_days\": 30}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message", containsString("already being processed")));
+    }
+
+    @Test
+    void testGetOverdueRun() throws Exception {
+        ProcessOverdueResponse response = ProcessOverdueResponse.builder()
+                .runId(3L)
+                .status(RunStatus.RUNNING)
+                .processedCount(10)
+                .partitions(List.of(OverduePartitionResponse.builder()
+                        .partitionNo(0)
+                        .fromId(1)
+                        .toId(100)
+                        .lastProcessedId(10)
+                        .status(RunStatus.PENDING)
+                        .leaseOwner("node-a/0")
+                        .processedCount(10)
+                        .build()))
+                .build();
+        when(invoiceService.getOverdueRun(3L)).thenReturn(response);
+
+        mockMvc.perform(get("/invoices/process-overdue/3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("RUNNING")))
+                .andExpect(jsonPath("$.partitions", hasSize(1)))
+                .andExpect(jsonPath("$.partitions[0].last_processed_id", is(10)))
+                .andExpect(jsonPath("$.partitions[0].lease_owner", is("node-a/0")));
+    }
+
+    @Test
+    void testResumeOverdueRun() throws Exception {
+        when(invoiceService.resumeOverdueRun(3L)).thenReturn(ProcessOverdueResponse.builder()
+                .runId(3L)
+                .status(RunStatus.COMPLETED)
+                .build());
+
+        mockMvc.perform(post("/invoices/process-overdue/3/resume"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("COMPLETED")));
+    }
+
+    @Test
+    void testRebuildDueDateIndex() throws Exception {
+        when(invoiceService.rebuildDueDateIndex()).thenReturn(DueDateIndexResponse.builder()
+                .invoiceCount(42)
+                .bucketCount(3)
+                .build());
+
+        mockMvc.perform(post("/invoices/process-overdue/due-date-index:rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.invoice_count", is(42)))
+                .andExpect(jsonPath("$.bucket_count", is(3)));
     }
 
     @Test
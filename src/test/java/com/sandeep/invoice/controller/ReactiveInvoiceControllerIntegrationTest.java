@@ -0,0 +1,189 @@
+package com.sandeep.invoice.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sandeep.invoice.dto.InvoiceResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+
+@SpringBootTest(properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-invoice-controller-test?options=DB_CLOSE_DELAY=-1",
+        "spring.flyway.url=jdbc:h2:mem:reactive-invoice-controller-test;DB_CLOSE_DELAY=-1"
+})
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactiveInvoiceControllerIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Test
+    void testCreateGetAndPayInvoice() {
+        String id = createInvoice("100.00", "2024-11-30");
+
+        webTestClient.get().uri("/invoices/{id}", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(id)
+                .jsonPath("$.amount").isEqualTo(100.00)
+                .jsonPath("$.paid_amount").isEqualTo(0.00)
+                .jsonPath("$.status").isEqualTo("PENDING");
+
+        pay(id, "40.00").expectStatus().isOk()
+                .expectBody().jsonPath("$.paid_amount").isEqualTo(40.00);
+        pay(id, "60.00").expectStatus().isOk()
+                .expectBody().jsonPath("$.status").isEqualTo("PAID");
+        pay(id, "1.00").expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message", containsString("Payments can be made only for pending invoices"));
+
+        assertThat(databaseClient.sql("SELECT COUNT(*) AS payments FROM payment WHERE invoice_id = :id")
+                .bind("id", Long.valueOf(id))
+                .map(row -> row.get("payments", Long.class))
+                .one()
+                .block()).isEqualTo(2);
+    }
+
+    @Test
+    void testGetInvoices_KeysetPaginationAndStreaming() {
+        String first = createInvoice("10.00", "2024-11-01");
+        String second = createInvoice("20.00", "2024-11-02");
+        String third = createInvoice("30.00", "2024-11-03");
+
+        List<InvoiceResponse> page = webTestClient.get()
+                .uri("/invoices?after_id={afterId}&limit=2", Long.parseLong(first) - 1)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceResponse.class)
+                .returnResult().getResponseBody();
+        assertThat(page).extracting(InvoiceResponse::getId).containsExactly(first, second);
+
+        List<InvoiceResponse> streamed = webTestClient.get()
+                .uri("/invoices?after_id={afterId}&status=PENDING", first)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(InvoiceResponse.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+        assertThat(streamed).extracting(InvoiceResponse::getId).contains(second, third).doesNotContain(first);
+    }
+
+    @Test
+    void testGetInvoices_UpdatedSince() {
+        String older = createInvoice("10.00", "2024-11-01");
+        String newer = createInvoice("20.00", "2024-11-02");
+        databaseClient.sql("UPDATE invoice SET updated_at = DATEADD('MINUTE', -10, updated_at) WHERE id = :id")
+                .bind("id", Long.valueOf(older))
+                .then()
+                .block();
+
+        InvoiceResponse created = webTestClient.get().uri("/invoices/{id}", newer)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(InvoiceResponse.class)
+                .returnResult().getResponseBody();
+        assertThat(created.getUpdatedAt()).isNotNull();
+
+        List<InvoiceResponse> changed = webTestClient.get()
+                .uri("/invoices?after_id={afterId}&updated_since={since}",
+                        Long.parseLong(older) - 1, created.getUpdatedAt().minusMinutes(1))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceResponse.class)
+                .returnResult().getResponseBody();
+        assertThat(changed).extracting(InvoiceResponse::getId).containsExactly(newer);
+    }
+
+    @Test
+    void testErrorsMatchServletStack() {
+        webTestClient.post().uri("/invoices")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"amount\": -1, \"due_date\": \"2024-11-30\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message", containsString("Validation failed: amount"));
+
+        webTestClient.post().uri("/invoices")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"amount\": ")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isNotEmpty();
+
+        webTestClient.get().uri("/invoices?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message", containsString("Validation failed"));
+
+        webTestClient.get().uri("/invoices?status=UNKNOWN")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get().uri("/invoices/1")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("No invoice found with id 1");
+
+        pay("1", "10.00").expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Payment failed:  No invoice found with id 1");
+    }
+
+    @Test
+    void testIdempotencyKeyIsRejected() {
+        String id = createInvoice("100.00", "2024-11-30");
+
+        webTestClient.post().uri("/invoices")
+                .header("Idempotency-Key", "create-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"amount\": 100.00, \"due_date\": \"2024-11-30\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message", containsString("Idempotency-Key is not supported"));
+
+        webTestClient.post().uri("/invoices/{id}/payments", id)
+                .header("Idempotency-Key", "pay-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"amount\": 10.00}")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get().uri("/invoices/{id}", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.paid_amount").isEqualTo(0.00);
+    }
+
+    private String createInvoice(String amount, String dueDate) {
+        return webTestClient.post().uri("/invoices")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"amount\": " + amount + ", \"due_date\": \"" + dueDate + "\"}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(JsonNode.class)
+                .returnResult().getResponseBody()
+                .path("id").asText();
+    }
+
+    private WebTestClient.ResponseSpec pay(String id, String amount) {
+        return webTestClient.post().uri("/invoices/{id}/payments", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"amount\": " + amount + "}")
+                .exchange();
+    }
+}
@@ -0,0 +1,80 @@
+package com.sandeep.invoice.dto;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.sandeep.invoice.model.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JsonTest
+class InvoiceResponseSerializerTest {
+
+    /**
+     * Restores Jackson's bean serializer, which the hand-written one must match byte for byte.
+     */
+    @JsonSerialize(using = JsonSerializer.None.class)
+    private abstract static class BeanSerialized {
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    static Stream<InvoiceResponse> responses() {
+        return Stream.of(
+                invoice().build(),
+                invoice().status(Status.PAID).updatedAt(null).build(),
+                invoice().status(Status.VOID).dueDate(null).build(),
+                invoice().amount(Money.of("-0.05")).paidAmount(Money.of("9999999.99")).build(),
+                invoice().amount(Money.ZERO).paidAmount(Money.of("-12.30")).build(),
+                invoice().dueDate(LocalDate.of(987, 1, 2)).build(),
+                invoice().dueDate(LocalDate.of(10000, 1, 1)).build(),
+                invoice().updatedAt(LocalDateTime.of(2025, 1, 2, 3, 4, 5, 120_000_000)).build(),
+                invoice().updatedAt(LocalDateTime.of(2025, 1, 2, 3, 4, 5, 123_456_000)).build(),
+                invoice().updatedAt(LocalDateTime.of(2025, 1, 2, 3, 4, 5, 1)).build(),
+                invoice().updatedAt(LocalDateTime.of(-5, 1, 2, 3, 4, 5)).build(),
+                InvoiceResponse.builder().build());
+    }
+
+    private static InvoiceResponse.InvoiceResponseBuilder invoice() {
+        return InvoiceResponse.builder()
+                .id("1234")
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of("40.05"))
+                .dueDate(LocalDate.of(2024, 11, 30))
+                .status(Status.PENDING)
+                .updatedAt(LocalDateTime.of(2024, 12, 31, 10, 15, 0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("responses")
+    void testSameBytesAsBeanSerializer(InvoiceResponse response) throws Exception {
+        ObjectMapper beanSerializing = objectMapper.copy().addMixIn(InvoiceResponse.class, BeanSerialized.class);
+
+        assertThat(objectMapper.writeValueAsBytes(response)).isEqualTo(beanSerializing.writeValueAsBytes(response));
+        assertThat(objectMapper.readValue(objectMapper.writeValueAsBytes(response), InvoiceResponse.class))
+                .isEqualTo(response);
+    }
+
+    @Test
+    void testUsedForListsOfInvoices() throws Exception {
+        ObjectMapper beanSerializing = objectMapper.copy().addMixIn(InvoiceResponse.class, BeanSerialized.class);
+        List<InvoiceResponse> page = responses().toList();
+
+        assertThat(objectMapper.getSerializerProviderInstance().findValueSerializer(InvoiceResponse.class))
+                .isInstanceOf(InvoiceResponseSerializer.class);
+        assertThat(beanSerializing.getSerializerProviderInstance().findValueSerializer(InvoiceResponse.class))
+                .isNotInstanceOf(InvoiceResponseSerializer.class);
+        assertThat(objectMapper.writeValueAsString(page)).isEqualTo(beanSerializing.writeValueAsString(page));
+    }
+}
@@ -0,0 +1,107 @@
+package com.sandeep.invoice.export;
+
+import com.sandeep.invoice.dto.ExportFormat;
+import com.sandeep.invoice.dto.Status;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InvoiceExportWriterTest {
+
+    @Test
+    void testCsv() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InvoiceExportWriter writer = InvoiceExportWriter.create(ExportFormat.CSV, Channels.newChannel(out));
+
+        writer.accept(1234, 10000, 4005, LocalDate.of(2024, 11, 30), Status.PENDING);
+        writer.accept(1235, 7, 0, null, Status.VOID);
+        writer.accept(Long.MAX_VALUE, -150, 99, LocalDate.of(987, 1, 2), Status.PAID);
+        writer.finish();
+
+        assertThat(out.toString(StandardCharsets.US_ASCII)).isEqualTo("""
+                id,amount,paid_amount,due_date,status
+                1234,100.00,40.05,2024-11-30,PENDING
+                1235,0.07,0.00,,VOID
+                9223372036854775807,-1.50,0.99,0987-01-02,PAID
+                """);
+        assertThat(writer.rowCount()).isEqualTo(3);
+    }
+
+    @Test
+    void testCsv_FlushesFullBuffers() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InvoiceExportWriter writer = InvoiceExportWriter.create(ExportFormat.CSV, Channels.newChannel(out));
+
+        for (int id = 1; id <= 100_000; id++) {
+            writer.accept(id, 100_00, 0, LocalDate.of(2024, 11, 30), Status.PENDING);
+        }
+        writer.finish();
+
+        List<String> lines = out.toString(StandardCharsets.US_ASCII).lines().toList();
+        assertThat(lines).hasSize(100_001);
+        assertThat(lines.get(100_000)).isEqualTo("100000,100.00,0.00,2024-11-30,PENDING");
+    }
+
+    @Test
+    void testColumnar_RoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InvoiceExportWriter writer = InvoiceExportWriter.create(ExportFormat.COLUMNAR, Channels.newChannel(out));
+        List<String> written = new ArrayList<>();
+        // More than two row groups, with gaps in the ids and due dates going back and forth.
+        int rows = ColumnarInvoiceExportWriter.ROW_GROUP_SIZE * 2 + 123;
+        for (int i = 0; i < rows; i++) {
+            long id = 1000 + i * 3L;
+            LocalDate dueDate = i % 7 == 0 ? null : LocalDate.of(2024, 11, 30).plusDays(i % 60 - 30);
+            Status status = Status.values()[i % 3];
+            writer.accept(id, 100_000_00L + i, i % 2 == 0 ? 0 : -i, dueDate, status);
+            written.add(id + " " + (100_000_00L + i) + " " + (i % 2 == 0 ? 0 : -i) + " " + dueDate + " " + status);
+        }
+        writer.finish();
+
+        List<String> read = new ArrayList<>();
+        long count = ColumnarInvoiceReader.read(new ByteArrayInputStream(out.toByteArray()),
+                (id, amountCents, paidAmountCents, dueDate, status) ->
+                        read.add(id + " " + amountCents + " " + paidAmountCents + " " + dueDate + " " + status));
+
+        assertThat(count).isEqualTo(rows);
+        assertThat(read).isEqualTo(written);
+        // Ids, amounts and due dates take one to four bytes each instead of a CSV field.
+        assertThat(out.size()).isLessThan(rows * 14);
+    }
+
+    @Test
+    void testColumnar_Empty() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InvoiceExportWriter writer = InvoiceExportWriter.create(ExportFormat.COLUMNAR, Channels.newChannel(out));
+        writer.finish();
+
+        assertThat(ColumnarInvoiceReader.read(new ByteArrayInputStream(out.toByteArray()),
+                (id, amountCents, paidAmountCents, dueDate, status) -> { })).isZero();
+    }
+
+    @Test
+    void testColumnarReader_RejectsTruncatedExport() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InvoiceExportWriter writer = InvoiceExportWriter.create(ExportFormat.COLUMNAR, Channels.newChannel(out));
+        writer.accept(1, 100, 0, null, Status.PENDING);
+        writer.finish();
+        byte[] truncated = new byte[out.size() - 12];
+        System.arraycopy(out.toByteArray(), 0, truncated, 0, truncated.length);
+
+        assertThrows(IOException.class, () -> ColumnarInvoiceReader.read(new ByteArrayInputStream(truncated),
+                (id, amountCents, paidAmountCents, dueDate, status) -> { }));
+        assertThrows(IOException.class, () -> ColumnarInvoiceReader.read(
+                new ByteArrayInputStream("id,amount\n".getBytes(StandardCharsets.US_ASCII)),
+                (id, amountCents, paidAmountCents, dueDate, status) -> { }));
+    }
+}
@@ -0,0 +1,109 @@
+package com.sandeep.invoice.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.InvoiceResponse;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.exception.IdempotencyKeyReusedException;
+import com.sandeep.invoice.model.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@JdbcTest
+@AutoConfigureJson
+class IdempotencyStoreTest {
+
+    private static final IdempotentRequest REQUEST = new IdempotentRequest("pay-1", "POST /invoices/1/payments 40.00");
+
+    private static final InvoiceResponse RESPONSE = InvoiceResponse.builder()
+            .id("1")
+            .amount(Money.of("100.00"))
+            .paidAmount(Money.of("40.00"))
+            .dueDate(LocalDate.of(2024, 11, 30))
+            .status(Status.PENDING)
+            .build();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final InvoiceProperties properties = new InvoiceProperties();
+
+    private IdempotencyStore idempotencyStore;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyStore = newStore();
+    }
+
+    @Test
+    void testFindCached_OnlyRememberedResponses() {
+        idempotencyStore.save(REQUEST, RESPONSE);
+        assertThat(idempotencyStore.findCached(REQUEST, InvoiceResponse.class)).isEmpty();
+
+        idempotencyStore.remember(REQUEST, RESPONSE);
+        assertThat(idempotencyStore.findCached(REQUEST, InvoiceResponse.class)).containsSame(RESPONSE);
+    }
+
+    @Test
+    void testFind_ReadsResponseStoredByAnotherInstance() {
+        idempotencyStore.save(REQUEST, RESPONSE);
+
+        IdempotencyStore otherInstance = newStore();
+        assertThat(otherInstance.find(REQUEST, InvoiceResponse.class)).contains(RESPONSE);
+        assertThat(otherInstance.findCached(REQUEST, InvoiceResponse.class)).contains(RESPONSE);
+        assertThat(otherInstance.find(new IdempotentRequest("pay-2", REQUEST.getFingerprint()), InvoiceResponse.class))
+                .isEmpty();
+    }
+
+    @Test
+    void testSave_DuplicateKey() {
+        idempotencyStore.save(REQUEST, RESPONSE);
+
+        assertThrows(DuplicateKeyException.class, () -> newStore().save(REQUEST, RESPONSE));
+    }
+
+    @Test
+    void testFind_KeyReusedForDifferentRequest() {
+        idempotencyStore.save(REQUEST, RESPONSE);
+        idempotencyStore.remember(REQUEST, RESPONSE);
+        IdempotentRequest otherPayment = new IdempotentRequest(REQUEST.getKey(), "POST /invoices/1/payments 50.00");
+
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> idempotencyStore.findCached(otherPayment, InvoiceResponse.class));
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> newStore().find(otherPayment, InvoiceResponse.class));
+    }
+
+    @Test
+    void testPurgeExpired() {
+        idempotencyStore.save(REQUEST, RESPONSE);
+        idempotencyStore.save(new IdempotentRequest("pay-2", REQUEST.getFingerprint()), RESPONSE);
+        jdbcTemplate.update("UPDATE idempotency_key SET created_at = ? WHERE idempotency_key = 'pay-1'",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(2)));
+
+        idempotencyStore.purgeExpired();
+
+        assertThat(jdbcTemplate.queryForList("SELECT idempotency_key FROM idempotency_key", String.class))
+                .containsExactly("pay-2");
+    }
+
+    private IdempotencyStore newStore() {
+        return new IdempotencyStore(jdbcTemplate, objectMapper, properties, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,128 @@
+package com.sandeep.invoice.memory;
+
+import com.sandeep.invoice.config.InvoiceProperties.Memory.Durability;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvoiceStoreLogTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testRecover_ReplaysFramesAcrossSegments() throws IOException {
+        InvoiceStoreLog log = open(Durability.COMMIT, 64);
+        for (int i = 0; i < 20; i++) {
+            log.awaitDurable(log.append(frame("frame-" + i)));
+        }
+        // A frame larger than a segment gets a segment of its own.
+        log.append(frame("x".repeat(200)));
+        assertThat(log.currentSegment()).isGreaterThan(1);
+        log.close();
+
+        List<String> frames = new ArrayList<>();
+        InvoiceStoreLog recovered = new InvoiceStoreLog(directory, 64, Durability.COMMIT, 0);
+        recovered.recover(0, frame -> frames.add(StandardCharsets.UTF_8.decode(frame).toString()));
+
+        assertThat(frames).hasSize(21).startsWith("frame-0", "frame-1").endsWith("x".repeat(200));
+        recovered.close();
+    }
+
+    @Test
+    void testRecover_StopsAtTornFrame() throws IOException {
+        InvoiceStoreLog log = open(Durability.NONE, 1024);
+        log.append(frame("first"));
+        log.append(frame("second"));
+        log.append(frame("third"));
+        log.close();
+        // Corrupt the payload of the second frame, as a crash in the middle of writing it would.
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("log-0.dat").toFile(), "rw")) {
+            file.seek(8 + "first".length() + 8);
+            file.write('S');
+        }
+
+        List<String> frames = new ArrayList<>();
+        InvoiceStoreLog recovered = new InvoiceStoreLog(directory, 1024, Durability.NONE, 0);
+        recovered.recover(0, frame -> frames.add(StandardCharsets.UTF_8.decode(frame).toString()));
+
+        assertThat(frames).containsExactly("first");
+        // New frames go to a new segment rather than after the torn one.
+        assertThat(recovered.currentSegment()).isEqualTo(1);
+        recovered.close();
+    }
+
+    @Test
+    void testRotateAndDeleteBefore() throws IOException {
+        InvoiceStoreLog log = open(Durability.NONE, 1024);
+        log.append(frame("before"));
+        long segment = log.rotate();
+        log.append(frame("after"));
+        log.deleteBefore(segment);
+        log.close();
+
+        assertThat(Files.exists(directory.resolve("log-0.dat"))).isFalse();
+        List<String> frames = new ArrayList<>();
+        new InvoiceStoreLog(directory, 1024, Durability.NONE, 0)
+                .recover(segment, frame -> frames.add(StandardCharsets.UTF_8.decode(frame).toString()));
+        assertThat(frames).containsExactly("after");
+    }
+
+    @Test
+    void testGroupCommit_SharesForcesBetweenConcurrentCommits() throws Exception {
+        InvoiceStoreLog log = new InvoiceStoreLog(directory, 1 << 20, Durability.GROUP,
+                Duration.ofMillis(5).toNanos());
+        log.recover(0, frame -> { });
+        int commits = 400;
+
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(32)) {
+            for (int i = 0; i < commits; i++) {
+                String payload = "commit-" + i;
+                futures.add(executor.submit(() -> {
+                    log.awaitDurable(log.append(frame(payload)));
+                    return null;
+                }));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertThat(log.forces()).isPositive().isLessThan(commits / 4);
+        log.close();
+    }
+
+    @Test
+    void testNoneDurability_NeverForcesForCommits() throws IOException {
+        InvoiceStoreLog log = open(Durability.NONE, 1024);
+        log.awaitDurable(log.append(frame("frame")));
+
+        assertThat(log.forces()).isZero();
+        log.close();
+    }
+
+    private InvoiceStoreLog open(Durability durability, int segmentSize) throws IOException {
+        InvoiceStoreLog log = new InvoiceStoreLog(directory, segmentSize, durability, 0);
+        log.recover(0, frame -> { });
+        return log;
+    }
+
+    private static ByteBuffer frame(String payload) {
+        return ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8));
+    }
+}
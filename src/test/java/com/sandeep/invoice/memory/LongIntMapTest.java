@@ -0,0 +1,55 @@
+package com.sandeep.invoice.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntMapTest {
+
+    @Test
+    void testPutGetRemove() {
+        LongIntMap map = new LongIntMap(4);
+        map.put(0, 7);
+        map.put(1, 8);
+        map.put(-1, 9);
+
+        assertThat(map.get(0)).isEqualTo(7);
+        assertThat(map.get(1)).isEqualTo(8);
+        assertThat(map.get(-1)).isEqualTo(9);
+        assertThat(map.get(2)).isEqualTo(LongIntMap.MISSING);
+
+        map.put(1, 10);
+        map.remove(0);
+        assertThat(map.get(1)).isEqualTo(10);
+        assertThat(map.get(0)).isEqualTo(LongIntMap.MISSING);
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testMatchesHashMapUnderRandomOperations() {
+        LongIntMap map = new LongIntMap(16);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            // A narrow key range forces long probe runs, resizes and removals inside them.
+            long key = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = -100; key < 4_900; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, LongIntMap.MISSING));
+        }
+    }
+}
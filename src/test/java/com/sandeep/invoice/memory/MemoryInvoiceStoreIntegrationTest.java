@@ -0,0 +1,129 @@
+package com.sandeep.invoice.memory;
+
+import com.sandeep.invoice.dto.BatchPaymentItem;
+import com.sandeep.invoice.dto.BatchPaymentResponse;
+import com.sandeep.invoice.dto.CreateInvoiceRequest;
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.dto.InvoiceResponse;
+import com.sandeep.invoice.dto.ProcessOverdueRequest;
+import com.sandeep.invoice.dto.ProcessOverdueResponse;
+import com.sandeep.invoice.dto.RunStatus;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.exception.InvoiceConcurrencyException;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import com.sandeep.invoice.service.InvoiceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:memory-store-test")
+@ActiveProfiles("memory")
+class MemoryInvoiceStoreIntegrationTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testInvoicesLiveInTheMemoryStore() {
+        assertThat(invoiceRepository).isInstanceOf(MemoryInvoiceRepository.class);
+
+        Long invoiceId = Long.valueOf(invoiceService.createInvoice(invoice(LocalDate.now().plusDays(10))).getId());
+        InvoiceResponse paid = invoiceService.payInvoice(invoiceId, new BigDecimal("40.00"));
+
+        assertThat(paid.getPaidAmount()).isEqualTo(Money.of("40.00"));
+        assertThat(invoiceService.getInvoice(invoiceId)).isEqualTo(paid);
+        assertThat(invoiceService.getInvoices(InvoiceQuery.builder().status(Status.PENDING).limit(1000).build()))
+                .extracting(InvoiceResponse::getId).contains(String.valueOf(invoiceId));
+        // The ledger and the change outbox stay in the database, the invoice table is unused.
+        assertThat(invoiceService.getPayments(invoiceId)).hasSize(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM invoice_change WHERE invoice_id = ?", Long.class, invoiceId)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM invoice", Long.class)).isZero();
+    }
+
+    @Test
+    void testPayInvoices_Batch() {
+        List<String> ids = invoiceService.createInvoices(List.of(
+                invoice(LocalDate.now().plusDays(10)), invoice(LocalDate.now().plusDays(10)))).getIds();
+
+        BatchPaymentResponse response = invoiceService.payInvoices(List.of(
+                payment(ids.get(0), "100.00"), payment(ids.get(1), "30.00"), payment(ids.get(1), "20.00")));
+
+        assertThat(response.getSucceededCount()).isEqualTo(3);
+        assertThat(invoiceService.getInvoice(Long.valueOf(ids.get(0))).getStatus()).isEqualTo(Status.PAID);
+        assertThat(invoiceService.getInvoice(Long.valueOf(ids.get(1))).getPaidAmount()).isEqualTo(Money.of("50.00"));
+    }
+
+    @Test
+    void testProcessOverdue() {
+        Long overdueId = Long.valueOf(invoiceService.createInvoice(invoice(LocalDate.now().minusDays(1))).getId());
+        Long notOverdueId = Long.valueOf(invoiceService.createInvoice(invoice(LocalDate.now().plusDays(1))).getId());
+
+        ProcessOverdueResponse response = invoiceService.processOverdue(ProcessOverdueRequest.builder()
+                .lateFee(new BigDecimal("10.00"))
+                .overdueDays(30)
+                .build());
+
+        assertThat(response.getStatus()).isEqualTo(RunStatus.COMPLETED);
+        assertThat(invoiceService.getInvoice(overdueId).getStatus()).isEqualTo(Status.VOID);
+        assertThat(invoiceService.getInvoice(notOverdueId).getStatus()).isEqualTo(Status.PENDING);
+    }
+
+    @Test
+    void testPayInvoice_ConcurrentDuplicatesPayOnce() throws InterruptedException {
+        Long invoiceId = Long.valueOf(invoiceService.createInvoice(invoice(LocalDate.now().plusDays(10))).getId());
+
+        List<Future<InvoiceResponse>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() ->
+                        invoiceService.payInvoice(invoiceId, new BigDecimal("30.00"), "memory-pay-concurrent")));
+            }
+        }
+
+        for (Future<InvoiceResponse> future : futures) {
+            try {
+                assertThat(future.get().getPaidAmount()).isEqualTo(Money.of("30.00"));
+            } catch (ExecutionException e) {
+                // The duplicates' rolled back writes must not leak into the store.
+                assertThat(e.getCause()).isInstanceOf(InvoiceConcurrencyException.class);
+            }
+        }
+        assertThat(invoiceService.getInvoice(invoiceId).getPaidAmount()).isEqualTo(Money.of("30.00"));
+        assertThat(invoiceService.getPayments(invoiceId)).hasSize(1);
+    }
+
+    private static CreateInvoiceRequest invoice(LocalDate dueDate) {
+        return CreateInvoiceRequest.builder()
+                .amount(new BigDecimal("100.00"))
+                .dueDate(dueDate)
+                .build();
+    }
+
+    private static BatchPaymentItem payment(String invoiceId, String amount) {
+        BatchPaymentItem item = new BatchPaymentItem();
+        item.setInvoiceId(Long.valueOf(invoiceId));
+        item.setAmount(new BigDecimal(amount));
+        return item;
+    }
+}
@@ -0,0 +1,449 @@
+package com.sandeep.invoice.memory;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.repository.IdRange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MemoryInvoiceStoreTest {
+
+    private static final LocalDate DUE_DATE = LocalDate.of(2024, 11, 30);
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2024, 11, 20, 9, 30, 15, 123_456_000);
+
+    private final InvoiceProperties properties = new InvoiceProperties();
+
+    private MemoryInvoiceStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties.getMemory().setLockTimeout(Duration.ofSeconds(5));
+        store = new MemoryInvoiceStore(properties);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.destroy();
+    }
+
+    @Test
+    void testInsert_AllocatesAscendingIds() {
+        List<Invoice> invoices = List.of(invoice("100.00", DUE_DATE), invoice("200.00", null));
+
+        store.insert(invoices);
+
+        assertThat(invoices).extracting(Invoice::getId).containsExactly(1L, 2L);
+        assertThat(invoices).extracting(Invoice::getVersion).containsOnly(0L);
+        assertThat(store.find(1L)).contains(invoices.get(0));
+        assertThat(store.find(2L).orElseThrow().getDueDate()).isNull();
+        assertThat(store.find(3L)).isEmpty();
+        assertThat(store.count()).isEqualTo(2);
+
+        Invoice explicit = invoice("300.00", DUE_DATE);
+        explicit.setId(10L);
+        store.insert(List.of(explicit));
+        store.insert(List.of(invoice("400.00", DUE_DATE)));
+        assertThat(store.find(11L)).isPresent();
+
+        Invoice duplicate = invoice("300.00", DUE_DATE);
+        duplicate.setId(10L);
+        assertThrows(DuplicateKeyException.class, () -> store.insert(List.of(duplicate)));
+        Invoice outOfOrder = invoice("300.00", DUE_DATE);
+        outOfOrder.setId(5L);
+        assertThrows(IllegalArgumentException.class, () -> store.insert(List.of(outOfOrder)));
+    }
+
+    @Test
+    void testFindPage_FiltersInIdOrder() {
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            invoices.add(invoice("100.00", DUE_DATE.plusDays(i)));
+        }
+        store.insert(invoices);
+        for (int i = 0; i < 20; i += 4) {
+            Invoice paid = store.find(i + 1L).orElseThrow();
+            paid.setPaidAmount(paid.getAmount());
+            paid.setStatus(Status.PAID);
+            paid.setUpdatedAt(UPDATED_AT.plusSeconds(i));
+            assertThat(store.updatePaymentIfVersionMatches(paid)).isTrue();
+        }
+
+        assertThat(store.findPage(InvoiceQuery.builder().afterId(5L).limit(3).build()))
+                .extracting(Invoice::getId).containsExactly(6L, 7L, 8L);
+        assertThat(store.findPage(InvoiceQuery.builder().status(Status.PAID).limit(100).build()))
+                .extracting(Invoice::getId).containsExactly(1L, 5L, 9L, 13L, 17L);
+        assertThat(store.findPage(InvoiceQuery.builder()
+                .status(Status.PENDING)
+                .dueFrom(DUE_DATE.plusDays(3))
+                .dueTo(DUE_DATE.plusDays(6))
+                .limit(100)
+                .build()))
+                .extracting(Invoice::getId).containsExactly(4L, 6L, 7L);
+        assertThat(store.findPage(InvoiceQuery.builder().updatedSince(UPDATED_AT.plusSeconds(4)).limit(100).build()))
+                .extracting(Invoice::getId).containsExactly(9L, 13L, 17L);
+
+        List<Long> streamed = new ArrayList<>();
+        store.streamAll(InvoiceQuery.builder().status(Status.PENDING).afterId(2L).build(),
+                invoice -> streamed.add(invoice.getId()));
+        assertThat(streamed).hasSize(14).startsWith(2L + 1, 4L).doesNotContain(5L, 9L);
+    }
+
+    @Test
+    void testUpdatePaymentIfVersionMatches() {
+        Invoice invoice = insert("100.00", DUE_DATE);
+        Invoice stale = store.find(invoice.getId()).orElseThrow();
+
+        invoice.setPaidAmount(Money.of("40.00"));
+        assertThat(store.updatePaymentIfVersionMatches(invoice)).isTrue();
+        assertThat(invoice.getVersion()).isEqualTo(1L);
+
+        stale.setPaidAmount(Money.of("10.00"));
+        assertThat(store.updatePaymentIfVersionMatches(stale)).isFalse();
+        assertThat(stale.getVersion()).isEqualTo(0L);
+        assertThat(store.find(invoice.getId()).orElseThrow().getPaidAmount()).isEqualTo(Money.of("40.00"));
+
+        Invoice missing = invoice("1.00", DUE_DATE);
+        missing.setId(99L);
+        missing.setVersion(0L);
+        assertThat(store.updatePaymentIfVersionMatches(missing)).isFalse();
+    }
+
+    @Test
+    void testReplace() {
+        Invoice invoice = insert("100.00", DUE_DATE);
+        Invoice stale = invoice.toBuilder().build();
+
+        invoice.setAmount(Money.of("150.00"));
+        invoice.setDueDate(DUE_DATE.minusDays(10));
+        store.replace(invoice);
+
+        assertThat(store.find(invoice.getId())).contains(invoice);
+        assertThat(store.findIdRangeDueBefore(Status.PENDING, DUE_DATE)).contains(new IdRange(1, 1));
+        assertThrows(OptimisticLockingFailureException.class, () -> store.replace(stale));
+    }
+
+    @Test
+    void testTransaction_WritesVisibleToOthersOnlyAfterCommit() throws Exception {
+        Invoice existing = insert("100.00", DUE_DATE);
+
+        Invoice inserted = inTransaction(true, () -> {
+            Invoice invoice = invoice("200.00", DUE_DATE);
+            store.insert(List.of(invoice));
+            existing.setPaidAmount(Money.of("30.00"));
+            assertThat(store.updatePaymentIfVersionMatches(existing)).isTrue();
+
+            // The transaction reads its own writes, other threads the committed rows.
+            assertThat(store.find(invoice.getId())).isPresent();
+            assertThat(store.find(existing.getId()).orElseThrow().getPaidAmount()).isEqualTo(Money.of("30.00"));
+            assertThat(CompletableFuture.supplyAsync(() -> store.find(invoice.getId())).join()).isEmpty();
+            assertThat(CompletableFuture.supplyAsync(() -> store.find(existing.getId())).join().orElseThrow()
+                    .getPaidAmount()).isEqualTo(Money.ZERO);
+            assertThat(store.findPage(InvoiceQuery.builder().build())).hasSize(1);
+            return invoice;
+        });
+
+        assertThat(store.find(inserted.getId())).isPresent();
+        assertThat(store.find(existing.getId()).orElseThrow().getPaidAmount()).isEqualTo(Money.of("30.00"));
+        assertThat(store.count()).isEqualTo(2);
+    }
+
+    @Test
+    void testTransaction_RollbackDiscardsWrites() throws Exception {
+        Invoice existing = insert("100.00", DUE_DATE);
+
+        Invoice inserted = inTransaction(false, () -> {
+            Invoice invoice = invoice("200.00", DUE_DATE);
+            store.insert(List.of(invoice));
+            Invoice payment = existing.toBuilder().paidAmount(Money.of("30.00")).build();
+            assertThat(store.updatePaymentIfVersionMatches(payment)).isTrue();
+            return invoice;
+        });
+
+        assertThat(store.find(inserted.getId())).isEmpty();
+        assertThat(store.find(existing.getId())).contains(existing);
+        assertThat(store.count()).isEqualTo(1);
+        // The row is free again.
+        existing.setPaidAmount(Money.of("10.00"));
+        assertThat(store.updatePaymentIfVersionMatches(existing)).isTrue();
+    }
+
+    @Test
+    void testLockNextChunk_WritersWaitForTheTransaction() throws Exception {
+        Invoice overdue = insert("100.00", DUE_DATE.minusDays(1));
+        insert("100.00", DUE_DATE.plusDays(1));
+        Invoice payment = overdue.toBuilder().paidAmount(Money.of("10.00")).build();
+
+        CompletableFuture<Boolean> paid = inTransaction(true, () -> {
+            List<Invoice> chunk = store.lockNextChunkDueBefore(Status.PENDING, DUE_DATE, 0, Long.MAX_VALUE, 10);
+            assertThat(chunk).containsExactly(overdue);
+
+            CompletableFuture<Boolean> concurrentPayment =
+                    CompletableFuture.supplyAsync(() -> store.updatePaymentIfVersionMatches(payment));
+            sleep(100);
+            assertThat(concurrentPayment).isNotDone();
+
+            chunk.get(0).setStatus(Status.VOID);
+            store.updateStatus(chunk);
+            return concurrentPayment;
+        });
+
+        // Like a row lock: the payment waited for the overdue chunk and then found the invoice changed.
+        assertThat(paid.get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(store.find(overdue.getId()).orElseThrow().getStatus()).isEqualTo(Status.VOID);
+        assertThat(store.findIdRangeDueBefore(Status.PENDING, DUE_DATE)).isEmpty();
+    }
+
+    @Test
+    void testLockTimeout() throws Exception {
+        properties.getMemory().setLockTimeout(Duration.ofMillis(50));
+        store = new MemoryInvoiceStore(properties);
+        Invoice invoice = insert("100.00", DUE_DATE);
+
+        inTransaction(false, () -> {
+            store.lockNextChunkDueBefore(Status.PENDING, DUE_DATE.plusDays(1), 0, Long.MAX_VALUE, 10);
+            CompletableFuture<Boolean> payment = CompletableFuture.supplyAsync(() ->
+                    store.updatePaymentIfVersionMatches(invoice.toBuilder().paidAmount(Money.of("1.00")).build()));
+            assertThat(payment).failsWithin(Duration.ofSeconds(5))
+                    .withThrowableThat().withCauseInstanceOf(CannotAcquireLockException.class);
+            return null;
+        });
+    }
+
+    @Test
+    void testOverdueQueries() {
+        Invoice first = insert("100.00", DUE_DATE.minusDays(5));
+        insert("100.00", DUE_DATE.plusDays(5));
+        Invoice last = insert("100.00", DUE_DATE.minusDays(1));
+        insert("100.00", null);
+
+        assertThat(store.findIdRangeDueBefore(Status.PENDING, DUE_DATE))
+                .contains(new IdRange(first.getId(), last.getId()));
+        assertThat(store.lockNextChunkDueBefore(Status.PENDING, DUE_DATE, first.getId(), last.getId(), 10))
+                .containsExactly(last);
+
+        Map<Long, LocalDate> dueDates = new LinkedHashMap<>();
+        store.streamDueDates(Status.PENDING, dueDates::put);
+        assertThat(dueDates).containsOnlyKeys(1L, 2L, 3L).containsEntry(1L, DUE_DATE.minusDays(5));
+    }
+
+    @Test
+    void testDelete() {
+        Invoice first = insert("100.00", DUE_DATE);
+        Invoice second = insert("100.00", DUE_DATE);
+
+        store.delete(List.of(first.getId()));
+        assertThat(store.find(first.getId())).isEmpty();
+        assertThat(store.count()).isEqualTo(1);
+
+        store.deleteAll();
+        assertThat(store.find(second.getId())).isEmpty();
+        assertThat(store.count()).isZero();
+        assertThat(insert("1.00", DUE_DATE).getId()).isEqualTo(3L);
+    }
+
+    @Test
+    void testRecoversFromSnapshotAndLog(@TempDir Path dataDir) throws Exception {
+        properties.getMemory().setDataDir(dataDir);
+        store = new MemoryInvoiceStore(properties);
+        Invoice paid = insert("100.00", DUE_DATE);
+        Invoice deleted = insert("100.00", DUE_DATE);
+        paid.setPaidAmount(Money.of("100.00"));
+        paid.setStatus(Status.PAID);
+        paid.setUpdatedAt(UPDATED_AT);
+        store.updatePaymentIfVersionMatches(paid);
+        store.snapshot();
+
+        Invoice afterSnapshot = insert("50.00", null);
+        store.delete(List.of(deleted.getId()));
+        inTransaction(true, () -> store.updatePaymentIfVersionMatches(
+                afterSnapshot.toBuilder().paidAmount(Money.of("20.00")).updatedAt(UPDATED_AT.plusDays(1)).build()));
+        inTransaction(false, () -> {
+            store.insert(List.of(invoice("999.00", DUE_DATE)));
+            return null;
+        });
+        store.destroy();
+
+        store = new MemoryInvoiceStore(properties);
+        assertThat(store.count()).isEqualTo(2);
+        assertThat(store.find(paid.getId())).contains(paid);
+        assertThat(store.find(deleted.getId())).isEmpty();
+        assertThat(store.find(afterSnapshot.getId()).orElseThrow().getPaidAmount()).isEqualTo(Money.of("20.00"));
+        assertThat(store.find(afterSnapshot.getId()).orElseThrow().getVersion()).isEqualTo(1L);
+        assertThat(store.find(afterSnapshot.getId()).orElseThrow().getUpdatedAt()).isEqualTo(UPDATED_AT.plusDays(1));
+        assertThat(insert("1.00", DUE_DATE).getId()).isEqualTo(afterSnapshot.getId() + 1);
+
+        // A second restart recovers the writes made after the first one.
+        store.snapshot();
+        store.destroy();
+        store = new MemoryInvoiceStore(properties);
+        assertThat(store.count()).isEqualTo(3);
+    }
+
+    @Test
+    void testTransaction_RollsBackWhenTheLogFails(@TempDir Path dataDir) throws Exception {
+        properties.getMemory().setDataDir(dataDir);
+        properties.getMemory().setSegmentSize(DataSize.ofKilobytes(1));
+        store = new MemoryInvoiceStore(properties);
+        Invoice invoice = insert("100.00", DUE_DATE);
+        // Taking the file of the next segment fails the appends that do not fit into the current one.
+        Path nextSegment = dataDir.resolve("log-" + (lastSegment(dataDir) + 1) + ".dat");
+        Files.createFile(nextSegment);
+
+        assertThrows(UncheckedIOException.class, () -> inTransaction(true, () -> {
+            store.updatePaymentIfVersionMatches(invoice.toBuilder().paidAmount(Money.of("40.00")).build());
+            List<Invoice> invoices = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                invoices.add(invoice("1.00", DUE_DATE));
+            }
+            store.insert(invoices);
+            return null;
+        }));
+
+        assertThat(store.find(invoice.getId())).contains(invoice);
+        assertThat(store.count()).isEqualTo(1);
+        // The rows of the failed transaction are unlocked.
+        Invoice paid = invoice.toBuilder().paidAmount(Money.of("40.00")).build();
+        assertThat(inTransaction(true, () -> store.updatePaymentIfVersionMatches(paid))).isTrue();
+
+        Files.delete(nextSegment);
+        store.destroy();
+        store = new MemoryInvoiceStore(properties);
+        assertThat(store.count()).isEqualTo(1);
+        assertThat(store.find(invoice.getId()).orElseThrow().getPaidAmount()).isEqualTo(Money.of("40.00"));
+    }
+
+    @Test
+    void testTransaction_UndoesLoggedWritesWhenTheCommitFails(@TempDir Path dataDir) throws Exception {
+        properties.getMemory().setDataDir(dataDir);
+        store = new MemoryInvoiceStore(properties);
+        Invoice invoice = insert("100.00", DUE_DATE);
+
+        // The writes are logged before the commit, which then fails in the database.
+        TransactionSynchronizationManager.initSynchronization();
+        store.updatePaymentIfVersionMatches(invoice.toBuilder().paidAmount(Money.of("40.00")).build());
+        store.insert(List.of(invoice("999.00", DUE_DATE)));
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        store.snapshot();
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        Invoice unchanged = store.find(invoice.getId()).orElseThrow();
+        assertThat(unchanged.getPaidAmount()).isEqualTo(Money.ZERO);
+        assertThat(store.count()).isEqualTo(1);
+        store.destroy();
+        store = new MemoryInvoiceStore(properties);
+        assertThat(store.find(invoice.getId())).contains(unchanged);
+        assertThat(store.count()).isEqualTo(1);
+    }
+
+    @Test
+    void testCompactsLogAfterSegments(@TempDir Path dataDir) throws Exception {
+        properties.getMemory().setDataDir(dataDir);
+        properties.getMemory().setSegmentSize(DataSize.ofKilobytes(1));
+        properties.getMemory().setCompactAfterSegments(2);
+        store = new MemoryInvoiceStore(properties);
+
+        for (int i = 0; i < 200; i++) {
+            insert("100.00", DUE_DATE);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Files.exists(dataDir.resolve(InvoiceStoreJournal.SNAPSHOT)) && System.nanoTime() < deadline) {
+            sleep(10);
+        }
+        assertThat(dataDir.resolve(InvoiceStoreJournal.SNAPSHOT)).exists();
+        store.destroy();
+        store = new MemoryInvoiceStore(properties);
+        assertThat(store.count()).isEqualTo(200);
+    }
+
+    private static long lastSegment(Path dataDir) throws IOException {
+        try (Stream<Path> files = Files.list(dataDir)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.matches("log-\\d+\\.dat"))
+                    .mapToLong(name -> Long.parseLong(name.substring("log-".length(), name.length() - ".dat".length())))
+                    .max()
+                    .orElseThrow();
+        }
+    }
+
+    private Invoice insert(String amount, LocalDate dueDate) {
+        Invoice invoice = invoice(amount, dueDate);
+        store.insert(List.of(invoice));
+        return invoice.toBuilder().build();
+    }
+
+    private static Invoice invoice(String amount, LocalDate dueDate) {
+        return Invoice.builder()
+                .amount(Money.of(amount))
+                .paidAmount(Money.ZERO)
+                .dueDate(dueDate)
+                .status(Status.PENDING)
+                .build();
+    }
+
+    /**
+     * Runs the work with transaction synchronization active, as a transaction manager would, and then
+     * completes the store's part of the transaction. Rolls back instead of committing if the work or a
+     * before-commit callback fails.
+     */
+    private static <T> T inTransaction(boolean commit, Supplier<T> work) throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        boolean committed = false;
+        try {
+            T result = work.get();
+            if (commit) {
+                TransactionSynchronizationUtils.triggerBeforeCommit(false);
+                committed = true;
+            }
+            return result;
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, committed
+                    ? TransactionSynchronization.STATUS_COMMITTED
+                    : TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
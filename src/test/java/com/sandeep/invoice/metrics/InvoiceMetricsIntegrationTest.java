@@ -0,0 +1,48 @@
+package com.sandeep.invoice.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:invoice-metrics-integration-test")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class InvoiceMetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testPrometheusEndpointExposesInvoiceMetrics() throws Exception {
+        mockMvc.perform(post("/invoices")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 100.00, \"due_date\": \"2024-11-30\"}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/invoices/1/payments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 10.00}"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "invoice_operation_seconds_count{operation=\"create\"} 1")))
+                .andExpect(content().string(containsString(
+                        "invoice_operation_seconds{operation=\"pay\",quantile=\"0.99\"}")))
+                .andExpect(content().string(containsString(
+                        "invoice_payments_total{outcome=\"not_found\"} 1.0")))
+                .andExpect(content().string(containsString("invoice_overdue_last_run_invoices")))
+                .andExpect(content().string(containsString(
+                        "invoice_repository_invocations_seconds_count{exception=\"None\",method=\"save\",repository=\"InvoiceRepository\"")));
+    }
+}
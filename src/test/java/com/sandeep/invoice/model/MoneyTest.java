@@ -0,0 +1,49 @@
+package com.sandeep.invoice.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "0.5", "0.05", "1", "100.00", "9999999.99", "-0.05", "-12.30"})
+    void testSameRepresentationAsBigDecimalOfScaleTwo(String amount) throws Exception {
+        BigDecimal decimal = new BigDecimal(amount).setScale(2);
+        Money money = Money.of(amount);
+
+        assertThat(money.toString()).isEqualTo(decimal.toPlainString());
+        assertThat(money.toBigDecimal()).isEqualTo(decimal);
+        assertThat(objectMapper.writeValueAsString(money)).isEqualTo(objectMapper.writeValueAsString(decimal));
+        assertThat(objectMapper.readValue(objectMapper.writeValueAsString(money), Money.class)).isEqualTo(money);
+    }
+
+    @Test
+    void testArithmetic() {
+        Money amount = Money.of("100.00");
+        Money paid = Money.of("30.55");
+
+        assertThat(amount.minus(paid)).isEqualTo(Money.of("69.45"));
+        assertThat(paid.plus(paid)).isEqualTo(Money.of("61.10"));
+        assertThat(amount.minus(amount)).isSameAs(Money.ZERO);
+        assertThat(paid.isGreaterThan(amount)).isFalse();
+        assertThat(Money.ZERO.isPositive()).isFalse();
+        assertThat(paid.compareTo(amount)).isNegative();
+    }
+
+    @Test
+    void testNeverRounds() {
+        assertThrows(ArithmeticException.class, () -> Money.of("0.001"));
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1)));
+        assertThrows(InvalidFormatException.class, () -> objectMapper.readValue("1.005", Money.class));
+    }
+}
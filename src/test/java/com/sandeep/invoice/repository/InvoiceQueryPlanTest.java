@@ -0,0 +1,101 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.dto.Status;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the overdue scans run off {@code idx_invoice_status_due_date}, and polls for recent writes off
+ * {@code idx_invoice_updated_at}, on a table of realistic size and shape: a million invoices, most of them
+ * already paid or void, written over the last two years.
+ * <p>
+ * The rows are seeded once and committed ({@code ANALYZE} commits anyway), so the context and its
+ * database are discarded afterwards.
+ * </p>
+ */
+@DataJdbcTest
+@Import({InvoiceIdAllocator.class, InvoiceIdCallback.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class InvoiceQueryPlanTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final String INDEX = "IDX_INVOICE_STATUS_DUE_DATE";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        // One invoice in twenty is pending; due dates spread over about a year around today, and one invoice is
+        // written per minute, the last one now.
+        jdbcTemplate.getJdbcTemplate().update("INSERT INTO invoice"
+                + " (id, amount, paid_amount, due_date, status, version, updated_at)"
+                + " SELECT X, 100, 0, DATEADD('DAY', MOD(X, 365) - 180, CURRENT_DATE),"
+                + " CASE WHEN MOD(X, 20) = 0 THEN ? WHEN MOD(X, 20) = 1 THEN ? ELSE ? END, 0,"
+                + " DATEADD('MINUTE', X - ?, LOCALTIMESTAMP)"
+                + " FROM SYSTEM_RANGE(1, ?)",
+                Status.PENDING.getCode(), Status.VOID.getCode(), Status.PAID.getCode(), ROWS, ROWS);
+        jdbcTemplate.getJdbcTemplate().execute("ANALYZE TABLE invoice");
+    }
+
+    @Test
+    void testFindIdRangeDueBeforeUsesStatusDueDateIndex() {
+        String plan = explain(CustomInvoiceRepositoryImpl.FIND_ID_RANGE_DUE_BEFORE, new MapSqlParameterSource()
+                .addValue("status", Status.PENDING.getCode())
+                .addValue("processingDate", LocalDate.now()));
+
+        assertThat(plan).contains(INDEX);
+    }
+
+    @Test
+    void testLockNextChunkDueBeforeUsesStatusDueDateIndex() {
+        String plan = explain(CustomInvoiceRepositoryImpl.LOCK_NEXT_CHUNK_DUE_BEFORE, new MapSqlParameterSource()
+                .addValue("status", Status.PENDING.getCode())
+                .addValue("processingDate", LocalDate.now())
+                .addValue("afterId", 0L)
+                .addValue("maxId", (long) ROWS)
+                .addValue("chunkSize", 500));
+
+        assertThat(plan).contains(INDEX);
+    }
+
+    @Test
+    void testFindDueDatesUsesStatusDueDateIndex() {
+        String plan = explain(CustomInvoiceRepositoryImpl.FIND_DUE_DATES,
+                new MapSqlParameterSource("status", Status.PENDING.getCode()));
+
+        assertThat(plan).contains(INDEX);
+    }
+
+    @Test
+    void testFindPageUpdatedSinceUsesUpdatedAtIndex() {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = CustomInvoiceRepositoryImpl.buildSelect(InvoiceRowMapper.COLUMNS, InvoiceQuery.builder()
+                .updatedSince(LocalDateTime.now().minusHours(1))
+                .limit(100)
+                .build(), params);
+
+        assertThat(explain(sql, params)).contains("IDX_INVOICE_UPDATED_AT");
+    }
+
+    private String explain(String sql, MapSqlParameterSource params) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, params, String.class);
+    }
+}
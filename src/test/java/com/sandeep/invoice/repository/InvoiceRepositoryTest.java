@@ -0,0 +1,224 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.dto.InvoiceQuery;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJdbcTest
+@Import({InvoiceIdAllocator.class, InvoiceIdCallback.class})
+class InvoiceRepositoryTest {
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ids.add(save("100.00", LocalDate.of(2024, 11, 1), Status.PENDING));
+        ids.add(save("200.00", LocalDate.of(2024, 11, 15), Status.PAID));
+        ids.add(save("300.00", LocalDate.of(2024, 11, 30), Status.PENDING));
+        ids.add(save("400.00", LocalDate.of(2024, 12, 15), Status.VOID));
+    }
+
+    @Test
+    void testFindPage_KeysetPagination() {
+        List<Invoice> firstPage = invoiceRepository.findPage(InvoiceQuery.builder().limit(3).build());
+        assertThat(firstPage).extracting(Invoice::getId).containsExactly(ids.get(0), ids.get(1), ids.get(2));
+
+        List<Invoice> secondPage = invoiceRepository.findPage(InvoiceQuery.builder()
+                .afterId(firstPage.get(2).getId())
+                .limit(3)
+                .build());
+        assertThat(secondPage).extracting(Invoice::getId).containsExactly(ids.get(3));
+        assertThat(secondPage.get(0).getAmount()).isEqualTo(Money.of("400.00"));
+        assertThat(secondPage.get(0).getStatus()).isEqualTo(Status.VOID);
+    }
+
+    @Test
+    void testFindPage_Filters() {
+        List<Invoice> invoices = invoiceRepository.findPage(InvoiceQuery.builder()
+                .status(Status.PENDING)
+                .dueFrom(LocalDate.of(2024, 11, 2))
+                .dueTo(LocalDate.of(2024, 11, 30))
+                .limit(10)
+                .build());
+
+        assertThat(invoices).extracting(Invoice::getId).containsExactly(ids.get(2));
+    }
+
+    @Test
+    void testFindPage_UpdatedSince() {
+        Invoice first = invoiceRepository.findById(ids.get(0)).orElseThrow();
+        LocalDateTime savedAt = invoiceRepository.findById(ids.get(3)).orElseThrow().getUpdatedAt();
+        assertThat(first.getUpdatedAt()).isNotNull().isBeforeOrEqualTo(savedAt);
+
+        first.setStatus(Status.VOID);
+        invoiceRepository.batchUpdateStatus(List.of(first));
+
+        assertThat(first.getUpdatedAt()).isAfter(savedAt);
+        assertThat(invoiceRepository.findPage(InvoiceQuery.builder().updatedSince(savedAt).limit(10).build()))
+                .extracting(Invoice::getId, Invoice::getUpdatedAt)
+                .containsExactly(tuple(ids.get(0), first.getUpdatedAt()));
+    }
+
+    @Test
+    void testStreamAll() {
+        List<Invoice> streamed = new ArrayList<>();
+        invoiceRepository.streamAll(InvoiceQuery.builder().afterId(ids.get(0)).build(), streamed::add);
+
+        assertThat(streamed).extracting(Invoice::getId).containsExactly(ids.get(1), ids.get(2), ids.get(3));
+    }
+
+    @Test
+    void testExportAll() {
+        List<String> exported = new ArrayList<>();
+        invoiceRepository.exportAll(InvoiceQuery.builder().status(Status.PENDING).build(),
+                (id, amountCents, paidAmountCents, dueDate, status) ->
+                        exported.add(id + " " + amountCents + " " + paidAmountCents + " " + dueDate + " " + status));
+
+        assertThat(exported).containsExactly(
+                ids.get(0) + " 10000 0 2024-11-01 PENDING",
+                ids.get(2) + " 30000 0 2024-11-30 PENDING");
+    }
+
+    @Test
+    void testStreamDueDates() {
+        Map<Long, LocalDate> dueDates = new HashMap<>();
+        invoiceRepository.streamDueDates(Status.PENDING, dueDates::put);
+
+        assertThat(dueDates).containsOnly(
+                entry(ids.get(0), LocalDate.of(2024, 11, 1)),
+                entry(ids.get(2), LocalDate.of(2024, 11, 30)));
+    }
+
+    @Test
+    void testLockNextChunkDueBefore() {
+        List<Invoice> chunk = invoiceRepository.lockNextChunkDueBefore(
+                Status.PENDING, LocalDate.of(2024, 12, 1), 0, Long.MAX_VALUE, 1);
+        assertThat(chunk).extracting(Invoice::getId).containsExactly(ids.get(0));
+
+        chunk = invoiceRepository.lockNextChunkDueBefore(
+                Status.PENDING, LocalDate.of(2024, 12, 1), ids.get(0), Long.MAX_VALUE, 10);
+        assertThat(chunk).extracting(Invoice::getId).containsExactly(ids.get(2));
+
+        chunk = invoiceRepository.lockNextChunkDueBefore(
+                Status.PENDING, LocalDate.of(2024, 12, 1), 0, ids.get(1), 10);
+        assertThat(chunk).extracting(Invoice::getId).containsExactly(ids.get(0));
+    }
+
+    @Test
+    void testFindIdRangeDueBefore() {
+        IdRange range = invoiceRepository.findIdRangeDueBefore(Status.PENDING, LocalDate.of(2024, 12, 1))
+                .orElseThrow();
+        assertThat(range.getMinId()).isEqualTo(ids.get(0));
+        assertThat(range.getMaxId()).isEqualTo(ids.get(2));
+
+        assertThat(invoiceRepository.findIdRangeDueBefore(Status.PENDING, LocalDate.of(2024, 1, 1))).isEmpty();
+    }
+
+    @Test
+    void testBatchUpdateStatusAndInsert() {
+        Invoice invoice = invoiceRepository.findById(ids.get(0)).orElseThrow();
+        invoice.setStatus(Status.VOID);
+        invoiceRepository.batchUpdateStatus(List.of(invoice));
+
+        invoiceRepository.batchInsert(List.of(Invoice.builder()
+                .amount(Money.of("110.00"))
+                .paidAmount(Money.ZERO)
+                .dueDate(LocalDate.of(2025, 1, 1))
+                .status(Status.PENDING)
+                .build()));
+
+        assertThat(invoiceRepository.findById(ids.get(0)).orElseThrow().getStatus()).isEqualTo(Status.VOID);
+        List<Invoice> inserted = invoiceRepository.findPage(InvoiceQuery.builder().afterId(ids.get(3)).build());
+        assertThat(inserted).hasSize(1);
+        assertThat(inserted.get(0).getAmount()).isEqualTo(Money.of("110.00"));
+        assertThat(inserted.get(0).getStatus()).isEqualTo(Status.PENDING);
+    }
+
+    @Test
+    void testBatchInsertAllocatesIdsInRequestOrder() {
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < InvoiceIdAllocator.BLOCK_SIZE + 5; i++) {
+            invoices.add(Invoice.builder()
+                    .amount(Money.of(BigDecimal.valueOf(i + 1)))
+                    .paidAmount(Money.ZERO)
+                    .dueDate(LocalDate.of(2025, 1, 1))
+                    .status(Status.PENDING)
+                    .build());
+        }
+
+        invoiceRepository.batchInsert(invoices);
+
+        assertThat(invoices).extracting(Invoice::getId).doesNotContainNull().isSorted().doesNotHaveDuplicates();
+        assertThat(invoices.get(0).getId()).isGreaterThan(ids.get(3));
+        List<Invoice> inserted = invoiceRepository.findPage(InvoiceQuery.builder().afterId(ids.get(3)).build());
+        assertThat(inserted).extracting(Invoice::getId)
+                .containsExactlyElementsOf(invoices.stream().map(Invoice::getId).toList());
+        assertThat(inserted.get(4).getAmount()).isEqualTo(Money.of("5"));
+    }
+
+    @Test
+    void testUpdatePaymentIfVersionMatches() {
+        Invoice invoice = invoiceRepository.findById(ids.get(0)).orElseThrow();
+        Invoice concurrent = invoiceRepository.findById(ids.get(0)).orElseThrow();
+
+        invoice.setPaidAmount(Money.of("40.00"));
+        assertThat(invoiceRepository.updatePaymentIfVersionMatches(invoice)).isTrue();
+        assertThat(invoice.getVersion()).isEqualTo(concurrent.getVersion() + 1);
+
+        concurrent.setPaidAmount(Money.of("60.00"));
+        assertThat(invoiceRepository.updatePaymentIfVersionMatches(concurrent)).isFalse();
+
+        Invoice stored = invoiceRepository.findById(ids.get(0)).orElseThrow();
+        assertThat(stored.getPaidAmount()).isEqualTo(Money.of("40.00"));
+        assertThat(stored.getVersion()).isEqualTo(invoice.getVersion());
+    }
+
+    @Test
+    void testBatchUpdatePaymentsIfVersionMatches() {
+        Invoice first = invoiceRepository.findById(ids.get(0)).orElseThrow();
+        Invoice third = invoiceRepository.findById(ids.get(2)).orElseThrow();
+        Invoice concurrent = invoiceRepository.findById(ids.get(2)).orElseThrow();
+        concurrent.setPaidAmount(Money.of("1.00"));
+        invoiceRepository.updatePaymentIfVersionMatches(concurrent);
+
+        first.setPaidAmount(Money.of("100.00"));
+        first.setStatus(Status.PAID);
+        third.setPaidAmount(Money.of("5.00"));
+
+        assertThat(invoiceRepository.batchUpdatePaymentsIfVersionMatches(List.of(first, third)))
+                .containsExactly(ids.get(2));
+
+        assertThat(invoiceRepository.findById(ids.get(0)).orElseThrow().getStatus()).isEqualTo(Status.PAID);
+        assertThat(invoiceRepository.findById(ids.get(2)).orElseThrow().getPaidAmount()).isEqualTo(Money.of("1.00"));
+    }
+
+    private Long save(String amount, LocalDate dueDate, Status status) {
+        return invoiceRepository.save(Invoice.builder()
+                .amount(Money.of(amount))
+                .paidAmount(Money.ZERO)
+                .dueDate(dueDate)
+                .status(status)
+                .build()).getId();
+    }
+}
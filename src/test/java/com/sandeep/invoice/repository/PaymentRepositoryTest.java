@@ -0,0 +1,75 @@
+package com.sandeep.invoice.repository;
+
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.model.Payment;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJdbcTest
+@Import({InvoiceIdAllocator.class, InvoiceIdCallback.class})
+class PaymentRepositoryTest {
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Test
+    void testBatchInsertAndFindByInvoiceId() {
+        Long invoiceId = save();
+        Long otherInvoiceId = save();
+        LocalDateTime paidAt = LocalDateTime.of(2024, 11, 1, 10, 0);
+
+        paymentRepository.save(payment(invoiceId, "10.00", paidAt));
+        paymentRepository.batchInsert(List.of(
+                payment(otherInvoiceId, "5.00", paidAt),
+                payment(invoiceId, "20.00", paidAt.plusMinutes(1)),
+                payment(invoiceId, "30.00", paidAt.plusMinutes(2))));
+
+        List<Payment> payments = paymentRepository.findByInvoiceIdOrderById(invoiceId);
+        assertThat(payments).extracting(Payment::getAmount)
+                .containsExactly(Money.of("10.00"), Money.of("20.00"), Money.of("30.00"));
+        assertThat(payments.get(2).getCreatedAt()).isEqualTo(paidAt.plusMinutes(2));
+        assertThat(payments).allSatisfy(payment -> assertThat(payment.getId()).isNotNull());
+        assertThat(paymentRepository.findByInvoiceIdOrderById(save())).isEmpty();
+    }
+
+    @Test
+    void testPaymentOfMissingInvoiceIsRejected() {
+        // Only the memory profile drops the foreign key to the invoice table.
+        Payment payment = payment(Long.MAX_VALUE, "10.00", LocalDateTime.now());
+
+        assertThatThrownBy(() -> paymentRepository.batchInsert(List.of(payment)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private Long save() {
+        return invoiceRepository.save(Invoice.builder()
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
+                .dueDate(LocalDate.of(2024, 11, 30))
+                .status(Status.PENDING)
+                .build()).getId();
+    }
+
+    private static Payment payment(Long invoiceId, String amount, LocalDateTime createdAt) {
+        return Payment.builder()
+                .invoiceId(invoiceId)
+                .amount(Money.of(amount))
+                .createdAt(createdAt)
+                .build();
+    }
+}
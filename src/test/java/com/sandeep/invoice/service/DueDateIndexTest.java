@@ -0,0 +1,125 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class DueDateIndexTest {
+
+    private static final LocalDate NOV_1 = LocalDate.of(2024, 11, 1);
+    private static final LocalDate NOV_2 = LocalDate.of(2024, 11, 2);
+    private static final LocalDate NOV_3 = LocalDate.of(2024, 11, 3);
+
+    @Mock
+    private InvoiceRepository invoiceRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DueDateIndex dueDateIndex;
+
+    @BeforeEach
+    void setUp() {
+        dueDateIndex = new DueDateIndex(invoiceRepository, meterRegistry);
+    }
+
+    @Test
+    void testIgnoresUpdatesUntilLoaded() {
+        dueDateIndex.update(invoice(1L, NOV_1, Status.PENDING));
+
+        assertThat(dueDateIndex.isLoaded()).isFalse();
+        assertThat(dueDateIndex.size()).isZero();
+    }
+
+    @Test
+    void testRebuildAndUpdate() {
+        streamPending(Map.of(1L, NOV_1, 2L, NOV_2));
+        dueDateIndex.rebuild();
+
+        dueDateIndex.update(invoice(3L, NOV_2, Status.PENDING));
+        dueDateIndex.update(invoice(4L, NOV_3, Status.PENDING));
+        dueDateIndex.update(invoice(1L, NOV_1, Status.PAID));
+
+        assertThat(dueDateIndex.isLoaded()).isTrue();
+        assertThat(dueDateIndex.expiredBuckets(NOV_3)).containsExactly(Map.entry(NOV_2, Set.of(2L, 3L)));
+        assertThat(dueDateIndex.size()).isEqualTo(3);
+        assertThat(dueDateIndex.bucketCount()).isEqualTo(2);
+        assertThat(meterRegistry.get("invoice.overdue.index.invoices").gauge().value()).isEqualTo(3.0);
+    }
+
+    @Test
+    void testDiscardKeepsIdsAddedSince() {
+        streamPending(Map.of(1L, NOV_1, 2L, NOV_1));
+        dueDateIndex.rebuild();
+
+        Map<LocalDate, Set<Long>> expired = dueDateIndex.expiredBuckets(NOV_2);
+        dueDateIndex.update(invoice(3L, NOV_1, Status.PENDING));
+        dueDateIndex.discard(expired);
+
+        assertThat(dueDateIndex.expiredBuckets(NOV_2)).containsExactly(Map.entry(NOV_1, Set.of(3L)));
+    }
+
+    @Test
+    void testRebuildKeepsUpdatesMadeWhileStreaming() {
+        doAnswer(invocation -> {
+            BiConsumer<Long, LocalDate> consumer = invocation.getArgument(1);
+            consumer.accept(1L, NOV_1);
+            // Committed while the rebuild streams: 2 is paid after its row was read, 3 is created
+            // after the cursor has passed it.
+            dueDateIndex.update(invoice(2L, NOV_1, Status.PAID));
+            dueDateIndex.update(invoice(3L, NOV_2, Status.PENDING));
+            consumer.accept(2L, NOV_1);
+            return null;
+        }).when(invoiceRepository).streamDueDates(eq(Status.PENDING), any());
+
+        dueDateIndex.rebuild();
+
+        assertThat(dueDateIndex.expiredBuckets(NOV_3))
+                .containsExactly(Map.entry(NOV_1, Set.of(1L)), Map.entry(NOV_2, Set.of(3L)));
+    }
+
+    @Test
+    void testRebuildReplacesDriftedContent() {
+        streamPending(Map.of(1L, NOV_1));
+        dueDateIndex.rebuild();
+        dueDateIndex.update(invoice(9L, NOV_1, Status.PENDING));
+
+        streamPending(Map.of(1L, NOV_1, 2L, NOV_2));
+        dueDateIndex.rebuild();
+
+        assertThat(dueDateIndex.expiredBuckets(NOV_3))
+                .containsExactly(Map.entry(NOV_1, Set.of(1L)), Map.entry(NOV_2, Set.of(2L)));
+    }
+
+    private void streamPending(Map<Long, LocalDate> dueDates) {
+        doAnswer(invocation -> {
+            BiConsumer<Long, LocalDate> consumer = invocation.getArgument(1);
+            dueDates.forEach(consumer);
+            return null;
+        }).when(invoiceRepository).streamDueDates(eq(Status.PENDING), any());
+    }
+
+    private static Invoice invoice(Long id, LocalDate dueDate, Status status) {
+        return Invoice.builder()
+                .id(id)
+                .dueDate(dueDate)
+                .status(status)
+                .build();
+    }
+}
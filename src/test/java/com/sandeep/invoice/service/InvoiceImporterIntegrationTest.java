@@ -0,0 +1,189 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.InvoiceImportResponse;
+import com.sandeep.invoice.dto.RunStatus;
+import com.sandeep.invoice.exception.InvoiceConcurrencyException;
+import com.sandeep.invoice.exception.InvoiceDataException;
+import com.sandeep.invoice.exception.InvoiceImportFailedException;
+import com.sandeep.invoice.model.InvoiceImport;
+import com.sandeep.invoice.repository.InvoiceImportRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:invoice-importer-test",
+        "invoice.imports.batch-size=3",
+        "invoice.imports.queue-capacity=1",
+        "invoice.imports.rejects-dir=target/invoice-importer-test"
+})
+class InvoiceImporterIntegrationTest {
+
+    // 12 lines after the header: 5 invoices, 6 rejected rows and a blank line.
+    private static final String CSV = """
+            id,amount,due_date,status
+            1,100.00,2024-12-01,PENDING
+            2,abc,2024-12-01,PENDING
+            3,0.00,2024-12-01,PENDING
+            4,"1,000.00",2024-12-01,PENDING
+            5,25.50,2024-12-02,PENDING
+
+            6,12345678.00,2024-12-01,PENDING
+            7,10.00,,PENDING
+            8,10.00,2024-12-03,PENDING
+            9,10.00,"2024-12-03,PENDING
+            10,10.00,2024-12-04,PENDING
+            11,0.01,2024-12-05,PENDING
+            """;
+
+    private static final List<String> REJECTS = List.of(
+            "line,error,row",
+            "3,\"amount: not a number\",\"2,abc,2024-12-01,PENDING\"",
+            "4,\"amount: must be greater than 0.0\",\"3,0.00,2024-12-01,PENDING\"",
+            "5,\"amount: not a number\",\"4,\"\"1,000.00\"\",2024-12-01,PENDING\"",
+            "8,\"amount: numeric value out of bounds (<7 digits>.<2 digits> expected)\","
+                    + "\"6,12345678.00,2024-12-01,PENDING\"",
+            "9,\"due_date: must not be null\",\"7,10.00,,PENDING\"",
+            "11,\"unterminated quoted field\",\"9,10.00,\"\"2024-12-03,PENDING\"");
+
+    @Autowired
+    private InvoiceImporter invoiceImporter;
+
+    @Autowired
+    private InvoiceImportRepository invoiceImportRepository;
+
+    @Autowired
+    private InvoiceProperties properties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM invoice_import");
+        jdbcTemplate.update("DELETE FROM invoice");
+    }
+
+    @Test
+    void testStartImport() throws IOException {
+        InvoiceImportResponse response = invoiceImporter.startImport(csv(CSV));
+
+        assertThat(response.getStatus()).isEqualTo(RunStatus.COMPLETED);
+        assertThat(response.getLastCommittedLine()).isEqualTo(13);
+        assertThat(response.getImportedCount()).isEqualTo(5);
+        assertThat(response.getRejectedCount()).isEqualTo(6);
+        assertThat(response.getBatchCount()).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForList("SELECT amount FROM invoice ORDER BY id", String.class))
+                .containsExactly("100.00", "25.50", "10.00", "10.00", "0.01");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM invoice WHERE status = 0 AND paid_amount = 0",
+                Long.class)).isEqualTo(5);
+        assertThat(Files.readAllLines(invoiceImporter.getRejects(response.getImportId()))).isEqualTo(REJECTS);
+    }
+
+    @Test
+    void testResumeImport_ContinuesAfterLastCommittedBatch() throws IOException {
+        // The upload breaks off in the middle of line 9, after two batches may have committed.
+        byte[] file = CSV.getBytes(StandardCharsets.UTF_8);
+        int breakOff = CSV.indexOf("7,10.00");
+        InputStream broken = new ByteArrayInputStream(file, 0, breakOff) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                int read = super.read(b, off, len);
+                if (read == -1) {
+                    throw new IllegalStateException("Connection reset");
+                }
+                return read;
+            }
+        };
+
+        InvoiceImportFailedException failure = assertThrows(InvoiceImportFailedException.class,
+                () -> invoiceImporter.startImport(broken));
+        InvoiceImport failed = invoiceImportRepository.findAll().iterator().next();
+        assertThat(failure.getMessage()).contains("Import " + failed.getId() + " failed after line "
+                + failed.getLastCommittedLine());
+        assertThat(failed.getStatus()).isEqualTo(RunStatus.RUNNING);
+        assertThat(failed.getLeaseOwner()).isNull();
+        assertThat(failed.getLastCommittedLine()).isLessThanOrEqualTo(7);
+
+        InvoiceImportResponse response = invoiceImporter.resumeImport(failed.getId(), csv(CSV));
+
+        assertThat(response.getStatus()).isEqualTo(RunStatus.COMPLETED);
+        assertThat(response.getImportedCount()).isEqualTo(5);
+        assertThat(response.getRejectedCount()).isEqualTo(6);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM invoice", Long.class)).isEqualTo(5);
+        assertThat(Files.readAllLines(invoiceImporter.getRejects(failed.getId()))).isEqualTo(REJECTS);
+    }
+
+    @Test
+    void testResumeImport_DropsRejectsOfUncommittedBatches() throws IOException {
+        InvoiceImport invoiceImport = invoiceImportRepository.save(InvoiceImport.builder()
+                .status(RunStatus.RUNNING)
+                .lastCommittedLine(4)
+                .importedCount(1)
+                .rejectedCount(2)
+                .batchCount(1)
+                .createdAt(LocalDateTime.now())
+                .build());
+        Files.createDirectories(properties.getImports().getRejectsDir());
+        // Written before a crash: the rejects of the committed batch and of one that did not commit.
+        Files.write(properties.getImports().getRejectsDir()
+                .resolve("import-" + invoiceImport.getId() + "-rejects.csv"), REJECTS.subList(0, 4));
+
+        InvoiceImportResponse response = invoiceImporter.resumeImport(invoiceImport.getId(), csv(CSV));
+
+        assertThat(response.getImportedCount()).isEqualTo(5);
+        assertThat(response.getRejectedCount()).isEqualTo(6);
+        // The invoice of line 2 was committed by the first batch, which is not part of this test's database.
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM invoice", Long.class)).isEqualTo(4);
+        assertThat(Files.readAllLines(invoiceImporter.getRejects(invoiceImport.getId()))).isEqualTo(REJECTS);
+    }
+
+    @Test
+    void testResumeImport_RejectsImportInProgress() {
+        InvoiceImport invoiceImport = invoiceImportRepository.save(InvoiceImport.builder()
+                .status(RunStatus.RUNNING)
+                .leaseOwner("other-request")
+                .leaseExpiresAt(LocalDateTime.now().plusMinutes(1))
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        assertThrows(InvoiceConcurrencyException.class,
+                () -> invoiceImporter.resumeImport(invoiceImport.getId(), csv(CSV)));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM invoice", Long.class)).isZero();
+    }
+
+    @Test
+    void testResumeImport_Completed() {
+        InvoiceImportResponse completed = invoiceImporter.startImport(csv(CSV));
+
+        InvoiceImportResponse response = invoiceImporter.resumeImport(completed.getImportId(), csv(CSV));
+
+        assertThat(response.getStatus()).isEqualTo(RunStatus.COMPLETED);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM invoice", Long.class)).isEqualTo(5);
+    }
+
+    @Test
+    void testStartImport_MissingColumn() {
+        assertThrows(InvoiceDataException.class, () -> invoiceImporter.startImport(csv("id,amount\n1,10.00\n")));
+        assertThrows(InvoiceDataException.class, () -> invoiceImporter.startImport(csv("")));
+        assertThat(invoiceImportRepository.count()).isZero();
+    }
+
+    private static InputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
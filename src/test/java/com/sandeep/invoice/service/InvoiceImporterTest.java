@@ -0,0 +1,51 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.service.InvoiceImporter.Columns;
+import com.sandeep.invoice.service.InvoiceImporter.Row;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvoiceImporterTest {
+
+    private static final Columns COLUMNS = new Columns(1, 0, 2);
+
+    @Test
+    void testSplitCsv() {
+        assertThat(InvoiceImporter.splitCsv("a,,b")).containsExactly("a", "", "b");
+        assertThat(InvoiceImporter.splitCsv("\"a,b\",\"say \"\"hi\"\"\",")).containsExactly("a,b", "say \"hi\"", "");
+        assertThat(InvoiceImporter.splitCsv("")).containsExactly("");
+        assertThat(InvoiceImporter.splitCsv("a,\"b")).isNull();
+    }
+
+    @Test
+    void testParseRow() {
+        Row row = InvoiceImporter.parseRow(2, "2024-12-31, 100.50 ", COLUMNS);
+
+        assertThat(row.getError()).isNull();
+        assertThat(row.getRequest().getAmount()).isEqualByComparingTo(new BigDecimal("100.50"));
+        assertThat(row.getRequest().getDueDate()).isEqualTo(LocalDate.of(2024, 12, 31));
+    }
+
+    @Test
+    void testParseRow_EmptyFieldsAreLeftToValidation() {
+        Row row = InvoiceImporter.parseRow(2, ",", COLUMNS);
+
+        assertThat(row.getError()).isNull();
+        assertThat(row.getRequest().getAmount()).isNull();
+        assertThat(row.getRequest().getDueDate()).isNull();
+    }
+
+    @Test
+    void testParseRow_Rejected() {
+        assertThat(InvoiceImporter.parseRow(2, "2024-12-31", COLUMNS).getError())
+                .isEqualTo("expected 2 fields, found 1");
+        assertThat(InvoiceImporter.parseRow(2, "2024-12-31,1e", COLUMNS).getError())
+                .isEqualTo("amount: not a number");
+        assertThat(InvoiceImporter.parseRow(2, "31/12/2024,1.00", COLUMNS).getError())
+                .isEqualTo("due_date: not a date in the format yyyy-MM-dd");
+    }
+}
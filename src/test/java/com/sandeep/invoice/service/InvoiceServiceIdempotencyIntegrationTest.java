@@ -0,0 +1,110 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.dto.CreateInvoiceRequest;
+import com.sandeep.invoice.dto.CreateInvoiceResponse;
+import com.sandeep.invoice.dto.InvoiceResponse;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.exception.IdempotencyKeyReusedException;
+import com.sandeep.invoice.exception.InvoiceConcurrencyException;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:idempotency-test")
+class InvoiceServiceIdempotencyIntegrationTest {
+
+    private static final CreateInvoiceRequest INVOICE = CreateInvoiceRequest.builder()
+            .amount(new BigDecimal("100.00"))
+            .dueDate(LocalDate.of(2030, 1, 31))
+            .build();
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testCreateInvoice_RetryReturnsSameInvoice() {
+        long invoicesBefore = invoiceRepository.count();
+
+        CreateInvoiceResponse first = invoiceService.createInvoice(INVOICE, "create-1");
+        CreateInvoiceResponse retry = invoiceService.createInvoice(INVOICE, "create-1");
+
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        assertThat(invoiceRepository.count()).isEqualTo(invoicesBefore + 1);
+        assertThat(invoiceService.createInvoice(INVOICE, "create-2").getId()).isNotEqualTo(first.getId());
+    }
+
+    @Test
+    void testPayInvoice_RetryDoesNotPayTwice() {
+        Long invoiceId = Long.valueOf(invoiceService.createInvoice(INVOICE).getId());
+
+        InvoiceResponse first = invoiceService.payInvoice(invoiceId, new BigDecimal("60.00"), "pay-1");
+        InvoiceResponse retry = invoiceService.payInvoice(invoiceId, new BigDecimal("60.00"), "pay-1");
+
+        assertThat(retry).isEqualTo(first);
+        assertThat(paidAmount(invoiceId)).isEqualTo(Money.of("60.00"));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT response FROM idempotency_key WHERE idempotency_key = 'pay-1'", String.class))
+                .contains("\"paid_amount\":60.00");
+    }
+
+    @Test
+    void testPayInvoice_KeyReusedForDifferentPayment() {
+        Long invoiceId = Long.valueOf(invoiceService.createInvoice(INVOICE).getId());
+        invoiceService.payInvoice(invoiceId, new BigDecimal("10.00"), "pay-reused");
+
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> invoiceService.payInvoice(invoiceId, new BigDecimal("20.00"), "pay-reused"));
+        assertThat(paidAmount(invoiceId)).isEqualTo(Money.of("10.00"));
+    }
+
+    @Test
+    void testPayInvoice_ConcurrentDuplicatesPayOnce() throws InterruptedException {
+        Long invoiceId = Long.valueOf(invoiceService.createInvoice(INVOICE).getId());
+
+        List<Future<InvoiceResponse>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() ->
+                        invoiceService.payInvoice(invoiceId, new BigDecimal("30.00"), "pay-concurrent")));
+            }
+        }
+
+        for (Future<InvoiceResponse> future : futures) {
+            try {
+                assertThat(future.get().getPaidAmount()).isEqualTo(Money.of("30.00"));
+            } catch (ExecutionException e) {
+                // A duplicate that raced the first request before it committed is asked to retry.
+                assertThat(e.getCause()).isInstanceOf(InvoiceConcurrencyException.class);
+            }
+        }
+        assertThat(paidAmount(invoiceId)).isEqualTo(Money.of("30.00"));
+        Invoice invoice = invoiceRepository.findById(invoiceId).orElseThrow();
+        assertThat(invoice.getStatus()).isEqualTo(Status.PENDING);
+    }
+
+    private Money paidAmount(Long invoiceId) {
+        return invoiceRepository.findById(invoiceId).orElseThrow().getPaidAmount();
+    }
+}
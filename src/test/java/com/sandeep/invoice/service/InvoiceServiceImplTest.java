@@ -1,26 +1,56 @@
 package com.sandeep.invoice.service;
 
+import com.sandeep.invoice.cache.InvoiceCache;
+import com.sandeep.invoice.changes.InvoiceChangeFeed;
+import com.sandeep.invoice.changes.InvoiceChangeLog;
+import com.sandeep.invoice.config.InvoiceProperties;
 import com.sandeep.invoice.dto.*;
+import com.sandeep.invoice.exception.InvoiceConcurrencyException;
 import com.sandeep.invoice.exception.InvoiceNotFoundException;
 import com.sandeep.invoice.exception.InvoicePaymentDataException;
+import com.sandeep.invoice.idempotency.IdempotencyStore;
+import com.sandeep.invoice.idempotency.IdempotentRequest;
+import com.sandeep.invoice.metrics.InvoiceMetrics;
 import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.InvoiceChange;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.model.Payment;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.sandeep.invoice.repository.InvoiceColumnsConsumer;
 import com.sandeep.invoice.repository.InvoiceRepository;
+import com.sandeep.invoice.repository.PaymentRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,12 +59,50 @@ class InvoiceServiceImplTest {
     @Mock
     private InvoiceRepository invoiceRepository;
 
+    @Mock
+    private OverdueProcessor overdueProcessor;
+
+    @Spy
+    private TransactionOperations transactionOperations = TransactionOperations.withoutTransaction();
+
+    @Spy
+    private InvoiceProperties properties = new InvoiceProperties();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private InvoiceMetrics metrics = new InvoiceMetrics(meterRegistry);
+
+    @Spy
+    private InvoiceCache invoiceCache = new InvoiceCache(properties, meterRegistry);
+
+    @Mock
+    private DueDateIndex dueDateIndex;
+
+    @Mock
+    private InvoiceSummary invoiceSummary;
+
+    @Mock
+    private InvoiceTableVersion invoiceTableVersion;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Spy
+    private PaymentCombiner paymentCombiner = new PaymentCombiner(properties, meterRegistry);
+
+    @Mock
+    private InvoiceChangeLog changeLog;
+
+    @Mock
+    private InvoiceChangeFeed changeFeed;
+
     @InjectMocks
     private InvoiceServiceImpl invoiceService;
 
-    @Captor
-    private ArgumentCaptor<List<Invoice>> invoiceCaptor;
-
     @Test
     void testCreateInvoice() {
         CreateInvoiceRequest request = CreateInvoiceRequest.builder()
@@ -44,8 +112,8 @@ class InvoiceServiceImplTest {
 
         Invoice savedInvoice = Invoice.builder()
                 .id(1L)
-                .amount(request.getAmount())
-                .paidAmount(BigDecimal.ZERO)
+                .amount(Money.of(request.getAmount()))
+                .paidAmount(Money.ZERO)
                 .dueDate(request.getDueDate())
                 .status(Status.PENDING)
                 .build();
@@ -58,77 +126,427 @@ class InvoiceServiceImplTest {
         verify(invoiceRepository).save(captor.capture());
 
         Invoice capturedInvoice = captor.getValue();
-        assertThat(capturedInvoice.getAmount()).isEqualTo(request.getAmount());
+        assertThat(capturedInvoice.getAmount()).isEqualTo(Money.of(request.getAmount()));
         assertThat(capturedInvoice.getDueDate()).isEqualTo(request.getDueDate());
         assertThat(capturedInvoice.getStatus()).isEqualTo(Status.PENDING);
 
         assertThat(response.getId()).isEqualTo("1");
+        verify(dueDateIndex).update(savedInvoice);
+        verify(changeLog).appendCreated(List.of(savedInvoice));
+    }
+
+    @Test
+    void testCreateInvoices() {
+        List<CreateInvoiceRequest> requests = List.of(
+                CreateInvoiceRequest.builder().amount(new BigDecimal("100.00")).dueDate(LocalDate.of(2024, 11, 30)).build(),
+                CreateInvoiceRequest.builder().amount(new BigDecimal("200.00")).dueDate(LocalDate.of(2024, 12, 31)).build());
+        doAnswer(invocation -> {
+            List<Invoice> invoices = invocation.getArgument(0);
+            invoices.get(0).setId(1300L);
+            invoices.get(1).setId(1301L);
+            return null;
+        }).when(invoiceRepository).batchInsert(anyList());
+
+        BatchCreateInvoiceResponse response = invoiceService.createInvoices(requests);
+
+        assertThat(response.getIds()).containsExactly("1300", "1301");
+        ArgumentCaptor<List<Invoice>> captor = ArgumentCaptor.captor();
+        verify(invoiceRepository).batchInsert(captor.capture());
+        assertThat(captor.getValue()).extracting(Invoice::getAmount)
+                .containsExactly(Money.of("100.00"), Money.of("200.00"));
+        assertThat(captor.getValue()).extracting(Invoice::getStatus).containsOnly(Status.PENDING);
+        verify(invoiceRepository, never()).save(any());
+        verify(dueDateIndex).updateAll(captor.getValue());
+        verify(changeLog).appendCreated(captor.getValue());
     }
 
     @Test
     void testGetInvoices() {
         Invoice invoice1 = Invoice.builder()
                 .id(1L)
-                .amount(new BigDecimal("100.00"))
-                .paidAmount(BigDecimal.ZERO)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
                 .dueDate(LocalDate.of(2024, 11, 30))
                 .status(Status.PENDING)
                 .build();
 
         Invoice invoice2 = Invoice.builder()
                 .id(2L)
-                .amount(new BigDecimal("200.00"))
-                .paidAmount(new BigDecimal("50.00"))
+                .amount(Money.of("200.00"))
+                .paidAmount(Money.of("50.00"))
                 .dueDate(LocalDate.of(2024, 12, 10))
                 .status(Status.PENDING)
                 .build();
 
-        when(invoiceRepository.findAll()).thenReturn(List.of(invoice1, invoice2));
+        InvoiceQuery query = InvoiceQuery.builder().limit(100).build();
+        when(invoiceRepository.findPage(query)).thenReturn(List.of(invoice1, invoice2));
 
-        List<InvoiceResponse> invoices = invoiceService.getInvoices();
+        List<InvoiceResponse> invoices = invoiceService.getInvoices(query);
 
         assertThat(invoices).hasSize(2);
         assertThat(invoices.get(0).getId()).isEqualTo("1");
         assertThat(invoices.get(0).getStatus()).isEqualTo(Status.PENDING);
-        assertThat(invoices.get(1).getAmount()).isEqualByComparingTo("200.00");
+        assertThat(invoices.get(1).getAmount()).isEqualTo(Money.of("200.00"));
+    }
+
+    @Test
+    void testGetInvoice_ServedFromCacheAfterPayment() {
+        Invoice invoice = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
+                .status(Status.PENDING)
+                .version(0L)
+                .build();
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
+        when(invoiceRepository.updatePaymentIfVersionMatches(any(Invoice.class))).thenAnswer(invocation -> {
+            Invoice written = invocation.getArgument(0);
+            written.setVersion(written.getVersion() + 1);
+            return true;
+        });
+
+        assertThat(invoiceService.getInvoice(1L).getPaidAmount()).isEqualTo(Money.of("0.00"));
+        invoiceService.payInvoice(1L, new BigDecimal("40.00"));
+
+        assertThat(invoiceService.getInvoice(1L).getPaidAmount()).isEqualTo(Money.of("40.00"));
+        verify(invoiceRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testGetInvoice_NotFound() {
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(InvoiceNotFoundException.class, () -> invoiceService.getInvoice(1L));
+    }
+
+    @Test
+    void testStreamInvoices() {
+        Invoice invoice = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
+                .dueDate(LocalDate.of(2024, 11, 30))
+                .status(Status.PENDING)
+                .build();
+
+        InvoiceQuery query = InvoiceQuery.builder().status(Status.PENDING).build();
+        doAnswer(invocation -> {
+            Consumer<Invoice> consumer = invocation.getArgument(1);
+            consumer.accept(invoice);
+            return null;
+        }).when(invoiceRepository).streamAll(eq(query), any());
+
+        List<InvoiceResponse> streamed = new ArrayList<>();
+        invoiceService.streamInvoices(query, streamed::add);
+
+        assertThat(streamed).hasSize(1);
+        assertThat(streamed.get(0).getId()).isEqualTo("1");
+        assertThat(streamed.get(0).getAmount()).isEqualTo(Money.of("100.00"));
+    }
+
+    @Test
+    void testExportInvoices() {
+        InvoiceQuery query = InvoiceQuery.builder().status(Status.PAID).build();
+        doAnswer(invocation -> {
+            InvoiceColumnsConsumer consumer = invocation.getArgument(1);
+            consumer.accept(7L, 10050, 10050, null, Status.PAID);
+            return null;
+        }).when(invoiceRepository).exportAll(eq(query), any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = invoiceService.exportInvoices(query, ExportFormat.CSV, Channels.newChannel(out));
+
+        assertThat(rows).isEqualTo(1);
+        assertThat(out.toString(StandardCharsets.US_ASCII))
+                .isEqualTo("id,amount,paid_amount,due_date,status\n7,100.50,100.50,,PAID\n");
     }
 
     @Test
     void testPayInvoice_Success_PartAmount() {
         Invoice invoice = Invoice.builder()
                 .id(1L)
-                .amount(new BigDecimal("100.00"))
-                .paidAmount(BigDecimal.ZERO)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
                 .dueDate(LocalDate.of(2024, 11, 30))
                 .status(Status.PENDING)
+                .version(0L)
                 .build();
 
         when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
-        when(invoiceRepository.save(any(Invoice.class))).thenReturn(invoice);
+        when(invoiceRepository.updatePaymentIfVersionMatches(any(Invoice.class))).thenReturn(true);
 
         InvoiceResponse response = invoiceService.payInvoice(1L, new BigDecimal("50.00"));
 
-        assertThat(response.getPaidAmount()).isEqualByComparingTo("50.00");
+        assertThat(response.getPaidAmount()).isEqualTo(Money.of("50.00"));
         assertThat(response.getStatus()).isEqualTo(Status.PENDING);
+        verify(paymentRepository).save(argThat(payment ->
+                payment.getInvoiceId() == 1L && payment.getAmount().equals(Money.of("50.00"))));
+        verify(changeLog).appendUpdated(argThat(invoices -> invoices.size() == 1
+                && invoices.iterator().next().getPaidAmount().equals(Money.of("50.00"))));
+        assertThat(payments("success")).isEqualTo(1);
+        assertThat(meterRegistry.get("invoice.operation").tag("operation", "pay").timer().count()).isEqualTo(1);
     }
 
     @Test
     void testPayInvoice_Success_FullAmount() {
         Invoice invoice = Invoice.builder()
                 .id(1L)
-                .amount(new BigDecimal("50.00"))
-                .paidAmount(BigDecimal.ZERO)
+                .amount(Money.of("50.00"))
+                .paidAmount(Money.ZERO)
                 .dueDate(LocalDate.of(2024, 11, 30))
                 .status(Status.PENDING)
+                .version(0L)
                 .build();
 
         when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
-        when(invoiceRepository.save(any(Invoice.class))).thenReturn(invoice);
+        when(invoiceRepository.updatePaymentIfVersionMatches(any(Invoice.class))).thenReturn(true);
+
+        InvoiceResponse response = invoiceService.payInvoice(1L, new BigDecimal("50.00"));
+
+        assertThat(response.getPaidAmount()).isEqualTo(Money.of("50.00"));
+        assertThat(response.getStatus()).isEqualTo(Status.PAID);
+        verify(dueDateIndex).update(argThat(paid -> paid.getId() == 1L && paid.getStatus() == Status.PAID));
+    }
+
+    @Test
+    void testPayInvoice_RetriesOnConcurrentModification() {
+        Invoice stale = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
+                .status(Status.PENDING)
+                .version(0L)
+                .build();
+        Invoice fresh = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of("50.00"))
+                .status(Status.PENDING)
+                .version(1L)
+                .build();
+
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.of(stale), Optional.of(fresh));
+        when(invoiceRepository.updatePaymentIfVersionMatches(any(Invoice.class)))
+                .thenAnswer(invocation -> invocation.<Invoice>getArgument(0).getVersion() == 1);
 
         InvoiceResponse response = invoiceService.payInvoice(1L, new BigDecimal("50.00"));
 
-        assertThat(response.getPaidAmount()).isEqualByComparingTo("50.00");
+        assertThat(response.getPaidAmount()).isEqualTo(Money.of("100.00"));
         assertThat(response.getStatus()).isEqualTo(Status.PAID);
+        verify(paymentRepository, times(1)).save(any(Payment.class));
+    }
+
+    @Test
+    void testPayInvoice_RevalidatesAfterConcurrentModification() {
+        Invoice stale = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
+                .status(Status.PENDING)
+                .version(0L)
+                .build();
+        Invoice fresh = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of("80.00"))
+                .status(Status.PENDING)
+                .version(1L)
+                .build();
+
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.of(stale), Optional.of(fresh));
+        when(invoiceRepository.updatePaymentIfVersionMatches(any(Invoice.class))).thenReturn(false);
+
+        assertThrows(InvoicePaymentDataException.class,
+                () -> invoiceService.payInvoice(1L, new BigDecimal("30.00")));
+    }
+
+    @Test
+    void testPayInvoice_GivesUpAfterMaxAttempts() {
+        when(invoiceRepository.findById(1L)).thenAnswer(invocation -> Optional.of(Invoice.builder()
+                .id(1L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
+                .status(Status.PENDING)
+                .version(0L)
+                .build()));
+        when(invoiceRepository.updatePaymentIfVersionMatches(any(Invoice.class))).thenReturn(false);
+
+        assertThrows(InvoiceConcurrencyException.class,
+                () -> invoiceService.payInvoice(1L, new BigDecimal("30.00")));
+        verify(invoiceRepository, times(properties.getPayment().getMaxAttempts())).findById(1L);
+        assertThat(payments("conflict")).isEqualTo(1);
+    }
+
+    @Test
+    void testPayInvoices_AppliesDuplicatesInOrder() {
+        Invoice first = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
+                .status(Status.PENDING)
+                .version(0L)
+                .build();
+        Invoice second = Invoice.builder()
+                .id(2L)
+                .amount(Money.of("50.00"))
+                .paidAmount(Money.ZERO)
+                .status(Status.PAID)
+                .version(0L)
+                .build();
+
+        when(invoiceRepository.findAllById(anySet())).thenReturn(List.of(first, second));
+        when(invoiceRepository.batchUpdatePaymentsIfVersionMatches(anyCollection())).thenReturn(Set.of());
+
+        BatchPaymentResponse response = invoiceService.payInvoices(List.of(
+                batchPayment(1L, "60.00"),
+                batchPayment(2L, "10.00"),
+                batchPayment(1L, "60.00"),
+                batchPayment(3L, "10.00"),
+                batchPayment(1L, "40.00")));
+
+        assertThat(response.getSucceededCount()).isEqualTo(2);
+        assertThat(response.getFailedCount()).isEqualTo(3);
+
+        List<BatchPaymentResult> results = response.getResults();
+        assertThat(results).extracting(BatchPaymentResult::isSuccess)
+                .containsExactly(true, false, false, false, true);
+        assertThat(results.get(0).getInvoice().getPaidAmount()).isEqualTo(Money.of("60.00"));
+        assertThat(results.get(0).getInvoice().getStatus()).isEqualTo(Status.PENDING);
+        assertThat(results.get(1).getError()).contains("only for pending invoices");
+        assertThat(results.get(2).getError()).contains("more than remaining payment amount");
+        assertThat(results.get(3).getError()).contains("No invoice found with id 3");
+        assertThat(results.get(4).getInvoice().getPaidAmount()).isEqualTo(Money.of("100.00"));
+        assertThat(results.get(4).getInvoice().getStatus()).isEqualTo(Status.PAID);
+
+        ArgumentCaptor<Collection<Invoice>> captor = ArgumentCaptor.captor();
+        verify(invoiceRepository).batchUpdatePaymentsIfVersionMatches(captor.capture());
+        assertThat(captor.getValue()).singleElement()
+                .satisfies(written -> assertThat(written.getPaidAmount()).isEqualTo(Money.of("100.00")));
+        assertThat(first.getPaidAmount()).isEqualTo(Money.of("0.00"));
+
+        ArgumentCaptor<List<Payment>> ledgerCaptor = ArgumentCaptor.captor();
+        verify(paymentRepository).batchInsert(ledgerCaptor.capture());
+        assertThat(ledgerCaptor.getValue()).extracting(Payment::getInvoiceId, Payment::getAmount)
+                .containsExactly(tuple(1L, Money.of("60.00")), tuple(1L, Money.of("40.00")));
+
+        assertThat(payments("success")).isEqualTo(2);
+        assertThat(payments("invalid")).isEqualTo(2);
+        assertThat(payments("not_found")).isEqualTo(1);
+    }
+
+    @Test
+    void testPayInvoices_RetriesConflictingInvoices() {
+        Invoice stale = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
+                .status(Status.PENDING)
+                .version(0L)
+                .build();
+        Invoice fresh = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of("70.00"))
+                .status(Status.PENDING)
+                .version(1L)
+                .build();
+
+        when(invoiceRepository.findAllById(Set.of(1L))).thenReturn(List.of(stale), List.of(fresh));
+        when(invoiceRepository.batchUpdatePaymentsIfVersionMatches(anyCollection()))
+                .thenReturn(Set.of(1L), Set.of());
+
+        BatchPaymentResponse response = invoiceService.payInvoices(List.of(batchPayment(1L, "30.00")));
+
+        assertThat(response.getSucceededCount()).isEqualTo(1);
+        assertThat(response.getResults().get(0).getInvoice().getStatus()).isEqualTo(Status.PAID);
+        verify(invoiceRepository, times(2)).findAllById(Set.of(1L));
+        // Only the attempt whose update was written appends to the ledger.
+        verify(paymentRepository, times(1)).batchInsert(anyList());
+    }
+
+    @Test
+    void testPayInvoice_Combined() {
+        properties.getPayment().setCombine(true);
+        Invoice invoice = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
+                .status(Status.PENDING)
+                .version(0L)
+                .build();
+        when(invoiceRepository.findAllById(Set.of(1L))).thenReturn(List.of(invoice));
+        when(invoiceRepository.batchUpdatePaymentsIfVersionMatches(anyCollection())).thenReturn(Set.of());
+
+        InvoiceResponse response = invoiceService.payInvoice(1L, new BigDecimal("60.00"));
+
+        assertThat(response.getPaidAmount()).isEqualTo(Money.of("60.00"));
+        verify(paymentRepository).batchInsert(argThat(entries -> entries.size() == 1));
+        verify(invoiceRepository, never()).updatePaymentIfVersionMatches(any());
+        assertThat(payments("success")).isEqualTo(1);
+
+        assertThrows(InvoicePaymentDataException.class,
+                () -> invoiceService.payInvoice(1L, new BigDecimal("60.00")));
+        assertThat(payments("invalid")).isEqualTo(1);
+    }
+
+    @Test
+    void testGetPayments() {
+        LocalDateTime paidAt = LocalDateTime.of(2024, 11, 1, 10, 0);
+        when(paymentRepository.findByInvoiceIdOrderById(1L)).thenReturn(List.of(
+                Payment.builder().id(7L).invoiceId(1L).amount(Money.of("40.00")).createdAt(paidAt).build()));
+
+        List<PaymentResponse> payments = invoiceService.getPayments(1L);
+
+        assertThat(payments).singleElement().satisfies(payment -> {
+            assertThat(payment.getId()).isEqualTo("7");
+            assertThat(payment.getAmount()).isEqualTo(Money.of("40.00"));
+            assertThat(payment.getCreatedAt()).isEqualTo(paidAt);
+        });
+        verifyNoInteractions(invoiceRepository);
+    }
+
+    @Test
+    void testGetPayments_NotFound() {
+        when(paymentRepository.findByInvoiceIdOrderById(1L)).thenReturn(List.of());
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(InvoiceNotFoundException.class, () -> invoiceService.getPayments(1L));
+    }
+
+    @Test
+    void testGetChanges() {
+        LocalDateTime changedAt = LocalDateTime.of(2024, 11, 1, 10, 0);
+        when(changeFeed.await(5, 100, Duration.ofSeconds(30))).thenReturn(List.of(InvoiceChange.builder()
+                .seq(6L)
+                .invoiceId(1L)
+                .type(InvoiceChangeType.PAID)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of("100.00"))
+                .dueDate(LocalDate.of(2024, 11, 30))
+                .status(Status.PAID)
+                .createdAt(changedAt)
+                .build()));
+
+        InvoiceChangesResponse response = invoiceService.getChanges(5, 100, Duration.ofSeconds(30));
+
+        assertThat(response.getNextCursor()).isEqualTo("6");
+        assertThat(response.getChanges()).singleElement().satisfies(change -> {
+            assertThat(change.getCursor()).isEqualTo("6");
+            assertThat(change.getType()).isEqualTo(InvoiceChangeType.PAID);
+            assertThat(change.getInvoice().getId()).isEqualTo("1");
+            assertThat(change.getInvoice().getStatus()).isEqualTo(Status.PAID);
+            assertThat(change.getChangedAt()).isEqualTo(changedAt);
+        });
+    }
+
+    @Test
+    void testGetChanges_NoChangesKeepsCursor() {
+        when(changeFeed.await(5, 100, Duration.ZERO)).thenReturn(List.of());
+
+        InvoiceChangesResponse response = invoiceService.getChanges(5, 100, Duration.ZERO);
+
+        assertThat(response.getChanges()).isEmpty();
+        assertThat(response.getNextCursor()).isEqualTo("5");
     }
 
     @Test
@@ -137,14 +555,102 @@ class InvoiceServiceImplTest {
 
         assertThrows(InvoiceNotFoundException.class,
                 () -> invoiceService.payInvoice(1L, new BigDecimal("50.00")));
+        assertThat(payments("not_found")).isEqualTo(1);
+    }
+
+    @Test
+    void testPayInvoice_IdempotencyKey_StoresResponseWithPayment() {
+        Invoice invoice = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
+                .dueDate(LocalDate.of(2024, 11, 30))
+                .status(Status.PENDING)
+                .version(0L)
+                .build();
+        IdempotentRequest request = new IdempotentRequest("pay-1", "POST /invoices/1/payments 40.00");
+
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
+        when(invoiceRepository.updatePaymentIfVersionMatches(any(Invoice.class))).thenReturn(true);
+
+        InvoiceResponse response = invoiceService.payInvoice(1L, new BigDecimal("40.00"), "pay-1");
+
+        assertThat(response.getPaidAmount()).isEqualTo(Money.of("40.00"));
+        verify(transactionOperations).execute(any());
+        verify(idempotencyStore).save(request, response);
+        verify(idempotencyStore).remember(request, response);
+    }
+
+    @Test
+    void testPayInvoice_IdempotencyKey_ReplaysFromMemory() {
+        InvoiceResponse stored = InvoiceResponse.builder().id("1").status(Status.PAID).build();
+        when(idempotencyStore.findCached(any(), eq(InvoiceResponse.class))).thenReturn(Optional.of(stored));
+
+        assertThat(invoiceService.payInvoice(1L, new BigDecimal("40.00"), "pay-1")).isSameAs(stored);
+        verifyNoInteractions(invoiceRepository);
+        assertThat(meterRegistry.get("invoice.idempotent.replays").tag("operation", "pay").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testPayInvoice_IdempotencyKey_ReplaysStoredResponseAfterValidationFailure() {
+        // The first request paid the invoice in full, on an instance whose memory this one does not share.
+        Invoice invoice = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("40.00"))
+                .paidAmount(Money.of("40.00"))
+                .dueDate(LocalDate.of(2024, 11, 30))
+                .status(Status.PAID)
+                .build();
+        InvoiceResponse stored = InvoiceResponse.builder().id("1").status(Status.PAID).build();
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
+        when(idempotencyStore.findCached(any(), eq(InvoiceResponse.class))).thenReturn(Optional.empty());
+        when(idempotencyStore.find(any(), eq(InvoiceResponse.class))).thenReturn(Optional.of(stored));
+
+        assertThat(invoiceService.payInvoice(1L, new BigDecimal("40.00"), "pay-1")).isSameAs(stored);
+        verify(invoiceRepository, never()).updatePaymentIfVersionMatches(any());
+    }
+
+    @Test
+    void testPayInvoice_IdempotencyKey_NewKeyFailsLikeAnyPayment() {
+        Invoice invoice = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("40.00"))
+                .paidAmount(Money.of("40.00"))
+                .dueDate(LocalDate.of(2024, 11, 30))
+                .status(Status.PAID)
+                .build();
+        when(invoiceRepository.findById(1L)).thenReturn(Optional.of(invoice));
+        when(idempotencyStore.findCached(any(), eq(InvoiceResponse.class))).thenReturn(Optional.empty());
+        when(idempotencyStore.find(any(), eq(InvoiceResponse.class))).thenReturn(Optional.empty());
+
+        assertThrows(InvoicePaymentDataException.class,
+                () -> invoiceService.payInvoice(1L, new BigDecimal("40.00"), "pay-2"));
+        assertThat(payments("invalid")).isEqualTo(1);
+    }
+
+    @Test
+    void testCreateInvoice_IdempotencyKey_ConcurrentDuplicateStillInProgress() {
+        when(idempotencyStore.findCached(any(), eq(CreateInvoiceResponse.class))).thenReturn(Optional.empty());
+        when(invoiceRepository.save(any(Invoice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        doThrow(new DuplicateKeyException("idempotency_key")).when(idempotencyStore).save(any(), any());
+        when(idempotencyStore.find(any(), eq(CreateInvoiceResponse.class))).thenReturn(Optional.empty());
+
+        assertThrows(InvoiceConcurrencyException.class, () -> invoiceService.createInvoice(
+                CreateInvoiceRequest.builder()
+                        .amount(new BigDecimal("100.00"))
+                        .dueDate(LocalDate.of(2024, 11, 30))
+                        .build(),
+                "create-1"));
+        verifyNoInteractions(dueDateIndex);
     }
 
     @Test
     void testPayInvoice_NotPending() {
         Invoice invoice = Invoice.builder()
                 .id(1L)
-                .amount(new BigDecimal("100.00"))
-                .paidAmount(new BigDecimal("80.00"))
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of("80.00"))
                 .dueDate(LocalDate.of(2024, 11, 30))
                 .status(Status.PAID)
                 .build();
@@ -159,8 +665,8 @@ class InvoiceServiceImplTest {
     void testPayInvoice_ExceedsAmount() {
         Invoice invoice = Invoice.builder()
                 .id(1L)
-                .amount(new BigDecimal("100.00"))
-                .paidAmount(new BigDecimal("80.00"))
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of("80.00"))
                 .dueDate(LocalDate.of(2024, 11, 30))
                 .status(Status.PENDING)
                 .build();
@@ -173,63 +679,29 @@ class InvoiceServiceImplTest {
 
     @Test
     void testProcessOverdue() {
-        Invoice overdueNotPaid = Invoice.builder()
-                .id(1L)
-                .amount(new BigDecimal("100.00"))
-                .paidAmount(BigDecimal.ZERO)
-                .dueDate(LocalDate.of(2024, 11, 1))
-                .status(Status.PENDING)
-                .build();
-        Invoice overduePartPaid = Invoice.builder()
-                .id(2L)
-                .amount(new BigDecimal("100.00"))
-                .paidAmount(new BigDecimal("20.00"))
-                .dueDate(LocalDate.of(2024, 11, 1))
-                .status(Status.PENDING)
-                .build();
-
         ProcessOverdueRequest request = ProcessOverdueRequest.builder()
                 .lateFee(new BigDecimal("10.00"))
                 .overdueDays(30)
                 .build();
+        ProcessOverdueResponse response = ProcessOverdueResponse.builder()
+                .runId(1L)
+                .status(RunStatus.COMPLETED)
+                .processedCount(2)
+                .build();
+        when(overdueProcessor.startRun(request)).thenReturn(response);
 
-        when(invoiceRepository.findByStatusAndDueDateBefore(eq(Status.PENDING), any(LocalDate.class)))
-                .thenReturn(List.of(overdueNotPaid, overduePartPaid));
-
-        invoiceService.processOverdue(request);
-
-        verify(invoiceRepository, times(2)).saveAll(invoiceCaptor.capture());
-
-        List<List<Invoice>> allCapturedInvoices = invoiceCaptor.getAllValues();
-        assertThat(allCapturedInvoices).hasSize(2);
-
-        List<Invoice> capturedInvoices = allCapturedInvoices.stream().flatMap(List::stream).toList();
-        assertThat(capturedInvoices).hasSize(4);
-
-        Invoice updatedInvoice = capturedInvoices.get(0);
-        Invoice newInvoice = capturedInvoices.get(1);
-
-        // Validate updated invoice
-        assertThat(updatedInvoice.getId()).isEqualTo(1L);
-        assertThat(updatedInvoice.getStatus()).isEqualTo(Status.VOID);
-
-        // Validate new invoice
-        assertThat(newInvoice.getAmount()).isEqualByComparingTo(new BigDecimal("110.00")); // Remaining + late fee
-        assertThat(newInvoice.getPaidAmount()).isEqualByComparingTo(BigDecimal.ZERO);
-        assertThat(newInvoice.getStatus()).isEqualTo(Status.PENDING);
-        assertThat(newInvoice.getDueDate()).isEqualTo(LocalDate.now().plusDays(30));
-
-        updatedInvoice = capturedInvoices.get(2);
-        newInvoice = capturedInvoices.get(3);
+        assertThat(invoiceService.processOverdue(request)).isSameAs(response);
+        assertThat(meterRegistry.get("invoice.overdue.last.run.invoices").gauge().value()).isEqualTo(2);
+    }
 
-        // Validate updated invoice
-        assertThat(updatedInvoice.getId()).isEqualTo(2L);
-        assertThat(updatedInvoice.getStatus()).isEqualTo(Status.PAID);
+    private double payments(String outcome) {
+        return meterRegistry.get("invoice.payments").tag("outcome", outcome).counter().count();
+    }
 
-        // Validate new invoice
-        assertThat(newInvoice.getAmount()).isEqualByComparingTo(new BigDecimal("90.00")); // Remaining + late fee
-        assertThat(newInvoice.getPaidAmount()).isEqualByComparingTo(BigDecimal.ZERO);
-        assertThat(newInvoice.getStatus()).isEqualTo(Status.PENDING);
-        assertThat(newInvoice.getDueDate()).isEqualTo(LocalDate.now().plusDays(30));
+    private static BatchPaymentItem batchPayment(Long invoiceId, String amount) {
+        BatchPaymentItem item = new BatchPaymentItem();
+        item.setInvoiceId(invoiceId);
+        item.setAmount(new BigDecimal(amount));
+        return item;
     }
 }
@@ -0,0 +1,95 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.dto.CreateInvoiceRequest;
+import com.sandeep.invoice.dto.InvoiceSummaryResponse;
+import com.sandeep.invoice.dto.ProcessOverdueRequest;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:invoice-summary-test")
+class InvoiceSummaryIntegrationTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceSummary invoiceSummary;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM payment");
+        jdbcTemplate.update("DELETE FROM invoice");
+        invoiceSummary.reconcile();
+    }
+
+    @Test
+    void testWritesKeepSummaryInSyncWithDatabase() {
+        Long paidId = create("100.00", LocalDate.now().minusDays(40));
+        Long partlyPaidId = create("80.00", LocalDate.now().minusDays(40));
+        create("50.00", LocalDate.now().minusDays(40));
+        create("60.00", LocalDate.now().minusDays(5));
+        invoiceService.createInvoices(List.of(
+                request("20.00", LocalDate.now().plusDays(10)),
+                request("30.00", LocalDate.now().plusDays(20))));
+        invoiceService.payInvoice(paidId, new BigDecimal("100.00"));
+        invoiceService.payInvoice(partlyPaidId, new BigDecimal("30.00"));
+
+        InvoiceSummaryResponse summary = invoiceService.getSummary();
+        assertThat(summary.getStatuses().get(Status.PENDING).getCount()).isEqualTo(5);
+        assertThat(summary.getStatuses().get(Status.PAID).getCount()).isEqualTo(1);
+        assertThat(summary.getOutstandingAmount()).isEqualTo(Money.of("210.00"));
+        assertThat(summary.getOverdueCount()).isEqualTo(3);
+        assertThat(summary.getOverdueAmount()).isEqualTo(Money.of("160.00"));
+        assertThat(invoiceSummary.reconcile()).isZero();
+
+        // Voids the two unpaid overdue invoices and closes the partly paid one, each with a follow-up invoice.
+        invoiceService.processOverdue(ProcessOverdueRequest.builder()
+                .lateFee(new BigDecimal("10.00"))
+                .overdueDays(30)
+                .build());
+
+        summary = invoiceService.getSummary();
+        assertThat(summary.getStatuses().get(Status.VOID).getCount()).isEqualTo(2);
+        assertThat(summary.getStatuses().get(Status.PAID).getCount()).isEqualTo(2);
+        assertThat(summary.getStatuses().get(Status.PENDING).getCount()).isEqualTo(5);
+        assertThat(summary.getOverdueCount()).isZero();
+        assertThat(invoiceSummary.reconcile()).isZero();
+    }
+
+    @Test
+    void testReconcile_PicksUpWritesOfOtherInstances() {
+        jdbcTemplate.update("INSERT INTO invoice (id, amount, paid_amount, due_date, status, version) "
+                + "VALUES (1, 45.50, 0, ?, 0, 0)", LocalDate.now().minusDays(100));
+
+        assertThat(invoiceSummary.reconcile()).isEqualTo(2);
+
+        InvoiceSummaryResponse summary = invoiceService.getSummary();
+        assertThat(summary.getStatuses().get(Status.PENDING).getCount()).isEqualTo(1);
+        assertThat(summary.getOverdue().get(3).getAmount()).isEqualTo(Money.of("45.50"));
+    }
+
+    private Long create(String amount, LocalDate dueDate) {
+        return Long.valueOf(invoiceService.createInvoice(request(amount, dueDate)).getId());
+    }
+
+    private static CreateInvoiceRequest request(String amount, LocalDate dueDate) {
+        return CreateInvoiceRequest.builder()
+                .amount(new BigDecimal(amount))
+                .dueDate(dueDate)
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.InvoiceSummaryResponse;
+import com.sandeep.invoice.dto.OverdueBucketSummary;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import com.sandeep.invoice.repository.InvoiceTotalsConsumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class InvoiceSummaryTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 12, 31);
+
+    @Mock
+    private InvoiceRepository invoiceRepository;
+
+    private InvoiceSummary invoiceSummary;
+
+    @BeforeEach
+    void setUp() {
+        invoiceSummary = new InvoiceSummary(invoiceRepository, new InvoiceProperties());
+    }
+
+    @Test
+    void testSummarize_TotalsPerStatusAndOverdueBuckets() {
+        invoiceSummary.created(List.of(
+                invoice(1L, "100.00", "0.00", TODAY.plusDays(5), Status.PENDING),
+                invoice(2L, "50.00", "0.00", TODAY.minusDays(1), Status.PENDING),
+                invoice(3L, "70.00", "20.00", TODAY.minusDays(30), Status.PENDING),
+                invoice(4L, "40.00", "0.00", TODAY.minusDays(31), Status.PENDING),
+                invoice(5L, "10.00", "0.00", TODAY.minusDays(200), Status.PENDING),
+                invoice(6L, "30.00", "30.00", TODAY.minusDays(10), Status.PAID)));
+
+        InvoiceSummaryResponse summary = invoiceSummary.summarize(TODAY);
+
+        assertThat(summary.getStatuses().get(Status.PENDING).getCount()).isEqualTo(5);
+        assertThat(summary.getStatuses().get(Status.PENDING).getAmount()).isEqualTo(Money.of("270.00"));
+        assertThat(summary.getStatuses().get(Status.PENDING).getPaidAmount()).isEqualTo(Money.of("20.00"));
+        assertThat(summary.getStatuses().get(Status.PAID).getCount()).isEqualTo(1);
+        assertThat(summary.getStatuses().get(Status.VOID).getCount()).isZero();
+        assertThat(summary.getOutstandingAmount()).isEqualTo(Money.of("250.00"));
+        assertThat(summary.getOverdueCount()).isEqualTo(4);
+        assertThat(summary.getOverdueAmount()).isEqualTo(Money.of("150.00"));
+        assertThat(summary.getOverdue()).containsExactly(
+                bucket(1, 30, 2, "100.00"),
+                bucket(31, 60, 1, "40.00"),
+                bucket(61, 90, 0, "0.00"),
+                bucket(91, null, 1, "10.00"));
+    }
+
+    @Test
+    void testPaid_PartialPaymentKeepsInvoicePending() {
+        invoiceSummary.created(List.of(invoice(1L, "100.00", "0.00", TODAY.minusDays(3), Status.PENDING)));
+
+        invoiceSummary.paid(invoice(1L, "100.00", "40.00", TODAY.minusDays(3), Status.PENDING), Money.of("40.00"));
+
+        InvoiceSummaryResponse summary = invoiceSummary.summarize(TODAY);
+        assertThat(summary.getStatuses().get(Status.PENDING).getCount()).isEqualTo(1);
+        assertThat(summary.getStatuses().get(Status.PENDING).getPaidAmount()).isEqualTo(Money.of("40.00"));
+        assertThat(summary.getOutstandingAmount()).isEqualTo(Money.of("60.00"));
+        assertThat(summary.getOverdueAmount()).isEqualTo(Money.of("60.00"));
+    }
+
+    @Test
+    void testPaid_FullPaymentMovesInvoiceToPaid() {
+        invoiceSummary.created(List.of(invoice(1L, "100.00", "0.00", TODAY.minusDays(3), Status.PENDING)));
+        invoiceSummary.paid(invoice(1L, "100.00", "40.00", TODAY.minusDays(3), Status.PENDING), Money.of("40.00"));
+
+        invoiceSummary.paid(invoice(1L, "100.00", "100.00", TODAY.minusDays(3), Status.PAID), Money.of("60.00"));
+
+        InvoiceSummaryResponse summary = invoiceSummary.summarize(TODAY);
+        assertThat(summary.getStatuses().get(Status.PENDING).getCount()).isZero();
+        assertThat(summary.getStatuses().get(Status.PENDING).getAmount()).isEqualTo(Money.ZERO);
+        assertThat(summary.getStatuses().get(Status.PENDING).getPaidAmount()).isEqualTo(Money.ZERO);
+        assertThat(summary.getStatuses().get(Status.PAID).getCount()).isEqualTo(1);
+        assertThat(summary.getStatuses().get(Status.PAID).getPaidAmount()).isEqualTo(Money.of("100.00"));
+        assertThat(summary.getOutstandingAmount()).isEqualTo(Money.ZERO);
+        assertThat(summary.getOverdueCount()).isZero();
+    }
+
+    @Test
+    void testLeftPending_MovesOverdueInvoices() {
+        invoiceSummary.created(List.of(
+                invoice(1L, "100.00", "25.00", TODAY.minusDays(40), Status.PENDING),
+                invoice(2L, "60.00", "0.00", TODAY.minusDays(40), Status.PENDING)));
+
+        invoiceSummary.leftPending(List.of(
+                invoice(1L, "100.00", "25.00", TODAY.minusDays(40), Status.PAID),
+                invoice(2L, "60.00", "0.00", TODAY.minusDays(40), Status.VOID)));
+        invoiceSummary.created(List.of(invoice(3L, "85.00", "0.00", TODAY.plusDays(30), Status.PENDING)));
+
+        InvoiceSummaryResponse summary = invoiceSummary.summarize(TODAY);
+        assertThat(summary.getStatuses().get(Status.PENDING).getCount()).isEqualTo(1);
+        assertThat(summary.getStatuses().get(Status.PAID).getAmount()).isEqualTo(Money.of("100.00"));
+        assertThat(summary.getStatuses().get(Status.PAID).getPaidAmount()).isEqualTo(Money.of("25.00"));
+        assertThat(summary.getStatuses().get(Status.VOID).getCount()).isEqualTo(1);
+        assertThat(summary.getOutstandingAmount()).isEqualTo(Money.of("85.00"));
+        assertThat(summary.getOverdueCount()).isZero();
+    }
+
+    @Test
+    void testReconcile_CorrectsDriftAndKeepsInSyncTotals() {
+        LocalDate dueDate = TODAY.minusDays(5);
+        invoiceSummary.created(List.of(
+                invoice(1L, "100.00", "0.00", dueDate, Status.PENDING),
+                invoice(2L, "10.00", "10.00", dueDate, Status.PAID)));
+        // The database also has an invoice created by another instance, and no longer has the PENDING one.
+        doAnswer(invocation -> {
+            InvoiceTotalsConsumer consumer = invocation.getArgument(0);
+            consumer.accept(Status.PAID, dueDate, 1, 1_000, 1_000);
+            consumer.accept(Status.PENDING, TODAY.minusDays(45), 2, 5_000, 1_000);
+            return null;
+        }).when(invoiceRepository).aggregateTotals(any());
+
+        // PAID is in sync; the PENDING totals and those of both due dates have drifted.
+        assertThat(invoiceSummary.reconcile()).isEqualTo(3);
+        assertThat(invoiceSummary.reconcile()).isZero();
+
+        InvoiceSummaryResponse summary = invoiceSummary.summarize(TODAY);
+        assertThat(summary.getStatuses().get(Status.PENDING).getCount()).isEqualTo(2);
+        assertThat(summary.getStatuses().get(Status.PAID).getCount()).isEqualTo(1);
+        assertThat(summary.getOutstandingAmount()).isEqualTo(Money.of("40.00"));
+        assertThat(summary.getOverdue()).extracting(OverdueBucketSummary::getCount).containsExactly(0L, 2L, 0L, 0L);
+        assertThat(summary.getReconciledAt()).isNotNull();
+    }
+
+    private static Invoice invoice(Long id, String amount, String paidAmount, LocalDate dueDate, Status status) {
+        return Invoice.builder()
+                .id(id)
+                .amount(Money.of(amount))
+                .paidAmount(Money.of(paidAmount))
+                .dueDate(dueDate)
+                .status(status)
+                .build();
+    }
+
+    private static OverdueBucketSummary bucket(int daysFrom, Integer daysTo, long count, String amount) {
+        return OverdueBucketSummary.builder()
+                .daysFrom(daysFrom)
+                .daysTo(daysTo)
+                .count(count)
+                .amount(Money.of(amount))
+                .build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.changes.InvoiceChangeLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InvoiceTableVersionTest {
+
+    @Mock
+    private InvoiceChangeLog changeLog;
+
+    @Test
+    void testETagChangesWithLocalAndRelayedWrites() {
+        InvoiceTableVersion version = new InvoiceTableVersion(changeLog);
+        when(changeLog.lastSequence()).thenReturn(17L, 17L, 18L);
+
+        version.refresh();
+        String initial = version.etag();
+        assertThat(initial).isEqualTo("\"0-17\"");
+
+        version.refresh();
+        assertThat(version.etag()).isEqualTo(initial);
+
+        version.changed();
+        String afterLocalWrite = version.etag();
+        assertThat(afterLocalWrite).isNotEqualTo(initial);
+
+        // A write of another instance, relayed from the outbox.
+        version.refresh();
+        assertThat(version.etag()).isNotEqualTo(afterLocalWrite).isEqualTo("\"1-18\"");
+    }
+}
@@ -0,0 +1,133 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.dto.ProcessOverdueRequest;
+import com.sandeep.invoice.dto.ProcessOverdueResponse;
+import com.sandeep.invoice.dto.RunStatus;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.model.OverduePartition;
+import com.sandeep.invoice.model.OverdueRun;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import com.sandeep.invoice.repository.OverduePartitionRepository;
+import com.sandeep.invoice.repository.OverdueRunRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:overdue-processor-test",
+        "invoice.overdue.partitions=4",
+        "invoice.overdue.parallelism=4",
+        "invoice.overdue.chunk-size=7"
+})
+class OverdueProcessorIntegrationTest {
+
+    @Autowired
+    private OverdueProcessor overdueProcessor;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private OverdueRunRepository overdueRunRepository;
+
+    @Autowired
+    private OverduePartitionRepository overduePartitionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM overdue_partition");
+        jdbcTemplate.update("DELETE FROM overdue_run");
+        jdbcTemplate.update("DELETE FROM invoice");
+    }
+
+    @Test
+    void testStartRun_ProcessesEveryOverdueInvoiceOnce() {
+        List<Long> overdueIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            overdueIds.add(save(LocalDate.now().minusDays(1), i % 2 == 0 ? "0.00" : "25.00").getId());
+        }
+        Long notOverdueId = save(LocalDate.now().plusDays(1), "0.00").getId();
+
+        ProcessOverdueResponse response = overdueProcessor.startRun(request());
+
+        assertThat(response.getStatus()).isEqualTo(RunStatus.COMPLETED);
+        assertThat(response.getProcessedCount()).isEqualTo(50);
+        assertThat(response.getVoidCount()).isEqualTo(25);
+        assertThat(response.getPaidCount()).isEqualTo(25);
+        assertThat(response.getPartitions()).hasSize(4)
+                .allSatisfy(partition -> assertThat(partition.getStatus()).isEqualTo(RunStatus.COMPLETED));
+
+        invoiceRepository.findAllById(overdueIds).forEach(invoice ->
+                assertThat(invoice.getStatus()).isNotEqualTo(Status.PENDING));
+        assertThat(invoiceRepository.findById(notOverdueId).orElseThrow().getStatus()).isEqualTo(Status.PENDING);
+        assertThat(invoiceRepository.count()).isEqualTo(101);
+    }
+
+    @Test
+    void testResumeRun_TakesOverExpiredLease() {
+        for (int i = 0; i < 10; i++) {
+            save(LocalDate.now().minusDays(1), "0.00");
+        }
+
+        Long minId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM invoice", Long.class);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM invoice", Long.class);
+        OverdueRun run = overdueRunRepository.save(OverdueRun.builder()
+                .lateFee(Money.of("10.00"))
+                .overdueDays(30)
+                .processingDate(LocalDate.now())
+                .partitionCount(1)
+                .status(RunStatus.RUNNING)
+                .createdAt(LocalDateTime.now())
+                .build());
+        // A partition left behind by a crashed instance, half done and with an expired lease.
+        overduePartitionRepository.save(OverduePartition.builder()
+                .runId(run.getId())
+                .partitionNo(0)
+                .fromId(minId)
+                .toId(maxId)
+                .lastProcessedId(minId + 4)
+                .status(RunStatus.PENDING)
+                .leaseOwner("crashed-node/0")
+                .leaseExpiresAt(LocalDateTime.now().minusMinutes(1))
+                .processedCount(5)
+                .build());
+
+        ProcessOverdueResponse response = overdueProcessor.resumeRun(run.getId());
+
+        assertThat(response.getStatus()).isEqualTo(RunStatus.COMPLETED);
+        assertThat(response.getProcessedCount()).isEqualTo(10);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM invoice WHERE status = 2", Long.class)).isEqualTo(5);
+    }
+
+    private Invoice save(LocalDate dueDate, String paidAmount) {
+        return invoiceRepository.save(Invoice.builder()
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of(paidAmount))
+                .dueDate(dueDate)
+                .status(Status.PENDING)
+                .build());
+    }
+
+    private static ProcessOverdueRequest request() {
+        return ProcessOverdueRequest.builder()
+                .lateFee(new BigDecimal("10.00"))
+                .overdueDays(30)
+                .build();
+    }
+}
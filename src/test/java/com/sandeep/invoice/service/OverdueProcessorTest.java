@@ -0,0 +1,359 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.cache.InvoiceCache;
+import com.sandeep.invoice.changes.InvoiceChangeLog;
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.ProcessOverdueRequest;
+import com.sandeep.invoice.dto.ProcessOverdueResponse;
+import com.sandeep.invoice.dto.RunStatus;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.exception.OverdueRunInProgressException;
+import com.sandeep.invoice.exception.OverdueRunNotFoundException;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.model.OverduePartition;
+import com.sandeep.invoice.model.OverdueRun;
+import com.sandeep.invoice.repository.IdRange;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import com.sandeep.invoice.repository.OverduePartitionRepository;
+import com.sandeep.invoice.repository.OverdueRunRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OverdueProcessorTest {
+
+    @Mock
+    private InvoiceRepository invoiceRepository;
+
+    @Mock
+    private OverdueRunRepository overdueRunRepository;
+
+    @Mock
+    private OverduePartitionRepository overduePartitionRepository;
+
+    @Mock
+    private InvoiceCache invoiceCache;
+
+    @Mock
+    private DueDateIndex dueDateIndex;
+
+    @Mock
+    private InvoiceSummary invoiceSummary;
+
+    @Mock
+    private InvoiceTableVersion invoiceTableVersion;
+
+    @Mock
+    private InvoiceChangeLog changeLog;
+
+    @Captor
+    private ArgumentCaptor<List<Invoice>> invoiceCaptor;
+
+    @Captor
+    private ArgumentCaptor<List<OverduePartition>> partitionCaptor;
+
+    private final InvoiceProperties properties = new InvoiceProperties();
+
+    private OverdueProcessor overdueProcessor;
+
+    @BeforeEach
+    void setUp() {
+        properties.getOverdue().setParallelism(1);
+        overdueProcessor = new OverdueProcessor(invoiceRepository, overdueRunRepository, overduePartitionRepository,
+                TransactionOperations.withoutTransaction(), properties, invoiceCache, dueDateIndex, invoiceSummary,
+                invoiceTableVersion, changeLog);
+    }
+
+    @Test
+    void testSplit() {
+        List<OverduePartition> partitions = OverdueProcessor.split(Optional.of(new IdRange(10, 19)), 3);
+
+        assertThat(partitions).extracting(OverduePartition::getFromId).containsExactly(10L, 14L, 18L);
+        assertThat(partitions).extracting(OverduePartition::getToId).containsExactly(13L, 17L, 19L);
+        assertThat(partitions).extracting(OverduePartition::getLastProcessedId).containsExactly(9L, 13L, 17L);
+        assertThat(partitions).extracting(OverduePartition::getPartitionNo).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void testSplit_FewerIdsThanPartitions() {
+        assertThat(OverdueProcessor.split(Optional.of(new IdRange(5, 6)), 16)).hasSize(2);
+        assertThat(OverdueProcessor.split(Optional.empty(), 16)).isEmpty();
+    }
+
+    @Test
+    void testStartRun() {
+        Invoice overdueNotPaid = Invoice.builder()
+                .id(1L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.ZERO)
+                .dueDate(LocalDate.of(2024, 11, 1))
+                .status(Status.PENDING)
+                .build();
+        Invoice overduePartPaid = Invoice.builder()
+                .id(2L)
+                .amount(Money.of("100.00"))
+                .paidAmount(Money.of("20.00"))
+                .dueDate(LocalDate.of(2024, 11, 1))
+                .status(Status.PENDING)
+                .build();
+
+        ProcessOverdueRequest request = ProcessOverdueRequest.builder()
+                .lateFee(new BigDecimal("10.00"))
+                .overdueDays(30)
+                .build();
+
+        OverduePartition partition = OverduePartition.builder()
+                .id(100L)
+                .runId(7L)
+                .fromId(1L)
+                .toId(2L)
+                .lastProcessedId(0L)
+                .status(RunStatus.PENDING)
+                .build();
+
+        when(invoiceRepository.findIdRangeDueBefore(eq(Status.PENDING), any(LocalDate.class)))
+                .thenReturn(Optional.of(new IdRange(1, 2)));
+        when(overdueRunRepository.save(any(OverdueRun.class))).thenAnswer(invocation -> {
+            OverdueRun run = invocation.getArgument(0);
+            run.setId(7L);
+            return run;
+        });
+        when(overduePartitionRepository.findByRunIdOrderByPartitionNo(7L)).thenReturn(List.of(partition));
+        when(overduePartitionRepository.findById(100L)).thenReturn(Optional.of(partition));
+        when(overduePartitionRepository.claim(eq(100L), anyString(), any(), any())).thenReturn(true);
+        when(invoiceRepository.lockNextChunkDueBefore(eq(Status.PENDING), any(LocalDate.class), eq(0L), eq(2L), eq(1000)))
+                .thenReturn(List.of(overdueNotPaid, overduePartPaid));
+        when(invoiceRepository.lockNextChunkDueBefore(eq(Status.PENDING), any(LocalDate.class), eq(2L), eq(2L), eq(1000)))
+                .thenReturn(List.of());
+        when(overduePartitionRepository.recordProgress(eq(100L), anyString(), eq(2L), eq(2L), eq(1L), eq(1L), any()))
+                .thenReturn(true);
+        when(overdueRunRepository.findById(7L)).thenReturn(Optional.of(OverdueRun.builder()
+                .id(7L)
+                .status(RunStatus.COMPLETED)
+                .createdAt(LocalDateTime.now())
+                .build()));
+
+        ProcessOverdueResponse response = overdueProcessor.startRun(request);
+
+        assertThat(response.getRunId()).isEqualTo(7L);
+        assertThat(response.getStatus()).isEqualTo(RunStatus.COMPLETED);
+        assertThat(response.getPartitions()).hasSize(1);
+
+        verify(overduePartitionRepository).complete(eq(100L), anyString());
+        verify(overdueRunRepository).completeIfAllPartitionsCompleted(eq(7L), any());
+
+        verify(invoiceRepository).batchUpdateStatus(invoiceCaptor.capture());
+        List<Invoice> updatedInvoices = invoiceCaptor.getValue();
+        verify(invoiceRepository).batchInsert(invoiceCaptor.capture());
+        List<Invoice> newInvoices = invoiceCaptor.getValue();
+        verify(changeLog).appendUpdated(updatedInvoices);
+        verify(changeLog).appendCreated(newInvoices);
+
+        assertThat(updatedInvoices).hasSize(2);
+        assertThat(newInvoices).hasSize(2);
+
+        Invoice updatedInvoice = updatedInvoices.get(0);
+        Invoice newInvoice = newInvoices.get(0);
+
+        // Validate updated invoice
+        assertThat(updatedInvoice.getId()).isEqualTo(1L);
+        assertThat(updatedInvoice.getStatus()).isEqualTo(Status.VOID);
+
+        // Validate new invoice
+        assertThat(newInvoice.getAmount()).isEqualTo(Money.of("110.00")); // Remaining + late fee
+        assertThat(newInvoice.getPaidAmount()).isEqualTo(Money.ZERO);
+        assertThat(newInvoice.getStatus()).isEqualTo(Status.PENDING);
+        assertThat(newInvoice.getDueDate()).isEqualTo(LocalDate.now().plusDays(30));
+
+        updatedInvoice = updatedInvoices.get(1);
+        newInvoice = newInvoices.get(1);
+
+        // Validate updated invoice
+        assertThat(updatedInvoice.getId()).isEqualTo(2L);
+        assertThat(updatedInvoice.getStatus()).isEqualTo(Status.PAID);
+
+        // Validate new invoice
+        assertThat(newInvoice.getAmount()).isEqualTo(Money.of("90.00")); // Remaining + late fee
+        assertThat(newInvoice.getPaidAmount()).isEqualTo(Money.ZERO);
+        assertThat(newInvoice.getStatus()).isEqualTo(Status.PENDING);
+        assertThat(newInvoice.getDueDate()).isEqualTo(LocalDate.now().plusDays(30));
+
+        verify(dueDateIndex).updateAll(updatedInvoices);
+        verify(dueDateIndex).updateAll(newInvoices);
+    }
+
+    @Test
+    void testStartRun_IdRange() {
+        when(overdueRunRepository.save(any(OverdueRun.class))).thenAnswer(invocation -> {
+            OverdueRun run = invocation.getArgument(0);
+            run.setId(9L);
+            return run;
+        });
+        when(overdueRunRepository.findById(9L)).thenReturn(Optional.of(OverdueRun.builder()
+                .id(9L)
+                .status(RunStatus.RUNNING)
+                .createdAt(LocalDateTime.now())
+                .build()));
+
+        overdueProcessor.startRun(ProcessOverdueRequest.builder()
+                .lateFee(new BigDecimal("10.00"))
+                .overdueDays(30)
+                .build(), new IdRange(40, 59));
+
+        verify(invoiceRepository, never()).findIdRangeDueBefore(any(), any());
+        verify(overduePartitionRepository).saveAll(partitionCaptor.capture());
+        assertThat(partitionCaptor.getValue()).hasSize(10);
+        assertThat(partitionCaptor.getValue().get(0).getFromId()).isEqualTo(40L);
+        assertThat(partitionCaptor.getValue().get(9).getToId()).isEqualTo(59L);
+    }
+
+    @Test
+    void testStartRun_NothingOverdue() {
+        when(invoiceRepository.findIdRangeDueBefore(eq(Status.PENDING), any(LocalDate.class)))
+                .thenReturn(Optional.empty());
+        when(overdueRunRepository.save(any(OverdueRun.class))).thenAnswer(invocation -> {
+            OverdueRun run = invocation.getArgument(0);
+            run.setId(8L);
+            return run;
+        });
+        when(overdueRunRepository.findById(8L)).thenAnswer(invocation -> Optional.of(OverdueRun.builder()
+                .id(8L)
+                .status(RunStatus.COMPLETED)
+                .createdAt(LocalDateTime.now())
+                .completedAt(LocalDateTime.now())
+                .build()));
+
+        ProcessOverdueResponse response = overdueProcessor.startRun(ProcessOverdueRequest.builder()
+                .lateFee(new BigDecimal("10.00"))
+                .overdueDays(30)
+                .build());
+
+        assertThat(response.getStatus()).isEqualTo(RunStatus.COMPLETED);
+        assertThat(response.getProcessedCount()).isZero();
+        verify(invoiceRepository, never()).lockNextChunkDueBefore(any(), any(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testStartRun_RejectedWhileAnotherRunIsProcessed() throws Exception {
+        CountDownLatch firstRunStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstRun = new CountDownLatch(1);
+        when(invoiceRepository.findIdRangeDueBefore(eq(Status.PENDING), any(LocalDate.class)))
+                .thenReturn(Optional.empty());
+        when(overdueRunRepository.save(any(OverdueRun.class))).thenAnswer(invocation -> {
+            firstRunStarted.countDown();
+            releaseFirstRun.await();
+            OverdueRun run = invocation.getArgument(0);
+            run.setId(8L);
+            return run;
+        });
+        when(overdueRunRepository.findById(8L)).thenAnswer(invocation -> Optional.of(OverdueRun.builder()
+                .id(8L)
+                .status(RunStatus.COMPLETED)
+                .createdAt(LocalDateTime.now())
+                .completedAt(LocalDateTime.now())
+                .build()));
+        ProcessOverdueRequest request = ProcessOverdueRequest.builder()
+                .lateFee(new BigDecimal("10.00"))
+                .overdueDays(30)
+                .build();
+
+        CompletableFuture<ProcessOverdueResponse> firstRun =
+                CompletableFuture.supplyAsync(() -> overdueProcessor.startRun(request));
+        assertThat(firstRunStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThrows(OverdueRunInProgressException.class, () -> overdueProcessor.startRun(request));
+        assertThrows(OverdueRunInProgressException.class,
+                () -> overdueProcessor.startRun(request, new IdRange(1, 2)));
+
+        releaseFirstRun.countDown();
+        assertThat(firstRun.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(RunStatus.COMPLETED);
+        assertThat(overdueProcessor.startRun(request).getStatus()).isEqualTo(RunStatus.COMPLETED);
+    }
+
+    @Test
+    void testResumeRun_PartitionLeasedElsewhere() {
+        OverduePartition partition = OverduePartition.builder()
+                .id(100L)
+                .runId(7L)
+                .status(RunStatus.PENDING)
+                .leaseOwner("other-node/0")
+                .build();
+        when(overdueRunRepository.findById(7L)).thenReturn(Optional.of(OverdueRun.builder()
+                .id(7L)
+                .status(RunStatus.RUNNING)
+                .createdAt(LocalDateTime.now())
+                .build()));
+        when(overduePartitionRepository.findByRunIdOrderByPartitionNo(7L)).thenReturn(List.of(partition));
+        when(overduePartitionRepository.claim(eq(100L), anyString(), any(), any())).thenReturn(false);
+
+        ProcessOverdueResponse response = overdueProcessor.resumeRun(7L);
+
+        assertThat(response.getStatus()).isEqualTo(RunStatus.RUNNING);
+        assertThat(response.getPartitions().get(0).getLeaseOwner()).isEqualTo("other-node/0");
+        verify(invoiceRepository, never()).lockNextChunkDueBefore(any(), any(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testProcessChunk_LeaseLost() {
+        OverduePartition partition = OverduePartition.builder()
+                .id(100L)
+                .runId(7L)
+                .fromId(1L)
+                .toId(1L)
+                .lastProcessedId(0L)
+                .status(RunStatus.PENDING)
+                .build();
+        when(overdueRunRepository.findById(7L)).thenReturn(Optional.of(OverdueRun.builder()
+                .id(7L)
+                .lateFee(Money.of("10.00"))
+                .overdueDays(30)
+                .processingDate(LocalDate.now())
+                .status(RunStatus.RUNNING)
+                .createdAt(LocalDateTime.now())
+                .build()));
+        when(overduePartitionRepository.findByRunIdOrderByPartitionNo(7L)).thenReturn(List.of(partition));
+        when(overduePartitionRepository.findById(100L)).thenReturn(Optional.of(partition));
+        when(overduePartitionRepository.claim(eq(100L), anyString(), any(), any())).thenReturn(true);
+        when(invoiceRepository.lockNextChunkDueBefore(eq(Status.PENDING), any(LocalDate.class), eq(0L), eq(1L), eq(1000)))
+                .thenReturn(List.of(Invoice.builder()
+                        .id(1L)
+                        .amount(Money.of("100.00"))
+                        .paidAmount(Money.ZERO)
+                        .status(Status.PENDING)
+                        .build()));
+        when(overduePartitionRepository.recordProgress(eq(100L), anyString(), anyLong(), anyLong(), anyLong(),
+                anyLong(), any())).thenReturn(false);
+
+        overdueProcessor.resumeRun(7L);
+
+        verify(overduePartitionRepository, never()).complete(anyLong(), anyString());
+    }
+
+    @Test
+    void testGetRun_NotFound() {
+        when(overdueRunRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(OverdueRunNotFoundException.class, () -> overdueProcessor.getRun(1L));
+    }
+}
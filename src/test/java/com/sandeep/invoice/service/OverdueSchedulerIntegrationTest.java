@@ -0,0 +1,67 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.dto.CreateInvoiceRequest;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:overdue-scheduler-test",
+        "invoice.overdue.schedule.enabled=true",
+        "invoice.overdue.schedule.late-fee=5.00",
+        "invoice.overdue.schedule.overdue-days=10"
+})
+class OverdueSchedulerIntegrationTest {
+
+    @Autowired
+    private OverdueScheduler overdueScheduler;
+
+    @Autowired
+    private DueDateIndex dueDateIndex;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Test
+    void testProcessExpiredDueDates_ProcessesInvoicesTrackedSinceStartup() {
+        assertThat(dueDateIndex.isLoaded()).isTrue();
+
+        List<CreateInvoiceRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            requests.add(invoice(LocalDate.now().minusDays(1 + i % 2)));
+        }
+        requests.add(invoice(LocalDate.now()));
+        List<Long> ids = invoiceService.createInvoices(requests).getIds().stream().map(Long::valueOf).toList();
+        invoiceService.payInvoice(ids.get(0), new BigDecimal("100.00"));
+
+        overdueScheduler.processExpiredDueDates();
+
+        invoiceRepository.findAllById(ids.subList(0, 20)).forEach(invoice ->
+                assertThat(invoice.getStatus()).isNotEqualTo(Status.PENDING));
+        assertThat(invoiceRepository.findById(ids.get(20)).orElseThrow().getStatus()).isEqualTo(Status.PENDING);
+        assertThat(dueDateIndex.expiredBuckets(LocalDate.now())).isEmpty();
+        // The invoice due today and the 19 invoices created for the unpaid overdue ones.
+        assertThat(dueDateIndex.size()).isEqualTo(20);
+        assertThat(dueDateIndex.expiredBuckets(LocalDate.now().plusDays(11)))
+                .containsOnlyKeys(LocalDate.now(), LocalDate.now().plusDays(10));
+    }
+
+    private static CreateInvoiceRequest invoice(LocalDate dueDate) {
+        return CreateInvoiceRequest.builder()
+                .amount(new BigDecimal("100.00"))
+                .dueDate(dueDate)
+                .build();
+    }
+}
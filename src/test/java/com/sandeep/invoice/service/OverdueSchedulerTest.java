@@ -0,0 +1,169 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.config.InvoiceProperties;
+import com.sandeep.invoice.dto.ProcessOverdueRequest;
+import com.sandeep.invoice.dto.ProcessOverdueResponse;
+import com.sandeep.invoice.dto.RunStatus;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.exception.OverdueRunInProgressException;
+import com.sandeep.invoice.metrics.InvoiceMetrics;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.repository.IdRange;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OverdueSchedulerTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Mock
+    private InvoiceRepository invoiceRepository;
+
+    @Mock
+    private OverdueProcessor overdueProcessor;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InvoiceProperties.Schedule schedule = new InvoiceProperties.Schedule();
+
+    private DueDateIndex dueDateIndex;
+    private OverdueScheduler overdueScheduler;
+
+    @BeforeEach
+    void setUp() {
+        schedule.setLateFee(new BigDecimal("10.00"));
+        schedule.setOverdueDays(14);
+        dueDateIndex = new DueDateIndex(invoiceRepository, meterRegistry);
+        overdueScheduler = new OverdueScheduler(dueDateIndex, overdueProcessor, new InvoiceMetrics(meterRegistry),
+                schedule);
+    }
+
+    @Test
+    void testProcessExpiredDueDates_OnlyExpiredBuckets() {
+        streamPending(Map.of(
+                1500L, TODAY.minusDays(1),
+                1700L, TODAY.minusDays(1),
+                1400L, TODAY,
+                1900L, TODAY.plusDays(1)));
+        overdueScheduler.loadIndex();
+        when(overdueProcessor.startRun(any(), any())).thenReturn(completedRun(2));
+
+        overdueScheduler.processExpiredDueDates();
+
+        ArgumentCaptor<ProcessOverdueRequest> request = ArgumentCaptor.forClass(ProcessOverdueRequest.class);
+        verify(overdueProcessor).startRun(request.capture(), eq(new IdRange(1500, 1700)));
+        assertThat(request.getValue().getLateFee()).isEqualByComparingTo("10.00");
+        assertThat(request.getValue().getOverdueDays()).isEqualTo(14);
+        verify(overdueProcessor, never()).startRun(any());
+
+        assertThat(dueDateIndex.expiredBuckets(TODAY)).isEmpty();
+        assertThat(dueDateIndex.size()).isEqualTo(2);
+        verify(invoiceRepository, times(1)).streamDueDates(eq(Status.PENDING), any());
+    }
+
+    @Test
+    void testProcessExpiredDueDates_NothingExpired() {
+        streamPending(Map.of(1400L, TODAY));
+        overdueScheduler.loadIndex();
+
+        overdueScheduler.processExpiredDueDates();
+
+        verifyNoInteractions(overdueProcessor);
+        verify(invoiceRepository, times(1)).streamDueDates(eq(Status.PENDING), any());
+    }
+
+    @Test
+    void testProcessExpiredDueDates_KeepsBucketsOfUnfinishedRun() {
+        streamPending(Map.of(1500L, TODAY.minusDays(1)));
+        overdueScheduler.loadIndex();
+        when(overdueProcessor.startRun(any(), any())).thenReturn(ProcessOverdueResponse.builder()
+                .runId(3L)
+                .status(RunStatus.RUNNING)
+                .processedCount(0)
+                .build());
+
+        overdueScheduler.processExpiredDueDates();
+
+        assertThat(dueDateIndex.expiredBuckets(TODAY)).containsOnlyKeys(TODAY.minusDays(1));
+    }
+
+    @Test
+    void testProcessExpiredDueDates_SkipsTickWhileAnotherRunIsProcessed() {
+        streamPending(Map.of(1500L, TODAY.minusDays(1)));
+        overdueScheduler.loadIndex();
+        when(overdueProcessor.startRun(any(), any()))
+                .thenThrow(new OverdueRunInProgressException("An overdue run is already being processed"));
+
+        overdueScheduler.processExpiredDueDates();
+
+        assertThat(dueDateIndex.expiredBuckets(TODAY)).containsOnlyKeys(TODAY.minusDays(1));
+        verify(invoiceRepository, times(1)).streamDueDates(eq(Status.PENDING), any());
+    }
+
+    @Test
+    void testProcessExpiredDueDates_RebuildsDriftedIndex() {
+        streamPending(Map.of(1500L, TODAY.minusDays(1)));
+        overdueScheduler.loadIndex();
+        // An invoice the index missed was processed as well.
+        when(overdueProcessor.startRun(any(), any())).thenReturn(completedRun(2));
+
+        overdueScheduler.processExpiredDueDates();
+
+        verify(invoiceRepository, times(2)).streamDueDates(eq(Status.PENDING), any());
+    }
+
+    @Test
+    void testProcessExpiredDueDates_LoadsIndexFirst() {
+        streamPending(Map.of(1500L, TODAY.minusDays(1)));
+        when(overdueProcessor.startRun(any(), any())).thenReturn(completedRun(1));
+
+        overdueScheduler.processExpiredDueDates();
+
+        assertThat(dueDateIndex.isLoaded()).isTrue();
+        verify(overdueProcessor).startRun(any(), eq(new IdRange(1500, 1500)));
+    }
+
+    @Test
+    void testProcessedInvoicesLeaveIndex() {
+        streamPending(Map.of(1500L, TODAY.minusDays(1)));
+        overdueScheduler.loadIndex();
+
+        dueDateIndex.update(Invoice.builder().id(1500L).dueDate(TODAY.minusDays(1)).status(Status.VOID).build());
+
+        overdueScheduler.processExpiredDueDates();
+
+        verifyNoInteractions(overdueProcessor);
+    }
+
+    private void streamPending(Map<Long, LocalDate> dueDates) {
+        doAnswer(invocation -> {
+            BiConsumer<Long, LocalDate> consumer = invocation.getArgument(1);
+            dueDates.forEach(consumer);
+            return null;
+        }).when(invoiceRepository).streamDueDates(eq(Status.PENDING), any());
+    }
+
+    private static ProcessOverdueResponse completedRun(long processed) {
+        return ProcessOverdueResponse.builder()
+                .runId(1L)
+                .status(RunStatus.COMPLETED)
+                .processedCount(processed)
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.sandeep.invoice.service;
+
+import com.sandeep.invoice.dto.BatchPaymentItem;
+import com.sandeep.invoice.dto.CreateInvoiceRequest;
+import com.sandeep.invoice.dto.PaymentResponse;
+import com.sandeep.invoice.dto.Status;
+import com.sandeep.invoice.model.Invoice;
+import com.sandeep.invoice.model.Money;
+import com.sandeep.invoice.repository.InvoiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:payment-ledger-test",
+        "invoice.payment.combine=true"
+})
+class PaymentLedgerIntegrationTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testConcurrentPayments_CombinedWithoutConflicts() throws Exception {
+        Long invoiceId = createInvoice("1000.00");
+
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 10; j++) {
+                        invoiceService.payInvoice(invoiceId, new BigDecimal("1.00"));
+                    }
+                }));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertThat(invoiceService.getPayments(invoiceId)).hasSize(160);
+        assertThat(paidAmount(invoiceId)).isEqualTo(Money.of("160.00"));
+        assertThat(ledgerTotal(invoiceId)).isEqualTo(Money.of("160.00"));
+    }
+
+    @Test
+    void testEveryPaymentPathAppendsToLedger() {
+        Long invoiceId = createInvoice("100.00");
+
+        invoiceService.payInvoice(invoiceId, new BigDecimal("10.00"));
+        invoiceService.payInvoice(invoiceId, new BigDecimal("20.00"), "ledger-pay-1");
+        invoiceService.payInvoice(invoiceId, new BigDecimal("20.00"), "ledger-pay-1");
+        BatchPaymentItem payment = new BatchPaymentItem();
+        payment.setInvoiceId(invoiceId);
+        payment.setAmount(new BigDecimal("70.00"));
+        invoiceService.payInvoices(List.of(payment, payment));
+
+        List<PaymentResponse> payments = invoiceService.getPayments(invoiceId);
+        assertThat(payments).extracting(PaymentResponse::getAmount)
+                .containsExactly(Money.of("10.00"), Money.of("20.00"), Money.of("70.00"));
+        assertThat(payments).allSatisfy(entry -> assertThat(entry.getInvoiceId()).isEqualTo(String.valueOf(invoiceId)));
+
+        Invoice invoice = invoiceRepository.findById(invoiceId).orElseThrow();
+        assertThat(invoice.getStatus()).isEqualTo(Status.PAID);
+        assertThat(ledgerTotal(invoiceId)).isEqualTo(invoice.getPaidAmount());
+    }
+
+    private Long createInvoice(String amount) {
+        return Long.valueOf(invoiceService.createInvoice(CreateInvoiceRequest.builder()
+                .amount(new BigDecimal(amount))
+                .dueDate(LocalDate.of(2030, 1, 31))
+                .build()).getId());
+    }
+
+    private Money paidAmount(Long invoiceId) {
+        return invoiceRepository.findById(invoiceId).orElseThrow().getPaidAmount();
+    }
+
+    private Money ledgerTotal(Long invoiceId) {
+        return Money.of(jdbcTemplate.queryForObject("SELECT SUM(amount) FROM payment WHERE invoice_id = ?",
+                BigDecimal.class, invoiceId));
+    }
+}
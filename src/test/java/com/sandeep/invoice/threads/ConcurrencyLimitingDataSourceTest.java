@@ -0,0 +1,73 @@
+package com.sandeep.invoice.threads;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConcurrencyLimitingDataSourceTest {
+
+    private final DataSource target = mock(DataSource.class);
+    private final ConcurrencyLimitingDataSource dataSource =
+            new ConcurrencyLimitingDataSource(target, 1, Duration.ofMillis(50));
+
+    @Test
+    void testGetConnection_TimesOutWhilePermitsAreTaken() throws SQLException {
+        when(target.getConnection()).thenReturn(mock(Connection.class));
+
+        Connection connection = dataSource.getConnection();
+
+        assertThatThrownBy(dataSource::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageContaining("one of 1 database connections");
+        connection.close();
+        assertThat(dataSource.getConnection()).isNotNull();
+    }
+
+    @Test
+    void testClose_ReleasesPermitOnce() throws SQLException {
+        Connection targetConnection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(targetConnection);
+
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        Connection second = dataSource.getConnection();
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        second.close();
+        verify(targetConnection, times(3)).close();
+    }
+
+    @Test
+    void testGetConnection_ReleasesPermitWhenTargetFails() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("down")).thenReturn(mock(Connection.class));
+
+        assertThatThrownBy(dataSource::getConnection).hasMessage("down");
+        assertThat(dataSource.getConnection()).isNotNull();
+    }
+
+    @Test
+    void testConnectionProxy_DelegatesCalls() throws SQLException {
+        Connection targetConnection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(targetConnection);
+        when(targetConnection.getAutoCommit()).thenReturn(true);
+        when(targetConnection.isReadOnly()).thenThrow(new SQLException("closed"));
+
+        Connection connection = dataSource.getConnection();
+
+        assertThat(connection.getAutoCommit()).isTrue();
+        assertThatThrownBy(connection::isReadOnly).isInstanceOf(SQLException.class).hasMessage("closed");
+        assertThat(connection).isEqualTo(connection).isNotEqualTo(targetConnection);
+    }
+}
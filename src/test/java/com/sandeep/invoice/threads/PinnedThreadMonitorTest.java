@@ -0,0 +1,58 @@
+package com.sandeep.invoice.threads;
+
+import com.sandeep.invoice.metrics.InvoiceMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class PinnedThreadMonitorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PinnedThreadMonitor monitor =
+            new PinnedThreadMonitor(new InvoiceMetrics(meterRegistry), Duration.ofMillis(10));
+
+    @AfterEach
+    void tearDown() {
+        monitor.stop();
+    }
+
+    @Test
+    void testRecordsVirtualThreadBlockedInSynchronizedBlock() throws InterruptedException {
+        monitor.start();
+        assertThat(monitor.isRunning()).isTrue();
+
+        Object lock = new Object();
+        Thread.ofVirtual().start(() -> {
+            synchronized (lock) {
+                sleep(Duration.ofMillis(50));
+            }
+        }).join();
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(meterRegistry.get("invoice.virtual.threads.pinned").timer().count()).isEqualTo(1));
+        assertThat(meterRegistry.get("invoice.virtual.threads.pinned").timer().totalTime(
+                TimeUnit.MILLISECONDS)).isGreaterThan(10);
+    }
+
+    @Test
+    void testStop() {
+        monitor.start();
+        monitor.stop();
+
+        assertThat(monitor.isRunning()).isFalse();
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}